@@ -1,4 +1,6 @@
 set STENDHAL_VERSION=1.28.5
+set JETTY_VERSION=9.2.14.v20151106
 set LOCALCLASSPATH=.;data\script;data\conf;stendhal-server-%STENDHAL_VERSION%.jar;marauroa.jar;mysql-connector.jar;log4j.jar;commons-lang.jar;h2.jar
+set LOCALCLASSPATH=%LOCALCLASSPATH%;servlet-api-3.1.jar;jetty-server-%JETTY_VERSION%.jar;jetty-http-%JETTY_VERSION%.jar;jetty-io-%JETTY_VERSION%.jar;jetty-util-%JETTY_VERSION%.jar;jetty-servlet-%JETTY_VERSION%.jar;jetty-security-%JETTY_VERSION%.jar
 java -Xmx400m -cp "%LOCALCLASSPATH%" games.stendhal.server.StendhalServer -c server.ini -l
 @pause
\ No newline at end of file
@@ -12,13 +12,16 @@
  ***************************************************************************/
 package games.stendhal.client;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.Arrays;
 
 import org.apache.log4j.Logger;
 
@@ -28,34 +31,70 @@ import marauroa.common.crypto.Hash;
 import marauroa.common.net.message.TransferContent;
 
 /**
- * Manages a cache for content files such as zone data transmitted by the server
+ * Manages a cache for content files such as zone data transmitted by the server.
+ * <p>
+ * The hashes of the cached files are kept in a manifest, so that checking a
+ * file against the hash offered by the server does not require reading it.
+ * Files are written atomically, and the least recently used files are removed
+ * when the cache grows over its size limit. Changes to the manifest are
+ * written by {@link #flush()}, once per content transfer.
  */
 class Cache {
 	private static Logger logger = Logger.getLogger(Cache.class);
 
+	/** default size limit of the cache in bytes */
+	private static final long DEFAULT_SIZE_LIMIT = 256L * 1024 * 1024;
+
+	/** name of the manifest file in the cache folder */
+	private static final String MANIFEST = "cache.manifest";
+
+	/** cache folder ending with a slash */
+	private final String folder;
+
+	/** size limit in bytes */
+	private final long sizeLimit;
+
+	/** hashes of the cached files */
+	private final CacheManifest manifest;
+
+	/**
+	 * creates a new Cache in the game folder
+	 */
+	Cache() {
+		this(stendhal.getGameFolder() + "cache/", DEFAULT_SIZE_LIMIT);
+	}
+
+	/**
+	 * creates a new Cache
+	 *
+	 * @param folder cache folder ending with a slash
+	 * @param sizeLimit size limit in bytes
+	 */
+	Cache(String folder, long sizeLimit) {
+		this.folder = folder;
+		this.sizeLimit = sizeLimit;
+		this.manifest = new CacheManifest(new File(folder, MANIFEST));
+	}
+
 	/**
 	 * Inits the cache.
 	 */
 	protected void init() {
 		try {
-
-			// Create file object
-			File file = new File(stendhal.getGameFolder());
-			if (!file.exists() && !file.mkdirs()) {
-				logger.error("Can't create " + file.getAbsolutePath() + " folder");
-			} else if (file.exists() && file.isFile()) {
-				if (!file.delete() || !file.mkdirs()) {
-					logger.error("Can't removing file " + file.getAbsolutePath() + " and creating a folder instead.");
+			File file = new File(folder);
+			File parent = file.getParentFile();
+			if ((parent != null) && parent.isFile()) {
+				if (!parent.delete()) {
+					logger.error("Can't removing file " + parent.getAbsolutePath() + " and creating a folder instead.");
 				}
 			}
-
-			file = new File(stendhal.getGameFolder() + "cache");
-			if (!file.exists() && !file.mkdir()) {
+			if (!file.exists() && !file.mkdirs()) {
 				logger.error("Can't create " + file.getAbsolutePath() + " folder");
 			}
 		} catch (final RuntimeException e) {
 			logger.error("cannot create cach folder", e);
 		}
+		manifest.load();
 	}
 
 	/**
@@ -71,33 +110,53 @@ class Cache {
 			return null;
 		}
 		String filename = getFilename(item.name);
-		byte[] data = IO.readFileContent(filename);
-		if (data == null) {
+		File file = new File(filename);
+		if (!file.isFile()) {
 			return null;
 		}
 
-		// Check hash, if provided by the server
-		byte[] expectedHash = item.getTransmittedHash();
-		if (expectedHash != null) {
-			byte[] actualHash = Hash.hash(data);
-			if (Arrays.equals(expectedHash, actualHash)) {
-				return new ByteArrayInputStream(data);
-			} else {
+		CacheManifest.Entry entry = manifest.get(item.name, file);
+		if (entry == null) {
+			// Not in the manifest, or changed on disk. Hash it once
+			byte[] data = IO.readFileContent(filename);
+			if (data == null) {
+				return null;
+			}
+			entry = manifest.record(item.name, file, Hash.toHexString(Hash.hash(data)), CRC.cmpCRC(data));
+			if (!isValid(item, entry)) {
 				return null;
 			}
+			return new ByteArrayInputStream(data);
 		}
 
-		// Otherwise check CRC for Stendhal up to 0.97
-		int expectedCRC = item.timestamp;
-		int actualCRC = CRC.cmpCRC(data);
-
-		if (expectedCRC == actualCRC) {
-			return new ByteArrayInputStream(data);
+		if (!isValid(item, entry)) {
+			return null;
+		}
+		try {
+			return new BufferedInputStream(new FileInputStream(file));
+		} catch (FileNotFoundException e) {
+			manifest.remove(item.name);
+			return null;
 		}
-		return null;
 	}
 
+	/**
+	 * checks if a cached file matches the version offered by the server
+	 *
+	 * @param item offered content
+	 * @param entry manifest entry of the cached file
+	 * @return <code>true</code> if the cached file is up to date
+	 */
+	private boolean isValid(final TransferContent item, final CacheManifest.Entry entry) {
+		// Check hash, if provided by the server
+		byte[] expectedHash = item.getTransmittedHash();
+		if (expectedHash != null) {
+			return Hash.toHexString(expectedHash).equals(entry.hash);
+		}
 
+		// Otherwise check CRC for Stendhal up to 0.97
+		return item.timestamp == entry.crc;
+	}
 
 	/**
 	 * Stores an item in cache.
@@ -113,13 +172,18 @@ class Cache {
 				logger.error("Cannot store item to cache because .. is not allowed in name " + item.name);
 				return;
 			}
-			String filename = stendhal.getGameFolder() + "cache/" + item.name;
-			OutputStream os = new FileOutputStream(filename);
+			File file = new File(getFilename(item.name));
+			File tmp = new File(file.getPath() + ".tmp");
+			OutputStream os = new BufferedOutputStream(new FileOutputStream(tmp));
 			try {
 				os.write(data);
 			} finally {
 				os.close();
 			}
+			CacheManifest.replace(tmp, file);
+
+			manifest.record(item.name, file, Hash.toHexString(Hash.hash(data)), CRC.cmpCRC(data));
+			evict(item.name);
 
 			logger.debug("Content " + item.name + " cached now.");
 		} catch (IOException e) {
@@ -127,6 +191,32 @@ class Cache {
 		}
 	}
 
+	/**
+	 * writes the changes of the manifest, including the last use of the
+	 * cached files
+	 */
+	void flush() {
+		manifest.saveIfChanged();
+	}
+
+	/**
+	 * removes the least recently used files until the cache fits in its size
+	 * limit
+	 *
+	 * @param keep name of the item that was just stored
+	 */
+	private void evict(String keep) {
+		for (String name : manifest.getEvictionCandidates(sizeLimit, keep)) {
+			File file = new File(getFilename(name));
+			if (!file.exists() || file.delete()) {
+				manifest.remove(name);
+				logger.debug("Content " + name + " removed from cache.");
+			} else {
+				logger.warn("Cannot remove " + file + " from cache.");
+			}
+		}
+	}
+
 	/**
 	 * gets the filename
 	 *
@@ -138,6 +228,6 @@ class Cache {
 			logger.error("Cannot access item in cache because .. is not allowed in name " + name);
 			return null;
 		}
-		return stendhal.getGameFolder() + "cache/" + name;
+		return folder + name;
 	}
 }
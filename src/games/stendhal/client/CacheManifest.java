@@ -0,0 +1,291 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.client;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The index of the content cache. It remembers the hash, CRC, size and
+ * modification time of each cached file, so that a cached file can be
+ * validated without reading and hashing it, as long as the size and the
+ * modification time of the file still match.
+ * <p>
+ * The manifest is a text file with one tab separated line per entry.
+ */
+class CacheManifest {
+	private static Logger logger = Logger.getLogger(CacheManifest.class);
+
+	/** entries by content name */
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+	/** manifest file */
+	private final File file;
+
+	/** total size of the files in the manifest */
+	private long totalSize;
+
+	/** <code>true</code> if there are changes that have not been saved */
+	private boolean changed;
+
+	/**
+	 * creates a new CacheManifest
+	 *
+	 * @param file manifest file
+	 */
+	CacheManifest(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * loads the manifest. Broken lines are skipped.
+	 */
+	synchronized void load() {
+		entries.clear();
+		totalSize = 0;
+		changed = false;
+		if (!file.isFile()) {
+			return;
+		}
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+			try {
+				String line = reader.readLine();
+				while (line != null) {
+					Entry entry = Entry.parse(line);
+					if (entry != null) {
+						put(entry);
+					}
+					line = reader.readLine();
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			logger.warn("Cannot read cache manifest " + file, e);
+		}
+	}
+
+	/**
+	 * saves the manifest. The manifest is written to a temporary file first,
+	 * which then replaces the old manifest.
+	 */
+	synchronized void save() {
+		try {
+			File tmp = new File(file.getPath() + ".tmp");
+			Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8));
+			try {
+				for (Entry entry : entries.values()) {
+					writer.write(entry.format());
+					writer.write('\n');
+				}
+			} finally {
+				writer.close();
+			}
+			replace(tmp, file);
+			changed = false;
+		} catch (IOException e) {
+			logger.warn("Cannot write cache manifest " + file, e);
+		}
+	}
+
+	/**
+	 * saves the manifest, if it has changed since it was loaded or saved
+	 */
+	synchronized void saveIfChanged() {
+		if (changed) {
+			save();
+		}
+	}
+
+	/**
+	 * gets the entry of a cached file, if the file has not changed since it
+	 * was recorded
+	 *
+	 * @param name content name
+	 * @param cached the cached file
+	 * @return entry, or <code>null</code> if there is none or it is outdated
+	 */
+	synchronized Entry get(String name, File cached) {
+		Entry entry = entries.get(name);
+		if (entry == null) {
+			return null;
+		}
+		if ((entry.size != cached.length()) || (entry.modified != cached.lastModified())) {
+			remove(name);
+			return null;
+		}
+		entry.lastUsed = System.currentTimeMillis();
+		changed = true;
+		return entry;
+	}
+
+	/**
+	 * records a cached file
+	 *
+	 * @param name content name
+	 * @param cached the cached file
+	 * @param hash hash of the content as hex string
+	 * @param crc CRC of the content
+	 * @return the new entry
+	 */
+	synchronized Entry record(String name, File cached, String hash, int crc) {
+		remove(name);
+		Entry entry = new Entry(name, cached.length(), cached.lastModified(), hash, crc, System.currentTimeMillis());
+		put(entry);
+		return entry;
+	}
+
+	/**
+	 * removes an entry
+	 *
+	 * @param name content name
+	 */
+	synchronized void remove(String name) {
+		Entry old = entries.remove(name);
+		if (old != null) {
+			totalSize -= old.size;
+			changed = true;
+		}
+	}
+
+	/**
+	 * gets the least recently used entries that need to be removed to get the
+	 * cache size down to a limit
+	 *
+	 * @param limit size limit in bytes
+	 * @param keep name of an entry that must not be chosen
+	 * @return names of the entries in the order they should be removed
+	 */
+	synchronized List<String> getEvictionCandidates(long limit, String keep) {
+		List<String> res = new ArrayList<String>();
+		if (totalSize <= limit) {
+			return res;
+		}
+		List<Entry> list = new ArrayList<Entry>(entries.values());
+		Collections.sort(list, new Comparator<Entry>() {
+			@Override
+			public int compare(Entry e1, Entry e2) {
+				return Long.compare(e1.lastUsed, e2.lastUsed);
+			}
+		});
+		long size = totalSize;
+		for (Entry entry : list) {
+			if (size <= limit) {
+				break;
+			}
+			if (!entry.name.equals(keep)) {
+				res.add(entry.name);
+				size -= entry.size;
+			}
+		}
+		return res;
+	}
+
+	/**
+	 * gets the total size of the recorded files
+	 *
+	 * @return size in bytes
+	 */
+	synchronized long getTotalSize() {
+		return totalSize;
+	}
+
+	private void put(Entry entry) {
+		entries.put(entry.name, entry);
+		totalSize += entry.size;
+		changed = true;
+	}
+
+	/**
+	 * replaces a file with another, atomically if the file system supports it
+	 *
+	 * @param source new file
+	 * @param target file to replace
+	 * @throws IOException in case of an input/output error
+	 */
+	static void replace(File source, File target) throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * a cached file
+	 */
+	static class Entry {
+		final String name;
+		final long size;
+		final long modified;
+		final String hash;
+		final int crc;
+		long lastUsed;
+
+		Entry(String name, long size, long modified, String hash, int crc, long lastUsed) {
+			this.name = name;
+			this.size = size;
+			this.modified = modified;
+			this.hash = hash;
+			this.crc = crc;
+			this.lastUsed = lastUsed;
+		}
+
+		/**
+		 * parses a manifest line
+		 *
+		 * @param line line
+		 * @return entry, or <code>null</code> if the line is invalid
+		 */
+		static Entry parse(String line) {
+			String[] parts = line.split("\t");
+			if (parts.length != 6) {
+				return null;
+			}
+			try {
+				return new Entry(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]),
+						parts[3], Integer.parseInt(parts[4]), Long.parseLong(parts[5]));
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * formats the entry as manifest line
+		 *
+		 * @return line
+		 */
+		String format() {
+			return name + "\t" + size + "\t" + modified + "\t" + hash + "\t" + crc + "\t" + lastUsed;
+		}
+	}
+}
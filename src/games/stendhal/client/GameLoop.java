@@ -18,6 +18,8 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.log4j.Logger;
 
+import games.stendhal.client.sprite.SpriteCache;
+
 /**
  * Game loop thread.
  */
@@ -197,6 +199,7 @@ public class GameLoop {
 
 			logger.debug("Total/Used memory: " + totalMemory + "/"
 					+ (totalMemory - freeMemory));
+			logger.debug("Sprite cache: " + SpriteCache.get().getStatistics());
 		}
 	}
 
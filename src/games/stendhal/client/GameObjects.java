@@ -23,6 +23,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.log4j.Logger;
 
+import games.stendhal.client.entity.Creature;
 import games.stendhal.client.entity.Entity;
 import games.stendhal.client.entity.IEntity;
 import games.stendhal.client.entity.NPC;
@@ -30,6 +31,7 @@ import games.stendhal.client.entity.Player;
 import games.stendhal.client.entity.factory.EntityFactory;
 import games.stendhal.client.events.EventDispatcher;
 import games.stendhal.client.listener.RPObjectChangeListener;
+import games.stendhal.client.sprite.SpriteStore;
 import marauroa.common.game.RPObject;
 import marauroa.common.game.RPSlot;
 
@@ -230,6 +232,9 @@ public class GameObjects implements RPObjectChangeListener, Iterable<IEntity> {
 		if (entity == null) {
 			logger.error("No entity for: " + object);
 		} else {
+			if (entity instanceof Creature) {
+				prefetchCreatureSprite(entity);
+			}
 			if (entity.isOnGround()) {
 				for (GameObjectListener listener : gameObjectListeners) {
 					listener.addEntity(entity);
@@ -240,6 +245,25 @@ public class GameObjects implements RPObjectChangeListener, Iterable<IEntity> {
 		}
 	}
 
+	/**
+	 * Start loading the image of a creature in the background. A zone change
+	 * typically adds many creatures at once, and this way their images get
+	 * decoded in parallel before the views need them.
+	 *
+	 * @param entity creature
+	 */
+	private void prefetchCreatureSprite(final IEntity entity) {
+		String path = entity.getEntityClass();
+		if (path == null) {
+			return;
+		}
+		final String subclass = entity.getEntitySubclass();
+		if (subclass != null) {
+			path += "/" + subclass;
+		}
+		SpriteStore.get().prefetch("data/sprites/monsters/" + path + ".png");
+	}
+
 	/**
 	 * The object added/changed attribute(s).
 	 *
@@ -16,6 +16,8 @@ package games.stendhal.client;
 import java.awt.Color;
 import java.awt.Composite;
 import java.awt.Graphics;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.log4j.Logger;
 
@@ -102,6 +104,10 @@ public class OutfitStore {
 
 		final int detailcode = (code % 100);
 
+		// Decode the layer images in parallel. The layers are colored and
+		// drawn in order below, waiting for their image if needed
+		prefetchLayers(bodycode, dresscode, headcode, haircode, detailcode);
+
 		// Body layer
 		Sprite layer = getBodySprite(bodycode, color);
 		if (layer == null) {
@@ -131,6 +137,35 @@ public class OutfitStore {
 		return sprite;
 	}
 
+	/**
+	 * Start decoding the images of the layers of an outfit in the background.
+	 *
+	 * @param bodycode body index
+	 * @param dresscode dress index, or 0
+	 * @param headcode head index
+	 * @param haircode hair index, or 0
+	 * @param detailcode detail index, or 0
+	 */
+	private void prefetchLayers(int bodycode, int dresscode, int headcode, int haircode, int detailcode) {
+		List<String> refs = new ArrayList<String>(5);
+		refs.add(BODIES + "/body_" + getSpriteSuffix(bodycode) + ".png");
+		if (dresscode != 0) {
+			refs.add(DRESSES + "/dress_" + getSpriteSuffix(dresscode) + ".png");
+		}
+		refs.add(HEADS + "/head_" + getSpriteSuffix(headcode) + ".png");
+		if (haircode != 0) {
+			refs.add(HAIRS + "/hair_" + getSpriteSuffix(haircode) + ".png");
+		}
+		if (detailcode != 0) {
+			refs.add(DETAILS + "/detail_" + getSpriteSuffix(detailcode) + ".png");
+		}
+		for (String ref : refs) {
+			if (store.existsSprite(ref)) {
+				store.prefetch(ref);
+			}
+		}
+	}
+
 	/**
 	 * Get the shared instance.
 	 *
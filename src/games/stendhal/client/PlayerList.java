@@ -12,6 +12,7 @@
  ***************************************************************************/
 package games.stendhal.client;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -42,4 +43,10 @@ public class PlayerList {
 		namesList.add(player);
 		logger.debug("Currently in list after add: "+namesList);
 	}
+
+	void setPlayers(Collection<String> players) {
+		namesList.clear();
+		namesList.addAll(players);
+		logger.debug("Currently in list after snapshot: "+namesList);
+	}
 }
@@ -12,6 +12,7 @@
  ***************************************************************************/
 package games.stendhal.client;
 
+import java.awt.Component;
 import java.awt.event.KeyEvent;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -25,6 +26,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantLock;
 
+import javax.swing.JDialog;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -84,6 +86,11 @@ public class StendhalClient extends ClientFramework {
 
 	private static final String LOG4J_PROPERTIES = "data/conf/log4j.properties";
 
+	/** number of times a character is chosen, before giving up */
+	private static final int CHOOSE_CHARACTER_ATTEMPTS = 6;
+	/** milliseconds before choosing a character again. Doubles on each retry. */
+	private static final long CHOOSE_CHARACTER_RETRY_DELAY = 500;
+
 	private String userName = "";
 
 	private String character;
@@ -242,13 +249,26 @@ public class StendhalClient extends ClientFramework {
 		String oldZone = (currentZone != null) ? currentZone.getName() : null;
 
 		// Set the new area name
+		boolean hasMapLayers = false;
+		boolean hasDataLayer = false;
 		for (TransferContent item : items) {
 			final String name = item.name;
 			final int i = name.indexOf(".0_floor");
 			if (i > -1) {
 				currentZone = new Zone(name.substring(0, i));
+				hasMapLayers = true;
 				break;
 			}
+			if ((currentZone != null) && name.equals(currentZone.getName() + ".data_map")) {
+				hasDataLayer = true;
+			}
+		}
+
+		// Only the zone attributes changed. Recreate the zone from the map
+		// layers we already have
+		if (!hasMapLayers && hasDataLayer) {
+			logger.debug("Attribute update for " + oldZone);
+			currentZone = currentZone.createAttributeUpdate();
 		}
 
 		// Is it just a reload for new coloring?
@@ -281,12 +301,17 @@ public class StendhalClient extends ClientFramework {
 
 				try {
 					contentHandling(item.name, is);
-					is.close();
 				} catch (final Exception e) {
 					logger.error(e, e);
 
 					// request retransmission
 					item.ack = true;
+				} finally {
+					try {
+						is.close();
+					} catch (final IOException e) {
+						logger.warn(e, e);
+					}
 				}
 			} else {
 				logger.debug("Content " + item.name + " is NOT on cache. We have to transfer");
@@ -297,6 +322,7 @@ public class StendhalClient extends ClientFramework {
 				contentToLoad++;
 			}
 		}
+		cache.flush();
 
 		return items;
 	}
@@ -368,6 +394,7 @@ public class StendhalClient extends ClientFramework {
 				logger.error("onTransfer", e);
 			}
 		}
+		cache.flush();
 
 		contentToLoad -= items.size();
 
@@ -410,15 +437,19 @@ public class StendhalClient extends ClientFramework {
 		// autologin if a valid character was specified.
 		if ((character != null) && (characters.containsKey(character))) {
 			try {
-				chooseCharacter(character);
-				stendhal.setDoLogin();
-				if (splashScreen != null) {
-					splashScreen.dispose();
+				if (chooseCharacterRetrying(character, splashScreen)) {
+					stendhal.setDoLogin();
+					if (splashScreen != null) {
+						splashScreen.dispose();
+					}
+					return;
 				}
+				// let the user try again in the character dialog
+				logger.warn("The server refused character " + character);
 			} catch (final Exception e) {
 				logger.error("StendhalClient::onAvailableCharacters", e);
+				return;
 			}
-			return;
 		}
 
 		// show character dialog
@@ -691,6 +722,61 @@ public class StendhalClient extends ClientFramework {
 		return res;
 	}
 
+	/**
+	 * Chooses a character, and tries again with growing delays if the server
+	 * refuses it. The server refuses characters when too many players log in
+	 * at once. A message tells the user about the retries. This waits, so it
+	 * must not be called in the event dispatch thread.
+	 *
+	 * @param character name of the character
+	 * @param parent component to show the message over, or <code>null</code>
+	 * @return <code>true</code> if the character was chosen,
+	 * 	<code>false</code> if the server still refused it after all retries
+	 * @throws TimeoutException if the server did not answer
+	 * @throws InvalidVersionException if the server is incompatible
+	 * @throws BannedAddressException if the address is banned
+	 */
+	public boolean chooseCharacterRetrying(final String character, final Component parent)
+			throws TimeoutException, InvalidVersionException, BannedAddressException {
+		final JDialog[] notice = new JDialog[1];
+		long delay = CHOOSE_CHARACTER_RETRY_DELAY;
+		try {
+			for (int attempt = 1; attempt < CHOOSE_CHARACTER_ATTEMPTS; attempt++) {
+				if (chooseCharacter(character)) {
+					return true;
+				}
+				logger.warn("Server refused character " + character + ", retrying in " + delay + " ms");
+				if (attempt == 1) {
+					SwingUtilities.invokeLater(new Runnable() {
+						@Override
+						public void run() {
+							JOptionPane pane = new JOptionPane("The server is busy, retrying...",
+									JOptionPane.INFORMATION_MESSAGE, JOptionPane.DEFAULT_OPTION, null, new Object[0]);
+							notice[0] = pane.createDialog(parent, "Choose character");
+							notice[0].setModal(false);
+							notice[0].setVisible(true);
+						}
+					});
+				}
+				Thread.sleep(delay);
+				delay *= 2;
+			}
+			return chooseCharacter(character);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					if (notice[0] != null) {
+						notice[0].dispose();
+					}
+				}
+			});
+		}
+	}
+
 	/**
 	 * Release the drawing semaphore.
 	 */
@@ -41,6 +41,19 @@ class TileRenderer extends LayerRenderer {
 		spriteMap = null;
 	}
 
+	/**
+	 * Create a renderer that shares the map data of another renderer. The
+	 * tileset needs to be set separately.
+	 *
+	 * @param source renderer whose map data is used
+	 */
+	TileRenderer(final TileRenderer source) {
+		width = source.width;
+		height = source.height;
+		map = source.map;
+		spriteMap = null;
+	}
+
 	/**
 	 * Sets the data that will be rendered.
 	 * @param in the stream to read from
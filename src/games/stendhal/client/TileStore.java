@@ -19,11 +19,14 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 
 import games.stendhal.client.sprite.DataLoader;
 import games.stendhal.client.sprite.Sprite;
+import games.stendhal.client.sprite.SpriteCache;
 import games.stendhal.client.sprite.SpriteStore;
 import games.stendhal.client.sprite.SpriteTileset;
 import games.stendhal.client.sprite.Tileset;
@@ -48,9 +51,11 @@ class TileStore implements Tileset {
 	private static final TilesetGroupAnimationMap animationMap = createAnimationMap();
 
 	/**
-	 * A cache of loaded tilesets.
+	 * A cache of loaded tilesets, keyed by the sprite cache key of the tileset
+	 * image. A tileset is dropped when its image is discarded from the sprite
+	 * cache.
 	 */
-	private static final MemoryCache<String, Tileset> tilesetsLoaded = new MemoryCache<String, Tileset>();
+	private static final Map<Object, Tileset> tilesetsLoaded = createTilesetCache();
 
 	/**
 	 * The sprite store.
@@ -61,8 +66,10 @@ class TileStore implements Tileset {
 	 * The tile sprites.
 	 */
 	private final ArrayList<Sprite> tiles;
-	/** Tilesets waiting to be added to the store. */
+	/** Tilesets of the store. They are added when the store is validated. */
 	private final List<TileSetDefinition> tilesets = new ArrayList<TileSetDefinition>();
+	/** Sprite cache keys of the tileset images used by this store. */
+	private final List<Object> imageRefs = new ArrayList<Object>();
 	/**
 	 * <code>true</code>, if the store has been successfully validated,
 	 *	otherwise <code>false</code>.
@@ -112,17 +119,9 @@ class TileStore implements Tileset {
 	 * 	<code>null</code>
 	 */
 	private void add(final TileSetDefinition tsdef, Color color, Composite blend) {
-		String ref = tsdef.getSource();
+		final String ref = getReference(tsdef);
 		final int baseindex = tsdef.getFirstGid();
 
-		/*
-		 * Strip off leading path info TODO: Remove this earlier in the stage
-		 * (server side?)
-		 */
-		if (ref.startsWith("../../")) {
-			ref = ref.substring(6);
-		}
-
 		/*
 		 * Make sure we are the right size
 		 */
@@ -147,10 +146,11 @@ class TileStore implements Tileset {
 
 		String realRef;
 		if ((color != null) && (blend != null)) {
-			realRef = store.createModifiedRef(ref, color, blend);
+			realRef = store.createModifiedRef(baseFolder + ref, color, blend);
 		} else {
-			realRef = ref;
+			realRef = baseFolder + ref;
 		}
+		imageRefs.add(realRef);
 		Tileset tileset = tilesetsLoaded.get(realRef);
 
 		if (tileset == null) {
@@ -183,7 +183,28 @@ class TileStore implements Tileset {
 	}
 
 	/**
-	 * Add tilesets. The store will require validating afterwards.
+	 * Get the resource name of a tileset image, relative to the resource base.
+	 *
+	 * @param tsdef tileset definition
+	 * @return image reference
+	 */
+	private static String getReference(final TileSetDefinition tsdef) {
+		String ref = tsdef.getSource();
+
+		/*
+		 * Strip off leading path info TODO: Remove this earlier in the stage
+		 * (server side?)
+		 */
+		if (ref.startsWith("../../")) {
+			ref = ref.substring(6);
+		}
+		return ref;
+	}
+
+	/**
+	 * Add tilesets. The store will require validating afterwards. Decoding the
+	 * tileset images is started in the background right away, so that they
+	 * are ready by the time the rest of the zone content has been processed.
 	 *
 	 * @param in
 	 *            The object stream.
@@ -199,8 +220,21 @@ class TileStore implements Tileset {
 		for (int i = 0; i < amount; i++) {
 			final TileSetDefinition tileset = (TileSetDefinition) in.readObject(new TileSetDefinition(null, null, -1));
 			tilesets.add(tileset);
+			store.prefetch(baseFolder + getReference(tileset));
 		}
 	}
+	/**
+	 * Create a new store with the same tilesets, that can be validated with
+	 * different adjustment colors.
+	 *
+	 * @return new tile store
+	 */
+	TileStore createUpdate() {
+		TileStore copy = new TileStore(store);
+		copy.tilesets.addAll(tilesets);
+		return copy;
+	}
+
 	/**
 	 * Try finishing the tile store withan adjustment color and blend mode for
 	 * the tilesets.
@@ -216,7 +250,8 @@ class TileStore implements Tileset {
 				for (TileSetDefinition def : tilesets) {
 					add(def, color, blend);
 				}
-				tilesets.clear();
+				// Keep the images of the zone in memory while it is shown
+				SpriteCache.get().setPinned(imageRefs);
 				validated = true;
 				return true;
 			}
@@ -225,6 +260,22 @@ class TileStore implements Tileset {
 		return true;
 	}
 
+	/**
+	 * Create the tileset cache, and make it follow the sprite cache.
+	 *
+	 * @return tileset cache
+	 */
+	private static Map<Object, Tileset> createTilesetCache() {
+		final Map<Object, Tileset> cache = new ConcurrentHashMap<Object, Tileset>();
+		SpriteCache.get().addEvictionListener(new SpriteCache.EvictionListener() {
+			@Override
+			public void evicted(Object key) {
+				cache.remove(key);
+			}
+		});
+		return cache;
+	}
+
 	/**
 	 * Create the tileset animation map.
 	 *
@@ -12,6 +12,8 @@
  ***************************************************************************/
 package games.stendhal.client;
 
+import java.util.Collection;
+
 public final class World {
 
 	private static World instance = new World();
@@ -36,4 +38,8 @@ public final class World {
 		playerList.addPlayer(player);
 	}
 
+	public void setOnlinePlayers(final Collection<String> players) {
+		playerList.setPlayers(players);
+	}
+
 }
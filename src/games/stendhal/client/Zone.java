@@ -52,6 +52,11 @@ public class Zone {
 	private String readableName;
 	/** Renderers for normal layers. */
 	private final Map<String, LayerRenderer> layers = new HashMap<String, LayerRenderer>();
+	/**
+	 * Tile layers, including the ones that have been merged into composites.
+	 * Kept so that attribute only updates can reuse the decoded map data.
+	 */
+	private final Map<String, TileRenderer> tileLayers = new HashMap<String, TileRenderer>();
 	/** Global current zone information. */
 	private final ZoneInfo zoneInfo = ZoneInfo.get();
 	/** Weather renderer. */
@@ -180,10 +185,36 @@ public class Zone {
 			TileRenderer content = new TileRenderer();
 			content.setMapData(in);
 			layers.put(layer, content);
+			tileLayers.put(layer, content);
 		}
 		isValid = false;
 	}
 
+	/**
+	 * Create a new zone with the same map layers as this one, for applying
+	 * changed zone attributes. The new zone shares the decoded collision,
+	 * protection and map data, but gets its own tilesets and renderers for the
+	 * new coloring. The data layer must be added to the new zone before it can
+	 * be validated.
+	 *
+	 * @return new zone
+	 */
+	Zone createAttributeUpdate() {
+		Zone zone = new Zone(name);
+		zone.setUpdate(true);
+		zone.collision = collision;
+		zone.protection = protection;
+		if (tileset != null) {
+			zone.tileset = tileset.createUpdate();
+		}
+		for (Map.Entry<String, TileRenderer> entry : tileLayers.entrySet()) {
+			TileRenderer content = new TileRenderer(entry.getValue());
+			zone.layers.put(entry.getKey(), content);
+			zone.tileLayers.put(entry.getKey(), content);
+		}
+		return zone;
+	}
+
 	/**
 	 * Read the special data layer.
 	 *
@@ -111,6 +111,8 @@ class EventFactory {
 			event = new PlayerLoggedOnEvent();
 		} else if (name.equals(Events.PLAYER_LOGGED_OUT)) {
 			event = new PlayerLoggedOutEvent();
+		} else if (name.equals(Events.ONLINE_PLAYERS)) {
+			event = new OnlinePlayersEvent();
 		} else if (name.equals(Events.VIEW_CHANGE)) {
 			event = new ViewChangeEvent();
 		}  else if (name.equals(Events.IMAGE)) {
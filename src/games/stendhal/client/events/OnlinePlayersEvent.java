@@ -0,0 +1,56 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.client.events;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.client.World;
+import games.stendhal.client.entity.Entity;
+
+/**
+ * Snapshot or per turn changes of the list of online players.
+ */
+class OnlinePlayersEvent extends Event<Entity> {
+	private static final Logger logger = Logger.getLogger(OnlinePlayersEvent.class);
+
+	@Override
+	public void execute() {
+		if (event.has("snapshot")) {
+			logger.debug("Executing online players snapshot");
+			World.get().setOnlinePlayers(split("snapshot"));
+			return;
+		}
+		for (String playerName : split("left")) {
+			World.get().removePlayerLoggingOut(playerName);
+		}
+		for (String playerName : split("joined")) {
+			World.get().addPlayerLoggingOn(playerName);
+		}
+	}
+
+	/**
+	 * Splits a comma separated attribute.
+	 *
+	 * @param attribute name of attribute
+	 * @return list of names
+	 */
+	private List<String> split(String attribute) {
+		if (!event.has(attribute) || event.get(attribute).isEmpty()) {
+			return Collections.emptyList();
+		}
+		return Arrays.asList(event.get(attribute).split(","));
+	}
+}
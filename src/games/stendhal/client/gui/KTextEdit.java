@@ -20,13 +20,18 @@ import java.awt.event.ActionListener;
 import java.awt.event.AdjustmentEvent;
 import java.awt.event.AdjustmentListener;
 import java.awt.event.MouseEvent;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.text.Format;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.Deque;
+import java.util.List;
 import java.util.regex.Pattern;
 
 import javax.swing.DefaultBoundedRangeModel;
@@ -60,16 +65,26 @@ import javax.swing.text.ViewFactory;
 import org.apache.log4j.Logger;
 
 import games.stendhal.client.stendhal;
+import games.stendhal.client.gui.chatlog.ChatDocument;
+import games.stendhal.client.gui.chatlog.ChatHistory;
+import games.stendhal.client.gui.chatlog.ChatLine;
 import games.stendhal.client.gui.chatlog.ChatTextSink;
 import games.stendhal.client.gui.chatlog.EventLine;
 import games.stendhal.client.gui.chatlog.HeaderLessEventLine;
+import games.stendhal.client.gui.textformat.AttributedTextSink;
 import games.stendhal.client.gui.textformat.StringFormatter;
 import games.stendhal.client.gui.textformat.StyleSet;
+import games.stendhal.client.gui.wt.core.WtWindowManager;
 import games.stendhal.common.MathHelper;
 import games.stendhal.common.NotificationType;
 
 /**
  * Appendable text component to be used as the chat log.
+ * <p>
+ * Lines arriving in a burst are added to the document in one update. While
+ * the view follows the end of the log, it shows at most ui.chat_lines lines
+ * (default 1000). Older lines are kept in a scrollback file for the session,
+ * and can be brought back to the view from the popup menu.
  */
 class KTextEdit extends JComponent {
 	/** Color of the time stamp written before the lines. */
@@ -77,6 +92,11 @@ class KTextEdit extends JComponent {
 
 	private static final Logger logger = Logger.getLogger(KTextEdit.class);
 
+	/** Default maximum number of lines shown when following the log. */
+	private static final int DEFAULT_MAX_LINES = 1000;
+	/** Number of older lines brought back to the view at a time. */
+	private static final int OLDER_LINES_PAGE = 200;
+
 	/** The actual text component for showing the chat log. */
 	JTextPane textPane;
 	/** Name of the log. */
@@ -87,13 +107,53 @@ class KTextEdit extends JComponent {
 	private final StringFormatter<Style, StyleSet> formatter = new StringFormatter<Style, StyleSet>();
 	private final Format dateFormatter = new SimpleDateFormat("[HH:mm] ");
 
+	/** Maximum number of lines shown when following the log. */
+	private final int maxLines;
+	/** <code>true</code> if lines dropped from memory are kept in a file. */
+	private final boolean keepScrollback;
+	/** All lines of the session. Created when the first line arrives. */
+	private ChatHistory history;
+	/** Index of the first line after the log was cleared. */
+	private int clearedAt;
+	/** Lengths of the lines in the document, oldest first. */
+	private final Deque<Integer> lineLengths = new ArrayDeque<Integer>();
+	/** Lines waiting to be added to the document. */
+	private final List<ChatLine> pending = new ArrayList<ChatLine>();
+	/** <code>true</code> if adding the pending lines has been scheduled. */
+	private boolean flushScheduled;
+	/** Adds the pending lines to the document. */
+	private final Runnable flushTask = new Runnable() {
+		@Override
+		public void run() {
+			final List<ChatLine> lines;
+			synchronized (pending) {
+				lines = new ArrayList<ChatLine>(pending);
+				pending.clear();
+				flushScheduled = false;
+			}
+			appendLines(lines);
+		}
+	};
+	/** Vertical scroll bar of the log. */
+	private JScrollBar verticalBar;
+
 	/** Listener for opening the popup menu when it's requested. */
 	private final class TextPaneMouseListener extends MousePopupAdapter {
 		@Override
 		protected void showPopup(final MouseEvent e) {
 			final JPopupMenu popup = new JPopupMenu("save");
 
-			JMenuItem menuItem = new JMenuItem("Save");
+			JMenuItem menuItem = new JMenuItem("Show older lines");
+			menuItem.setEnabled(hasOlderLines());
+			menuItem.addActionListener(new ActionListener() {
+				@Override
+				public void actionPerformed(final ActionEvent e) {
+					showOlderLines();
+				}
+			});
+			popup.add(menuItem);
+
+			menuItem = new JMenuItem("Save");
 			menuItem.addActionListener(new ActionListener() {
 				@Override
 				public void actionPerformed(final ActionEvent e) {
@@ -145,6 +205,19 @@ class KTextEdit extends JComponent {
 	 * Basic Constructor.
 	 */
 	KTextEdit() {
+		this(WtWindowManager.getInstance().getPropertyInt("ui.chat_lines", DEFAULT_MAX_LINES), true);
+	}
+
+	/**
+	 * Create a KTextEdit with a specified line limit.
+	 *
+	 * @param maxLines maximum number of lines shown when following the log
+	 * @param keepScrollback if <code>true</code>, lines that no longer fit
+	 * 	in memory are kept in a file, otherwise they are dropped
+	 */
+	KTextEdit(final int maxLines, final boolean keepScrollback) {
+		this.maxLines = Math.max(1, maxLines);
+		this.keepScrollback = keepScrollback;
 		buildGUI();
 	}
 
@@ -192,6 +265,7 @@ class KTextEdit extends JComponent {
 			}
 		});
 
+		verticalBar = scrollPane.getVerticalScrollBar();
 		add(scrollPane, BorderLayout.CENTER);
 	}
 
@@ -317,10 +391,19 @@ class KTextEdit extends JComponent {
 	 */
 	protected void insertText(final String text, final NotificationType type) {
 		ChatTextSink dest = new ChatTextSink(textPane.getDocument());
+		formatter.format(text, createStyleSet(type), dest);
+	}
+
+	/**
+	 * Create the text style for a notification type.
+	 *
+	 * @param type notification type
+	 * @return style set
+	 */
+	private StyleSet createStyleSet(final NotificationType type) {
 		StyleSet set = new StyleSet(StyleContext.getDefaultStyleContext(), getStyle(type.getColor(), type.getStyleDescription()));
 		set.setAttribute(StyleConstants.Foreground, type.getColor());
-
-		formatter.format(text, set, dest);
+		return set;
 	}
 
 	/**
@@ -337,7 +420,9 @@ class KTextEdit extends JComponent {
 
 	/**
 	 * Add a new line with a specified header and content. The style will be
-	 * chosen according to the type of the message.
+	 * chosen according to the type of the message. The line is added to the
+	 * document in the event dispatch thread, together with any other lines
+	 * that arrive before it gets to run.
 	 *
 	 * @param header
 	 *            a string with the header
@@ -348,44 +433,185 @@ class KTextEdit extends JComponent {
 	 */
 	private void addLine(final String header, final String line,
 			final NotificationType type) {
-		// do the whole thing in the event dispatch thread to ensure the generated
-		// events get handled in the correct order
-		try {
-			if (SwingUtilities.isEventDispatchThread()) {
-				handleAddLine(header, line, type);
-			} else {
-				SwingUtilities.invokeLater(new Runnable() {
-					@Override
-					public void run() {
-						handleAddLine(header, line, type);
-					}
-				});
+		final ChatLine chatLine = new ChatLine(System.currentTimeMillis(), header, line, type);
+		final boolean schedule;
+		synchronized (pending) {
+			pending.add(chatLine);
+			schedule = !flushScheduled;
+			flushScheduled = true;
+		}
+		if (schedule) {
+			SwingUtilities.invokeLater(flushTask);
+		}
+	}
+
+	/**
+	 * Add lines to the log. On the chat document all lines are added in one
+	 * update. If the view is following the end of the log, the oldest lines
+	 * are dropped from the view so that at most maxLines remain. Must be
+	 * called in the event dispatch thread.
+	 *
+	 * @param lines new lines
+	 */
+	void appendLines(final List<ChatLine> lines) {
+		final ChatHistory log = getHistory();
+		for (final ChatLine line : lines) {
+			log.add(line);
+		}
+
+		final Document doc = textPane.getDocument();
+		if (!(doc instanceof ChatDocument)) {
+			// Subclasses using other kinds of documents
+			for (final ChatLine line : lines) {
+				handleAddLine(line);
 			}
-		} catch (final RuntimeException e) {
-			logger.error(e, e);
+			return;
+		}
+
+		final ChatDocument chatDoc = (ChatDocument) doc;
+		// A hidden scroll bar means a hidden tab or a log that fits the view
+		final boolean following = !verticalBar.isShowing() || isAtMaximum(verticalBar);
+		// Lines that would be dropped right away are not rendered at all
+		final int skip = following ? Math.max(0, lines.size() - maxLines) : 0;
+		if (skip > 0) {
+			removeLines(chatDoc, lineLengths.size());
+		}
+		for (final ChatLine line : lines.subList(skip, lines.size())) {
+			lineLengths.addLast(Integer.valueOf(render(chatDoc, line)));
+		}
+		chatDoc.flush();
+		if (following) {
+			removeLines(chatDoc, lineLengths.size() - maxLines);
 		}
 	}
 
 	/**
-	 * Add a new line with a specified header and content. The style will be
-	 * chosen according to the type of the message. Keep the view at the last
-	 * line unless the user has scrolled higher.
+	 * Render a line to the pending text of the chat document.
 	 *
-	 * @param header
-	 *            a string with the header
-	 * @param line
-	 *            a string representing the line to be printed
-	 * @param type
-	 *            The logical format type.
+	 * @param doc chat document
+	 * @param line line
+	 * @return length of the rendered line
+	 */
+	private int render(final ChatDocument doc, final ChatLine line) {
+		final int start = doc.getPendingLength();
+		doc.append("\r\n", getStyle(Color.black, "normal"));
+		doc.append(dateFormatter.format(new Date(line.getTime())), textPane.getStyle("timestamp"));
+		if (line.getHeader().length() > 0) {
+			doc.append("<" + line.getHeader() + "> ", textPane.getStyle("header"));
+		}
+		formatter.format(line.getText(), createStyleSet(line.getType()), new AttributedTextSink<StyleSet>() {
+			@Override
+			public void append(final String s, final StyleSet attrs) {
+				doc.append(s, attrs.contents());
+			}
+		});
+		return doc.getPendingLength() - start;
+	}
+
+	/**
+	 * Remove the oldest lines from the view.
+	 *
+	 * @param doc chat document
+	 * @param count number of lines to remove
 	 */
-	private void handleAddLine(final String header, final String line, final NotificationType type) {
+	private void removeLines(final ChatDocument doc, final int count) {
+		int length = 0;
+		for (int i = 0; i < count; i++) {
+			length += lineLengths.removeFirst().intValue();
+		}
+		if (length > 0) {
+			try {
+				doc.remove(0, length);
+			} catch (final BadLocationException e) {
+				logger.error("Failed to remove old lines", e);
+			}
+		}
+	}
+
+	/**
+	 * Add a new line with one document update for every part of the line.
+	 *
+	 * @param line line
+	 */
+	private void handleAddLine(final ChatLine line) {
 		insertNewline();
 
-		String dateString = dateFormatter.format(new Date());
+		String dateString = dateFormatter.format(new Date(line.getTime()));
 		insertTimestamp(dateString);
 
-		insertHeader(header);
-		insertText(line, type);
+		insertHeader(line.getHeader());
+		insertText(line.getText(), line.getType());
+	}
+
+	/**
+	 * Get the lines of the session, creating the history if needed.
+	 *
+	 * @return history
+	 */
+	private ChatHistory getHistory() {
+		if (history == null) {
+			File directory = null;
+			if (keepScrollback) {
+				// Not the game folder, where the chat would stay if the
+				// client is not closed normally
+				directory = new File(System.getProperty("java.io.tmpdir"));
+			}
+			// Keep some lines beyond the view in memory, so that showing
+			// older lines does not need the file right away
+			history = new ChatHistory(2 * maxLines, directory);
+		}
+		return history;
+	}
+
+	/**
+	 * Get the index of the oldest line that can be shown.
+	 *
+	 * @return line index
+	 */
+	private int getOldestAvailable() {
+		return Math.max(getHistory().getFirstAvailable(), clearedAt);
+	}
+
+	/**
+	 * Check if there are lines older than those in the view that can be
+	 * shown.
+	 *
+	 * @return <code>true</code> if there are older lines
+	 */
+	private boolean hasOlderLines() {
+		return (textPane.getDocument() instanceof ChatDocument)
+				&& (getHistory().size() - lineLengths.size() > getOldestAvailable());
+	}
+
+	/**
+	 * Bring older lines back to the top of the view.
+	 */
+	void showOlderLines() {
+		if (!hasOlderLines()) {
+			return;
+		}
+		final ChatDocument doc = (ChatDocument) textPane.getDocument();
+		final int end = getHistory().size() - lineLengths.size();
+		final int start = Math.max(getOldestAvailable(), end - OLDER_LINES_PAGE);
+		final List<ChatLine> lines = getHistory().get(start, end);
+		if (lines.size() != end - start) {
+			// Reading the scrollback failed
+			return;
+		}
+		final List<Integer> lengths = new ArrayList<Integer>(lines.size());
+		for (final ChatLine line : lines) {
+			lengths.add(Integer.valueOf(render(doc, line)));
+		}
+		doc.flush(0);
+		for (int i = lengths.size() - 1; i >= 0; i--) {
+			lineLengths.addFirst(lengths.get(i));
+		}
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				verticalBar.setValue(verticalBar.getMinimum());
+			}
+		});
 	}
 
 	/**
@@ -413,6 +639,8 @@ class KTextEdit extends JComponent {
 	 */
 	void clear() {
 		textPane.setText("");
+		lineLengths.clear();
+		clearedAt = getHistory().size();
 	}
 
 	/**
@@ -468,7 +696,7 @@ class KTextEdit extends JComponent {
 		try {
 			fo = new OutputStreamWriter(new FileOutputStream(fname), "UTF-8");
 			try {
-				textPane.write(fo);
+				writeLines(fo);
 			} finally {
 				fo.close();
 			}
@@ -479,6 +707,33 @@ class KTextEdit extends JComponent {
 		}
 	}
 
+	/**
+	 * Write the lines of the session as plain text.
+	 *
+	 * @param out destination
+	 * @throws IOException if writing fails
+	 */
+	private void writeLines(final Writer out) throws IOException {
+		final ChatHistory log = getHistory();
+		final StringBuilder sb = new StringBuilder();
+		final AttributedTextSink<StyleSet> plain = new AttributedTextSink<StyleSet>() {
+			@Override
+			public void append(final String s, final StyleSet attrs) {
+				sb.append(s);
+			}
+		};
+		for (final ChatLine line : log.get(getOldestAvailable(), log.size())) {
+			sb.setLength(0);
+			sb.append("\r\n");
+			sb.append(dateFormatter.format(new Date(line.getTime())));
+			if (line.getHeader().length() > 0) {
+				sb.append('<').append(line.getHeader()).append("> ");
+			}
+			formatter.format(line.getText(), createStyleSet(line.getType()), plain);
+			out.write(sb.toString());
+		}
+	}
+
 	/**
 	 * A custom range model that implements the automatically scrolling pane.
 	 * Keeps the scrollbar at bottom, if it it was there before.
@@ -537,6 +792,11 @@ class KTextEdit extends JComponent {
 	private static class WrapEditorKit extends StyledEditorKit {
 		private final ViewFactory defaultFactory = new WrapColumnFactory();
 
+		@Override
+		public Document createDefaultDocument() {
+			return new ChatDocument();
+		}
+
 		@Override
 		public ViewFactory getViewFactory() {
 			return defaultFactory;
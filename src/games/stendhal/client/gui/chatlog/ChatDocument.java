@@ -0,0 +1,134 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.client.gui.chatlog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Styled document for the chat log. Text is collected with
+ * {@link #append(String, AttributeSet)} and added to the end of the document
+ * with {@link #flush()} in a single update, instead of one update for every
+ * piece of text.
+ */
+public class ChatDocument extends DefaultStyledDocument {
+	private static final long serialVersionUID = -4208233101633541317L;
+
+	private static final Logger logger = Logger.getLogger(ChatDocument.class);
+
+	/** Collected text pieces. */
+	private final List<String> pendingText = new ArrayList<String>();
+	/** Attributes of the collected text pieces. */
+	private final List<AttributeSet> pendingAttributes = new ArrayList<AttributeSet>();
+	/** Total length of the collected text. */
+	private int pendingLength;
+
+	/**
+	 * Collect text to be added.
+	 *
+	 * @param text text
+	 * @param attributes text attributes. A copy is taken, so the attributes
+	 * 	may be changed afterwards
+	 */
+	public void append(final String text, final AttributeSet attributes) {
+		if (text.isEmpty()) {
+			return;
+		}
+		pendingText.add(text);
+		pendingAttributes.add(attributes.copyAttributes());
+		pendingLength += text.length();
+	}
+
+	/**
+	 * Get the length of the text that has been collected, but not added yet.
+	 *
+	 * @return number of characters
+	 */
+	public int getPendingLength() {
+		return pendingLength;
+	}
+
+	/**
+	 * Add the collected text to the end of the document.
+	 */
+	public void flush() {
+		if (pendingText.isEmpty()) {
+			return;
+		}
+		final AttributeSet paragraph = getParagraphElement(0).getAttributes();
+		final List<ElementSpec> specs = new ArrayList<ElementSpec>();
+		for (int i = 0; i < pendingText.size(); i++) {
+			final String text = pendingText.get(i);
+			final AttributeSet attributes = pendingAttributes.get(i);
+			int start = 0;
+			int end = text.indexOf('\n');
+			while (end >= 0) {
+				addContent(specs, text, start, end + 1, attributes);
+				specs.add(new ElementSpec(null, ElementSpec.EndTagType));
+				specs.add(new ElementSpec(paragraph, ElementSpec.StartTagType));
+				start = end + 1;
+				end = text.indexOf('\n', start);
+			}
+			if (start < text.length()) {
+				addContent(specs, text, start, text.length(), attributes);
+			}
+		}
+		try {
+			insert(getLength(), specs.toArray(new ElementSpec[specs.size()]));
+		} catch (final BadLocationException e) {
+			logger.error("Failed to append text.", e);
+		}
+		clearPending();
+	}
+
+	/**
+	 * Add the collected text at a location of the document. Unlike
+	 * {@link #flush()}, this makes one update for every piece of text.
+	 *
+	 * @param offset location
+	 */
+	public void flush(final int offset) {
+		if (offset == getLength()) {
+			flush();
+			return;
+		}
+		int location = offset;
+		try {
+			for (int i = 0; i < pendingText.size(); i++) {
+				final String text = pendingText.get(i);
+				insertString(location, text, pendingAttributes.get(i));
+				location += text.length();
+			}
+		} catch (final BadLocationException e) {
+			logger.error("Failed to insert text.", e);
+		}
+		clearPending();
+	}
+
+	private void clearPending() {
+		pendingText.clear();
+		pendingAttributes.clear();
+		pendingLength = 0;
+	}
+
+	private static void addContent(final List<ElementSpec> specs, final String text, final int start,
+			final int end, final AttributeSet attributes) {
+		final char[] chars = text.substring(start, end).toCharArray();
+		specs.add(new ElementSpec(attributes, ElementSpec.ContentType, chars, 0, chars.length));
+	}
+}
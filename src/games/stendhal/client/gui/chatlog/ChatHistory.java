@@ -0,0 +1,294 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.client.gui.chatlog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.common.NotificationType;
+
+/**
+ * The lines of a chat log. The most recent lines are kept in memory in a
+ * ring buffer of a fixed size. Older lines are moved to a temporary file, if
+ * a directory is given, where they can be read from when the user wants to
+ * see them again. They are collected in a buffer and written in blocks. The
+ * file is deleted when the client exits.
+ */
+public class ChatHistory {
+	private static final Logger logger = Logger.getLogger(ChatHistory.class);
+
+	/** Size of the buffer for lines that are moved to the file. */
+	private static final int WRITE_BUFFER_SIZE = 32 * 1024;
+
+	/** Most recent lines. */
+	private final ChatLine[] recent;
+	/** Directory for the file of older lines, or <code>null</code>. */
+	private final File directory;
+	/** File for older lines, or <code>null</code> if not created yet. */
+	private File file;
+	/** Open file, or <code>null</code> if nothing has been written yet. */
+	private RandomAccessFile store;
+	/** Lines that have been moved out of memory, but not written yet. */
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+	/** Number of bytes written to the file. */
+	private long fileLength;
+	/** Set if writing to the file has failed. */
+	private boolean storeFailed;
+	/**
+	 * File offsets of the lines that have been moved to the file. The entry
+	 * after the last line is the end of the file.
+	 */
+	private long[] offsets = new long[256];
+	/** Number of lines moved to the file. */
+	private int stored;
+	/** Number of lines added. */
+	private int size;
+	/** Index of the oldest line that can still be read. */
+	private int firstAvailable;
+
+	/**
+	 * Create a new ChatHistory.
+	 *
+	 * @param capacity number of lines to keep in memory
+	 * @param directory directory for the file of older lines, or
+	 * 	<code>null</code> if they should be dropped
+	 */
+	public ChatHistory(final int capacity, final File directory) {
+		recent = new ChatLine[Math.max(1, capacity)];
+		this.directory = directory;
+	}
+
+	/**
+	 * Add a line.
+	 *
+	 * @param line new line
+	 */
+	public synchronized void add(final ChatLine line) {
+		final int slot = size % recent.length;
+		if (size >= recent.length) {
+			final int index = size - recent.length;
+			if (!store(recent[slot])) {
+				firstAvailable = index + 1;
+			}
+		}
+		recent[slot] = line;
+		size++;
+	}
+
+	/**
+	 * Get the number of lines that have been added.
+	 *
+	 * @return number of lines
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Get the index of the oldest line that can still be read.
+	 *
+	 * @return line index
+	 */
+	public synchronized int getFirstAvailable() {
+		return firstAvailable;
+	}
+
+	/**
+	 * Get lines.
+	 *
+	 * @param from index of the first line
+	 * @param to index after the last line
+	 * @return lines, or fewer lines than requested if reading the file failed
+	 */
+	public synchronized List<ChatLine> get(final int from, final int to) {
+		if ((from < firstAvailable) || (to > size) || (from > to)) {
+			throw new IllegalArgumentException("Lines " + from + "-" + to
+					+ " requested, available " + firstAvailable + "-" + size);
+		}
+		final List<ChatLine> lines = new ArrayList<ChatLine>(to - from);
+		final int firstRecent = Math.max(0, size - recent.length);
+		if (from < firstRecent) {
+			try {
+				lines.addAll(read(from, Math.min(to, firstRecent)));
+			} catch (final IOException e) {
+				logger.error("Failed to read older chat lines", e);
+			}
+		}
+		for (int i = Math.max(from, firstRecent); i < to; i++) {
+			lines.add(recent[i % recent.length]);
+		}
+		return lines;
+	}
+
+	/**
+	 * Move a line that is dropped from memory to the file.
+	 *
+	 * @param line line
+	 * @return <code>true</code> if the line was kept
+	 */
+	private boolean store(final ChatLine line) {
+		if ((directory == null) || storeFailed) {
+			return false;
+		}
+		final byte[] data = encode(line).getBytes(StandardCharsets.UTF_8);
+		buffer.write(data, 0, data.length);
+		if (stored + 1 >= offsets.length) {
+			offsets = Arrays.copyOf(offsets, offsets.length * 2);
+		}
+		offsets[stored + 1] = offsets[stored] + data.length;
+		stored++;
+		if (buffer.size() >= WRITE_BUFFER_SIZE) {
+			writeBuffer();
+		}
+		return true;
+	}
+
+	/**
+	 * Write the buffered lines to the file. If that fails, all lines that
+	 * have been moved out of memory are dropped.
+	 *
+	 * @return <code>true</code> if the lines were written
+	 */
+	private boolean writeBuffer() {
+		if (storeFailed) {
+			return false;
+		}
+		if (buffer.size() == 0) {
+			return true;
+		}
+		try {
+			if (store == null) {
+				// A file of its own, so that several clients do not share it.
+				// It is readable only by the user, as it contains whispers
+				file = Files.createTempFile(directory.toPath(), "stendhal-chat", ".scrollback").toFile();
+				file.deleteOnExit();
+				store = new RandomAccessFile(file, "rw");
+			}
+			final byte[] data = buffer.toByteArray();
+			store.seek(fileLength);
+			store.write(data);
+			fileLength += data.length;
+			buffer.reset();
+			return true;
+		} catch (final IOException e) {
+			logger.error("Failed to write chat log to " + directory + ". Older lines will be dropped.", e);
+			storeFailed = true;
+			buffer.reset();
+			firstAvailable = Math.max(firstAvailable, stored);
+			return false;
+		}
+	}
+
+	/**
+	 * Read lines from the file.
+	 *
+	 * @param from index of the first line
+	 * @param to index after the last line
+	 * @return lines
+	 * @throws IOException if reading fails
+	 */
+	private List<ChatLine> read(final int from, final int to) throws IOException {
+		if (!writeBuffer()) {
+			throw new IOException("Older lines are not available");
+		}
+		final byte[] data = new byte[(int) (offsets[to] - offsets[from])];
+		store.seek(offsets[from]);
+		store.readFully(data);
+		final List<ChatLine> lines = new ArrayList<ChatLine>(to - from);
+		for (final String encoded : new String(data, StandardCharsets.UTF_8).split("\n")) {
+			lines.add(decode(encoded));
+		}
+		return lines;
+	}
+
+	/**
+	 * Encode a line for the file.
+	 *
+	 * @param line line
+	 * @return tab separated fields, ending with a new line
+	 */
+	static String encode(final ChatLine line) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(line.getTime());
+		sb.append('\t');
+		sb.append(line.getType().name());
+		sb.append('\t');
+		escape(sb, line.getHeader());
+		sb.append('\t');
+		escape(sb, line.getText());
+		sb.append('\n');
+		return sb.toString();
+	}
+
+	/**
+	 * Decode a line from the file.
+	 *
+	 * @param encoded encoded line without the ending new line
+	 * @return line
+	 */
+	static ChatLine decode(final String encoded) {
+		final String[] fields = encoded.split("\t", -1);
+		return new ChatLine(Long.parseLong(fields[0]), unescape(fields[2]), unescape(fields[3]),
+				NotificationType.valueOf(fields[1]));
+	}
+
+	private static void escape(final StringBuilder sb, final String s) {
+		for (int i = 0; i < s.length(); i++) {
+			final char c = s.charAt(i);
+			switch (c) {
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+	}
+
+	private static String unescape(final String s) {
+		final StringBuilder sb = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if ((c == '\\') && (i + 1 < s.length())) {
+				i++;
+				c = s.charAt(i);
+				if (c == 't') {
+					c = '\t';
+				} else if (c == 'n') {
+					c = '\n';
+				} else if (c == 'r') {
+					c = '\r';
+				}
+			}
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+}
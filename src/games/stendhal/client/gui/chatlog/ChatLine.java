@@ -0,0 +1,60 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.client.gui.chatlog;
+
+import games.stendhal.common.NotificationType;
+
+/**
+ * A line of the chat log with the time it was received.
+ */
+public class ChatLine {
+	private final long time;
+	private final String header;
+	private final String text;
+	private final NotificationType type;
+
+	/**
+	 * Create a new ChatLine.
+	 *
+	 * @param time time of receiving the line in milliseconds
+	 * @param header header, may be empty
+	 * @param text text with stendhal markup
+	 * @param type notification type
+	 */
+	public ChatLine(final long time, final String header, final String text, final NotificationType type) {
+		this.time = time;
+		this.header = header;
+		this.text = text;
+		this.type = type;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	public String getHeader() {
+		return header;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public NotificationType getType() {
+		return type;
+	}
+
+	@Override
+	public String toString() {
+		return type + ": " + header + ": " + text;
+	}
+}
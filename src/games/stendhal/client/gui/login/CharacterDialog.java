@@ -37,6 +37,7 @@ import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
 
 import org.apache.log4j.Logger;
 
@@ -282,21 +283,56 @@ public final class CharacterDialog extends JDialog implements Runnable {
 	 * @param character player selected by the user
 	 */
 	private void chooseCharacter(final String character) {
-		try {
-			StendhalClient.get().chooseCharacter(character);
-			setVisible(false);
-			stendhal.setDoLogin();
-			dispose();
-		} catch (TimeoutException e) {
-			logger.error(e, e);
-			handleError("Your connection timed out, please login again.", "Choose Character");
-		} catch (InvalidVersionException e) {
-			logger.error(e, e);
-			handleError("Your version of Stendhal is incompatible with the server.", "Choose Character");
-		} catch (BannedAddressException e) {
-			logger.error(e, e);
-			handleError("Please login again.", "Choose Character");
-		}
+		// retrying waits, so do not block the event dispatch thread
+		setEnabled(false);
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					final boolean chosen = StendhalClient.get().chooseCharacterRetrying(character, CharacterDialog.this);
+					SwingUtilities.invokeLater(new Runnable() {
+						@Override
+						public void run() {
+							if (chosen) {
+								setVisible(false);
+								stendhal.setDoLogin();
+								dispose();
+							} else {
+								JOptionPane.showMessageDialog(CharacterDialog.this,
+										"The server is too busy, please try again later.",
+										"Choose Character", JOptionPane.WARNING_MESSAGE);
+								setEnabled(true);
+							}
+						}
+					});
+				} catch (TimeoutException e) {
+					logger.error(e, e);
+					handleErrorLater("Your connection timed out, please login again.", "Choose Character");
+				} catch (InvalidVersionException e) {
+					logger.error(e, e);
+					handleErrorLater("Your version of Stendhal is incompatible with the server.", "Choose Character");
+				} catch (BannedAddressException e) {
+					logger.error(e, e);
+					handleErrorLater("Please login again.", "Choose Character");
+				}
+			}
+		}, "Choose character");
+		thread.start();
+	}
+
+	/**
+	 * Calls {@link #handleError} in the event dispatch thread.
+	 *
+	 * @param errorMessage error message
+	 * @param errorTitle   title of error dialog box
+	 */
+	private void handleErrorLater(final String errorMessage, final String errorTitle) {
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				handleError(errorMessage, errorTitle);
+			}
+		});
 	}
 
 	/**
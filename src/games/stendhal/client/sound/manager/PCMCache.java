@@ -0,0 +1,140 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.client.sound.manager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.client.sound.system.processors.Recorder;
+
+/**
+ * A shared cache of decoded sounds. Short sound effects are decoded once and
+ * then played from memory, however often they are opened, cloned or
+ * restarted. The cache has a memory budget; the least recently used sounds
+ * are discarded when it is exceeded. Sounds that would take more than an
+ * eighth of the budget are not cached, those are streamed or decoded on
+ * their own.
+ */
+public class PCMCache
+{
+	private static final Logger logger = Logger.getLogger(PCMCache.class);
+
+	/** default memory budget in bytes */
+	private static final long DEFAULT_BUDGET = 32L * 1024 * 1024;
+
+	private static final PCMCache sInstance = new PCMCache(DEFAULT_BUDGET);
+
+	/** decoded sounds by name in access order */
+	private final LinkedHashMap<String, Recorder> mRecorders = new LinkedHashMap<String, Recorder>(64, 0.75f, true);
+	private final long mBudget;
+	private long       mSize = 0;
+
+	/**
+	 * Create a PCMCache.
+	 *
+	 * @param budget memory budget in bytes
+	 */
+	PCMCache(long budget)
+	{
+		mBudget = budget;
+	}
+
+	/**
+	 * Get the shared instance.
+	 *
+	 * @return PCMCache
+	 */
+	public static PCMCache get()
+	{
+		return sInstance;
+	}
+
+	/**
+	 * Get a decoded sound.
+	 *
+	 * @param name name of the sound resource
+	 * @return recorder with the decoded sound, or <code>null</code> if the
+	 * 	sound is not cached
+	 */
+	public synchronized Recorder get(String name)
+	{
+		return mRecorders.get(name);
+	}
+
+	/**
+	 * Store a decoded sound. The recorder must not be changed afterwards.
+	 *
+	 * @param name name of the sound resource
+	 * @param recorder recorder with the decoded sound
+	 * @return <code>true</code> if the sound was cached, <code>false</code>
+	 * 	if it is too large
+	 */
+	public synchronized boolean put(String name, Recorder recorder)
+	{
+		long size = getSize(recorder);
+
+		if(size > mBudget / 8) {
+			return false;
+		}
+
+		Recorder old = mRecorders.put(name, recorder);
+
+		if(old != null) {
+			mSize -= getSize(old);
+		}
+
+		mSize += size;
+		evict();
+		return true;
+	}
+
+	/**
+	 * Get the memory used by the cached sounds.
+	 *
+	 * @return size in bytes
+	 */
+	public synchronized long getSize()
+	{
+		return mSize;
+	}
+
+	/**
+	 * Discard the least recently used sounds until the cache fits in its
+	 * budget. Sounds which are still playing keep their data.
+	 */
+	private void evict()
+	{
+		Iterator<Map.Entry<String, Recorder>> it = mRecorders.entrySet().iterator();
+
+		while(mSize > mBudget && it.hasNext())
+		{
+			Map.Entry<String, Recorder> entry = it.next();
+			it.remove();
+			mSize -= getSize(entry.getValue());
+			logger.debug("discarded decoded sound " + entry.getKey());
+		}
+	}
+
+	/**
+	 * Get the memory used by a decoded sound.
+	 *
+	 * @param recorder recorder with the decoded sound
+	 * @return size in bytes
+	 */
+	static long getSize(Recorder recorder)
+	{
+		return 4L * recorder.getNumSamples() * recorder.getNumChannels();
+	}
+}
@@ -58,17 +58,31 @@ public class SoundFile extends SignalProcessor implements Cloneable {
 
     public SoundFile(AudioResource audioResource, SoundFileType fileType, int outputNumSamplesPerChannel, boolean enableStreaming) throws IOException
     {
+		mAudioResource         = audioResource;
+        mFileType         = fileType;
+        mEnableStreaming  = enableStreaming;
+        mOutputNumSamples = outputNumSamplesPerChannel;
+
+        // short sounds are decoded only once and then played from memory
+        if(!enableStreaming)
+        {
+            mRecorder = PCMCache.get().get(audioResource.getName());
+
+            if(mRecorder != null)
+            {
+                mNumChannels = mRecorder.getNumChannels();
+                mSampleRate  = mRecorder.getSampleRate();
+                mGenerator   = mRecorder.createPlayer(outputNumSamplesPerChannel);
+                mGenerator.connectTo(mPropagator, true);
+                return;
+            }
+        }
 
     	InputStream stream = audioResource.getInputStream();
 		if(stream == null) {
             throw new IOException("audio AudioResource doesn't exist: " + audioResource.getName());
 		}
 
-		mAudioResource         = audioResource;
-        mFileType         = fileType;
-        mEnableStreaming  = enableStreaming;
-        mOutputNumSamples = outputNumSamplesPerChannel;
-
         SignalProcessor decoder = chooseDecoder(stream, fileType, outputNumSamplesPerChannel);
 
         if(decoder == null) {
@@ -96,6 +110,7 @@ public class SoundFile extends SignalProcessor implements Cloneable {
 
             mRecorder.disconnect();
             mRecorder.trim();
+            PCMCache.get().put(audioResource.getName(), mRecorder);
 
 			Recorder.Player player = mRecorder.createPlayer(outputNumSamplesPerChannel);
 			player.connectTo(mPropagator, true);
@@ -111,6 +126,8 @@ public class SoundFile extends SignalProcessor implements Cloneable {
 		mOutputNumSamples = outputNumSamplesPerChannel;
 		mEnableStreaming  = false;
 		mRecorder         = recorder;
+		mNumChannels      = recorder.getNumChannels();
+		mSampleRate       = recorder.getSampleRate();
 		mGenerator        = recorder.createPlayer(outputNumSamplesPerChannel);
 
 		mGenerator.connectTo(mPropagator, true);
@@ -121,11 +138,9 @@ public class SoundFile extends SignalProcessor implements Cloneable {
 
 	public void close()
 	{
-		if(mGenerator instanceof Recorder.Player)
-		{
-			mRecorder.clear();
-		}
-		else if(mGenerator instanceof OggVorbisDecoder)
+		// the recorded data of a Recorder.Player is shared with the clones
+		// and the PCMCache, it is left to the garbage collector
+		if(mGenerator instanceof OggVorbisDecoder)
 		{
 			OggVorbisDecoder decoder = (OggVorbisDecoder)mGenerator;
 			decoder.close();
@@ -0,0 +1,103 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.client.sound.system;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of audio buffers. Signal processors which are created for every
+ * played sound take their buffers from here instead of allocating new ones,
+ * so that playing sounds does not produce garbage once the pool is warm.
+ */
+public final class BufferPool
+{
+	/** maximum number of free buffers kept for each size */
+	private static final int MAX_FREE_BUFFERS = 64;
+
+	/** free buffers by size. There are only a few different sizes in use */
+	private static final List<Buffers> sBuffers = new ArrayList<Buffers>();
+
+	private static final class Buffers
+	{
+		final int       mSize;
+		final float[][] mFree  = new float[MAX_FREE_BUFFERS][];
+		int             mCount = 0;
+
+		Buffers(int size) { mSize = size; }
+	}
+
+	private BufferPool() {
+		// static methods only
+	}
+
+	/**
+	 * Get a buffer. The content of the buffer is undefined.
+	 *
+	 * @param size number of floats
+	 * @return a buffer of exactly the requested size
+	 */
+	public static synchronized float[] acquire(int size)
+	{
+		Buffers buffers = find(size);
+
+		if(buffers != null && buffers.mCount > 0)
+		{
+			--buffers.mCount;
+			float[] buffer = buffers.mFree[buffers.mCount];
+			buffers.mFree[buffers.mCount] = null;
+			return buffer;
+		}
+
+		return new float[size];
+	}
+
+	/**
+	 * Return a buffer to the pool. The buffer must not be used afterwards.
+	 *
+	 * @param buffer buffer, may be <code>null</code>
+	 */
+	public static synchronized void release(float[] buffer)
+	{
+		if(buffer == null) {
+			return;
+		}
+
+		Buffers buffers = find(buffer.length);
+
+		if(buffers == null)
+		{
+			buffers = new Buffers(buffer.length);
+			sBuffers.add(buffers);
+		}
+
+		if(buffers.mCount < MAX_FREE_BUFFERS)
+		{
+			buffers.mFree[buffers.mCount] = buffer;
+			++buffers.mCount;
+		}
+	}
+
+	private static Buffers find(int size)
+	{
+		for(int i=0; i<sBuffers.size(); ++i)
+		{
+			Buffers buffers = sBuffers.get(i);
+
+			if(buffers.mSize == size) {
+				return buffers;
+			}
+		}
+
+		return null;
+	}
+}
@@ -12,6 +12,7 @@
  ***************************************************************************/
 package games.stendhal.client.sound.system;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -297,6 +298,7 @@ public class SoundSystemNG extends Thread
 	private final AtomicInteger          mTargetSystemState     = new AtomicInteger(STATE_EXITING);
 	private final AtomicInteger          mCurrentSystemState    = new AtomicInteger(STATE_EXITING);
 	private float[]                      mMixBuffer             = null;
+	private final ArrayList<Output>      mOutputsToMix          = new ArrayList<Output>();
 
 	public SoundSystemNG(AudioFormat audioFormat, Time bufferDuration)
 	{
@@ -505,15 +507,19 @@ public class SoundSystemNG extends Thread
 		mTargetSystemState.set(state);
 	}
 
-	@SuppressWarnings("unchecked")
 	private void processOutputs()
 	{
-		LinkedList<Output> mixerOutputs;
-		SystemOutput       systemOutput = mSystemOutput;
+		ArrayList<Output> mixerOutputs = mOutputsToMix;
+		SystemOutput      systemOutput = mSystemOutput;
 
+		// copy the outputs to a reused list to mix them without holding the lock
 		synchronized(mMixerOutputs)
 		{
-			mixerOutputs = (LinkedList<Output>)mMixerOutputs.clone();
+			mixerOutputs.clear();
+
+			for(Output output: mMixerOutputs) {
+				mixerOutputs.add(output);
+			}
 		}
 
 		int sampleRate        = systemOutput.getSampleRate();
@@ -529,8 +535,8 @@ public class SoundSystemNG extends Thread
 		mMixBuffer = Field.expand(mMixBuffer, numSamples, false);
 		Arrays.fill(mMixBuffer, 0, numSamples, 0.0f);
 
-		for(Output output: mixerOutputs) {
-			output.mix(mMixBuffer, numSamples);
+		for(int i=0; i<mixerOutputs.size(); ++i) {
+			mixerOutputs.get(i).mix(mMixBuffer, numSamples);
 		}
 
 		systemOutput.setBuffer(mMixBuffer, numSamples);
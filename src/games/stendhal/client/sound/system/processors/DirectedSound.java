@@ -28,6 +28,12 @@ public class DirectedSound extends SignalProcessor
     private float         mRVolume      = 1.0f;
 	private float[]       mOutputBuffer = null;
 
+    // work vectors, kept to avoid allocations on every position update
+    private final float[] mDistance3D   = new float[3]; // distance vector between the sound position (sourcePos) and the hearer (hearerPos)
+    private final float[] mLocalYAxis3D = new float[3]; // the y-axis of the hearer depending on the hearers looking direction
+    private final float[] mDistance2D   = new float[2];
+    private final float[] mLocalYAxis2D = new float[2];
+
     public DirectedSound() { }
 
     public DirectedSound(float[] upVector)
@@ -52,8 +58,8 @@ public class DirectedSound extends SignalProcessor
             return;
         }
 
-        float[] distance   = new float[3]; // distance vector between the sound position (sourcePos) and the hearer (hearerPos)
-        float[] localYAxis = new float[3]; // the y-axis of the hearer depending on the hearers looking direction
+        float[] distance   = mDistance3D;
+        float[] localYAxis = mLocalYAxis3D;
 
         Algebra.sub_Vecf(distance, sourcePos, hearerPos);
         Algebra.cross_Vec3f(localYAxis, hearerLookingDirection, mUpVector);
@@ -79,8 +85,8 @@ public class DirectedSound extends SignalProcessor
             return;
         }
 
-        float[] distance   = new float[2]; // distance vector between the sound position (sourcePos) and the hearer (hearerPos)
-        float[] localYAxis = new float[2]; // the y-axis of the hearer depending on the hearers looking direction
+        float[] distance   = mDistance2D;
+        float[] localYAxis = mLocalYAxis2D;
 
         Algebra.sub_Vecf(distance, sourcePos, hearerPos);
         Algebra.cross_Vec2f(localYAxis, hearerLookingDirection);
@@ -49,6 +49,9 @@ public class OggVorbisDecoder extends SignalProcessor
 	private boolean     mLastPageWasRead = false;
     private boolean     mDecoderIsOpened = false;
 	private InputStream mIStream         = null;
+	// reused for every page and packet of the stream
+	private final Page   mOggPage        = new Page();
+	private final Packet mOggPacket      = new Packet();
 
     protected final void init(InputStream stream, int inputBufferSize, int outputNumSamplesPerChannel) throws IOException
     {
@@ -81,7 +84,7 @@ public class OggVorbisDecoder extends SignalProcessor
 
     protected Page readPage(boolean ignoreHoles, boolean updateStreamState) throws IOException
     {
-        Page oggPage = new Page();
+        Page oggPage = mOggPage;
 
         while(!mEndOfStream)
         {
@@ -134,7 +137,7 @@ public class OggVorbisDecoder extends SignalProcessor
 
     protected Packet readPacket(boolean ignoreHoles) throws IOException
     {
-        Packet oggPacket = new Packet();
+        Packet oggPacket = mOggPacket;
 
         while(true)
         {
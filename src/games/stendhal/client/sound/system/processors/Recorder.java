@@ -12,23 +12,27 @@
  ***************************************************************************/
 package games.stendhal.client.sound.system.processors;
 
+import games.stendhal.client.sound.system.BufferPool;
 import games.stendhal.client.sound.system.SignalProcessor;
 import games.stendhal.common.memory.Field;
 
 /**
  * Recorder can be used to record sound signals in memory.
+ * Once recorded, the data can be played by any number of Players at the
+ * same time.
  * @author silvio
  */
 public class Recorder extends SignalProcessor
 {
 	public class Player extends SignalProcessor
 	{
-		private float[] mOutputBuffer;
-		private int     mNumSamplesRead = 0;
+		private final int mOutputBufferSize;
+		private float[]   mOutputBuffer   = null; // taken from the BufferPool while playing
+		private int       mNumSamplesRead = 0;
 
 		private Player(int outputNumSamples)
 		{
-			mOutputBuffer = new float[outputNumSamples * mNumChannels];
+			mOutputBufferSize = outputNumSamples * mNumChannels;
 		}
 
 		public synchronized void    restart           () { mNumSamplesRead = 0;                           }
@@ -42,11 +46,17 @@ public class Recorder extends SignalProcessor
 		{
 			if(reachedEndOfStream())
 			{
+				BufferPool.release(mOutputBuffer);
+				mOutputBuffer = null;
 				super.quit();
 				return false;
 			}
 
-			int outputBufferSize    = mOutputBuffer.length;
+			if(mOutputBuffer == null) {
+				mOutputBuffer = BufferPool.acquire(mOutputBufferSize);
+			}
+
+			int outputBufferSize    = mOutputBufferSize;
 			int numSamplesAvailable = mNumSamplesBuffered - mNumSamplesRead;
 			int numSamples          = Math.min(outputBufferSize, numSamplesAvailable);
 
@@ -13,12 +13,21 @@
 package games.stendhal.client.sprite;
 
 
-import org.apache.log4j.Logger;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-import games.stendhal.client.MemoryCache;
+import org.apache.log4j.Logger;
 
 /**
- * A cache of keyed sprites.
+ * A cache of keyed sprites. The cache has a memory budget, and when the
+ * estimated size of the cached images exceeds it, the least recently used
+ * sprites are discarded. Pinned sprites, such as the tilesets of the current
+ * zone, are never discarded.
  */
 public class SpriteCache {
 	/**
@@ -26,22 +35,57 @@ public class SpriteCache {
 	 */
 	private static final Logger LOGGER = Logger.getLogger(SpriteCache.class);
 
+	/**
+	 * Estimated size of a sprite that does not have pixel data of its own,
+	 * such as a region of another sprite.
+	 */
+	private static final int ENTRY_OVERHEAD = 64;
+
 	/**
 	 * The singleton.
 	 */
-	private static final SpriteCache sharedInstance = new SpriteCache();
+	private static final SpriteCache sharedInstance = new SpriteCache(Runtime.getRuntime().maxMemory() / 4);
 
 	/**
-	 * The sprite map.
+	 * The sprite map in access order.
 	 */
-	private MemoryCache<Object, Sprite> sprites;
+	private final LinkedHashMap<Object, Entry> sprites = new LinkedHashMap<Object, Entry>(256, 0.75f, true);
+
+	/** Keys of sprites that must not be discarded. */
+	private final Set<Object> pinned = new HashSet<Object>();
+
+	/** Listeners notified when sprites are discarded. */
+	private final Collection<EvictionListener> listeners = new CopyOnWriteArrayList<EvictionListener>();
+
+	/** Memory budget in bytes. */
+	private final long budget;
+
+	/** Estimated size of the cached sprites in bytes. */
+	private long size;
+
+	/** Number of successful look ups. */
+	private long hits;
 
+	/** Number of failed look ups. */
+	private long misses;
+
+	/** Number of discarded sprites. */
+	private long evictions;
 
 	/**
-	 * Create a sprite cache.
+	 * Create a sprite cache without a memory budget.
 	 */
 	public SpriteCache() {
-		sprites = new MemoryCache<Object, Sprite>();
+		this(Long.MAX_VALUE);
+	}
+
+	/**
+	 * Create a sprite cache.
+	 *
+	 * @param budget memory budget in bytes
+	 */
+	SpriteCache(final long budget) {
+		this.budget = budget;
 	}
 
 	//
@@ -70,9 +114,18 @@ public class SpriteCache {
 	 *            The sprite to add.
 	 */
 	public void add(final Object key, final Sprite sprite) {
-		if (key != null) {
-			sprites.put(key, sprite);
+		if ((key == null) || (sprite == null)) {
+			return;
+		}
+		synchronized (this) {
+			final Entry entry = new Entry(sprite);
+			final Entry old = sprites.put(key, entry);
+			if (old != null) {
+				size -= old.size;
+			}
+			size += entry.size;
 			LOGGER.debug("SpriteCache - add: " + key);
+			evict();
 		}
 	}
 
@@ -93,7 +146,140 @@ public class SpriteCache {
 	 *
 	 * @return A sprite, or <code>null</code> if not found.
 	 */
-	public Sprite get(final Object key) {
-		return sprites.get(key);
+	public synchronized Sprite get(final Object key) {
+		final Entry entry = sprites.get(key);
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.sprite;
+	}
+
+	/**
+	 * Check if a sprite is cached. Unlike {@link #get(Object)}, this is not
+	 * counted in the statistics and does not mark the sprite as used.
+	 *
+	 * @param key
+	 *            The cache key.
+	 *
+	 * @return <code>true</code> if the sprite is cached
+	 */
+	public synchronized boolean contains(final Object key) {
+		return sprites.containsKey(key);
+	}
+
+	/**
+	 * Set the sprites that must not be discarded. This replaces the previously
+	 * pinned sprites.
+	 *
+	 * @param keys cache keys of the sprites
+	 */
+	public synchronized void setPinned(final Collection<?> keys) {
+		pinned.clear();
+		pinned.addAll(keys);
+		evict();
+	}
+
+	/**
+	 * Add a listener that is notified when sprites are discarded.
+	 *
+	 * @param listener listener
+	 */
+	public void addEvictionListener(final EvictionListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Discard the least recently used sprites that are not pinned until the
+	 * cache fits in its budget.
+	 */
+	private void evict() {
+		final Iterator<Map.Entry<Object, Entry>> it = sprites.entrySet().iterator();
+		while ((size > budget) && it.hasNext()) {
+			final Map.Entry<Object, Entry> mapEntry = it.next();
+			final Object key = mapEntry.getKey();
+			if (pinned.contains(key)) {
+				continue;
+			}
+			it.remove();
+			size -= mapEntry.getValue().size;
+			evictions++;
+			for (EvictionListener listener : listeners) {
+				listener.evicted(key);
+			}
+		}
+	}
+
+	/**
+	 * Get the estimated size of the cached sprites.
+	 *
+	 * @return size in bytes
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * Get the memory budget of the cache.
+	 *
+	 * @return budget in bytes
+	 */
+	public long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Get a summary of the cache state for debugging.
+	 *
+	 * @return description of size, hits, misses and evictions
+	 */
+	public synchronized String getStatistics() {
+		return "sprites: " + sprites.size() + ", size: " + (size / 1024) + "/"
+				+ (budget / 1024) + " kB, hits: " + hits + ", misses: " + misses
+				+ ", evicted: " + evictions;
+	}
+
+	/**
+	 * Estimate the memory used by a sprite.
+	 *
+	 * @param sprite sprite
+	 * @return size in bytes
+	 */
+	static int estimateSize(final Sprite sprite) {
+		if (sprite instanceof ImageSprite) {
+			return ENTRY_OVERHEAD + 4 * sprite.getWidth() * sprite.getHeight();
+		}
+		return ENTRY_OVERHEAD;
+	}
+
+	/**
+	 * Listener for discarded sprites.
+	 */
+	public interface EvictionListener {
+		/**
+		 * Called when a sprite has been discarded from the cache.
+		 *
+		 * @param key cache key of the sprite
+		 */
+		void evicted(Object key);
+	}
+
+	/**
+	 * A cached sprite with its estimated size.
+	 */
+	private static class Entry {
+		private final Sprite sprite;
+		private final int size;
+
+		/**
+		 * Create a new Entry.
+		 *
+		 * @param sprite cached sprite
+		 */
+		Entry(final Sprite sprite) {
+			this.sprite = sprite;
+			this.size = estimateSize(sprite);
+		}
 	}
 }
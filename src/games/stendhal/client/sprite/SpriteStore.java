@@ -23,6 +23,16 @@ import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.net.URL;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 
 import javax.imageio.ImageIO;
 
@@ -50,11 +60,39 @@ public class SpriteStore {
 	/** The single instance of this class. */
 	private static SpriteStore single = new SpriteStore();
 
+	/** Maximum number of threads decoding images in the background. */
+	private static final int MAX_LOADER_THREADS = 4;
+
+	/** Milliseconds before an image that failed to load is tried again. */
+	private static final long FAILED_RETRY_DELAY = 60000;
+
 	/**
 	 * Screen graphics configuration.
 	 */
 	private GraphicsConfiguration gc;
 
+	/**
+	 * Sprites that are being decoded. Whoever needs one of these waits for the
+	 * running task instead of decoding the image again.
+	 */
+	private final Map<String, FutureTask<Sprite>> pending = new ConcurrentHashMap<String, FutureTask<Sprite>>();
+
+	/**
+	 * Images that failed to load, and the times when they failed. They are
+	 * not looked up again until {@link #FAILED_RETRY_DELAY} has passed.
+	 */
+	private final Map<String, Long> failed = new ConcurrentHashMap<String, Long>();
+
+	/**
+	 * The "no blood" variants of image references. References without a
+	 * variant are mapped to themselves, so that the resource lookup is done
+	 * only once per image.
+	 */
+	private final Map<String, String> safeRefs = new ConcurrentHashMap<String, String>();
+
+	/** Background image decoders. Created when first needed. */
+	private ExecutorService loader;
+
 	protected SpriteStore() {
 		try {
 			gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
@@ -196,16 +234,162 @@ public class SpriteStore {
 		final SpriteCache cache = SpriteCache.get();
 
 		Sprite sprite = cache.get(ref);
+		if (sprite != null) {
+			return sprite;
+		}
 
-		if (sprite == null) {
+		if (hasFailedRecently(ref)) {
+			sprite = null;
+		} else {
+			FutureTask<Sprite> task = pending.get(ref);
+			if (task == null) {
+				FutureTask<Sprite> newTask = createLoadTask(ref);
+				task = pending.putIfAbsent(ref, newTask);
+				if (task == null) {
+					task = newTask;
+				}
+			}
+			/*
+			 * Load it in this thread rather than wait for a prefetch task
+			 * that is still queued. Does nothing if the task has already
+			 * been started elsewhere.
+			 */
+			task.run();
+			sprite = waitFor(ref, task);
+		}
+		if ((sprite == null) && !ref.equals(FAILSAFE_ICON_REF)) {
+			return getFailsafe();
+		}
+		return sprite;
+	}
+
+	/**
+	 * Start decoding sprites in background threads, so that they are ready
+	 * when they are needed. Sprites that are already loaded, or being loaded,
+	 * are skipped.
+	 *
+	 * @param refs image resource names
+	 */
+	public void prefetch(final Collection<String> refs) {
+		for (String ref : refs) {
+			prefetch(ref);
+		}
+	}
+
+	/**
+	 * Start decoding a sprite in a background thread, so that it is ready
+	 * when it is needed.
+	 *
+	 * @param ref image resource name
+	 */
+	public void prefetch(final String ref) {
+		if ((ref == null) || SpriteCache.get().contains(ref)
+				|| pending.containsKey(ref) || hasFailedRecently(ref)) {
+			return;
+		}
+		FutureTask<Sprite> task = createLoadTask(ref);
+		if (pending.putIfAbsent(ref, task) == null) {
+			getLoader().execute(task);
+		}
+	}
 
-			sprite = loadSprite(ref);
-			if (sprite != null) {
-				cache.add(ref, sprite);
+	/**
+	 * Create a task that loads a sprite, stores it in the cache and removes
+	 * itself from the pending tasks. Sprites that failed to load are not
+	 * cached. Their failure time is remembered instead, so that they are
+	 * tried again only after a while.
+	 *
+	 * @param ref image resource name
+	 * @return loading task
+	 */
+	private FutureTask<Sprite> createLoadTask(final String ref) {
+		return new FutureTask<Sprite>(new Callable<Sprite>() {
+			@Override
+			public Sprite call() {
+				try {
+					Sprite sprite = loadSprite(ref);
+					if (sprite != null) {
+						SpriteCache.get().add(ref, sprite);
+						failed.remove(ref);
+					} else {
+						failed.put(ref, currentTime());
+					}
+					return sprite;
+				} finally {
+					pending.remove(ref);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Check if an image failed to load so recently that it should not be
+	 * tried again yet.
+	 *
+	 * @param ref image resource name
+	 * @return <code>true</code> if the image should not be loaded now
+	 */
+	private boolean hasFailedRecently(final String ref) {
+		Long time = failed.get(ref);
+		return (time != null) && (currentTime() - time < FAILED_RETRY_DELAY);
+	}
+
+	/**
+	 * Get the current time. Used for retrying failed images.
+	 *
+	 * @return time in milliseconds
+	 */
+	long currentTime() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Wait for a loading task to finish.
+	 *
+	 * @param ref image resource name
+	 * @param task loading task
+	 * @return loaded sprite, or <code>null</code> if loading failed
+	 */
+	private Sprite waitFor(final String ref, final Future<Sprite> task) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return task.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} catch (ExecutionException e) {
+			logger.error("Failed to load: " + ref, e.getCause());
+			return null;
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
 			}
 		}
+	}
 
-		return sprite;
+	/**
+	 * Get the background image decoders.
+	 *
+	 * @return executor for the loading tasks
+	 */
+	private synchronized ExecutorService getLoader() {
+		if (loader == null) {
+			int threads = Math.min(MAX_LOADER_THREADS,
+					Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+			loader = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "Sprite loader");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.NORM_PRIORITY - 1);
+					return thread;
+				}
+			});
+		}
+		return loader;
 	}
 
 	/**
@@ -337,16 +521,13 @@ public class SpriteStore {
 	 *
 	 * @return A sprite, or <code>null</code> if missing/on error.
 	 */
-	private Sprite loadSprite(String ref) {
+	protected Sprite loadSprite(String ref) {
 		BufferedImage sourceImage = null;
 
 		// No blood mode
 		boolean showBlood = WtWindowManager.getInstance().getPropertyBoolean("gamescreen.blood", true);
-		String safeRef = ref.split(".png")[0] + "-safe.png";
-		URL safeURL = DataLoader.getResource(safeRef);
-		if (!showBlood && (safeURL != null)) {
-			logger.debug("Using safe image: " + safeRef);
-			ref = safeRef;
+		if (!showBlood) {
+			ref = getSafeRef(ref);
 		}
 
 		try {
@@ -359,28 +540,14 @@ public class SpriteStore {
 			}
 			if (url == null) {
 				logger.error("Can't find ref: " + ref);
-
-				// avoid infinite loop and stack overflow in case of missing
-				// failsafe icon
-				if (ref.equals(FAILSAFE_ICON_REF)) {
-					logger.error("Cannot find FAILSAFE_ICON_REF: " + FAILSAFE_ICON_REF);
-					return null;
-				} else {
-					return getFailsafe();
-				}
+				return null;
 			}
 
 			// use ImageIO to read the image in
 			sourceImage = ImageIO.read(url);
 		} catch (final IOException e) {
 			logger.error("Failed to read: " + ref, e);
-
-			if (ref.equals(FAILSAFE_ICON_REF)) {
-				logger.error("Cannot read FAILSAFE_ICON_REF: " + FAILSAFE_ICON_REF);
-				return null;
-			} else {
-				return getFailsafe();
-			}
+			return null;
 		}
 
 		final Image image = gc.createCompatibleImage(sourceImage.getWidth(),
@@ -395,6 +562,26 @@ public class SpriteStore {
 		return sprite;
 	}
 
+	/**
+	 * Get the reference of the "no blood" variant of an image.
+	 *
+	 * @param ref image resource name
+	 * @return resource name of the safe variant, or ref if there is none
+	 */
+	private String getSafeRef(final String ref) {
+		String safeRef = safeRefs.get(ref);
+		if (safeRef == null) {
+			safeRef = ref.split(".png")[0] + "-safe.png";
+			if (DataLoader.getResource(safeRef) == null) {
+				safeRef = ref;
+			} else {
+				logger.debug("Using safe image: " + safeRef);
+			}
+			safeRefs.put(ref, safeRef);
+		}
+		return safeRef;
+	}
+
 	/**
 	 * Get an empty sprite with the size of a single tile.
 	 *
@@ -75,8 +75,6 @@ public class CollisionDetection {
 	 * @param collisionLayer static collision information
 	 */
 	public void setCollisionData(final LayerDefinition collisionLayer) {
-		// First we build the int array.
-		collisionLayer.build();
 		init(collisionLayer.getWidth(), collisionLayer.getHeight());
 
 		for (int y = 0; y < height; y++) {
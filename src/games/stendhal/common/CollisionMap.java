@@ -15,24 +15,40 @@ package games.stendhal.common;
 
 
 import java.awt.geom.Rectangle2D;
-import java.util.BitSet;
+import java.util.Arrays;
 
 import games.stendhal.common.tiled.LayerDefinition;
 
+/**
+ * Static collision of a zone as a packed bit map. The rows are stored one
+ * after another, each starting at a new <code>long</code>, so that a rectangle
+ * can be tested with one masked test per row and touched word.
+ * <p>
+ * For the entity sizes that are actually queried, a map of the positions where
+ * such an entity can not stand is derived on first use. Checking an entity
+ * against the map is then a single bit look up. The derived maps are discarded
+ * whenever the collision data changes.
+ */
 public class CollisionMap {
+	/** Largest entity width or height that gets a precomputed map. */
+	private static final int MAX_CACHED_SIZE = 16;
+	/** Maximum number of different entity sizes with a precomputed map. */
+	private static final int MAX_CACHED_MAPS = 8;
 
 	private final int width;
 	private final int height;
-	private final BitSet[] colls;
+	/** Number of longs used by one row. */
+	private final int wordsPerRow;
+	/** Collision bits, row major. */
+	private final long[] bits;
+	/** Precomputed maps for entity sizes, or <code>null</code>. */
+	private volatile SizeMap[] sizeMaps;
 
 	public CollisionMap(final int width, final int height) {
 		this.width = width;
 		this.height = height;
-		colls = new BitSet[width];
-		for (int i = 0; i < width; i++) {
-			colls[i] = new BitSet();
-		}
-
+		wordsPerRow = (width + 63) >>> 6;
+		bits = new long[wordsPerRow * height];
 	}
 
 	public CollisionMap(final LayerDefinition layer) {
@@ -55,12 +71,12 @@ public class CollisionMap {
 	}
 
 	public boolean get(final int i, final int j) {
-		return colls[i].get(j);
+		return (bits[j * wordsPerRow + (i >>> 6)] & (1L << i)) != 0;
 	}
 
 	public void set(final int i, final int j) {
-
-		colls[i].set(j);
+		bits[j * wordsPerRow + (i >>> 6)] |= 1L << i;
+		sizeMaps = null;
 	}
 
 	public boolean collides(final int x, final int y, final int width, final int height) {
@@ -72,20 +88,93 @@ public class CollisionMap {
 			return true;
 		}
 
-		final BitSet result = new BitSet();
-		for (int i = x; i < x + width; i++) {
-			result.or(colls[i]);
+		if (width <= 0 || height <= 0) {
+			return false;
 		}
 
-		return !result.get(y, y + height).isEmpty();
+		final SizeMap sizeMap = getSizeMap(width, height);
+		if (sizeMap != null) {
+			return sizeMap.isBlocked(x, y);
+		}
+		return any(x, y, width, height);
 	}
 
-	public void clear() {
-		for (int i = 0; i < this.width; i++) {
-			colls[i].clear();
+	/**
+	 * Check if any bit in a rectangle is set. The rectangle must be within the
+	 * map.
+	 *
+	 * @param x left column
+	 * @param y top row
+	 * @param w width
+	 * @param h height
+	 * @return <code>true</code> if at least one position is blocked
+	 */
+	private boolean any(final int x, final int y, final int w, final int h) {
+		final int lastX = x + w - 1;
+		final int firstWord = x >>> 6;
+		final int lastWord = lastX >>> 6;
+		final long firstMask = -1L << x;
+		final long lastMask = -1L >>> (63 - (lastX & 63));
+		for (int row = y; row < y + h; row++) {
+			final int base = row * wordsPerRow;
+			if (firstWord == lastWord) {
+				if ((bits[base + firstWord] & firstMask & lastMask) != 0) {
+					return true;
+				}
+				continue;
+			}
+			if ((bits[base + firstWord] & firstMask) != 0) {
+				return true;
+			}
+			for (int word = firstWord + 1; word < lastWord; word++) {
+				if (bits[base + word] != 0) {
+					return true;
+				}
+			}
+			if ((bits[base + lastWord] & lastMask) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the precomputed map for an entity size, creating it if needed.
+	 *
+	 * @param w entity width
+	 * @param h entity height
+	 * @return map, or <code>null</code> if the size is not cached
+	 */
+	private SizeMap getSizeMap(final int w, final int h) {
+		if (w > MAX_CACHED_SIZE || h > MAX_CACHED_SIZE) {
+			return null;
+		}
+		SizeMap[] maps = sizeMaps;
+		if (maps != null) {
+			for (SizeMap map : maps) {
+				if (map.w == w && map.h == h) {
+					return map;
+				}
+			}
+			if (maps.length >= MAX_CACHED_MAPS) {
+				return null;
+			}
+		} else {
+			maps = new SizeMap[0];
 		}
+		final SizeMap map = new SizeMap(w, h);
+		final SizeMap[] extended = new SizeMap[maps.length + 1];
+		System.arraycopy(maps, 0, extended, 0, maps.length);
+		extended[maps.length] = map;
+		sizeMaps = extended;
+		return map;
+	}
 
+	public void clear() {
+		Arrays.fill(bits, 0L);
+		sizeMaps = null;
 	}
+
 	public static CollisionMap create(final LayerDefinition layer) {
 
 		CollisionMap collissionMap = new CollisionMap(layer.getWidth(), layer
@@ -101,17 +190,85 @@ public class CollisionMap {
 	}
 
 	public void unset(final int i, final int k) {
-		colls[i].clear(k);
-
+		bits[k * wordsPerRow + (i >>> 6)] &= ~(1L << i);
+		sizeMaps = null;
 	}
 
 	public void set(final Rectangle2D shape) {
-		int y = (int) shape.getY();
-		for (int x = (int) shape.getX(); x < shape.getX() + shape.getWidth(); x++) {
+		final int y = (int) shape.getY();
+		final int endY = (int) (y + shape.getHeight());
+		final int x = (int) shape.getX();
+		final int endX = (int) Math.ceil(shape.getX() + shape.getWidth());
+		for (int row = y; row < endY; row++) {
+			final int base = row * wordsPerRow;
+			for (int col = x; col < endX; col++) {
+				bits[base + (col >>> 6)] |= 1L << col;
+			}
+		}
+		sizeMaps = null;
+	}
+
+	/**
+	 * Positions where an entity of a given size would collide. A set bit at
+	 * (x, y) means that a w*h rectangle with its upper left corner at (x, y)
+	 * overlaps a blocked position or leaves the map.
+	 */
+	private final class SizeMap {
+		private final int w;
+		private final int h;
+		private final long[] blocked;
 
-			colls[x].set(y, (int) (y + shape.getHeight()));
+		/**
+		 * Create a new SizeMap from the current collision bits.
+		 *
+		 * @param w entity width
+		 * @param h entity height
+		 */
+		SizeMap(final int w, final int h) {
+			this.w = w;
+			this.h = h;
+			blocked = new long[bits.length];
+			// Columns past the right edge count as blocked
+			final int tail = width & 63;
+			final long padding = (tail == 0) ? 0L : -1L << tail;
+			final long[] row = new long[wordsPerRow];
+			for (int y = 0; y < height; y++) {
+				final int base = y * wordsPerRow;
+				if (y + h > height) {
+					Arrays.fill(blocked, base, base + wordsPerRow, -1L);
+					continue;
+				}
+				// Vertical pass: union of the rows the entity would cover
+				for (int word = 0; word < wordsPerRow; word++) {
+					long value = 0;
+					for (int dy = 0; dy < h; dy++) {
+						value |= bits[base + dy * wordsPerRow + word];
+					}
+					row[word] = value;
+				}
+				row[wordsPerRow - 1] |= padding;
+				// Horizontal pass: a position is blocked if any of the w
+				// columns starting there is
+				for (int word = 0; word < wordsPerRow; word++) {
+					final long next = (word + 1 < wordsPerRow) ? row[word + 1] : -1L;
+					long value = row[word];
+					for (int dx = 1; dx < w; dx++) {
+						value |= (row[word] >>> dx) | (next << (64 - dx));
+					}
+					blocked[base + word] = value;
+				}
+			}
 		}
 
+		/**
+		 * Check if the entity would collide at a position within the map.
+		 *
+		 * @param x x coordinate
+		 * @param y y coordinate
+		 * @return <code>true</code> if the position is blocked
+		 */
+		boolean isBlocked(final int x, final int y) {
+			return (blocked[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+		}
 	}
-
 }
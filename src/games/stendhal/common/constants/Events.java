@@ -34,6 +34,9 @@ public final class Events {
 	/** a player on the buddy list logged off */
 	public static final String PLAYER_LOGGED_OUT = "player_logged_out";
 
+	/** snapshot or per turn changes of the list of online players */
+	public static final String ONLINE_PLAYERS = "online_players";
+
 	/** attack event during a fight */
 	public static final String ATTACK = "attack";
 
@@ -46,11 +46,22 @@ public class SimilarExprMatcher extends ExpressionMatcher {
         }
 
         final int shorterLength = Math.min(len1, len2);
-        final int limit = (int) ((shorterLength * delta * shorterLength + (shorterLength - 1)) / shorterLength);
+        final int limit = getDistanceLimit(shorterLength, delta);
 
         return compareLevenshtein(str1, str2, limit);
     }
 
+    /**
+     * Calculate the maximum edit distance for two similar strings.
+     *
+     * @param shorterLength length of the shorter string, at least 1
+     * @param delta limit quotient
+     * @return maximum number of differing characters
+     */
+    static int getDistanceLimit(final int shorterLength, final double delta) {
+        return (int) ((shorterLength * delta * shorterLength + (shorterLength - 1)) / shorterLength);
+    }
+
     /**
      * Calculate the number of differing characters between to non-null strings. Comparison is case insensitive.
      *
@@ -66,95 +77,75 @@ public class SimilarExprMatcher extends ExpressionMatcher {
             return true;
         } else if (limit < 1) {
             return false;
+        } else if (Math.abs(str1.length() - str2.length()) > limit) {
+            return false;
         } else {
-            final int dist = limitedLevenshtein(str1.toLowerCase(), str2.toLowerCase(), 0, 0, limit);
+            final int[] prev = new int[str2.length() + 1];
+            final int[] cur = new int[str2.length() + 1];
+            final int dist = levenshtein(str1, str2, limit, prev, cur);
 
             return dist <= limit;
         }
     }
 
     /**
-     * Calculate the Levenshtein distance of two strings using index arithmetic given a maximum distance value to
-     * terminate calculation. This is not exactly the Levenshtein algorithm, but fits our need to quickly look for
-     * similar strings.
+     * Calculate the case insensitive Levenshtein distance of two strings. The calculation stops as soon as the
+     * distance is known to be larger than the limit. The rows are passed in to allow reusing them for many
+     * comparisons, they must be one element longer than the second string.
      *
      * @param str1
      * @param str2
-     * @param idx1
-     *            current index
-     * @param idx2
-     *            current index
-     * @param limit
-     *            maximum allowed distance
-     * @return number of differing chars
-     */
-    private static int limitedLevenshtein(final String str1, final String str2, int idx1, int idx2, final int limit) {
-        // As long as the current characters match, we can go straight forward.
-        // Stop if we reach the end of one of the strings or find a difference.
-        while (true) {
-            if (idx1 == str1.length()) {
-                return str2.length() - idx2;
-            } else if (idx2 == str2.length()) {
-                return str1.length() - idx1;
-            } else if (str1.charAt(idx1) != str2.charAt(idx2)) {
-                // If we reach here, the distance is at least 1, so break if limit is less.
-                if (limit < 1) {
-                    return 1;
-                } else {
-                    return 1 + bestLimLev(str1, str2, idx1, idx2, limit - 1);
-                }
-            }
-
-            ++idx1;
-            ++idx2;
-        }
-    }
-
-    /**
-     * Called the limited Levenstein distance for two differing strings.
-     * @param str1
-     * @param str2
-     * @param idx1
-     * @param idx2
      * @param limit
-     * @return the distance
+     *            maximum distance of interest
+     * @param prev
+     *            row buffer
+     * @param cur
+     *            row buffer
+     * @return the distance, or a value larger than limit
      */
-    private static int bestLimLev(final String str1, final String str2, final int idx1, final int idx2, final int limit) {
-        // check for a replaced character
-        final int d1 = limitedLevenshtein(str1, str2, idx1 + 1, idx2 + 1, limit);
-
-        // Shortcut, no other result can be better than 0.
-        if (d1 == 0) {
-            return 0;
-        }
-
-        // check for an inserted character
-        final int d2 = limitedLevenshtein(str1, str2, idx1 + 1, idx2, limit);
+    static int levenshtein(final String str1, final String str2, final int limit, int[] prev, int[] cur) {
+        final int len1 = str1.length();
+        final int len2 = str2.length();
 
-        // Shortcut, no result can be better than 0.
-        if (d2 == 0) {
-            return 0;
+        for (int j = 0; j <= len2; j++) {
+            prev[j] = j;
         }
 
-        // check for a removed character
-        final int d3 = limitedLevenshtein(str1, str2, idx1, idx2 + 1, limit);
+        for (int i = 1; i <= len1; i++) {
+            final char c1 = Character.toLowerCase(str1.charAt(i - 1));
+            cur[0] = i;
+            int rowMin = i;
 
-        // Return the best of the three results.
-        return min(d1, d2, d3);
-    }
-
-    private static int min(final int d1, final int d2, final int d3) {
-        int d = d1;
+            for (int j = 1; j <= len2; j++) {
+                int d;
+                if (c1 == Character.toLowerCase(str2.charAt(j - 1))) {
+                    d = prev[j - 1];
+                } else {
+                    d = prev[j - 1] + 1;
+                    if (prev[j] + 1 < d) {
+                        d = prev[j] + 1;
+                    }
+                    if (cur[j - 1] + 1 < d) {
+                        d = cur[j - 1] + 1;
+                    }
+                }
+                cur[j] = d;
+                if (d < rowMin) {
+                    rowMin = d;
+                }
+            }
 
-        if (d2 < d) {
-            d = d2;
-        }
+            // No later row can get below the minimum of this one.
+            if (rowMin > limit) {
+                return rowMin;
+            }
 
-        if (d3 < d) {
-            d = d3;
+            final int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
         }
 
-        return d;
+        return prev[len2];
     }
 
 }
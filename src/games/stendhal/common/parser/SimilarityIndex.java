@@ -0,0 +1,232 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.common.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * An index of words for finding the words that are similar to a given one
+ * in the sense of {@link SimilarExprMatcher#isSimilar(String, String, double)}.
+ * <p>
+ * The words are kept in a BK-tree over their case insensitive edit distance,
+ * so a look up only has to compare against a small part of the vocabulary
+ * instead of every word. The index is not thread safe.
+ */
+public class SimilarityIndex {
+	/** root of the BK-tree, <code>null</code> if the index is empty */
+	private Node root;
+
+	/** number of different words */
+	private int size;
+
+	/**
+	 * Adds a word to the index. Words that differ only in case are stored
+	 * in the same node.
+	 *
+	 * @param word word to add, <code>null</code> is ignored
+	 */
+	public void add(final String word) {
+		if (word == null) {
+			return;
+		}
+		final String key = word.toLowerCase(Locale.ENGLISH);
+		if (root == null) {
+			root = new Node(key, word);
+			size++;
+			return;
+		}
+
+		Node node = root;
+		while (true) {
+			final int distance = distance(node.key, key);
+			if (distance == 0) {
+				if (!node.words.contains(word)) {
+					node.words.add(word);
+					size++;
+				}
+				return;
+			}
+			final Node child = node.getChild(distance);
+			if (child == null) {
+				node.setChild(distance, new Node(key, word));
+				size++;
+				return;
+			}
+			node = child;
+		}
+	}
+
+	/**
+	 * Finds all words that are similar to a word.
+	 *
+	 * @param word word to look for
+	 * @param delta similarity limit, as for SimilarExprMatcher.isSimilar()
+	 * @return similar words
+	 */
+	public List<String> findSimilar(final String word, final double delta) {
+		final List<String> res = new ArrayList<String>();
+		search(word, delta, res, false);
+		return res;
+	}
+
+	/**
+	 * Checks if there is a word that is similar to a word.
+	 *
+	 * @param word word to look for
+	 * @param delta similarity limit, as for SimilarExprMatcher.isSimilar()
+	 * @return <code>true</code> if there is at least one similar word
+	 */
+	public boolean containsSimilar(final String word, final double delta) {
+		return search(word, delta, new ArrayList<String>(1), true);
+	}
+
+	/**
+	 * Gets the number of words in the index.
+	 *
+	 * @return number of words
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Searches the BK-tree.
+	 *
+	 * @param word word to look for
+	 * @param delta similarity limit
+	 * @param res list for the found words
+	 * @param stopAtFirst stop after finding one word
+	 * @return <code>true</code> if a word was found
+	 */
+	private boolean search(final String word, final double delta, final List<String> res, final boolean stopAtFirst) {
+		if ((word == null) || (root == null)) {
+			return false;
+		}
+		final String key = word.toLowerCase(Locale.ENGLISH);
+		final int length = key.length();
+
+		// The allowed distance of a pair depends on the shorter word, so the
+		// limit for the query length is the largest one that can apply.
+		final int radius;
+		if (length == 0) {
+			radius = 0;
+		} else {
+			radius = SimilarExprMatcher.getDistanceLimit(length, delta);
+		}
+
+		final int[] prev = new int[length + 1];
+		final int[] cur = new int[length + 1];
+		final List<Node> todo = new ArrayList<Node>();
+		todo.add(root);
+		while (!todo.isEmpty()) {
+			final Node node = todo.remove(todo.size() - 1);
+			final int distance = distance(node.key, key, prev, cur);
+			if ((distance <= radius) && accepts(node.key, length, distance, delta)) {
+				res.addAll(node.words);
+				if (stopAtFirst) {
+					return true;
+				}
+			}
+			if (node.children != null) {
+				final int from = Math.max(1, distance - radius);
+				final int to = Math.min(node.children.length - 1, distance + radius);
+				for (int i = from; i <= to; i++) {
+					if (node.children[i] != null) {
+						todo.add(node.children[i]);
+					}
+				}
+			}
+		}
+		return !res.isEmpty();
+	}
+
+	/**
+	 * Checks a candidate with the limit that applies to the pair.
+	 *
+	 * @param candidate candidate key
+	 * @param length length of the query
+	 * @param distance edit distance between candidate and query
+	 * @param delta similarity limit
+	 * @return <code>true</code> if the candidate is similar
+	 */
+	private static boolean accepts(final String candidate, final int length, final int distance, final double delta) {
+		if ((length == 0) || (candidate.length() == 0)) {
+			return length == candidate.length();
+		}
+		if (distance == 0) {
+			return true;
+		}
+		final int shorterLength = Math.min(length, candidate.length());
+		return distance <= SimilarExprMatcher.getDistanceLimit(shorterLength, delta);
+	}
+
+	/**
+	 * Calculates the edit distance of two lower case words.
+	 *
+	 * @param str1 first word
+	 * @param str2 second word
+	 * @return edit distance
+	 */
+	private static int distance(final String str1, final String str2) {
+		return distance(str1, str2, new int[str2.length() + 1], new int[str2.length() + 1]);
+	}
+
+	/**
+	 * Calculates the edit distance of two lower case words using the given
+	 * rows, which must have the length of the second word plus one.
+	 *
+	 * @param str1 first word
+	 * @param str2 second word
+	 * @param prev row buffer
+	 * @param cur row buffer
+	 * @return edit distance
+	 */
+	private static int distance(final String str1, final String str2, int[] prev, int[] cur) {
+		return SimilarExprMatcher.levenshtein(str1, str2, Integer.MAX_VALUE, prev, cur);
+	}
+
+	/**
+	 * A node of the BK-tree.
+	 */
+	private static final class Node {
+		/** lower case key */
+		final String key;
+		/** words with this key */
+		final List<String> words = new ArrayList<String>(1);
+		/** children by their distance to this node */
+		Node[] children;
+
+		Node(final String key, final String word) {
+			this.key = key;
+			words.add(word);
+		}
+
+		Node getChild(final int distance) {
+			if ((children == null) || (distance >= children.length)) {
+				return null;
+			}
+			return children[distance];
+		}
+
+		void setChild(final int distance, final Node child) {
+			if (children == null) {
+				children = new Node[Math.max(4, distance + 1)];
+			} else if (distance >= children.length) {
+				children = Arrays.copyOf(children, Math.max(distance + 1, children.length * 2));
+			}
+			children[distance] = child;
+		}
+	}
+}
@@ -60,7 +60,11 @@ public class LayerDefinition implements Serializable {
 	 */
 	private String name;
 
-	/** The data encoded as int in a array of size width*height .*/
+	/**
+	 * The data encoded as int in a array of size width*height. It is only
+	 * created by {@link #build()}, the tiles can be read from the raw data
+	 * too.
+	 */
 	private int[] data = null;
 
 	/**
@@ -79,7 +83,6 @@ public class LayerDefinition implements Serializable {
 	 */
 	public LayerDefinition(final int layerWidth, final int layerHeight) {
 		raw = new byte[4 * layerWidth * layerHeight];
-		data = new int[layerWidth * layerHeight];
 		width = layerWidth;
 		height = layerHeight;
 	}
@@ -95,8 +98,9 @@ public class LayerDefinition implements Serializable {
 	}
 
 	/**
-	 * Builds the real data array based on the byte array. It is only needed for
-	 * objects, collision and protection, which is at most 40% of the layers.
+	 * Builds the real data array based on the byte array. It is only needed
+	 * for accessing the tiles through {@link #expose()}, the server reads
+	 * the few layers it needs directly from the byte array.
 	 */
 	public void build() {
 		data = new int[height * width];
@@ -127,6 +131,9 @@ public class LayerDefinition implements Serializable {
 	 * @return the allocated data array of size width*height containing ints.
 	 */
 	public int[] expose() {
+		if (data == null) {
+			build();
+		}
 		return data;
 	}
 
@@ -148,7 +155,9 @@ public class LayerDefinition implements Serializable {
 		raw[2 + offset] = (byte) ((tileId >>> 16) & 0xFF);
 		raw[3 + offset] = (byte) ((tileId >>> 24) & 0xFF);
 
-		data[y * width + x] = tileId;
+		if (data != null) {
+			data[y * width + x] = tileId;
+		}
 	}
 
 	/**
@@ -161,7 +170,14 @@ public class LayerDefinition implements Serializable {
 	 * @return the tile that exists at that position or 0 for none.
 	 */
 	public int getTileAt(final int x, final int y) {
-		return data[y * width + x];
+		if (data != null) {
+			return data[y * width + x];
+		}
+		final int offset = 4 * (x + y * width);
+		return (raw[offset] & 0xFF)
+				| ((raw[1 + offset] & 0xFF) << 8)
+				| ((raw[2 + offset] & 0xFF) << 16)
+				| ((raw[3 + offset] & 0xFF) << 24);
 	}
 
 	/**
@@ -170,7 +186,8 @@ public class LayerDefinition implements Serializable {
 	 * @throws IOException
 	 */
 	public byte[] encode() throws IOException {
-		final ByteArrayOutputStream array = new ByteArrayOutputStream();
+		// layers compress well, usually to less than a tenth
+		final ByteArrayOutputStream array = new ByteArrayOutputStream(raw.length / 8 + 64);
 		final DeflaterOutputStream out_stream = new DeflaterOutputStream(array);
 		final OutputSerializer out = new OutputSerializer(out_stream);
 
@@ -0,0 +1,360 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.actions;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.core.metrics.MetricsRegistry;
+import games.stendhal.server.entity.player.Player;
+import marauroa.common.Configuration;
+import marauroa.common.game.RPAction;
+
+/**
+ * Limits the work a single player can cause with client actions.
+ * <p>
+ * All actions are executed on the turn thread, so a few players sending
+ * lots of expensive actions would delay the turn for everyone. Each player
+ * has a token bucket which holds up to action_bucket_size tokens (default
+ * 40) and is refilled by action_bucket_refill tokens (default 10) at the
+ * start of every turn. An action costs action_cost_&lt;type&gt; tokens, the
+ * defaults are below. Actions which do not fit in the bucket are deferred
+ * to a later turn; if there are already action_deferred_limit (default 10)
+ * deferred actions of that player, they are dropped. Deferred actions keep
+ * their order and actions sent later wait behind them. Actions which cost
+ * nothing are never deferred and admins are not limited at all.
+ * <p>
+ * The execution time of every action is recorded per action type and per
+ * player for the /actionstats report and the metrics.
+ */
+public class ActionAdmission {
+	private static Logger logger = Logger.getLogger(ActionAdmission.class);
+
+	private static final int DEFAULT_BUCKET_SIZE = 40;
+	private static final int DEFAULT_REFILL = 10;
+	private static final int DEFAULT_DEFERRED_LIMIT = 10;
+	private static final int DEFAULT_COST = 1;
+	/** admins above this level are not limited, the same as for chatting */
+	private static final int UNLIMITED_ADMIN_LEVEL = 1000;
+
+	private static final Map<String, Integer> DEFAULT_COSTS = new HashMap<String, Integer>();
+	static {
+		// chat has a bucket of its own
+		DEFAULT_COSTS.put("chat", 0);
+		DEFAULT_COSTS.put("stop", 0);
+		DEFAULT_COSTS.put("displace", 2);
+		DEFAULT_COSTS.put("drop", 2);
+		DEFAULT_COSTS.put("equip", 2);
+		DEFAULT_COSTS.put("use", 2);
+		// path finding
+		DEFAULT_COSTS.put("moveto", 3);
+		DEFAULT_COSTS.put("walk", 3);
+	}
+
+	private static ActionAdmission instance;
+
+	private final int bucketSize;
+	private final int refill;
+	private final int deferredLimit;
+	private final Configuration config;
+
+	/** cost by action type, filled on first use */
+	private final Map<String, Integer> costs = new HashMap<String, Integer>();
+	private final Map<String, ActionStatistics> statistics = new HashMap<String, ActionStatistics>();
+	private final Map<Player, PlayerState> players = new IdentityHashMap<Player, PlayerState>();
+	/** players with deferred actions */
+	private final Map<Player, PlayerState> waiting = new IdentityHashMap<Player, PlayerState>();
+
+	private int currentTurn;
+
+	/**
+	 * gets the singleton instance
+	 *
+	 * @return ActionAdmission
+	 */
+	public static synchronized ActionAdmission get() {
+		if (instance == null) {
+			instance = createFromConfiguration();
+		}
+		return instance;
+	}
+
+	private static ActionAdmission createFromConfiguration() {
+		int bucketSize = DEFAULT_BUCKET_SIZE;
+		int refill = DEFAULT_REFILL;
+		int deferredLimit = DEFAULT_DEFERRED_LIMIT;
+		Configuration config = null;
+		try {
+			config = Configuration.getConfiguration();
+			bucketSize = config.getInt("action_bucket_size", DEFAULT_BUCKET_SIZE);
+			refill = config.getInt("action_bucket_refill", DEFAULT_REFILL);
+			deferredLimit = config.getInt("action_deferred_limit", DEFAULT_DEFERRED_LIMIT);
+		} catch (IOException e) {
+			logger.error(e, e);
+		} catch (NumberFormatException e) {
+			logger.error("Invalid action bucket configuration, using defaults", e);
+		}
+		return new ActionAdmission(bucketSize, refill, deferredLimit, config);
+	}
+
+	/**
+	 * creates a new ActionAdmission
+	 *
+	 * @param bucketSize maximum number of tokens of a player
+	 * @param refill tokens added at the start of each turn
+	 * @param deferredLimit maximum number of deferred actions per player
+	 * @param config configuration with the action costs, may be <code>null</code>
+	 */
+	ActionAdmission(int bucketSize, int refill, int deferredLimit, Configuration config) {
+		this.bucketSize = Math.max(1, bucketSize);
+		this.refill = Math.max(1, refill);
+		this.deferredLimit = Math.max(0, deferredLimit);
+		this.config = config;
+	}
+
+	/**
+	 * gets the number of tokens an action type costs
+	 *
+	 * @param type action type
+	 * @return cost, at most the size of the bucket
+	 */
+	int getCost(String type) {
+		Integer cost = costs.get(type);
+		if (cost == null) {
+			cost = DEFAULT_COSTS.get(type);
+			if (cost == null) {
+				cost = Integer.valueOf(DEFAULT_COST);
+			}
+			if (config != null) {
+				try {
+					cost = Integer.valueOf(config.getInt("action_cost_" + type, cost.intValue()));
+				} catch (NumberFormatException e) {
+					logger.error("Invalid action_cost_" + type + ", using " + cost, e);
+				}
+			}
+			cost = Integer.valueOf(Math.min(bucketSize, Math.max(0, cost.intValue())));
+			costs.put(type, cost);
+		}
+		return cost.intValue();
+	}
+
+	/**
+	 * decides whether an action may be executed right now. Actions which do
+	 * not fit in the player's bucket are deferred or dropped.
+	 *
+	 * @param player player who sent the action
+	 * @param type action type
+	 * @param action action
+	 * @return true, if the action should be executed now
+	 */
+	boolean admit(Player player, String type, RPAction action) {
+		if (player.getAdminLevel() > UNLIMITED_ADMIN_LEVEL) {
+			return true;
+		}
+		int cost = getCost(type);
+		PlayerState state = getState(player);
+		if (cost == 0 || (state.deferred.isEmpty() && state.take(cost))) {
+			getStatistics(type).onAdmitted(cost);
+			state.statistics.onAdmitted(cost);
+			return true;
+		}
+
+		if (state.deferred.size() < deferredLimit) {
+			state.deferred.add(action);
+			waiting.put(player, state);
+			getStatistics(type).onDeferred();
+			state.statistics.onDeferred();
+			MetricsRegistry.get().counter("stendhal_actions_deferred_total",
+					"Client actions deferred to a later turn", "type", type).inc();
+		} else {
+			getStatistics(type).onDropped();
+			state.statistics.onDropped();
+			MetricsRegistry.get().counter("stendhal_actions_dropped_total",
+					"Client actions dropped because too many were waiting", "type", type).inc();
+			logger.debug("Dropped " + type + " action of " + player.getName());
+		}
+		return false;
+	}
+
+	/**
+	 * records the execution time of an action
+	 *
+	 * @param player player who sent the action
+	 * @param type action type
+	 * @param nanos execution time in nanoseconds
+	 */
+	void onExecuted(Player player, String type, long nanos) {
+		getStatistics(type).onExecuted(nanos);
+		PlayerState state = players.get(player);
+		if (state != null) {
+			state.statistics.onExecuted(nanos);
+		}
+		MetricsRegistry.get().histogram("stendhal_action_duration_seconds",
+				"Execution time of client actions", "type", type,
+				0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1).observeNanos(nanos);
+	}
+
+	/**
+	 * refills the buckets and executes the deferred actions which fit in
+	 * them now. This is called at the start of every turn.
+	 *
+	 * @param turn number of the new turn
+	 */
+	public void onTurnStarted(int turn) {
+		currentTurn = turn;
+		if (waiting.isEmpty()) {
+			return;
+		}
+		for (Player player : new ArrayList<Player>(waiting.keySet())) {
+			PlayerState state = waiting.get(player);
+			// the player may have logged out in one of the previous actions
+			while (state != null && state == players.get(player) && !state.deferred.isEmpty()) {
+				RPAction action = state.deferred.peek();
+				String type = CommandCenter.getType(action);
+				int cost = getCost(type);
+				if (!state.take(cost)) {
+					break;
+				}
+				state.deferred.poll();
+				getStatistics(type).onAdmitted(cost);
+				state.statistics.onAdmitted(cost);
+				CommandCenter.dispatch(player, type, action);
+			}
+			if (state == null || state != players.get(player) || state.deferred.isEmpty()) {
+				waiting.remove(player);
+			}
+		}
+	}
+
+	/**
+	 * forgets a player who is logging out, including the deferred actions
+	 *
+	 * @param player Player
+	 */
+	public void onLoggedOut(Player player) {
+		players.remove(player);
+		waiting.remove(player);
+	}
+
+	/**
+	 * @return statistics for each action type
+	 */
+	public List<ActionStatistics> getStatistics() {
+		return new ArrayList<ActionStatistics>(statistics.values());
+	}
+
+	/**
+	 * @return statistics for each online player who sent limited actions
+	 */
+	public List<ActionStatistics> getPlayerStatistics() {
+		List<ActionStatistics> res = new ArrayList<ActionStatistics>();
+		for (PlayerState state : players.values()) {
+			res.add(state.statistics);
+		}
+		return res;
+	}
+
+	/**
+	 * gets the number of deferred actions of a player
+	 *
+	 * @param player Player
+	 * @return number of waiting actions
+	 */
+	int getDeferredCount(Player player) {
+		PlayerState state = players.get(player);
+		if (state == null) {
+			return 0;
+		}
+		return state.deferred.size();
+	}
+
+	/**
+	 * @return tokens added at the start of each turn
+	 */
+	public int getRefill() {
+		return refill;
+	}
+
+	/**
+	 * @return maximum number of tokens of a player
+	 */
+	public int getBucketSize() {
+		return bucketSize;
+	}
+
+	/**
+	 * @return configured costs of the action types that have been used so far
+	 */
+	public Map<String, Integer> getCosts() {
+		return Collections.unmodifiableMap(costs);
+	}
+
+	private ActionStatistics getStatistics(String type) {
+		ActionStatistics stats = statistics.get(type);
+		if (stats == null) {
+			stats = new ActionStatistics(type);
+			statistics.put(type, stats);
+		}
+		return stats;
+	}
+
+	private PlayerState getState(Player player) {
+		PlayerState state = players.get(player);
+		if (state == null) {
+			state = new PlayerState(player.getName());
+			players.put(player, state);
+		}
+		return state;
+	}
+
+	/**
+	 * token bucket and deferred actions of one player
+	 */
+	private class PlayerState {
+		private final ActionStatistics statistics;
+		private final Deque<RPAction> deferred = new ArrayDeque<RPAction>();
+		private int tokens = bucketSize;
+		private int lastTurn = currentTurn;
+
+		PlayerState(String name) {
+			statistics = new ActionStatistics(name);
+		}
+
+		/**
+		 * takes tokens from the bucket, if there are enough
+		 *
+		 * @param cost number of tokens
+		 * @return true, if the tokens were taken
+		 */
+		boolean take(int cost) {
+			if (currentTurn != lastTurn) {
+				long refilled = tokens + (long) refill * Math.max(0, currentTurn - lastTurn);
+				tokens = (int) Math.min(bucketSize, refilled);
+				lastTurn = currentTurn;
+			}
+			if (tokens < cost) {
+				return false;
+			}
+			tokens -= cost;
+			return true;
+		}
+	}
+}
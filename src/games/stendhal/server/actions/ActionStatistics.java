@@ -0,0 +1,118 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.actions;
+
+/**
+ * Execution counters for one type of action or one player.
+ */
+public class ActionStatistics {
+	private final String name;
+	private long executed;
+	private long cost;
+	private long deferred;
+	private long dropped;
+	private long executionNanos;
+	private long maxExecutionNanos;
+
+	/**
+	 * creates a new ActionStatistics
+	 *
+	 * @param name name of the action type or player
+	 */
+	ActionStatistics(String name) {
+		this.name = name;
+	}
+
+	void onAdmitted(int actionCost) {
+		cost += actionCost;
+	}
+
+	void onExecuted(long executionTime) {
+		executed++;
+		executionNanos += executionTime;
+		maxExecutionNanos = Math.max(maxExecutionNanos, executionTime);
+	}
+
+	void onDeferred() {
+		deferred++;
+	}
+
+	void onDropped() {
+		dropped++;
+	}
+
+	/**
+	 * @return name of the action type or player
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return number of executed actions
+	 */
+	public long getExecuted() {
+		return executed;
+	}
+
+	/**
+	 * @return sum of the costs of the admitted actions
+	 */
+	public long getCost() {
+		return cost;
+	}
+
+	/**
+	 * @return number of actions that were deferred to a later turn
+	 */
+	public long getDeferred() {
+		return deferred;
+	}
+
+	/**
+	 * @return number of actions that were discarded
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @return total execution time in milliseconds
+	 */
+	public double getTotalExecutionMillis() {
+		return executionNanos / 1000000.0;
+	}
+
+	/**
+	 * @return average execution time in milliseconds
+	 */
+	public double getAverageExecutionMillis() {
+		if (executed == 0) {
+			return 0;
+		}
+		return executionNanos / 1000000.0 / executed;
+	}
+
+	/**
+	 * @return longest execution time in milliseconds
+	 */
+	public double getMaxExecutionMillis() {
+		return maxExecutionNanos / 1000000.0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: executed %d, cost %d, deferred %d, dropped %d, total %.1f ms, avg %.2f ms, max %.1f ms",
+				name, executed, cost, deferred, dropped,
+				getTotalExecutionMillis(), getAverageExecutionMillis(), getMaxExecutionMillis());
+	}
+}
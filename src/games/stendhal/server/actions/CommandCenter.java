@@ -12,14 +12,13 @@
  ***************************************************************************/
 package games.stendhal.server.actions;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 
 import games.stendhal.common.constants.Actions;
-import games.stendhal.common.parser.SimilarExprMatcher;
+import games.stendhal.common.parser.SimilarityIndex;
 import games.stendhal.server.actions.admin.AdministrationAction;
 import games.stendhal.server.actions.admin.BanAction;
 import games.stendhal.server.actions.attack.AttackAction;
@@ -63,6 +62,8 @@ import marauroa.common.game.RPObject;
 public class CommandCenter {
 	private static final UnknownAction UNKNOWN_ACTION = new UnknownAction();
 	private static ConcurrentHashMap<String, ActionListener> actionsMap;
+	/** index of the action names for suggestions, rebuilt after registering new actions */
+	private static SimilarityIndex actionNames;
 	private static Logger logger = Logger.getLogger(CommandCenter.class);
 
 	private static ConcurrentHashMap<String, ActionListener> getActionsMap() {
@@ -75,6 +76,9 @@ public class CommandCenter {
 
 	public static void register(final String action, final ActionListener actionClass) {
 		final ActionListener command = getActionsMap().put(action, actionClass);
+		synchronized (CommandCenter.class) {
+			actionNames = null;
+		}
 
 		//TODO mf - register slash commands as verbs in WordList
 		//		WordList.getInstance().registerVerb(action);
@@ -145,15 +149,11 @@ public class CommandCenter {
 		try {
 			if (caster instanceof Player) {
 				final Player player = (Player) caster;
-				Translate.setThreadLanguage(player.getLanguage());
-				final ActionListener actionListener = getAction(action);
-				final String type = action.get(Actions.TYPE);
-				if (!AdministrationAction.isPlayerAllowedToExecuteAdminCommand(player, type, true)) {
+				final String type = getType(action);
+				if (!ActionAdmission.get().admit(player, type, action)) {
 					return false;
 				}
-				actionListener.onAction(player, action);
-				Translate.setThreadLanguage(null);
-				return true;
+				return dispatch(player, type, action);
 			} else {
 				logger.error("caster is no Player; cannot execute action " + action +
 						" send by " + caster, new Throwable());
@@ -166,6 +166,70 @@ public class CommandCenter {
 		}
 	}
 
+	/**
+	 * executes an action which has been admitted
+	 *
+	 * @param player player requesting the action
+	 * @param type action type as returned by {@link #getType(RPAction)}
+	 * @param action action details
+	 * @return true, if it was processed
+	 */
+	static boolean dispatch(final Player player, final String type, final RPAction action) {
+		try {
+			Translate.setThreadLanguage(player.getLanguage());
+			final ActionListener actionListener = getAction(action);
+			if (!AdministrationAction.isPlayerAllowedToExecuteAdminCommand(player, action.get(Actions.TYPE), true)) {
+				return false;
+			}
+			final long start = System.nanoTime();
+			actionListener.onAction(player, action);
+			ActionAdmission.get().onExecuted(player, type, System.nanoTime() - start);
+			Translate.setThreadLanguage(null);
+			return true;
+		} catch (final Exception e) {
+			logger.error("Cannot execute action " + action + " send by "
+					+ player, e);
+			return false;
+		}
+	}
+
+	/**
+	 * gets the type of an action for accounting. Unregistered types are
+	 * combined, so that clients cannot create arbitrary statistics entries.
+	 *
+	 * @param action action
+	 * @return action type or "unknown"
+	 */
+	static String getType(final RPAction action) {
+		String type = null;
+		if (action != null) {
+			type = action.getRPClass().getName();
+			if (type.equals("")) {
+				type = action.get("type");
+			}
+		}
+		if ((type == null) || !getActionsMap().containsKey(type)) {
+			return "unknown";
+		}
+		return type;
+	}
+
+	/**
+	 * Gets the index of the registered action names.
+	 *
+	 * @return action name index
+	 */
+	private static synchronized SimilarityIndex getActionNames() {
+		if (actionNames == null) {
+			SimilarityIndex index = new SimilarityIndex();
+			for (String name : getActionsMap().keySet()) {
+				index.add(name);
+			}
+			actionNames = index;
+		}
+		return actionNames;
+	}
+
 	private static ActionListener getAction(final RPAction action) {
 		if (action == null) {
 			return UNKNOWN_ACTION;
@@ -186,12 +250,7 @@ public class CommandCenter {
 		ActionListener action = getActionsMap().get(type);
 		if (action == null) {
 			// Look up for close matches that can be suggested to the user.
-			List<String> suggestions = new ArrayList<String>();
-			for (String s : getActionsMap().keySet()) {
-				if (SimilarExprMatcher.isSimilar(type, s, 0.1)) {
-					suggestions.add(s);
-				}
-			}
+			List<String> suggestions = getActionNames().findSimilar(type, 0.1);
 			if (suggestions.size() != 0) {
 				return new UnknownAction(suggestions);
 			}
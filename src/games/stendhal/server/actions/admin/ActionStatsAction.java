@@ -0,0 +1,62 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.actions.admin;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import games.stendhal.server.actions.ActionAdmission;
+import games.stendhal.server.actions.ActionStatistics;
+import games.stendhal.server.actions.CommandCenter;
+import games.stendhal.server.entity.player.Player;
+import marauroa.common.game.RPAction;
+
+/**
+ * shows the most expensive action types and players
+ */
+public class ActionStatsAction extends AdministrationAction {
+	private static final String ACTIONSTATS = "actionstats";
+	private static final int LIMIT = 10;
+
+	private static final Comparator<ActionStatistics> BY_EXECUTION_TIME = new Comparator<ActionStatistics>() {
+		@Override
+		public int compare(ActionStatistics o1, ActionStatistics o2) {
+			return Double.compare(o2.getTotalExecutionMillis(), o1.getTotalExecutionMillis());
+		}
+	};
+
+	public static void register() {
+		CommandCenter.register(ACTIONSTATS, new ActionStatsAction(), 5000);
+	}
+
+	@Override
+	protected void perform(final Player player, final RPAction action) {
+		final ActionAdmission admission = ActionAdmission.get();
+		final StringBuilder sb = new StringBuilder("Action costs (bucket size " + admission.getBucketSize()
+				+ ", refill " + admission.getRefill() + " per turn):");
+
+		sb.append("\nMost expensive actions:");
+		append(sb, admission.getStatistics());
+		sb.append("\nMost expensive players:");
+		append(sb, admission.getPlayerStatistics());
+
+		player.sendPrivateText(sb.toString());
+	}
+
+	private static void append(final StringBuilder sb, final List<ActionStatistics> statistics) {
+		Collections.sort(statistics, BY_EXECUTION_TIME);
+		for (ActionStatistics stats : statistics.subList(0, Math.min(LIMIT, statistics.size()))) {
+			sb.append("\n" + stats);
+		}
+	}
+}
@@ -36,12 +36,14 @@ public abstract class AdministrationAction implements ActionListener {
 	private static final Map<String, Integer> REQUIRED_ADMIN_LEVELS = new HashMap<String, Integer>();
 
 	public static void registerActions() {
+		ActionStatsAction.register();
 		AdminLevelAction.register();
 		AdminNoteAction.register();
 		AlterAction.register();
 		AlterCreatureAction.register();
 		AlterQuestAction.register();
 		CIDListAction.register();
+		DBQueueAction.register();
 		DestroyAction.register();
 		GagAction.register();
 		GhostModeAction.register();
@@ -0,0 +1,60 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.actions.admin;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import games.stendhal.server.actions.CommandCenter;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
+import games.stendhal.server.core.engine.dbcommand.DBCommandPriority;
+import games.stendhal.server.core.engine.dbcommand.DBCommandStatistics;
+import games.stendhal.server.entity.player.Player;
+import marauroa.common.game.RPAction;
+import marauroa.server.db.command.DBCommandQueue;
+
+/**
+ * shows the state of the database command queue
+ */
+public class DBQueueAction extends AdministrationAction {
+	private static final String DBQUEUE = "dbqueue";
+
+	public static void register() {
+		CommandCenter.register(DBQUEUE, new DBQueueAction(), 5000);
+	}
+
+	@Override
+	protected void perform(final Player player, final RPAction action) {
+		final DBCommandDispatcher dispatcher = DBCommandDispatcher.get();
+		final StringBuilder sb = new StringBuilder("Database command queue:");
+		for (DBCommandPriority priority : DBCommandPriority.values()) {
+			sb.append("\n" + priority + ": " + dispatcher.getPendingCount(priority) + " waiting");
+		}
+		sb.append("\nmarauroa queue: " + DBCommandQueue.get().size());
+		sb.append("\ncapacity: " + dispatcher.getCapacity() + ", overflow: " + dispatcher.getOverflowPolicy()
+				+ ", spilled: " + dispatcher.getSpilledCount() + ", dropped: " + dispatcher.getDroppedCount());
+
+		final List<DBCommandStatistics> statistics = dispatcher.getStatistics();
+		Collections.sort(statistics, new Comparator<DBCommandStatistics>() {
+			@Override
+			public int compare(DBCommandStatistics o1, DBCommandStatistics o2) {
+				return Double.compare(o2.getTotalExecutionMillis(), o1.getTotalExecutionMillis());
+			}
+		});
+		for (DBCommandStatistics stats : statistics) {
+			sb.append("\n" + stats);
+		}
+
+		player.sendPrivateText(sb.toString());
+	}
+}
@@ -17,6 +17,7 @@ import static games.stendhal.common.constants.Actions.TEXT;
 import games.stendhal.common.NotificationType;
 import games.stendhal.server.actions.CommandCenter;
 import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.engine.dbcommand.StoreMessageCommand;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TurnListenerDecorator;
@@ -24,7 +25,6 @@ import games.stendhal.server.core.events.TurnNotifier;
 import games.stendhal.server.entity.player.Player;
 import marauroa.common.game.RPAction;
 import marauroa.server.db.command.DBCommand;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.db.command.ResultHandle;
 
 /**
@@ -47,7 +47,7 @@ public class StoreMessageOnBehalfOfPlayerAction extends AdministrationAction imp
 			String message = action.get(TEXT);
 
 			DBCommand command = new StoreMessageCommand(action.get("source"), action.get(TARGET), message, "P");
-			DBCommandQueue.get().enqueueAndAwaitResult(command, handle);
+			DBCommandDispatcher.get().enqueueAndAwaitResult(command, handle);
 			TurnNotifier.get().notifyInTurns(0, new TurnListenerDecorator(this));
 		}
 	}
@@ -59,7 +59,7 @@ public class StoreMessageOnBehalfOfPlayerAction extends AdministrationAction imp
 	 */
 	@Override
 	public void onTurnReached(int currentTurn) {
-		StoreMessageCommand checkcommand = DBCommandQueue.get().getOneResult(StoreMessageCommand.class, handle);
+		StoreMessageCommand checkcommand = DBCommandDispatcher.get().getOneResult(StoreMessageCommand.class, handle);
 
 		if (checkcommand == null) {
 			TurnNotifier.get().notifyInTurns(0, new TurnListenerDecorator(this));
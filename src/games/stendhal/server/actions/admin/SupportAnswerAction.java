@@ -25,6 +25,7 @@ import games.stendhal.common.messages.SupportMessageTemplatesFactory;
 import games.stendhal.server.actions.CommandCenter;
 import games.stendhal.server.core.engine.GameEvent;
 import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.engine.dbcommand.StoreMessageCommand;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TurnListenerDecorator;
@@ -33,7 +34,6 @@ import games.stendhal.server.entity.player.Player;
 import marauroa.common.Pair;
 import marauroa.common.game.RPAction;
 import marauroa.server.db.command.DBCommand;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.db.command.ResultHandle;
 
 /**
@@ -115,7 +115,7 @@ public class SupportAnswerAction extends AdministrationAction implements TurnLis
 		} else {
 			// that player is not logged in. Do they exist at all or are they just offline? Try sending a message with postman.
 			DBCommand command = new StoreMessageCommand(getAnonymisedAdminName(sender), action.get(TARGET), "In answer to your support question:\n" + reply + " \nIf you wish to reply, use /support.", "S");
-			DBCommandQueue.get().enqueueAndAwaitResult(command, handle);
+			DBCommandDispatcher.get().enqueueAndAwaitResult(command, handle);
 			TurnNotifier.get().notifyInTurns(0, new TurnListenerDecorator(this));
 		}
 	}
@@ -127,7 +127,7 @@ public class SupportAnswerAction extends AdministrationAction implements TurnLis
 	 */
 	@Override
 	public void onTurnReached(int currentTurn) {
-		StoreMessageCommand checkcommand = DBCommandQueue.get().getOneResult(StoreMessageCommand.class, handle);
+		StoreMessageCommand checkcommand = DBCommandDispatcher.get().getOneResult(StoreMessageCommand.class, handle);
 
 		if (checkcommand == null) {
 			TurnNotifier.get().notifyInTurns(0, new TurnListenerDecorator(this));
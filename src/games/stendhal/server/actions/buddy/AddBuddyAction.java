@@ -20,6 +20,7 @@ import games.stendhal.common.NotificationType;
 import games.stendhal.server.actions.ActionListener;
 import games.stendhal.server.core.engine.GameEvent;
 import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.engine.dbcommand.QueryCanonicalCharacterNamesCommand;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TurnListenerDecorator;
@@ -27,7 +28,6 @@ import games.stendhal.server.core.events.TurnNotifier;
 import games.stendhal.server.entity.player.Player;
 import marauroa.common.game.RPAction;
 import marauroa.server.db.command.DBCommand;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.db.command.ResultHandle;
 
 
@@ -56,7 +56,7 @@ class AddBuddyAction implements ActionListener, TurnListener {
 		final String who = action.get(TARGET);
 
 		DBCommand command = new QueryCanonicalCharacterNamesCommand(player, Arrays.asList(who));
-		DBCommandQueue.get().enqueueAndAwaitResult(command, handle);
+		DBCommandDispatcher.get().enqueueAndAwaitResult(command, handle);
 		TurnNotifier.get().notifyInTurns(0, new TurnListenerDecorator(this));
 	}
 
@@ -67,7 +67,7 @@ class AddBuddyAction implements ActionListener, TurnListener {
 	 */
 	@Override
 	public void onTurnReached(int currentTurn) {
-		QueryCanonicalCharacterNamesCommand checkcommand = DBCommandQueue.get().getOneResult(QueryCanonicalCharacterNamesCommand.class, handle);
+		QueryCanonicalCharacterNamesCommand checkcommand = DBCommandDispatcher.get().getOneResult(QueryCanonicalCharacterNamesCommand.class, handle);
 
 		if (checkcommand == null) {
 			TurnNotifier.get().notifyInTurns(0, new TurnListenerDecorator(this));
@@ -19,13 +19,13 @@ import java.util.Map;
 
 import games.stendhal.server.core.engine.GameEvent;
 import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.engine.dbcommand.QueryCanonicalCharacterNamesCommand;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TurnListenerDecorator;
 import games.stendhal.server.core.events.TurnNotifier;
 import games.stendhal.server.entity.player.Player;
 import marauroa.server.db.command.DBCommand;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.db.command.ResultHandle;
 
 /**
@@ -71,14 +71,14 @@ public class BuddyCleanup implements TurnListener {
 
 			// invoke the check for valid character names
 			DBCommand command = new QueryCanonicalCharacterNamesCommand(player, player.getBuddies());
-			DBCommandQueue.get().enqueueAndAwaitResult(command, handle);
+			DBCommandDispatcher.get().enqueueAndAwaitResult(command, handle);
 			TurnNotifier.get().notifyInTurns(0, new TurnListenerDecorator(this));
 		}
 	}
 
 	@Override
 	public void onTurnReached(int currentTurn) {
-		QueryCanonicalCharacterNamesCommand checkCommand = DBCommandQueue.get().getOneResult(QueryCanonicalCharacterNamesCommand.class, handle);
+		QueryCanonicalCharacterNamesCommand checkCommand = DBCommandDispatcher.get().getOneResult(QueryCanonicalCharacterNamesCommand.class, handle);
 
 		if (checkCommand == null) {
 			TurnNotifier.get().notifyInTurns(0, new TurnListenerDecorator(this));
@@ -21,6 +21,7 @@ import games.stendhal.server.actions.validator.ActionAttributesExist;
 import games.stendhal.server.actions.validator.ActionValidation;
 import games.stendhal.server.actions.validator.StandardActionValidations;
 import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.engine.dbcommand.StoreMessageCommand;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TurnListenerDecorator;
@@ -28,7 +29,6 @@ import games.stendhal.server.core.events.TurnNotifier;
 import games.stendhal.server.entity.player.Player;
 import marauroa.common.game.RPAction;
 import marauroa.server.db.command.DBCommand;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.db.command.ResultHandle;
 
 /**
@@ -73,7 +73,7 @@ public class StoreMessageAction implements ActionListener, TurnListener {
 		String message = QuoteSpecials.quote(action.get(TEXT));
 
 		DBCommand command = new StoreMessageCommand(player.getName(), action.get(TARGET), message, "P");
-		DBCommandQueue.get().enqueueAndAwaitResult(command, handle);
+		DBCommandDispatcher.get().enqueueAndAwaitResult(command, handle);
 		TurnNotifier.get().notifyInTurns(0, new TurnListenerDecorator(this));
 	}
 
@@ -85,7 +85,7 @@ public class StoreMessageAction implements ActionListener, TurnListener {
 	 */
 	@Override
 	public void onTurnReached(int currentTurn) {
-		StoreMessageCommand checkcommand = DBCommandQueue.get().getOneResult(StoreMessageCommand.class, handle);
+		StoreMessageCommand checkcommand = DBCommandDispatcher.get().getOneResult(StoreMessageCommand.class, handle);
 
 		if (checkcommand == null) {
 			TurnNotifier.get().notifyInTurns(0, new TurnListenerDecorator(this));
@@ -14,9 +14,10 @@ package games.stendhal.server.core.engine;
 
 import java.util.List;
 
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
+import games.stendhal.server.core.engine.dbcommand.DBCommandPriority;
+import games.stendhal.server.core.engine.dbcommand.SpillableLogGameEventCommand;
 import marauroa.server.db.command.DBCommand;
-import marauroa.server.db.command.DBCommandQueue;
-import marauroa.server.game.dbcommand.LogGameEventCommand;
 
 
 /**
@@ -57,7 +58,7 @@ public class GameEvent {
 	 * writes the event to the database
 	 */
 	public void raise() {
-		DBCommand command = new LogGameEventCommand(source, event, params);
-		DBCommandQueue.get().enqueue(command);
+		DBCommand command = new SpillableLogGameEventCommand(source, event, params);
+		DBCommandDispatcher.get().enqueue(command, DBCommandPriority.LOG);
 	}
 }
@@ -0,0 +1,104 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A list of distinct objects with constant time add, remove and contains.
+ * <p>
+ * Objects are compared by identity. Removing an object moves the last
+ * element into its place, so the order of the elements is not kept across
+ * removals.
+ *
+ * @param <T> type of the elements
+ */
+class IdentityIndexedList<T> extends AbstractList<T> implements RandomAccess {
+	private final ArrayList<T> elements = new ArrayList<T>();
+	private final Map<T, Integer> positions = new IdentityHashMap<T, Integer>();
+
+	@Override
+	public T get(int index) {
+		return elements.get(index);
+	}
+
+	@Override
+	public int size() {
+		return elements.size();
+	}
+
+	/**
+	 * adds an object, unless it is already in the list
+	 *
+	 * @param element object to add
+	 * @return <code>true</code> if the object was added
+	 */
+	@Override
+	public boolean add(T element) {
+		if (positions.containsKey(element)) {
+			return false;
+		}
+		positions.put(element, Integer.valueOf(elements.size()));
+		elements.add(element);
+		modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return positions.containsKey(o);
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		Integer pos = positions.get(o);
+		if (pos == null) {
+			return -1;
+		}
+		return pos.intValue();
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		Integer pos = positions.get(o);
+		if (pos == null) {
+			return false;
+		}
+		remove(pos.intValue());
+		return true;
+	}
+
+	@Override
+	public T remove(int index) {
+		T removed = elements.get(index);
+		int last = elements.size() - 1;
+		T moved = elements.remove(last);
+		if (index != last) {
+			elements.set(index, moved);
+			positions.put(moved, Integer.valueOf(index));
+		}
+		positions.remove(removed);
+		modCount++;
+		return removed;
+	}
+
+	@Override
+	public void clear() {
+		elements.clear();
+		positions.clear();
+		modCount++;
+	}
+}
@@ -0,0 +1,129 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import games.stendhal.common.CRC;
+import games.stendhal.common.tiled.LayerDefinition;
+import marauroa.common.crypto.Hash;
+
+/**
+ * Shares the compressed layer data that is sent to the clients. Layers with
+ * the same name, size and tiles, like empty roof layers or the layers of
+ * zones that are loaded from the same map, are compressed only once and the
+ * zones keep references to the same array. The checksum is computed together
+ * with the data.
+ * <p>
+ * The cache only holds weak references, so the data of removed zones can
+ * still be garbage collected.
+ */
+final class LayerContentCache {
+	private static final LayerContentCache instance = new LayerContentCache();
+
+	/** minimum number of entries before cleared references are removed */
+	private static final int MIN_PURGE_SIZE = 256;
+
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+	private int purgeSize = MIN_PURGE_SIZE;
+
+	/**
+	 * Compressed layer data with its checksum.
+	 */
+	static final class Encoded {
+		/** compressed data */
+		final byte[] data;
+		/** checksum of the compressed data */
+		final int timestamp;
+
+		Encoded(byte[] data, int timestamp) {
+			this.data = data;
+			this.timestamp = timestamp;
+		}
+	}
+
+	/**
+	 * A cached layer.
+	 */
+	private static final class Entry {
+		private final WeakReference<byte[]> data;
+		private final int timestamp;
+
+		Entry(byte[] data, int timestamp) {
+			this.data = new WeakReference<byte[]>(data);
+			this.timestamp = timestamp;
+		}
+	}
+
+	/**
+	 * gets the shared instance
+	 *
+	 * @return LayerContentCache
+	 */
+	static LayerContentCache get() {
+		return instance;
+	}
+
+	/**
+	 * gets the compressed data of a layer, compressing it if there is no
+	 * identical layer in the cache
+	 *
+	 * @param layer layer
+	 * @return compressed data with checksum
+	 * @throws IOException in case of an input/output error
+	 */
+	synchronized Encoded encode(LayerDefinition layer) throws IOException {
+		String key = layer.getName() + ':' + layer.getWidth() + 'x' + layer.getHeight()
+			+ ':' + Hash.toHexString(Hash.hash(layer.exposeRaw()));
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			byte[] data = entry.data.get();
+			if (data != null) {
+				return new Encoded(data, entry.timestamp);
+			}
+		}
+
+		byte[] data = layer.encode();
+		int timestamp = CRC.cmpCRC(data);
+		if (entries.size() >= purgeSize) {
+			purge();
+		}
+		entries.put(key, new Entry(data, timestamp));
+		return new Encoded(data, timestamp);
+	}
+
+	/**
+	 * removes the entries of layers which are no longer used
+	 */
+	private void purge() {
+		Iterator<Entry> itr = entries.values().iterator();
+		while (itr.hasNext()) {
+			if (itr.next().data.get() == null) {
+				itr.remove();
+			}
+		}
+		purgeSize = Math.max(MIN_PURGE_SIZE, 2 * entries.size());
+	}
+
+	/**
+	 * gets the number of cached layers
+	 *
+	 * @return number of entries, including cleared ones
+	 */
+	synchronized int size() {
+		return entries.size();
+	}
+}
@@ -0,0 +1,106 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.io.IOException;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.core.metrics.MetricsRegistry;
+import marauroa.common.Configuration;
+
+/**
+ * Limits the number of players that are placed into the world per turn.
+ * <p>
+ * marauroa calls onInit while it holds the lock that the turn loop needs,
+ * so a login must never wait there for a later turn. Logins beyond the
+ * limit of the current turn are rejected right away instead. The client
+ * gets a failed character choice, and retries it with growing delays.
+ * <p>
+ * The number of logins per turn is set with login_placements_per_turn in
+ * server.ini and defaults to 10; 0 disables the limit.
+ */
+public class LoginLimiter {
+	private static Logger logger = Logger.getLogger(LoginLimiter.class);
+
+	private static final int DEFAULT_PLACEMENTS_PER_TURN = 10;
+
+	private final int placementsPerTurn;
+
+	/** logins that may still be placed in the current turn */
+	private int budget;
+	/** number of rejected logins */
+	private long rejected;
+
+	/**
+	 * creates a LoginLimiter with the settings in server.ini
+	 *
+	 * @return LoginLimiter
+	 */
+	static LoginLimiter createFromConfiguration() {
+		int placementsPerTurn = DEFAULT_PLACEMENTS_PER_TURN;
+		try {
+			Configuration config = Configuration.getConfiguration();
+			placementsPerTurn = config.getInt("login_placements_per_turn", DEFAULT_PLACEMENTS_PER_TURN);
+		} catch (IOException e) {
+			logger.error(e, e);
+		} catch (NumberFormatException e) {
+			logger.error("Invalid login_placements_per_turn, using default", e);
+		}
+		return new LoginLimiter(placementsPerTurn);
+	}
+
+	/**
+	 * creates a new LoginLimiter
+	 *
+	 * @param placementsPerTurn number of logins per turn, 0 for no limit
+	 */
+	LoginLimiter(int placementsPerTurn) {
+		this.placementsPerTurn = Math.max(0, placementsPerTurn);
+		this.budget = this.placementsPerTurn;
+	}
+
+	/**
+	 * Checks if a login may be placed into the world in the current turn.
+	 * This never waits.
+	 *
+	 * @return <code>true</code> if the login may proceed, <code>false</code>
+	 * 	if the logins of this turn are used up
+	 */
+	public synchronized boolean admit() {
+		if (placementsPerTurn == 0) {
+			return true;
+		}
+		if (budget > 0) {
+			budget--;
+			return true;
+		}
+		rejected++;
+		MetricsRegistry.get().counter("stendhal_logins_rejected_total",
+				"Number of logins rejected because too many players logged in at once").inc();
+		return false;
+	}
+
+	/**
+	 * refills the logins of the new turn
+	 */
+	public synchronized void onTurnStarted() {
+		budget = placementsPerTurn;
+	}
+
+	/**
+	 * @return number of logins rejected since the server started
+	 */
+	public synchronized long getRejectedCount() {
+		return rejected;
+	}
+}
@@ -0,0 +1,238 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.events.OnlinePlayersEvent;
+
+/**
+ * Keeps the clients' lists of online players and the buddy online status up
+ * to date.
+ * <p>
+ * Instead of telling every online player about every login and logout
+ * separately, changes are collected during a turn and sent once at the end of
+ * the turn: Players who logged in get a single snapshot of the roster, all
+ * others get one event with the players who joined and left. Buddy status
+ * changes are only sent to players who actually have the buddy, using a
+ * reverse buddy index.
+ */
+public class OnlinePlayerRoster {
+
+	/** players that are registered with the roster */
+	private final Set<Player> players = Collections.newSetFromMap(new IdentityHashMap<Player, Boolean>());
+
+	/** buddy name to online players who have that buddy */
+	private final Map<String, Set<Player>> playersByBuddy = new HashMap<String, Set<Player>>();
+
+	/** players who logged in this turn and need a complete snapshot */
+	private final Set<Player> needSnapshot = Collections.newSetFromMap(new IdentityHashMap<Player, Boolean>());
+
+	/** players who logged in this turn */
+	private final Map<String, Player> joined = new LinkedHashMap<String, Player>();
+
+	/** names of players who logged out this turn */
+	private final Set<String> left = new LinkedHashSet<String>();
+
+	/**
+	 * registers a player who just logged in
+	 *
+	 * @param player Player
+	 */
+	public void onLoggedIn(final Player player) {
+		players.add(player);
+		for (String buddy : player.getBuddies()) {
+			onBuddyAdded(player, buddy);
+		}
+		needSnapshot.add(player);
+		left.remove(player.getName());
+		joined.put(player.getName(), player);
+	}
+
+	/**
+	 * unregisters a player who is logging out
+	 *
+	 * @param player Player
+	 */
+	public void onLoggedOut(final Player player) {
+		for (String buddy : player.getBuddies()) {
+			onBuddyRemoved(player, buddy);
+		}
+		players.remove(player);
+		needSnapshot.remove(player);
+		joined.remove(player.getName());
+		left.add(player.getName());
+	}
+
+	/**
+	 * updates the buddy index after a buddy was added to a player's list
+	 *
+	 * @param player Player
+	 * @param buddy name of buddy
+	 */
+	public void onBuddyAdded(final Player player, final String buddy) {
+		if (!players.contains(player)) {
+			return;
+		}
+		Set<Player> set = playersByBuddy.get(buddy);
+		if (set == null) {
+			set = Collections.newSetFromMap(new IdentityHashMap<Player, Boolean>());
+			playersByBuddy.put(buddy, set);
+		}
+		set.add(player);
+	}
+
+	/**
+	 * updates the buddy index after a buddy was removed from a player's list
+	 *
+	 * @param player Player
+	 * @param buddy name of buddy
+	 */
+	public void onBuddyRemoved(final Player player, final String buddy) {
+		Set<Player> set = playersByBuddy.get(buddy);
+		if (set == null) {
+			return;
+		}
+		set.remove(player);
+		if (set.isEmpty()) {
+			playersByBuddy.remove(buddy);
+		}
+	}
+
+	/**
+	 * Notifies the online players who have the specified player on their
+	 * buddy list about a change of the online status.
+	 *
+	 * @param isOnline did the player login?
+	 * @param playerToNotifyAbout the player who logged in or out
+	 */
+	public void notifyOnlineStatus(final boolean isOnline, final Player playerToNotifyAbout) {
+		Set<Player> set = playersByBuddy.get(playerToNotifyAbout.getName());
+		if (set == null) {
+			return;
+		}
+		for (Player player : set) {
+			if (isOnline) {
+				player.notifyOnline(playerToNotifyAbout.getName());
+			} else {
+				player.notifyOffline(playerToNotifyAbout.getName());
+			}
+		}
+	}
+
+	/**
+	 * Gets the online players who have a buddy
+	 *
+	 * @param buddy name of buddy
+	 * @return set of players, may be empty
+	 */
+	Set<Player> getPlayersWithBuddy(final String buddy) {
+		Set<Player> set = playersByBuddy.get(buddy);
+		if (set == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(set);
+	}
+
+	/**
+	 * Sends the changes of this turn to the clients. Ghosts are only visible
+	 * to other ghosts.
+	 */
+	public void sendPendingUpdates() {
+		if (joined.isEmpty() && left.isEmpty()) {
+			return;
+		}
+
+		final StringBuilder visibleJoined = new StringBuilder();
+		final StringBuilder allJoined = new StringBuilder();
+		for (Player player : joined.values()) {
+			if (!player.isGhost()) {
+				append(visibleJoined, player.getName());
+			}
+			append(allJoined, player.getName());
+		}
+		final String leftNames = join(left);
+
+		String visibleSnapshot = null;
+		String allSnapshot = null;
+		for (Player player : players) {
+			final boolean ghost = player.isGhost();
+			if (needSnapshot.contains(player)) {
+				if (ghost) {
+					if (allSnapshot == null) {
+						allSnapshot = createSnapshot(true);
+					}
+					player.addEvent(OnlinePlayersEvent.snapshot(allSnapshot));
+				} else {
+					if (visibleSnapshot == null) {
+						visibleSnapshot = createSnapshot(false);
+					}
+					player.addEvent(OnlinePlayersEvent.snapshot(visibleSnapshot));
+				}
+			} else {
+				final String joinedNames;
+				if (ghost) {
+					joinedNames = allJoined.toString();
+				} else {
+					joinedNames = visibleJoined.toString();
+				}
+				if (joinedNames.isEmpty() && leftNames.isEmpty()) {
+					continue;
+				}
+				player.addEvent(OnlinePlayersEvent.delta(joinedNames, leftNames));
+			}
+			player.notifyWorldAboutChanges();
+		}
+
+		needSnapshot.clear();
+		joined.clear();
+		left.clear();
+	}
+
+	/**
+	 * creates a comma separated list of the online players
+	 *
+	 * @param includeGhosts include players in ghostmode
+	 * @return list of names
+	 */
+	private String createSnapshot(final boolean includeGhosts) {
+		final StringBuilder sb = new StringBuilder();
+		for (Player player : players) {
+			if (includeGhosts || !player.isGhost()) {
+				append(sb, player.getName());
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String join(final Set<String> names) {
+		final StringBuilder sb = new StringBuilder();
+		for (String name : names) {
+			append(sb, name);
+		}
+		return sb.toString();
+	}
+
+	private static void append(final StringBuilder sb, final String name) {
+		if (sb.length() > 0) {
+			sb.append(',');
+		}
+		sb.append(name);
+	}
+}
@@ -68,6 +68,7 @@ import games.stendhal.server.events.GroupInviteEvent;
 import games.stendhal.server.events.HeadlessPrivateTextEvent;
 import games.stendhal.server.events.HealedEvent;
 import games.stendhal.server.events.ImageEffectEvent;
+import games.stendhal.server.events.OnlinePlayersEvent;
 import games.stendhal.server.events.PlayerLoggedOnEvent;
 import games.stendhal.server.events.PlayerLoggedOutEvent;
 import games.stendhal.server.events.PrivateTextEvent;
@@ -306,6 +307,10 @@ public class RPClassGenerator {
 			PlayerLoggedOutEvent.generateRPClass();
 		}
 
+		if (!RPClass.hasRPClass(Events.ONLINE_PLAYERS)) {
+			OnlinePlayersEvent.generateRPClass();
+		}
+
 		if (!RPClass.hasRPClass(Events.REACHED_ACHIEVEMENT)) {
 			ReachedAchievementEvent.generateRPClass();
 		}
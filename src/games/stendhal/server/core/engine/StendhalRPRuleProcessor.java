@@ -31,14 +31,18 @@ import org.apache.log4j.Logger;
 import games.stendhal.common.Debug;
 import games.stendhal.common.NotificationType;
 import games.stendhal.common.filter.FilterCriteria;
+import games.stendhal.server.actions.ActionAdmission;
 import games.stendhal.server.actions.CommandCenter;
 import games.stendhal.server.actions.admin.AdministrationAction;
 import games.stendhal.server.core.account.AccountCreator;
 import games.stendhal.server.core.account.CharacterCreator;
 import games.stendhal.server.core.engine.db.StendhalWebsiteDAO;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.engine.dbcommand.SetOnlineStatusCommand;
 import games.stendhal.server.core.engine.transformer.PlayerTransformer;
+import games.stendhal.server.core.events.DeferredWorkQueue;
 import games.stendhal.server.core.events.TutorialNotifier;
+import games.stendhal.server.core.metrics.ServerMetrics;
 import games.stendhal.server.core.rp.StendhalRPAction;
 import games.stendhal.server.core.scripting.ScriptRunner;
 import games.stendhal.server.entity.Entity;
@@ -47,8 +51,6 @@ import games.stendhal.server.entity.npc.NPCList;
 import games.stendhal.server.entity.npc.behaviour.impl.OutfitChangerBehaviour.ExpireOutfit;
 import games.stendhal.server.entity.player.AfkTimeouter;
 import games.stendhal.server.entity.player.Player;
-import games.stendhal.server.events.PlayerLoggedOnEvent;
-import games.stendhal.server.events.PlayerLoggedOutEvent;
 import games.stendhal.server.extension.StendhalServerExtension;
 import marauroa.common.Configuration;
 import marauroa.common.Pair;
@@ -59,7 +61,6 @@ import marauroa.common.game.RPAction;
 import marauroa.common.game.RPObject;
 import marauroa.common.io.UnicodeSupportingInputStreamReader;
 import marauroa.server.db.command.DBCommand;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.game.Statistics;
 import marauroa.server.game.db.DAORegister;
 import marauroa.server.game.rp.IRPRuleProcessor;
@@ -87,7 +88,12 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 
 	/** a list of online players */
 	protected PlayerList onlinePlayers;
-	private final List<Player> playersRmText;
+	/** client player lists and buddy index of online players */
+	protected OnlinePlayerRoster onlineRoster;
+	/** chat texts of players, which are removed after the NPCs have seen them */
+	private final TransientAttributes playerTexts;
+	/** one turn attributes, which are removed at the beginning of the next turn */
+	private final TransientAttributes transientAttributes;
 
 	/**
 	 * A list of RPEntities that were killed in the current turn, together with
@@ -98,13 +104,22 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	/** a list of zone that should be removed (like vaults) */
 	private final List<StendhalRPZone> zonesToRemove = new LinkedList<StendhalRPZone>();
 
+	/** time the current turn started at, in nanoseconds */
+	private long turnStart;
+
+	/** limits the number of logins per turn */
+	private final LoginLimiter loginLimiter;
+
 	/**
 	 * creates a new StendhalRPRuleProcessor
 	 */
 	protected StendhalRPRuleProcessor() {
 		onlinePlayers = new PlayerList();
-		playersRmText = new LinkedList<Player>();
+		onlineRoster = new OnlinePlayerRoster();
+		playerTexts = new TransientAttributes();
+		transientAttributes = new TransientAttributes();
 		entityToKill = new LinkedList<Pair<RPEntity, Entity>>();
+		loginLimiter = LoginLimiter.createFromConfiguration();
 	}
 
 	private void init() {
@@ -138,6 +153,16 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 		return onlinePlayers;
 	}
 
+	/**
+	 * gets the roster which keeps the client player lists and the buddy
+	 * online status up to date
+	 *
+	 * @return OnlinePlayerRoster
+	 */
+	public OnlinePlayerRoster getOnlineRoster() {
+		return onlineRoster;
+	}
+
 	@Override
 	public void setContext(final RPServerManager rpman) {
 		try {
@@ -179,6 +204,8 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 
 			// Remove online info from database.
 			DAORegister.get().get(StendhalWebsiteDAO.class).clearOnlineStatus();
+
+			ServerMetrics.init();
 		} catch (final Exception e) {
 			logger.error("cannot set Context. exiting", e);
 			System.exit(-1);
@@ -234,7 +261,18 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	}
 
 	public void removePlayerText(final Player player) {
-		playersRmText.add(player);
+		playerTexts.register(player, "text");
+	}
+
+	/**
+	 * Removes an attribute at the beginning of the next turn. This is meant
+	 * for attributes that signal something to the clients for one turn only.
+	 *
+	 * @param entity entity that has the attribute
+	 * @param attribute name of the attribute
+	 */
+	public void removeAttributeNextTurn(final Entity entity, final String attribute) {
+		transientAttributes.register(entity, attribute);
 	}
 
 	/**
@@ -270,6 +308,8 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	@Override
 	public synchronized void beginTurn() {
 		final long start = System.nanoTime();
+		turnStart = start;
+		loginLimiter.onTurnStarted();
 
 		try {
 			destroyObsoleteZones();
@@ -289,6 +329,12 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 			logger.error("error in beginTurn", e);
 		}
 
+		try {
+			transientAttributes.sweep();
+		} catch (final Exception e) {
+			logger.error("error in beginTurn", e);
+		}
+
 		try {
 			executePlayerLogic();
 		} catch (final Exception e) {
@@ -306,6 +352,13 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 		} catch (final Exception e) {
 			logger.error("error in beginTurn", e);
 		}
+
+		// deferred actions run after the clean up, like the actions of this turn
+		try {
+			ActionAdmission.get().onTurnStarted(getTurn());
+		} catch (final Exception e) {
+			logger.error("error in beginTurn", e);
+		}
 		logger.debug("Begin turn: " + (System.nanoTime() - start) / 1000000.0);
 	}
 
@@ -325,13 +378,7 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	}
 
 	protected void handlePlayersRmTexts() {
-		for (final Player player : playersRmText) {
-			if (player.has("text")) {
-				player.remove("text");
-				player.notifyWorldAboutChanges();
-			}
-		}
-		playersRmText.clear();
+		playerTexts.sweep();
 	}
 
 	protected void executeNPCsPreLogic() {
@@ -391,6 +438,21 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 		} catch (final Exception e) {
 			logger.error("error in endTurn", e);
 		}
+
+		try {
+			onlineRoster.sendPendingUpdates();
+		} catch (final Exception e) {
+			logger.error("error in endTurn", e);
+		}
+
+		// non urgent work gets the time that is left
+		try {
+			DeferredWorkQueue.get().onTurnEnded(currentTurn, turnStart);
+		} catch (final Exception e) {
+			logger.error("error in endTurn", e);
+		}
+
+		ServerMetrics.onTurnCompleted(currentTurn, System.nanoTime() - turnStart);
 	}
 
 	/**
@@ -445,8 +507,17 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 		}
 	}
 
+	/**
+	 * Places a player into the world on login. Preparations that do not touch
+	 * the world are done before taking the turn lock. The number of players
+	 * placed per turn is limited; logins over the limit are rejected at once,
+	 * because marauroa calls this while holding the lock the turn loop needs.
+	 *
+	 * @param object player object
+	 * @return <code>true</code> if the player was placed into the world
+	 */
 	@Override
-	public synchronized boolean onInit(final RPObject object) {
+	public boolean onInit(final RPObject object) {
 		try {
 			if (object == null) {
 				logger.error("onInit: object = null", new Throwable());
@@ -456,37 +527,16 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 			if (object instanceof Player) {
 				Player player = (Player) object;
 
-				playersRmText.add(player);
-
-				// place the player and his pets into the world
-				PlayerTransformer.placePlayerIntoWorldOnLogin(object, player);
-				PlayerTransformer.placeSheepAndPetIntoWorld(player);
-				player.notifyWorldAboutChanges();
-				StendhalRPAction.transferContent(player);
-
-				getOnlinePlayers().add(player);
-
-				if (!player.isGhost()) {
-					notifyOnlineStatus(true, player);
-					DBCommand command = new SetOnlineStatusCommand(player.getName(), true);
-					DBCommandQueue.get().enqueue(command);
+				if (!loginLimiter.admit()) {
+					logger.warn("Rejected login of " + player.getName() + " because too many players logged in this turn");
+					return false;
 				}
-				updatePlayerNameListForPlayersOnLogin(player);
-				String[] params = {};
-
-				new GameEvent(player.getName(), "login", params).raise();
-				SingletonRepository.getLoginNotifier().onPlayerLoggedIn(player);
-				TutorialNotifier.login(player);
 
 				readAdminsFromFile(player);
-				welcome(player);
-
-				// expire outfits
-				if (player.has("outfit_expire_age")) {
-					int expire = player.getInt("outfit_expire_age") - player.getAge();
-					ExpireOutfit expireOutfit = new ExpireOutfit(player.getName());
-					SingletonRepository.getTurnNotifier().dontNotify(expireOutfit);
-					SingletonRepository.getTurnNotifier().notifyInSeconds(Math.max(0, expire * 60), expireOutfit);
+				String welcomeText = getWelcomeMessage();
+
+				synchronized (this) {
+					placePlayerOnLogin(player, welcomeText);
 				}
 				return true;
 			} else {
@@ -504,15 +554,93 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 			return false;
 		}
 	}
+
+	/**
+	 * @return the limiter of logins per turn
+	 */
+	public LoginLimiter getLoginLimiter() {
+		return loginLimiter;
+	}
+
 	/**
-	 * send a welcome message to the player which can be configured in
-	 * marauroa.ini file as "server_welcome". If the value is an http:// address,
-	 * the first line of that address is read and used as the message
+	 * places a player into the world. This has to be done under the turn lock.
 	 *
-	 * @param player
-	 *            Player
+	 * @param player Player
+	 * @param welcomeText welcome message, may be <code>null</code>
+	 */
+	private void placePlayerOnLogin(final Player player, final String welcomeText) {
+		removePlayerText(player);
+		// one turn attributes that were stored when the player logged out
+		for (String attribute : new String[] {"dead", "online", "offline"}) {
+			if (player.has(attribute)) {
+				player.remove(attribute);
+			}
+		}
+
+		// place the player and his pets into the world
+		PlayerTransformer.placePlayerIntoWorldOnLogin(player, player);
+		PlayerTransformer.placeSheepAndPetIntoWorld(player);
+		player.notifyWorldAboutChanges();
+		StendhalRPAction.transferContent(player);
+
+		// the online status of the buddies depends on the world, so it is
+		// set here rather than when the player object is created
+		for (String buddyName : player.getBuddies()) {
+			final Player buddy = getPlayer(buddyName);
+			player.setBuddyOnlineStatus(buddyName, (buddy != null) && !buddy.isGhost());
+		}
+
+		getOnlinePlayers().add(player);
+		onlineRoster.onLoggedIn(player);
+
+		if (!player.isGhost()) {
+			notifyOnlineStatus(true, player);
+			DBCommand command = new SetOnlineStatusCommand(player.getName(), true);
+			DBCommandDispatcher.get().enqueue(command);
+		}
+		String[] params = {};
+
+		new GameEvent(player.getName(), "login", params).raise();
+		SingletonRepository.getLoginNotifier().onPlayerLoggedIn(player);
+		TutorialNotifier.login(player);
+
+		welcome(player, welcomeText);
+
+		// expire outfits
+		if (player.has("outfit_expire_age")) {
+			int expire = player.getInt("outfit_expire_age") - player.getAge();
+			ExpireOutfit expireOutfit = new ExpireOutfit(player.getName());
+			SingletonRepository.getTurnNotifier().dontNotify(expireOutfit);
+			SingletonRepository.getTurnNotifier().notifyInSeconds(Math.max(0, expire * 60), expireOutfit);
+		}
+	}
+
+	/**
+	 * sends the welcome message to a player
+	 *
+	 * @param player Player
+	 * @param msg welcome message, may be <code>null</code>
+	 */
+	private static void welcome(final Player player, final String msg) {
+		if (msg != null) {
+			/*
+			 * Avoid spamming all client channels. Very old clients do not
+			 * recognize SERVER type, but they just log an error. Client version
+			 * information has not been received yet.
+			 */
+			player.sendPrivateText(NotificationType.SERVER, msg);
+		}
+	}
+
+	/**
+	 * gets the welcome message which can be configured in marauroa.ini file
+	 * as "server_welcome". If the value is an http:// address, the first line
+	 * of that address is read and used as the message. Because of that, this
+	 * should not be called under the turn lock.
+	 *
+	 * @return welcome message, may be <code>null</code>
 	 */
-	static void welcome(final Player player) {
+	private static String getWelcomeMessage() {
 		String msg = welcomeMessage;
 		try {
 			final Configuration config = Configuration.getConfiguration();
@@ -541,14 +669,7 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 				firstWelcomeException = false;
 			}
 		}
-		if (msg != null) {
-			/*
-			 * Avoid spamming all client channels. Very old clients do not
-			 * recognize SERVER type, but they just log an error. Client version
-			 * information has not been received yet.
-			 */
-			player.sendPrivateText(NotificationType.SERVER, msg);
-		}
+		return msg;
 	}
 
 	@Override
@@ -570,13 +691,14 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 				if (!player.isGhost()) {
 					notifyOnlineStatus(false, player);
 				}
-				updatePlayerNameListForPlayersOnLogout(player);
+				onlineRoster.onLoggedOut(player);
+				ActionAdmission.get().onLoggedOut(player);
 
 				Player.destroy(player);
 				getOnlinePlayers().remove(player);
 
 				DBCommand command = new SetOnlineStatusCommand(player.getName(), false);
-				DBCommandQueue.get().enqueue(command);
+				DBCommandDispatcher.get().enqueue(command);
 
 				new GameEvent(player.getName(), "logout", reason).raise();
 				logger.debug("removed player " + player);
@@ -680,68 +802,10 @@ public class StendhalRPRuleProcessor implements IRPRuleProcessor {
 	 */
 	public void notifyOnlineStatus(final boolean isOnline, final Player playerToNotifyAbout) {
 		if (instance != null) {
-			if (isOnline) {
-				SingletonRepository.getRuleProcessor().getOnlinePlayers().forAllPlayersExecute(new Task<Player>() {
-					@Override
-					public void execute(final Player player) {
-						player.notifyOnline(playerToNotifyAbout.getName());
-					}
-				});
-
-			} else {
-				SingletonRepository.getRuleProcessor().getOnlinePlayers().forAllPlayersExecute(new Task<Player>() {
-					@Override
-					public void execute(final Player player) {
-						player.notifyOffline(playerToNotifyAbout.getName());
-					}
-				});
-			}
+			onlineRoster.notifyOnlineStatus(isOnline, playerToNotifyAbout);
 		}
 	}
 
-	/**
-	 * Update all player's lists of online player names on login of a new player
-	 *
-	 * @param playerToNotifyAbout
-	 */
-	private void updatePlayerNameListForPlayersOnLogin(final Player playerToNotifyAbout) {
-		SingletonRepository.getRuleProcessor().getOnlinePlayers().forAllPlayersExecute(new Task<Player>() {
-			@Override
-			public void execute(final Player player) {
-				if(playerToNotifyAbout.isGhost()) {
-					playerToNotifyAbout.addEvent(new PlayerLoggedOnEvent(player.getName()));
-					playerToNotifyAbout.notifyWorldAboutChanges();
-					if (player.isGhost() && (player != playerToNotifyAbout)) {
-						player.addEvent(new PlayerLoggedOnEvent(playerToNotifyAbout.getName()));
-						player.notifyWorldAboutChanges();
-					}
-				} else {
-					player.addEvent(new PlayerLoggedOnEvent(playerToNotifyAbout.getName()));
-					player.notifyWorldAboutChanges();
-					if (!player.isGhost() && (player != playerToNotifyAbout)) {
-						playerToNotifyAbout.addEvent(new PlayerLoggedOnEvent(player.getName()));
-						playerToNotifyAbout.notifyWorldAboutChanges();
-					}
-				}
-			}
-		});
-	}
-
-	/**
-	 * Update all player's lists of online player names on login of a new player
-	 *
-	 * @param playerToNotifyAbout
-	 */
-	private void updatePlayerNameListForPlayersOnLogout(final Player playerToNotifyAbout) {
-		SingletonRepository.getRuleProcessor().getOnlinePlayers().forAllPlayersExecute(new Task<Player>() {
-			@Override
-			public void execute(final Player player) {
-				player.addEvent(new PlayerLoggedOutEvent(playerToNotifyAbout.getName()));
-				player.notifyWorldAboutChanges();
-			}
-		});
-	}
-
 	/**
 	 * Removes a zone (like a personalized vault).
 	 *
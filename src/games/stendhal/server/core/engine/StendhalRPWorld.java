@@ -23,6 +23,8 @@ import org.apache.log4j.Logger;
 
 import games.stendhal.common.parser.WordList;
 import games.stendhal.server.core.config.ZoneGroupsXMLLoader;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
+import games.stendhal.server.core.pathfinder.ZoneRouteGraph;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.mapstuff.portal.OneWayPortalDestination;
 import games.stendhal.server.entity.mapstuff.portal.Portal;
@@ -74,9 +76,16 @@ public class StendhalRPWorld extends RPWorld {
 				zones.remove(zone);
 			}
 		}
+		ZoneRouteGraph.get().clear();
 		return super.removeRPZone(zoneid);
 	}
 
+	@Override
+	public void addRPZone(final IRPZone zone) {
+		super.addRPZone(zone);
+		ZoneRouteGraph.get().clear();
+	}
+
 	public void removeZone(final StendhalRPZone toBeRemoved) {
 		try {
 			removeRPZone(toBeRemoved.getID());
@@ -152,6 +161,7 @@ public class StendhalRPWorld extends RPWorld {
 			loader.load();
 
 			validatePortals();
+			ZoneRouteGraph.get().prepare();
 			SingletonRepository.getAchievementNotifier().initialize();
 			SingletonRepository.getGagManager();
 			SingletonRepository.getJail();
@@ -175,6 +185,7 @@ public class StendhalRPWorld extends RPWorld {
 	public void onFinish() {
 		super.onFinish();
 		new GameEvent("server system", "shutdown").raise();
+		DBCommandDispatcher.get().flush();
 		try {
 			//TODO: find a more appropriate way to do this
 			// give gameevents a chance to be processed;
@@ -282,7 +293,7 @@ public class StendhalRPWorld extends RPWorld {
 	 * @param zone
 	 */
 	public void addRPZone(final String region, final StendhalRPZone zone) {
-		super.addRPZone(zone);
+		addRPZone(zone);
 		if(!regionMap.containsKey(region)) {
 			regionMap.put(region, new HashSet<StendhalRPZone>());
 		}
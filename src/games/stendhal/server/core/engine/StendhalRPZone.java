@@ -18,6 +18,7 @@ import java.awt.geom.Rectangle2D;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -41,8 +42,10 @@ import games.stendhal.common.grammar.Grammar;
 import games.stendhal.common.tiled.LayerDefinition;
 import games.stendhal.common.tiled.TileSetDefinition;
 import games.stendhal.server.core.config.zone.TeleportationRules;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.events.MovementListener;
 import games.stendhal.server.core.events.ZoneEnterExitListener;
+import games.stendhal.server.core.pathfinder.ZoneRouteGraph;
 import games.stendhal.server.core.rp.StendhalRPAction;
 import games.stendhal.server.core.rule.EntityManager;
 import games.stendhal.server.entity.ActiveEntity;
@@ -69,6 +72,7 @@ import marauroa.common.game.RPObject;
 import marauroa.common.game.RPSlot;
 import marauroa.common.net.OutputSerializer;
 import marauroa.common.net.message.TransferContent;
+import marauroa.server.game.dbcommand.StoreZoneCommand;
 import marauroa.server.game.rp.MarauroaRPZone;
 
 public class StendhalRPZone extends MarauroaRPZone {
@@ -86,8 +90,24 @@ public class StendhalRPZone extends MarauroaRPZone {
 	/** the logger instance. */
 	private static final Logger logger = Logger.getLogger(StendhalRPZone.class);
 
+	/**
+	 * The release before content transfers that contain only the zone
+	 * attributes. Newer clients understand them.
+	 */
+	private static final String ATTRIBUTE_UPDATE_CLIENT_VERSION = "1.28.4";
+
+	/** Map layers of the zone, not including the attribute layer. */
 	private final List<TransferContent> contents;
 
+	/**
+	 * Immutable list of the attribute layer and the map layers as sent to the
+	 * clients, or <code>null</code> if it needs to be rebuilt.
+	 */
+	private List<TransferContent> cachedContents;
+
+	/** The attribute layer that is included in cachedContents. */
+	private TransferContent cachedAttributes;
+
 	/** Data layer for zone attributes. */
 	private ZoneAttributes attributes;
 
@@ -115,6 +135,18 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 */
 	private final List<Blood> bloods;
 
+	/** Blood spills by position. */
+	private final TileIndex<Blood> bloodTiles;
+
+	/** Portals by position. */
+	private final TileIndex<Portal> portalTiles;
+
+	/**
+	 * Number of objects on the ground by class. Each object is counted for
+	 * its class and all its super classes.
+	 */
+	private final Map<Class<?>, int[]> typeCounts;
+
 	//private boolean teleportAllowed = true;
 
 	private boolean moveToAllowed = true;
@@ -179,17 +211,20 @@ public class StendhalRPZone extends MarauroaRPZone {
 	public StendhalRPZone(final String name) {
 		super(name);
 
-		contents = new LinkedList<TransferContent>();
+		contents = new ArrayList<TransferContent>();
 		entryPoint = null;
-		portals = new LinkedList<Portal>();
+		portals = new IdentityIndexedList<Portal>();
 		itemsOnGround = new HashSet<Item>();
-		bloods = new LinkedList<Blood>();
-		npcs = new LinkedList<NPC>();
-		sheepFoods = new LinkedList<SheepFood>();
+		bloods = new IdentityIndexedList<Blood>();
+		npcs = new IdentityIndexedList<NPC>();
+		sheepFoods = new IdentityIndexedList<SheepFood>();
 		respawnPoints = new LinkedList<CreatureRespawnPoint>();
-		plantGrowers = new LinkedList<PassiveEntityRespawnPoint>();
-		players = new LinkedList<Player>();
-		playersAndFriends = new LinkedList<RPEntity>();
+		plantGrowers = new IdentityIndexedList<PassiveEntityRespawnPoint>();
+		players = new IdentityIndexedList<Player>();
+		playersAndFriends = new IdentityIndexedList<RPEntity>();
+		bloodTiles = new TileIndex<Blood>();
+		portalTiles = new TileIndex<Portal>();
+		typeCounts = new HashMap<Class<?>, int[]>();
 
 		movementListeners = new LinkedList<MovementListener>();
 		zoneListeners = new LinkedList<ZoneEnterExitListener>();
@@ -237,19 +272,63 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @return The blood, or <code>null</code>.
 	 */
 	public Blood getBlood(final int x, final int y) {
-		for (final Blood blood : bloods) {
-			if ((blood.getX() == x) && (blood.getY() == y)) {
-				return blood;
-			}
-		}
+		return bloodTiles.get(x, y);
+	}
 
-		return null;
+	/**
+	 * Gets the number of blood spots in this zone.
+	 *
+	 * @return number of blood spots
+	 */
+	public int getBloodCount() {
+		return bloods.size();
 	}
 
 	public List<NPC> getNPCList() {
 		return npcs;
 	}
 
+	/**
+	 * Gets the number of creatures in this zone.
+	 *
+	 * @return number of creatures
+	 */
+	public int getCreatureCount() {
+		return getEntityCount(Creature.class);
+	}
+
+	/**
+	 * Gets the number of objects of a type on the ground of this zone.
+	 *
+	 * @param type class of the objects, including subclasses
+	 * @return number of objects
+	 */
+	public int getEntityCount(final Class<? extends RPObject> type) {
+		final int[] count = typeCounts.get(type);
+		if (count == null) {
+			return 0;
+		}
+		return count[0];
+	}
+
+	/**
+	 * Updates the object counts of the class of an object and its super
+	 * classes.
+	 *
+	 * @param object added or removed object
+	 * @param delta 1 for added objects, -1 for removed objects
+	 */
+	private void countType(final RPObject object, final int delta) {
+		for (Class<?> type = object.getClass(); type != RPObject.class; type = type.getSuperclass()) {
+			int[] count = typeCounts.get(type);
+			if (count == null) {
+				count = new int[1];
+				typeCounts.put(type, count);
+			}
+			count[0] += delta;
+		}
+	}
+
 	public List<Portal> getPortals() {
 		return portals;
 	}
@@ -278,13 +357,22 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @return The portal, or <code>null</code>.
 	 */
 	public Portal getPortal(final int x, final int y) {
-		for (final Portal portal : portals) {
-			if ((portal.getX() == x) && (portal.getY() == y)) {
-				return portal;
-			}
-		}
+		return portalTiles.get(x, y);
+	}
 
-		return null;
+	/**
+	 * Updates the position lookups after blood or a portal was moved.
+	 *
+	 * @param entity moved entity
+	 * @param oldX previous X coordinate
+	 * @param oldY previous Y coordinate
+	 */
+	public void onEntityMoved(final Entity entity, final int oldX, final int oldY) {
+		if (entity instanceof Blood) {
+			bloodTiles.move((Blood) entity, oldX, oldY, bloods);
+		} else if (entity instanceof Portal) {
+			portalTiles.move((Portal) entity, oldX, oldY, portals);
+		}
 	}
 
 	/**
@@ -347,8 +435,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 	}
 
 	public void addLayer(final String name, final LayerDefinition layer) throws IOException {
-		final byte[] byteContents = layer.encode();
-		addToContent(name, byteContents);
+		addToContent(name, LayerContentCache.get().encode(layer));
 	}
 
 	public void addTilesets(final String name, final List<TileSetDefinition> tilesets)
@@ -385,6 +472,28 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @param byteContents
 	 */
 	private void addToContent(final String name, final byte[] byteContents) {
+		addToContent(name, byteContents, CRC.cmpCRC(byteContents));
+	}
+
+	/**
+	 * Adds the shared data of a layer to the contents list.
+	 *
+	 * @param name
+	 * @param encoded compressed layer
+	 */
+	private void addToContent(final String name, final LayerContentCache.Encoded encoded) {
+		addToContent(name, encoded.data, encoded.timestamp);
+	}
+
+	/**
+	 * Creates a new TransferContent for the specified data and adds it to the
+	 * contents list.
+	 *
+	 * @param name
+	 * @param byteContents
+	 * @param timestamp checksum of the data
+	 */
+	private void addToContent(final String name, final byte[] byteContents, final int timestamp) {
 		// Remove old data by the same name if it exists
 		Iterator<TransferContent> it = contents.iterator();
 		while (it.hasNext()) {
@@ -397,11 +506,12 @@ public class StendhalRPZone extends MarauroaRPZone {
 		final TransferContent content = new TransferContent();
 		content.name = name;
 		content.cacheable = true;
-		logger.debug("Layer timestamp: " + Integer.toString(content.timestamp));
 		content.data = byteContents;
-		content.timestamp = CRC.cmpCRC(content.data);
+		content.timestamp = timestamp;
+		logger.debug("Layer timestamp: " + Integer.toString(content.timestamp));
 
 		contents.add(content);
+		cachedContents = null;
 	}
 
 	/**
@@ -422,6 +532,42 @@ public class StendhalRPZone extends MarauroaRPZone {
 		}
 	}
 
+	/**
+	 * Send changed zone attributes to the players on the zone. Clients that
+	 * understand it get only the attribute layer instead of the complete zone
+	 * data.
+	 */
+	public void notifyOnlinePlayersAboutAttributes() {
+		if (attributes == null) {
+			notifyOnlinePlayers();
+			return;
+		}
+		if (!getPlayers().isEmpty()) {
+			List<TransferContent> attributeContents = Collections.singletonList(attributes.getContents());
+			for (Player player : getPlayers()) {
+				if (player.isDisconnected()) {
+					continue;
+				}
+				if (understandsAttributeUpdates(player)) {
+					StendhalRPAction.transferContent(player, attributeContents);
+				} else if (player.isClientNewerThan("0.97")) {
+					StendhalRPAction.transferContent(player, getContents());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks if the client of a player understands content transfers that
+	 * contain only the zone attributes.
+	 *
+	 * @param player player
+	 * @return <code>true</code> if the client understands them
+	 */
+	static boolean understandsAttributeUpdates(final Player player) {
+		return player.isClientNewerThan(ATTRIBUTE_UPDATE_CLIENT_VERSION);
+	}
+
 	/**
 	 * Set zone attributes that should be passed to the client.
 	 *
@@ -436,13 +582,13 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 	public void addCollisionLayer(final String name, final LayerDefinition collisionLayer)
 			throws IOException {
-		addToContent(name, collisionLayer.encode());
+		addToContent(name, LayerContentCache.get().encode(collisionLayer));
 		collisionMap.setCollisionData(collisionLayer);
 	}
 
 	public void addProtectionLayer(final String name, final LayerDefinition protectionLayer)
 			throws IOException {
-		addToContent(name, protectionLayer.encode());
+		addToContent(name, LayerContentCache.get().encode(protectionLayer));
 		protectionMap.setCollisionData(protectionLayer);
 	}
 
@@ -494,9 +640,6 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @param objectsLayer
 	 */
 	public void populate(final LayerDefinition objectsLayer) {
-		/* We build the layer data */
-		objectsLayer.build();
-
 		for (int yTemp = 0; yTemp < objectsLayer.getHeight(); yTemp++) {
 			for (int xTemp = 0; xTemp < objectsLayer.getWidth(); xTemp++) {
 				final int value = objectsLayer.getTileAt(xTemp, yTemp);
@@ -781,18 +924,29 @@ public class StendhalRPZone extends MarauroaRPZone {
 		return collisionMap.getHeight();
 	}
 
+	/**
+	 * Get the data that is sent to the clients on entering the zone.
+	 *
+	 * @return unmodifiable list of the attribute layer, if any, and the map
+	 * 	layers
+	 */
 	public List<TransferContent> getContents() {
+		TransferContent attr = null;
 		if (attributes != null) {
-			TransferContent attr = attributes.getContents();
-			// Remove old attributes, if needed
-			if (!contents.isEmpty() && (contents.get(0).name.equals(attr.name))) {
-				contents.remove(0);
-			}
+			attr = attributes.getContents();
+		}
+		if ((cachedContents == null) || (attr != cachedAttributes)) {
+			List<TransferContent> list = new ArrayList<TransferContent>(contents.size() + 1);
 			// Ensure the attributes comes first, so that the client has coloring
 			// information
-			contents.add(0, attr);
+			if (attr != null) {
+				list.add(attr);
+			}
+			list.addAll(contents);
+			cachedContents = Collections.unmodifiableList(list);
+			cachedAttributes = attr;
 		}
-		return contents;
+		return cachedContents;
 	}
 
 	public boolean isInProtectionArea(final Entity entity) {
@@ -848,6 +1002,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 		 */
 		assignRPObjectID(object);
 		super.add(object);
+		countType(object, 1);
 
 		notifyAdded(object);
 
@@ -878,6 +1033,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 		if (object instanceof Blood) {
 			bloods.add((Blood) object);
+			bloodTiles.add((Blood) object);
 		} else if (object instanceof Player) {
 			Player playerObject = (Player) object;
 			players.add(playerObject);
@@ -903,6 +1059,8 @@ public class StendhalRPZone extends MarauroaRPZone {
 			SingletonRepository.getNPCList().add((SpeakerNPC) object);
 		} else if (object instanceof Portal) {
 			portals.add((Portal) object);
+			portalTiles.add((Portal) object);
+			ZoneRouteGraph.get().onPortalsChanged(this);
 		}
 
 		if (object instanceof NPC) {
@@ -919,9 +1077,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @param object RPEntity
 	 */
 	public void addToPlayersAndFriends(RPEntity object) {
-		if (!playersAndFriends.contains(object)) {
-			playersAndFriends.add(object);
-		}
+		playersAndFriends.add(object);
 	}
 
 	private void notifyAdded(final RPObject object) {
@@ -958,6 +1114,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 		if (object instanceof Blood) {
 			bloods.remove(object);
+			bloodTiles.remove((Blood) object, bloods);
 		} else if (object instanceof Player) {
 			players.remove(object);
 			playersAndFriends.remove(object);
@@ -973,6 +1130,8 @@ public class StendhalRPZone extends MarauroaRPZone {
 			SingletonRepository.getNPCList().remove(((SpeakerNPC) object).getName());
 		} else if (object instanceof Portal) {
 			portals.remove(object);
+			portalTiles.remove((Portal) object, portals);
+			ZoneRouteGraph.get().onPortalsChanged(this);
 		}
 
 		if (object instanceof ZoneEnterExitListener) {
@@ -983,6 +1142,9 @@ public class StendhalRPZone extends MarauroaRPZone {
 		}
 
 		super.remove(id);
+		if (object != null) {
+			countType(object, -1);
+		}
 
 		if (object instanceof Item) {
 			final Item item = (Item) object;
@@ -1026,6 +1188,32 @@ public class StendhalRPZone extends MarauroaRPZone {
 		super.modify(object.getBaseContainer());
 	}
 
+	/**
+	 * Counts a per turn change notification of an entity.
+	 *
+	 * @param modified <code>true</code> if the entity had actually changed
+	 */
+	public void onModifyRequested(final boolean modified) {
+		modifyRequests++;
+		if (modified) {
+			modifyRequestsChanged++;
+		}
+	}
+
+	/**
+	 * Gets the number of per turn change notifications since the counters
+	 * were last reset, and resets them.
+	 *
+	 * @return number of notifications and the number of them for entities
+	 * 	that had actually changed
+	 */
+	public int[] takeModifyRequestCounts() {
+		final int[] res = new int[] { modifyRequests, modifyRequestsChanged };
+		modifyRequests = 0;
+		modifyRequestsChanged = 0;
+		return res;
+	}
+
 	/**
 	 * Checks if there is a collision on the airline between 2 positions. Only
 	 * the collision map will be used.
@@ -1402,6 +1590,12 @@ public class StendhalRPZone extends MarauroaRPZone {
 
 	private int debugturn;
 
+	/** number of per turn change notifications of the entities */
+	private int modifyRequests;
+
+	/** number of per turn change notifications of entities that had changed */
+	private int modifyRequestsChanged;
+
 	private boolean accessible;
 
 	private String noItemMoveMessage;
@@ -1462,13 +1656,7 @@ public class StendhalRPZone extends MarauroaRPZone {
 	 * @return if there are players in zone
 	 */
 	public boolean containsPlayer() {
-	    for (final RPObject obj : objects.values()) {
-	        if (obj instanceof Player) {
-	            return true;
-            }
-	    }
-
-	    return false;
+	    return getEntityCount(Player.class) > 0;
 	}
 
     /**
@@ -1476,13 +1664,7 @@ public class StendhalRPZone extends MarauroaRPZone {
      * @return true if there are domesticalanimals in zone
      */
     public boolean containsAnimal() {
-        for (final RPObject obj : objects.values()) {
-            if (obj instanceof DomesticAnimal) {
-                return true;
-            }
-        }
-
-        return false;
+        return getEntityCount(DomesticAnimal.class) > 0;
     }
 
     /**
@@ -1490,13 +1672,7 @@ public class StendhalRPZone extends MarauroaRPZone {
      * @return true if there are creatures in zone
      */
     public boolean containsCreature() {
-        for (final RPObject obj : objects.values()) {
-            if (obj instanceof Creature) {
-                return true;
-            }
-        }
-
-        return false;
+        return getEntityCount(Creature.class) > 0;
     }
 
 
@@ -1600,6 +1776,29 @@ public class StendhalRPZone extends MarauroaRPZone {
 		teleRules.disallowOut(x, y, width, height);
 	}
 
+	/**
+	 * Stores the storable objects of this zone to the database. Only they
+	 * are cloned; the serialization happens on the database thread.
+	 */
+	@Override
+	public void storeToDatabase() {
+		final List<RPObject> storable = new LinkedList<RPObject>();
+		for (final RPObject object : this) {
+			if (object.isStorable()) {
+				storable.add((RPObject) object.clone());
+			}
+		}
+		DBCommandDispatcher.get().enqueue(new StoreZoneCommand(this, storable));
+	}
+
+	/**
+	 * Requests the storable objects of this zone to be stored to the
+	 * database. Requests are coalesced by the {@link ZonePersistenceScheduler}.
+	 */
+	public void requestStoreToDatabase() {
+		ZonePersistenceScheduler.get().markDirty(this);
+	}
+
 	public void onRemoved() {
 		for (RPObject inspected : this) {
 			if (inspected instanceof ActiveEntity) {
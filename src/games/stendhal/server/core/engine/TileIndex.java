@@ -0,0 +1,215 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import games.stendhal.server.entity.Entity;
+
+/**
+ * Maps tile positions to the entity on that tile. The positions are packed
+ * into <code>int</code> keys of an open addressing table, so lookups do not
+ * create any objects. Every int is a valid key; a slot is free if it has no
+ * entity.
+ * <p>
+ * If several entities share a tile, the first one added is returned. Moved
+ * entities have to be reported with {@link #move}.
+ *
+ * @param <T> type of the entities
+ */
+class TileIndex<T extends Entity> {
+	private int[] keys;
+	private Entity[] values;
+	private int size;
+
+	/** number of added entities that could not be indexed, because their tile was already taken */
+	private int shadowed;
+
+	/**
+	 * creates a new TileIndex
+	 */
+	TileIndex() {
+		allocate(16);
+	}
+
+	/**
+	 * gets the entity on a tile
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return entity, or <code>null</code> if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	T get(int x, int y) {
+		int slot = find(key(x, y));
+		if (slot < 0) {
+			return null;
+		}
+		return (T) values[slot];
+	}
+
+	/**
+	 * adds an entity at its current position
+	 *
+	 * @param entity entity to add
+	 */
+	void add(T entity) {
+		int key = key(entity.getX(), entity.getY());
+		if (find(key) >= 0) {
+			shadowed++;
+			return;
+		}
+		if (2 * (size + 1) > keys.length) {
+			rehash(2 * keys.length);
+		}
+		insert(key, entity);
+	}
+
+	/**
+	 * removes an entity
+	 *
+	 * @param entity entity to remove
+	 * @param remaining entities that are still in the zone. They are used to
+	 * 	find an entity that was hidden by the removed one.
+	 */
+	void remove(T entity, Iterable<T> remaining) {
+		remove(entity, entity.getX(), entity.getY(), remaining);
+	}
+
+	/**
+	 * updates the position of an entity
+	 *
+	 * @param entity moved entity
+	 * @param oldX previous x coordinate
+	 * @param oldY previous y coordinate
+	 * @param remaining entities that are in the zone
+	 */
+	void move(T entity, int oldX, int oldY, Iterable<T> remaining) {
+		remove(entity, oldX, oldY, remaining);
+		add(entity);
+	}
+
+	private void remove(T entity, int x, int y, Iterable<T> remaining) {
+		int slot = find(key(x, y));
+		if ((slot < 0) || (values[slot] != entity)) {
+			slot = findValue(entity);
+		}
+		if (slot < 0) {
+			shadowed = Math.max(0, shadowed - 1);
+			return;
+		}
+		int key = keys[slot];
+		delete(slot);
+		if (shadowed > 0) {
+			for (T other : remaining) {
+				if ((other != entity) && (key(other.getX(), other.getY()) == key) && (findValue(other) < 0)) {
+					shadowed--;
+					insert(key, other);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return number of indexed tiles
+	 */
+	int size() {
+		return size;
+	}
+
+	private static int key(int x, int y) {
+		return (x << 16) ^ (y & 0xffff);
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private int find(int key) {
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (values[i] != null) {
+			if (keys[i] == key) {
+				return i;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	private int findValue(Entity entity) {
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] == entity) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void insert(int key, Entity entity) {
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (values[i] != null) {
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = entity;
+		size++;
+	}
+
+	/**
+	 * deletes a slot, and moves back the following entries of the probe
+	 * sequence so that no tombstones are needed
+	 *
+	 * @param slot slot to delete
+	 */
+	private void delete(int slot) {
+		int mask = keys.length - 1;
+		int hole = slot;
+		int i = (slot + 1) & mask;
+		while (values[i] != null) {
+			int home = hash(keys[i]) & mask;
+			// move the entry, if its home is not cyclically in (hole, i]
+			boolean move;
+			if (hole <= i) {
+				move = (home <= hole) || (home > i);
+			} else {
+				move = (home <= hole) && (home > i);
+			}
+			if (move) {
+				keys[hole] = keys[i];
+				values[hole] = values[i];
+				hole = i;
+			}
+			i = (i + 1) & mask;
+		}
+		values[hole] = null;
+		size--;
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new Entity[capacity];
+		size = 0;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		Entity[] oldValues = values;
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] != null) {
+				insert(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+}
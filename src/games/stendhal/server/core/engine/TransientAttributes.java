@@ -0,0 +1,75 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import games.stendhal.server.entity.Entity;
+
+/**
+ * Attributes that signal something to the clients for one turn only, such as
+ * "heal" or "dead". Code that sets such an attribute registers it here, and
+ * one sweep per turn removes exactly the registered attributes, instead of
+ * every entity checking for all of them in each turn.
+ */
+public class TransientAttributes {
+
+	/** entities with registered attributes */
+	private List<Entity> entities = new ArrayList<Entity>();
+
+	/** registered attributes, in the same order as the entities */
+	private List<String> attributes = new ArrayList<String>();
+
+	/**
+	 * registers an attribute that should be removed in the next sweep
+	 *
+	 * @param entity entity
+	 * @param attribute name of attribute
+	 */
+	public void register(final Entity entity, final String attribute) {
+		entities.add(entity);
+		attributes.add(attribute);
+	}
+
+	/**
+	 * removes the registered attributes, and notifies the zones of the
+	 * entities that still had them
+	 */
+	public void sweep() {
+		if (entities.isEmpty()) {
+			return;
+		}
+		final List<Entity> sweptEntities = entities;
+		final List<String> sweptAttributes = attributes;
+		entities = new ArrayList<Entity>();
+		attributes = new ArrayList<String>();
+
+		for (int i = 0; i < sweptEntities.size(); i++) {
+			final Entity entity = sweptEntities.get(i);
+			final String attribute = sweptAttributes.get(i);
+			if (entity.has(attribute)) {
+				entity.remove(attribute);
+				entity.notifyWorldAboutChanges();
+			}
+		}
+	}
+
+	/**
+	 * gets the number of registered attributes
+	 *
+	 * @return number of attributes waiting for the next sweep
+	 */
+	public int size() {
+		return entities.size();
+	}
+}
@@ -31,8 +31,14 @@ import marauroa.common.net.message.TransferContent;
 public class ZoneAttributes {
 	private static final Logger logger = Logger.getLogger(ZoneAttributes.class);
 
-	/** Container to wrap the contents to pass as a layer. */
-	private final TransferContent content = new TransferContent();
+	/**
+	 * Container to wrap the contents to pass as a layer. A new container is
+	 * created whenever the attributes change, so that content which has
+	 * already been offered to clients is never modified.
+	 */
+	private TransferContent content;
+	/** Name of the layer. */
+	private String layerName;
 	/** An object for storing the attributes. */
 	private final RPObject attr = new RPObject();
 	/**
@@ -53,7 +59,6 @@ public class ZoneAttributes {
 	public ZoneAttributes(StendhalRPZone zone) {
 		attr.setID(RPObject.INVALID_ID);
 		setBaseName(zone.getName());
-		content.cacheable = false;
 		this.zone = zone;
 	}
 
@@ -69,7 +74,8 @@ public class ZoneAttributes {
 	 */
 	public final void setBaseName(String name) {
 		// old client ignore layers ending in _map, thus the odd choice of name
-		content.name = name + ".data_map";
+		layerName = name + ".data_map";
+		invalidate();
 	}
 
 	/**
@@ -147,7 +153,8 @@ public class ZoneAttributes {
 	 * Get the contents.
 	 *
 	 * @return Attributes packed as a layer. The content is a serialized
-	 *	RPObject with the attributes.
+	 *	RPObject with the attributes. The returned object is not modified
+	 *	afterwards; changed attributes result in a new object.
 	 */
 	TransferContent getContents() {
 		if (!valid) {
@@ -176,8 +183,12 @@ public class ZoneAttributes {
 			logger.error("Failed to set attributes", e);
 		}
 
-		content.data = array.toByteArray();
-		content.timestamp = CRC.cmpCRC(content.data);
+		final TransferContent newContent = new TransferContent();
+		newContent.name = layerName;
+		newContent.cacheable = false;
+		newContent.data = array.toByteArray();
+		newContent.timestamp = CRC.cmpCRC(newContent.data);
+		content = newContent;
 		valid = true;
 	}
 
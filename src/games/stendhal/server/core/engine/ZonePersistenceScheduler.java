@@ -0,0 +1,126 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.core.events.TurnListener;
+import games.stendhal.server.core.events.TurnNotifier;
+import marauroa.common.Configuration;
+
+/**
+ * Coalesces requests to store zones to the database.
+ * <p>
+ * Storing a zone serializes all of its storable objects, for example every
+ * offer in the market. Instead of doing that for every single change, zones
+ * are marked as dirty and written once after a short delay.
+ * <p>
+ * The delay is set in seconds with zone_store_delay in server.ini and
+ * defaults to 5 seconds. Changes made within that time are lost if the
+ * server crashes. A value of 0 stores the zone in the next turn. All zones
+ * are still stored on a regular shutdown.
+ */
+public class ZonePersistenceScheduler implements TurnListener {
+	private static Logger logger = Logger.getLogger(ZonePersistenceScheduler.class);
+
+	/** default delay in seconds */
+	private static final int DEFAULT_DELAY = 5;
+
+	private static ZonePersistenceScheduler instance;
+
+	private final Set<StendhalRPZone> dirtyZones = Collections.newSetFromMap(new IdentityHashMap<StendhalRPZone, Boolean>());
+	private final int delay;
+
+	/**
+	 * gets the singleton instance
+	 *
+	 * @return ZonePersistenceScheduler
+	 */
+	public static synchronized ZonePersistenceScheduler get() {
+		if (instance == null) {
+			int delay = DEFAULT_DELAY;
+			try {
+				delay = Configuration.getConfiguration().getInt("zone_store_delay", DEFAULT_DELAY);
+			} catch (IOException e) {
+				logger.error(e, e);
+			} catch (NumberFormatException e) {
+				logger.error("Invalid zone_store_delay, using " + DEFAULT_DELAY, e);
+			}
+			instance = new ZonePersistenceScheduler(delay);
+		}
+		return instance;
+	}
+
+	/**
+	 * creates a new ZonePersistenceScheduler
+	 *
+	 * @param delay delay in seconds
+	 */
+	ZonePersistenceScheduler(int delay) {
+		this.delay = Math.max(0, delay);
+	}
+
+	/**
+	 * marks a zone as changed, so that its storable objects will be written
+	 * to the database
+	 *
+	 * @param zone zone to store
+	 */
+	public void markDirty(StendhalRPZone zone) {
+		if (dirtyZones.isEmpty()) {
+			if (delay == 0) {
+				TurnNotifier.get().notifyInTurns(0, this);
+			} else {
+				TurnNotifier.get().notifyInSeconds(delay, this);
+			}
+		}
+		dirtyZones.add(zone);
+	}
+
+	/**
+	 * checks whether a zone is waiting to be stored
+	 *
+	 * @param zone zone
+	 * @return true, if the zone has unsaved changes
+	 */
+	public boolean isDirty(StendhalRPZone zone) {
+		return dirtyZones.contains(zone);
+	}
+
+	/**
+	 * stores all changed zones now
+	 */
+	public void flush() {
+		TurnNotifier.get().dontNotify(this);
+		List<StendhalRPZone> zones = new ArrayList<StendhalRPZone>(dirtyZones);
+		dirtyZones.clear();
+		for (StendhalRPZone zone : zones) {
+			try {
+				zone.storeToDatabase();
+			} catch (RuntimeException e) {
+				logger.error("Error storing zone " + zone.getName(), e);
+			}
+		}
+	}
+
+	@Override
+	public void onTurnReached(int currentTurn) {
+		flush();
+	}
+}
@@ -13,7 +13,9 @@ package games.stendhal.server.core.engine.db;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
@@ -49,6 +51,28 @@ public class CharacterIterator implements Iterator<RPObject>, Iterable<RPObject>
 		result = transaction.query(query, null);
 	}
 
+	/**
+	 * creates a character iterator over a range of characters
+	 *
+	 * @param transaction DBTransaction
+	 * @param transform apply Transformat rules
+	 * @param afterObjectId only characters with a higher object id are returned
+	 * @param limit maximum number of characters
+	 * @throws SQLException in case of an database error
+	 */
+	public CharacterIterator(DBTransaction transaction, boolean transform, int afterObjectId, int limit) throws SQLException {
+		this.transaction = transaction;
+		this.transform = transform;
+		final String query = "select object_id from characters where object_id > [after]"
+				+ " order by object_id limit [limit]";
+		final Map<String, Object> params = new HashMap<String, Object>();
+		params.put("after", Integer.valueOf(afterObjectId));
+		params.put("limit", Integer.valueOf(limit));
+
+		logger.debug("iterator is executing query " + query);
+		result = transaction.query(query, params);
+	}
+
 	@Override
 	public boolean hasNext() {
 		try {
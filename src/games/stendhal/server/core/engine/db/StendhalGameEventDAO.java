@@ -0,0 +1,60 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.db;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+import marauroa.server.db.DBTransaction;
+
+/**
+ * database access to the game events with a given time. Events at the
+ * current time are logged by marauroa's GameEventDAO.
+ */
+public class StendhalGameEventDAO {
+
+	/**
+	 * logs a game event that happened at an earlier time. The parameters
+	 * are stored like marauroa's GameEventDAO does.
+	 *
+	 * @param transaction DBTransaction
+	 * @param timedate time of the event
+	 * @param source source of the event, usually a character
+	 * @param event name of the event
+	 * @param params parameters
+	 * @throws SQLException in case of an database error
+	 */
+	public void addGameEvent(final DBTransaction transaction, final Timestamp timedate, final String source,
+			final String event, final String... params) throws SQLException {
+		String param1 = "";
+		if (params.length > 0) {
+			param1 = params[0];
+		}
+		StringBuilder param2 = new StringBuilder();
+		for (int i = 1; i < params.length; i++) {
+			param2.append(params[i]);
+			param2.append(" ");
+		}
+
+		String sql = "INSERT INTO gameEvents(timedate, source, event, param1, param2)"
+				+ " VALUES ('[timedate]', '[source]', '[event]', '[param1]', '[param2]')";
+		Map<String, Object> values = new HashMap<String, Object>();
+		values.put("timedate", timedate);
+		values.put("source", source);
+		values.put("event", event);
+		values.put("param1", (param1 == null) ? null : param1.substring(0, Math.min(127, param1.length())));
+		values.put("param2", param2.substring(0, Math.min(255, param2.length())));
+		transaction.execute(sql, values);
+	}
+}
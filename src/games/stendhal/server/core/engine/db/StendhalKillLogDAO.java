@@ -44,6 +44,23 @@ public class StendhalKillLogDAO {
 	 * @throws SQLException in case of an database error
 	 */
 	public void logKill(final DBTransaction transaction, final Entity killed, final Killer killer) throws SQLException {
+		logKill(transaction, killed.getName(), entityToType(killed), killer.getName(), entityToType(killer),
+				new SimpleDateFormat("yyyy-MM-dd").format(new Date()));
+	}
+
+	/**
+	 * Logs a kill.
+	 *
+	 * @param transaction transaction
+	 * @param killed name of the killed entity
+	 * @param killedType type of the killed entity, see {@link #entityToType(Killer)}
+	 * @param killer name of the killer
+	 * @param killerType type of the killer
+	 * @param day day of the kill in the format yyyy-MM-dd
+	 * @throws SQLException in case of an database error
+	 */
+	public void logKill(final DBTransaction transaction, final String killed, final String killedType,
+			final String killer, final String killerType, final String day) throws SQLException {
 		// try update in case we already have this combination
 		String query = "UPDATE kills SET cnt = cnt+1"
 			+ " WHERE killed = '[killed]' AND killed_type = '[killed_type]'"
@@ -51,11 +68,11 @@ public class StendhalKillLogDAO {
 			+ " AND day = '[day]';";
 
 		Map<String, Object> params = new HashMap<String, Object>();
-		params.put("killed", killed.getName());
-		params.put("killed_type", entityToType(killed));
-		params.put("killer", killer.getName());
-		params.put("killer_type", entityToType(killer));
-		params.put("day", new SimpleDateFormat("yyyy-MM-dd").format(new Date()));
+		params.put("killed", killed);
+		params.put("killed_type", killedType);
+		params.put("killer", killer);
+		params.put("killer_type", killerType);
+		params.put("day", day);
 
 		final int rowCount = transaction.execute(query, params);
 
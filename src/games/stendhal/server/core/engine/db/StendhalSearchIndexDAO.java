@@ -104,6 +104,39 @@ public class StendhalSearchIndexDAO {
 		stmt.executeBatch();
 	}
 
+	/**
+	 * deletes entries by their values
+	 *
+	 * @param transaction DBTransactions
+	 * @param toDelete entries to delete
+	 * @throws SQLException
+	 */
+	private void deleteEntries(DBTransaction transaction, Set<SearchIndexEntry> toDelete) throws SQLException {
+		PreparedStatement stmt = transaction.prepareStatement("DELETE FROM searchindex"
+				+ " WHERE searchterm=? AND entitytype=? AND entityname=? AND searchscore=?", null);
+		for (SearchIndexEntry entry : toDelete) {
+			writeEntry(stmt, entry);
+		}
+		stmt.executeBatch();
+	}
+
+	/**
+	 * applies changes to the search index
+	 *
+	 * @param transaction DBTransaction
+	 * @param toAdd new entries
+	 * @param toDelete obsolete entries
+	 * @throws SQLException in case of an database error
+	 */
+	public void updateSearchIndex(DBTransaction transaction, Set<SearchIndexEntry> toAdd, Set<SearchIndexEntry> toDelete) throws SQLException {
+		if (!toDelete.isEmpty()) {
+			deleteEntries(transaction, toDelete);
+		}
+		if (!toAdd.isEmpty()) {
+			addNewEntries(transaction, toAdd);
+		}
+	}
+
 	/**
 	 * dumps the search index
 	 *
@@ -113,8 +113,29 @@ public class StendhalWebsiteDAO {
 	 * @throws SQLException in case of an database error
 	 */
 	public void logTradeEvent(final DBTransaction transaction, String charname, String itemname, int itemid, int quantity, int price, String stats) throws SQLException {
+		logTradeEvent(transaction, charname, itemname, itemid, quantity, price, stats, null);
+	}
+
+	/**
+	 * logs a trade event
+	 *
+	 * @param transaction DBTransaction
+	 * @param charname name of character
+	 * @param itemname name of item
+	 * @param itemid   id of item
+	 * @param quantity quantity
+	 * @param price    price
+	 * @param stats    description of item
+	 * @param timedate time of the trade, <code>null</code> for the current time
+	 * @throws SQLException in case of an database error
+	 */
+	public void logTradeEvent(final DBTransaction transaction, String charname, String itemname, int itemid, int quantity, int price, String stats, Timestamp timedate) throws SQLException {
 		String sql = "INSERT INTO trade(charname, itemname, itemid, quantity, price, stats) "
 				+ " VALUES ('[charname]', '[itemname]', [itemid], [quantity], [price], '[stats]')";
+		if (timedate != null) {
+			sql = "INSERT INTO trade(charname, itemname, itemid, quantity, price, stats, timedate) "
+					+ " VALUES ('[charname]', '[itemname]', [itemid], [quantity], [price], '[stats]', '[timedate]')";
+		}
 		Map<String, Object> params = new HashMap<String, Object>();
 		params.put("charname", charname);
 		params.put("itemname", itemname);
@@ -122,6 +143,7 @@ public class StendhalWebsiteDAO {
 		params.put("quantity", quantity);
 		params.put("price", price);
 		params.put("stats", stats);
+		params.put("timedate", timedate);
 		transaction.execute(sql, params);
 	}
 
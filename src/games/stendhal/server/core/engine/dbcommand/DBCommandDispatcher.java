@@ -0,0 +1,560 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import marauroa.common.Configuration;
+import marauroa.common.i18n.I18N;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.command.AbstractDBCommand;
+import marauroa.server.db.command.DBCommand;
+import marauroa.server.db.command.DBCommandQueue;
+import marauroa.server.db.command.ResultHandle;
+import marauroa.server.game.dbcommand.DBCommandWithCallback;
+
+/**
+ * Passes database commands to the marauroa database queue in order of their
+ * priority.
+ * <p>
+ * marauroa executes database commands one after another on a single thread in
+ * the order they were enqueued. To let login critical reads overtake a burst of
+ * log writes, commands are kept here in one queue per priority and only a small
+ * window of them is handed over to marauroa at a time. Critical and normal
+ * commands are passed on in the order they were enqueued, so that a read never
+ * overtakes an earlier write it might depend on. Only log commands, whose
+ * tables are not read by the game, are passed on after them.
+ * <p>
+ * The number of waiting commands is bounded. If the limit is reached, log
+ * commands are either spilled to a local file or dropped, depending on the
+ * configuration. Other commands are always accepted. The file is written by
+ * the dispatcher thread, which enqueues the spilled commands again on the next
+ * start. Log commands that do not implement {@link SpillableDBCommand} are
+ * dropped.
+ * <p>
+ * server.ini settings:
+ * <ul>
+ * <li>db_command_queue_capacity: maximum number of waiting commands</li>
+ * <li>db_command_queue_window: maximum number of commands in the marauroa queue</li>
+ * <li>db_command_queue_overflow: "spill" or "drop"</li>
+ * <li>db_command_spill_file: file for spilled log commands</li>
+ * </ul>
+ */
+public class DBCommandDispatcher {
+	private static Logger logger = Logger.getLogger(DBCommandDispatcher.class);
+
+	/** default maximum number of waiting commands */
+	private static final int DEFAULT_CAPACITY = 20000;
+
+	/** default maximum number of commands in the marauroa queue */
+	private static final int DEFAULT_WINDOW = 16;
+
+	/** default file for spilled log commands */
+	private static final String DEFAULT_SPILL_FILE = "log/dbcommand-overflow.log";
+
+	/** time after which the window is checked against the marauroa queue */
+	private static final long RECHECK_MILLIS = 1000;
+
+	/** what to do with log commands if the queue is full */
+	public enum OverflowPolicy {
+		/** write the command to the spill file */
+		SPILL,
+		/** discard the command */
+		DROP;
+	}
+
+	private static DBCommandDispatcher instance;
+
+	private final Map<DBCommandPriority, ArrayDeque<Entry>> queues = new EnumMap<DBCommandPriority, ArrayDeque<Entry>>(DBCommandPriority.class);
+	private final ArrayDeque<Spill> spills = new ArrayDeque<Spill>();
+	private final ConcurrentHashMap<Class<?>, DBCommandStatistics> statistics = new ConcurrentHashMap<Class<?>, DBCommandStatistics>();
+	private final AtomicLong spilled = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final int capacity;
+	private final int window;
+	private final OverflowPolicy overflowPolicy;
+	private final String spillFilename;
+	private final Object spillLock = new Object();
+	private Writer spillWriter;
+	private int size;
+	/** number of forwarded commands, that have not been executed yet */
+	private int inFlight;
+	private long nextSequence;
+
+	/**
+	 * gets the singleton instance, starting the dispatcher thread on first use
+	 *
+	 * @return DBCommandDispatcher
+	 */
+	public static synchronized DBCommandDispatcher get() {
+		if (instance == null) {
+			instance = createFromConfiguration();
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					instance.feed();
+				}
+			}, "DBCommandDispatcher");
+			thread.setDaemon(true);
+			thread.start();
+		}
+		return instance;
+	}
+
+	private static DBCommandDispatcher createFromConfiguration() {
+		int capacity = DEFAULT_CAPACITY;
+		int window = DEFAULT_WINDOW;
+		OverflowPolicy policy = OverflowPolicy.SPILL;
+		String spillFilename = DEFAULT_SPILL_FILE;
+		try {
+			Configuration config = Configuration.getConfiguration();
+			capacity = config.getInt("db_command_queue_capacity", DEFAULT_CAPACITY);
+			window = config.getInt("db_command_queue_window", DEFAULT_WINDOW);
+			policy = OverflowPolicy.valueOf(config.get("db_command_queue_overflow", "spill").toUpperCase(Locale.ENGLISH));
+			spillFilename = config.get("db_command_spill_file", DEFAULT_SPILL_FILE);
+		} catch (IOException e) {
+			logger.error(e, e);
+		} catch (RuntimeException e) {
+			logger.error("Invalid db_command_queue configuration, using defaults", e);
+		}
+		return new DBCommandDispatcher(capacity, window, policy, spillFilename);
+	}
+
+	/**
+	 * creates a new DBCommandDispatcher without starting the dispatcher thread
+	 *
+	 * @param capacity maximum number of waiting commands
+	 * @param window maximum number of commands in the marauroa queue
+	 * @param overflowPolicy what to do with log commands if the queue is full
+	 * @param spillFilename file for spilled log commands
+	 */
+	DBCommandDispatcher(int capacity, int window, OverflowPolicy overflowPolicy, String spillFilename) {
+		this.capacity = Math.max(1, capacity);
+		this.window = Math.max(1, window);
+		this.overflowPolicy = overflowPolicy;
+		this.spillFilename = spillFilename;
+		for (DBCommandPriority priority : DBCommandPriority.values()) {
+			queues.put(priority, new ArrayDeque<Entry>());
+		}
+	}
+
+	/**
+	 * enqueues a command of normal priority
+	 *
+	 * @param command DBCommand
+	 */
+	public void enqueue(DBCommand command) {
+		enqueue(command, DBCommandPriority.NORMAL);
+	}
+
+	/**
+	 * enqueues a command
+	 *
+	 * @param command DBCommand
+	 * @param priority priority of the command
+	 */
+	public void enqueue(DBCommand command, DBCommandPriority priority) {
+		add(new Entry(command, null, priority));
+	}
+
+	/**
+	 * enqueues a critical command and keeps its result for
+	 * {@link #getOneResult(Class, ResultHandle)}
+	 *
+	 * @param command DBCommand
+	 * @param handle handle to fetch the result with
+	 */
+	public void enqueueAndAwaitResult(DBCommand command, ResultHandle handle) {
+		add(new Entry(command, handle, DBCommandPriority.CRITICAL));
+	}
+
+	/**
+	 * gets the result of a command, that was enqueued with
+	 * {@link #enqueueAndAwaitResult(DBCommand, ResultHandle)}
+	 *
+	 * @param clazz class of the command
+	 * @param handle handle the command was enqueued with
+	 * @return the executed command or <code>null</code>, if it is not done yet
+	 */
+	public <T extends DBCommand> T getOneResult(Class<T> clazz, ResultHandle handle) {
+		return DBCommandQueue.get().getOneResult(clazz, handle);
+	}
+
+	private void add(Entry entry) {
+		DBCommandStatistics stats = getStatistics(entry.command.getClass());
+		stats.onEnqueued();
+		synchronized (this) {
+			if (size >= capacity) {
+				if (entry.priority == DBCommandPriority.LOG) {
+					overflow(entry, stats);
+					return;
+				}
+				logger.warn("Database command queue is full, accepting " + entry.priority + " command " + entry.command.getClass().getSimpleName() + " anyway");
+			}
+			entry.sequence = nextSequence++;
+			queues.get(entry.priority).add(entry);
+			size++;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * hands a log command over to the dispatcher thread for the spill file,
+	 * or drops it. Only called while holding the lock.
+	 *
+	 * @param entry log command
+	 * @param stats statistics of the command type
+	 */
+	private void overflow(Entry entry, DBCommandStatistics stats) {
+		String line = null;
+		if (overflowPolicy == OverflowPolicy.SPILL && entry.command instanceof SpillableDBCommand) {
+			line = DBCommandSpillFormat.encode((SpillableDBCommand) entry.command);
+		}
+		if (line == null) {
+			dropped.incrementAndGet();
+			stats.onDropped();
+			return;
+		}
+		spills.add(new Spill(line, stats));
+		notifyAll();
+	}
+
+	/**
+	 * writes the spilled commands, that are waiting, to the spill file
+	 */
+	void writeSpills() {
+		List<Spill> pending;
+		synchronized (this) {
+			if (spills.isEmpty()) {
+				return;
+			}
+			pending = new ArrayList<Spill>(spills);
+			spills.clear();
+		}
+		synchronized (spillLock) {
+			try {
+				if (spillWriter == null) {
+					File file = new File(spillFilename);
+					File parent = file.getAbsoluteFile().getParentFile();
+					if (parent != null) {
+						parent.mkdirs();
+					}
+					spillWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+				}
+				for (Spill spill : pending) {
+					spillWriter.write(spill.line);
+					spillWriter.write('\n');
+				}
+				spillWriter.flush();
+				for (Spill spill : pending) {
+					spilled.incrementAndGet();
+					spill.stats.onSpilled();
+				}
+			} catch (IOException e) {
+				logger.error("Failed to spill " + pending.size() + " database commands", e);
+				for (Spill spill : pending) {
+					dropped.incrementAndGet();
+					spill.stats.onDropped();
+				}
+			}
+		}
+	}
+
+	/**
+	 * enqueues the commands of the spill file again and deletes the file
+	 */
+	void replaySpills() {
+		if (spillFilename == null) {
+			return;
+		}
+		File file = new File(spillFilename);
+		File replayFile = new File(spillFilename + ".replay");
+		synchronized (spillLock) {
+			if (!file.exists()) {
+				return;
+			}
+			if (replayFile.exists()) {
+				logger.warn("Not replaying spilled database commands, because " + replayFile + " is left over from an earlier replay");
+				return;
+			}
+			try {
+				if (spillWriter != null) {
+					spillWriter.close();
+					spillWriter = null;
+				}
+			} catch (IOException e) {
+				logger.error(e, e);
+			}
+			if (!file.renameTo(replayFile)) {
+				logger.error("Failed to rename " + file + " for replaying spilled database commands");
+				return;
+			}
+		}
+
+		int count = 0;
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(replayFile), "UTF-8"));
+			try {
+				String line = reader.readLine();
+				while (line != null) {
+					if (!line.isEmpty()) {
+						try {
+							enqueue(DBCommandSpillFormat.decode(line), DBCommandPriority.LOG);
+							count++;
+						} catch (IllegalArgumentException e) {
+							logger.warn("Skipping spilled database command", e);
+						}
+					}
+					line = reader.readLine();
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			logger.error("Failed to replay spilled database commands from " + replayFile, e);
+			return;
+		}
+		if (!replayFile.delete()) {
+			logger.error("Failed to delete " + replayFile);
+		}
+		logger.info("Replayed " + count + " spilled database commands");
+	}
+
+	/**
+	 * takes the next waiting command. Critical and normal commands are taken
+	 * in the order they were enqueued, log commands only if there are no
+	 * others.
+	 *
+	 * @return Entry or <code>null</code>, if there are no waiting commands
+	 */
+	synchronized Entry poll() {
+		ArrayDeque<Entry> queue = queues.get(DBCommandPriority.LOG);
+		Entry critical = queues.get(DBCommandPriority.CRITICAL).peek();
+		Entry normal = queues.get(DBCommandPriority.NORMAL).peek();
+		if (critical != null && (normal == null || critical.sequence < normal.sequence)) {
+			queue = queues.get(DBCommandPriority.CRITICAL);
+		} else if (normal != null) {
+			queue = queues.get(DBCommandPriority.NORMAL);
+		}
+		Entry entry = queue.poll();
+		if (entry != null) {
+			size--;
+		}
+		return entry;
+	}
+
+	/**
+	 * passes all waiting commands on to marauroa at once, for example on
+	 * server shutdown
+	 */
+	public void flush() {
+		Entry entry = poll();
+		while (entry != null) {
+			forward(entry);
+			entry = poll();
+		}
+		writeSpills();
+	}
+
+	/**
+	 * passes the waiting commands on to marauroa as it makes progress, and
+	 * writes spilled commands to the spill file
+	 */
+	private void feed() {
+		replaySpills();
+		try {
+			while (true) {
+				Entry entry = null;
+				synchronized (this) {
+					while (spills.isEmpty() && (size == 0 || inFlight >= window)) {
+						long start = System.currentTimeMillis();
+						wait(RECHECK_MILLIS);
+						if (System.currentTimeMillis() - start >= RECHECK_MILLIS) {
+							// a command may have failed without being executed
+							inFlight = Math.min(inFlight, DBCommandQueue.get().size());
+						}
+					}
+					if (inFlight < window) {
+						entry = poll();
+					}
+				}
+				writeSpills();
+				if (entry != null) {
+					forward(entry);
+				}
+			}
+		} catch (InterruptedException e) {
+			logger.info("DBCommandDispatcher interrupted", e);
+		} catch (RuntimeException e) {
+			logger.error("DBCommandDispatcher stopped", e);
+		}
+	}
+
+	/**
+	 * called when a forwarded command was executed
+	 */
+	synchronized void onExecuted() {
+		if (inFlight > 0) {
+			inFlight--;
+		}
+		notifyAll();
+	}
+
+	private void forward(Entry entry) {
+		DBCommandStatistics stats = getStatistics(entry.command.getClass());
+		stats.onForwarded(System.nanoTime() - entry.enqueueNanos);
+		synchronized (this) {
+			inFlight++;
+		}
+		I18N.setThreadLocale(entry.locale);
+		try {
+			if (entry.handle != null) {
+				DBCommandQueue.get().enqueueAndAwaitResult(entry.command, entry.handle);
+				DBCommandQueue.get().enqueue(new ExecutedMarker(this));
+			} else if (entry.command instanceof DBCommandWithCallback) {
+				DBCommandQueue.get().enqueue(entry.command);
+				DBCommandQueue.get().enqueue(new ExecutedMarker(this));
+			} else {
+				DBCommandQueue.get().enqueue(new TimedDBCommand(entry.command, stats, this));
+			}
+		} finally {
+			I18N.resetThreadLocale();
+		}
+	}
+
+	private DBCommandStatistics getStatistics(Class<?> clazz) {
+		DBCommandStatistics stats = statistics.get(clazz);
+		if (stats == null) {
+			stats = new DBCommandStatistics(clazz.getSimpleName());
+			DBCommandStatistics old = statistics.putIfAbsent(clazz, stats);
+			if (old != null) {
+				stats = old;
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * gets the number of waiting commands of a priority
+	 *
+	 * @param priority priority
+	 * @return number of waiting commands
+	 */
+	public synchronized int getPendingCount(DBCommandPriority priority) {
+		return queues.get(priority).size();
+	}
+
+	/**
+	 * @return number of log commands written to the spill file
+	 */
+	public long getSpilledCount() {
+		return spilled.get();
+	}
+
+	/**
+	 * @return number of log commands discarded because the queue was full
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	/**
+	 * @return maximum number of waiting commands
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return policy for log commands if the queue is full
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * gets the statistics of all command types seen so far
+	 *
+	 * @return list of statistics
+	 */
+	public List<DBCommandStatistics> getStatistics() {
+		return new ArrayList<DBCommandStatistics>(statistics.values());
+	}
+
+	/**
+	 * a waiting command
+	 */
+	static class Entry {
+		final DBCommand command;
+		final ResultHandle handle;
+		final DBCommandPriority priority;
+		final long enqueueNanos;
+		final Locale locale;
+		long sequence;
+
+		Entry(DBCommand command, ResultHandle handle, DBCommandPriority priority) {
+			this.command = command;
+			this.handle = handle;
+			this.priority = priority;
+			this.enqueueNanos = System.nanoTime();
+			this.locale = I18N.getLocale();
+		}
+	}
+
+	/**
+	 * a command waiting to be written to the spill file
+	 */
+	private static class Spill {
+		final String line;
+		final DBCommandStatistics stats;
+
+		Spill(String line, DBCommandStatistics stats) {
+			this.line = line;
+			this.stats = stats;
+		}
+	}
+
+	/**
+	 * Follows a command that cannot be wrapped, to tell the dispatcher when it
+	 * is done. marauroa executes commands in order.
+	 */
+	private static class ExecutedMarker extends AbstractDBCommand {
+		private final DBCommandDispatcher dispatcher;
+
+		ExecutedMarker(DBCommandDispatcher dispatcher) {
+			this.dispatcher = dispatcher;
+		}
+
+		@Override
+		public void execute(DBTransaction transaction) {
+			dispatcher.onExecuted();
+		}
+	}
+}
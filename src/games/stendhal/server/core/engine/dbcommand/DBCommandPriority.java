@@ -0,0 +1,28 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+/**
+ * Priority classes of database commands. Critical and normal commands are
+ * passed to the database in the order they were enqueued, before any waiting
+ * log commands.
+ */
+public enum DBCommandPriority {
+	/** reads the game is waiting for, for example on login */
+	CRITICAL,
+
+	/** writes of game state, like online status or postman messages */
+	NORMAL,
+
+	/** log entries, which may be spilled to a file on overflow */
+	LOG;
+}
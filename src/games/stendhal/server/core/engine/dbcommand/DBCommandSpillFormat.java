@@ -0,0 +1,137 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads and writes lines of the spill file. Each line holds the type of the
+ * command and its values, separated by tabs. Commands that end up in a table
+ * with a time column include the time of the event in their values, so that
+ * a replayed command does not get the time of the replay. Tabs, line breaks
+ * and backslashes in values are escaped and <code>null</code> is written as
+ * \N.
+ */
+final class DBCommandSpillFormat {
+
+	private DBCommandSpillFormat() {
+		// utility class
+	}
+
+	/**
+	 * converts a command into a line of the spill file
+	 *
+	 * @param command command
+	 * @return line without line break, or <code>null</code> if the command
+	 * 	cannot be spilled
+	 */
+	static String encode(SpillableDBCommand command) {
+		String[] fields = command.getSpillFields();
+		if (fields == null) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append(command.getSpillType());
+		for (String field : fields) {
+			sb.append('\t');
+			escape(sb, field);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * creates a command from a line of the spill file
+	 *
+	 * @param line line without line break
+	 * @return command
+	 * @throws IllegalArgumentException if the line cannot be read
+	 */
+	static SpillableDBCommand decode(String line) {
+		List<String> values = split(line);
+		String type = values.get(0);
+		String[] fields = values.subList(1, values.size()).toArray(new String[values.size() - 1]);
+		if (SpillableLogGameEventCommand.SPILL_TYPE.equals(type) && fields.length >= 3) {
+			return new SpillableLogGameEventCommand(Long.parseLong(fields[0]), fields[1], fields[2],
+					Arrays.copyOfRange(fields, 3, fields.length));
+		} else if (LogTradeEventCommand.SPILL_TYPE.equals(type) && fields.length == 7) {
+			return new LogTradeEventCommand(fields[0], fields[1], Integer.parseInt(fields[2]),
+					Integer.parseInt(fields[3]), Integer.parseInt(fields[4]), fields[5], Long.parseLong(fields[6]));
+		} else if (LogKillEventCommand.SPILL_TYPE.equals(type) && fields.length == 5) {
+			return new LogKillEventCommand(fields[0], fields[1], fields[2], fields[3], fields[4]);
+		}
+		throw new IllegalArgumentException("Unknown spilled command: " + line);
+	}
+
+	private static void escape(StringBuilder sb, String value) {
+		if (value == null) {
+			sb.append("\\N");
+			return;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+	}
+
+	private static List<String> split(String line) {
+		List<String> values = new ArrayList<String>();
+		StringBuilder sb = new StringBuilder();
+		boolean isNull = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '\t') {
+				values.add(isNull ? null : sb.toString());
+				sb.setLength(0);
+				isNull = false;
+			} else if (c == '\\' && i + 1 < line.length()) {
+				i++;
+				switch (line.charAt(i)) {
+				case 't':
+					sb.append('\t');
+					break;
+				case 'n':
+					sb.append('\n');
+					break;
+				case 'r':
+					sb.append('\r');
+					break;
+				case 'N':
+					isNull = true;
+					break;
+				default:
+					sb.append(line.charAt(i));
+				}
+			} else {
+				sb.append(c);
+			}
+		}
+		values.add(isNull ? null : sb.toString());
+		return values;
+	}
+}
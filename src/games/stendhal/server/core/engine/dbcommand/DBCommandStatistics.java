@@ -0,0 +1,149 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and latency counters for one type of database command.
+ */
+public class DBCommandStatistics {
+	private final String type;
+	private final AtomicLong enqueued = new AtomicLong();
+	private final AtomicLong forwarded = new AtomicLong();
+	private final AtomicLong executed = new AtomicLong();
+	private final AtomicLong spilled = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+	private final AtomicLong executionNanos = new AtomicLong();
+	private final AtomicLong maxExecutionNanos = new AtomicLong();
+
+	/**
+	 * creates a new DBCommandStatistics
+	 *
+	 * @param type name of the command type
+	 */
+	DBCommandStatistics(String type) {
+		this.type = type;
+	}
+
+	void onEnqueued() {
+		enqueued.incrementAndGet();
+	}
+
+	void onForwarded(long waitTime) {
+		forwarded.incrementAndGet();
+		waitNanos.addAndGet(waitTime);
+	}
+
+	void onExecuted(long executionTime) {
+		executed.incrementAndGet();
+		executionNanos.addAndGet(executionTime);
+		long max = maxExecutionNanos.get();
+		while (executionTime > max && !maxExecutionNanos.compareAndSet(max, executionTime)) {
+			max = maxExecutionNanos.get();
+		}
+	}
+
+	void onSpilled() {
+		spilled.incrementAndGet();
+	}
+
+	void onDropped() {
+		dropped.incrementAndGet();
+	}
+
+	/**
+	 * @return name of the command type
+	 */
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * @return number of commands that were enqueued
+	 */
+	public long getEnqueued() {
+		return enqueued.get();
+	}
+
+	/**
+	 * @return number of commands that were passed on to the database queue
+	 */
+	public long getForwarded() {
+		return forwarded.get();
+	}
+
+	/**
+	 * @return number of commands with measured execution time
+	 */
+	public long getExecuted() {
+		return executed.get();
+	}
+
+	/**
+	 * @return number of commands that were written to the spill file
+	 */
+	public long getSpilled() {
+		return spilled.get();
+	}
+
+	/**
+	 * @return number of commands that were discarded
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * @return total execution time in milliseconds
+	 */
+	public double getTotalExecutionMillis() {
+		return executionNanos.get() / 1000000.0;
+	}
+
+	/**
+	 * @return average time in milliseconds spent waiting in the dispatcher
+	 */
+	public double getAverageWaitMillis() {
+		long count = forwarded.get();
+		if (count == 0) {
+			return 0;
+		}
+		return waitNanos.get() / 1000000.0 / count;
+	}
+
+	/**
+	 * @return average execution time in milliseconds
+	 */
+	public double getAverageExecutionMillis() {
+		long count = executed.get();
+		if (count == 0) {
+			return 0;
+		}
+		return executionNanos.get() / 1000000.0 / count;
+	}
+
+	/**
+	 * @return longest execution time in milliseconds
+	 */
+	public double getMaxExecutionMillis() {
+		return maxExecutionNanos.get() / 1000000.0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: enqueued %d, executed %d, spilled %d, dropped %d, avg wait %.1f ms, avg exec %.1f ms, max exec %.1f ms",
+				type, getEnqueued(), getExecuted(), getSpilled(), getDropped(),
+				getAverageWaitMillis(), getAverageExecutionMillis(), getMaxExecutionMillis());
+	}
+}
@@ -12,6 +12,8 @@
 package games.stendhal.server.core.engine.dbcommand;
 
 import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 
 import games.stendhal.server.core.engine.db.StendhalKillLogDAO;
 import games.stendhal.server.entity.Entity;
@@ -25,11 +27,20 @@ import marauroa.server.game.db.DAORegister;
  *
  * @author hendrik
  */
-public class LogKillEventCommand extends AbstractDBCommand {
+public class LogKillEventCommand extends AbstractDBCommand implements SpillableDBCommand {
+	/** name of the command type in the spill file */
+	static final String SPILL_TYPE = "kill";
 
 	private Entity frozenKilled;
 	private Killer frozenKiller;
 
+	/** values of a command read from the spill file */
+	private String killedName;
+	private String killedType;
+	private String killerName;
+	private String killerType;
+	private String day;
+
 	/**
 	 * creates a new LogKillEventCommand
 	 *
@@ -41,10 +52,47 @@ public class LogKillEventCommand extends AbstractDBCommand {
 		this.frozenKiller = (Killer) killer.clone();
 	}
 
+	/**
+	 * creates a LogKillEventCommand from the values in the spill file
+	 *
+	 * @param killedName name of the killed entity
+	 * @param killedType type of the killed entity
+	 * @param killerName name of the killer
+	 * @param killerType type of the killer
+	 * @param day day of the kill
+	 */
+	LogKillEventCommand(String killedName, String killedType, String killerName, String killerType, String day) {
+		this.killedName = killedName;
+		this.killedType = killedType;
+		this.killerName = killerName;
+		this.killerType = killerType;
+		this.day = day;
+	}
+
 	@Override
 	public void execute(DBTransaction transaction) throws SQLException {
 		StendhalKillLogDAO killLog = DAORegister.get().get(StendhalKillLogDAO.class);
-		killLog.logKill(transaction, frozenKilled, frozenKiller);
+		if (frozenKilled != null) {
+			killLog.logKill(transaction, frozenKilled, frozenKiller);
+		} else {
+			killLog.logKill(transaction, killedName, killedType, killerName, killerType, day);
+		}
+	}
+
+	@Override
+	public String getSpillType() {
+		return SPILL_TYPE;
+	}
+
+	@Override
+	public String[] getSpillFields() {
+		if (frozenKilled == null) {
+			return new String[] {killedName, killedType, killerName, killerType, day};
+		}
+		StendhalKillLogDAO killLog = DAORegister.get().get(StendhalKillLogDAO.class);
+		return new String[] {frozenKilled.getName(), killLog.entityToType(frozenKilled),
+				frozenKiller.getName(), killLog.entityToType(frozenKiller),
+				new SimpleDateFormat("yyyy-MM-dd").format(new Date())};
 	}
 
 	/**
@@ -54,6 +102,9 @@ public class LogKillEventCommand extends AbstractDBCommand {
 	 */
 	@Override
 	public String toString() {
+		if (frozenKilled == null) {
+			return "LogKillEventCommand [killed=" + killedName + ", killer=" + killerName + "]";
+		}
 		return "LogKillEventCommand [frozenKilled=" + frozenKilled
 				+ ", frozenKiller=" + frozenKiller + "]";
 	}
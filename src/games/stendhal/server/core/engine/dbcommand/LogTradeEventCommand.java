@@ -13,6 +13,7 @@ package games.stendhal.server.core.engine.dbcommand;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 
 import games.stendhal.server.core.engine.db.StendhalItemDAO;
 import games.stendhal.server.core.engine.db.StendhalWebsiteDAO;
@@ -27,11 +28,21 @@ import marauroa.server.game.db.DAORegister;
  *
  * @author hendrik
  */
-public class LogTradeEventCommand extends AbstractDBCommand {
+public class LogTradeEventCommand extends AbstractDBCommand implements SpillableDBCommand {
+	/** name of the command type in the spill file */
+	static final String SPILL_TYPE = "trade";
+
 	private String charname;
 	private Item item;
 	private int quantity;
 	private int price;
+	/** time of the trade in milliseconds */
+	private long time;
+
+	/** values of a command read from the spill file */
+	private String itemname;
+	private int itemid;
+	private String stats;
 
 	/**
 	 * logs a trade event
@@ -46,21 +57,72 @@ public class LogTradeEventCommand extends AbstractDBCommand {
 		this.item = item;
 		this.quantity = quantity;
 		this.price = price;
+		this.time = System.currentTimeMillis();
+	}
+
+	/**
+	 * creates a LogTradeEventCommand from the values in the spill file
+	 *
+	 * @param charname name of the character
+	 * @param itemname name of the item
+	 * @param itemid log id of the item
+	 * @param quantity quantity
+	 * @param price price
+	 * @param stats stats of the item
+	 * @param time time of the trade in milliseconds
+	 */
+	LogTradeEventCommand(String charname, String itemname, int itemid, int quantity, int price, String stats, long time) {
+		this.charname = charname;
+		this.itemname = itemname;
+		this.itemid = itemid;
+		this.quantity = quantity;
+		this.price = price;
+		this.stats = stats;
+		this.time = time;
 	}
 
 	@Override
 	public void execute(DBTransaction transaction) throws SQLException, IOException {
+		StendhalWebsiteDAO stendhalWebsiteDao = DAORegister.get().get(StendhalWebsiteDAO.class);
+		if (item == null) {
+			stendhalWebsiteDao.logTradeEvent(transaction, charname, itemname, itemid, quantity, price, stats, new Timestamp(time));
+			return;
+		}
 		StendhalItemDAO stendhalItemDao = DAORegister.get().get(StendhalItemDAO.class);
 		stendhalItemDao.itemLogAssignIDIfNotPresent(transaction, item);
+		stendhalWebsiteDao.logTradeEvent(transaction, charname, item.getName(), item.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), quantity, price, getStats(item));
+	}
 
-		StendhalWebsiteDAO stendhalWebsiteDao = DAORegister.get().get(StendhalWebsiteDAO.class);
+	private static String getStats(Item item) {
 		String description = item.describe();
-		String stats = "";
 		int start = description.indexOf("Stats are (");
-		if(start > -1) {
-			stats = description.substring(start);
+		if (start > -1) {
+			return description.substring(start);
 		}
-		stendhalWebsiteDao.logTradeEvent(transaction, charname, item.getName(), item.getInt(StendhalItemDAO.ATTR_ITEM_LOGID), quantity, price, stats);
+		return "";
+	}
+
+	@Override
+	public String getSpillType() {
+		return SPILL_TYPE;
 	}
 
+	/**
+	 * gets the values for the spill file. Items without a log id cannot be
+	 * spilled, because the id is assigned in the database.
+	 *
+	 * @return values or <code>null</code>
+	 */
+	@Override
+	public String[] getSpillFields() {
+		if (item == null) {
+			return new String[] {charname, itemname, Integer.toString(itemid), Integer.toString(quantity),
+					Integer.toString(price), stats, Long.toString(time)};
+		}
+		if (!item.has(StendhalItemDAO.ATTR_ITEM_LOGID)) {
+			return null;
+		}
+		return new String[] {charname, item.getName(), item.get(StendhalItemDAO.ATTR_ITEM_LOGID),
+				Integer.toString(quantity), Integer.toString(price), getStats(item), Long.toString(time)};
+	}
 }
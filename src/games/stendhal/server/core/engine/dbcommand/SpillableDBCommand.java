@@ -0,0 +1,36 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import marauroa.server.db.command.DBCommand;
+
+/**
+ * A log command that can be written to the spill file of the
+ * {@link DBCommandDispatcher} and executed later from there.
+ */
+public interface SpillableDBCommand extends DBCommand {
+
+	/**
+	 * gets the name of the command type in the spill file
+	 *
+	 * @return type name
+	 */
+	String getSpillType();
+
+	/**
+	 * gets the values needed to create the command again. This is called on
+	 * the thread that enqueued the command.
+	 *
+	 * @return values, or <code>null</code> if the command cannot be spilled
+	 */
+	String[] getSpillFields();
+}
@@ -0,0 +1,93 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import games.stendhal.server.core.engine.db.StendhalGameEventDAO;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.game.db.DAORegister;
+import marauroa.server.game.dbcommand.LogGameEventCommand;
+
+/**
+ * logs a game event, and can be written to the spill file
+ */
+public class SpillableLogGameEventCommand extends LogGameEventCommand implements SpillableDBCommand {
+	/** name of the command type in the spill file */
+	static final String SPILL_TYPE = "gameevent";
+
+	private final String source;
+	private final String event;
+	private final String[] params;
+	/** time of the event in milliseconds */
+	private final long time;
+	/** <code>true</code> if the command was read from the spill file */
+	private final boolean replayed;
+
+	/**
+	 * creates a new SpillableLogGameEventCommand
+	 *
+	 * @param source source of the event, usually a character
+	 * @param event name of event
+	 * @param params parameters
+	 */
+	public SpillableLogGameEventCommand(String source, String event, String... params) {
+		this(System.currentTimeMillis(), false, source, event, params);
+	}
+
+	/**
+	 * creates a SpillableLogGameEventCommand from the values in the spill file
+	 *
+	 * @param time time of the event in milliseconds
+	 * @param source source of the event, usually a character
+	 * @param event name of event
+	 * @param params parameters
+	 */
+	SpillableLogGameEventCommand(long time, String source, String event, String... params) {
+		this(time, true, source, event, params);
+	}
+
+	private SpillableLogGameEventCommand(long time, boolean replayed, String source, String event, String... params) {
+		super(source, event, params);
+		this.time = time;
+		this.replayed = replayed;
+		this.source = source;
+		this.event = event;
+		this.params = params.clone();
+	}
+
+	@Override
+	public void execute(DBTransaction transaction) throws SQLException {
+		if (!replayed) {
+			super.execute(transaction);
+			return;
+		}
+		StendhalGameEventDAO dao = DAORegister.get().get(StendhalGameEventDAO.class);
+		dao.addGameEvent(transaction, new Timestamp(time), source, event, params);
+	}
+
+	@Override
+	public String getSpillType() {
+		return SPILL_TYPE;
+	}
+
+	@Override
+	public String[] getSpillFields() {
+		String[] fields = new String[params.length + 3];
+		fields[0] = Long.toString(time);
+		fields[1] = source;
+		fields[2] = event;
+		System.arraycopy(params, 0, fields, 3, params.length);
+		return fields;
+	}
+}
@@ -0,0 +1,79 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.command.DBCommand;
+
+/**
+ * Measures the execution time of a wrapped command and tells the dispatcher
+ * when it is done. Only used for commands without awaited results, because
+ * results are looked up by command class.
+ */
+class TimedDBCommand implements DBCommand {
+	private final DBCommand command;
+	private final DBCommandStatistics statistics;
+	private final DBCommandDispatcher dispatcher;
+
+	/**
+	 * creates a new TimedDBCommand
+	 *
+	 * @param command wrapped command
+	 * @param statistics statistics of the command type
+	 * @param dispatcher dispatcher that forwarded the command
+	 */
+	TimedDBCommand(DBCommand command, DBCommandStatistics statistics, DBCommandDispatcher dispatcher) {
+		this.command = command;
+		this.statistics = statistics;
+		this.dispatcher = dispatcher;
+	}
+
+	@Override
+	public void execute(DBTransaction transaction) throws SQLException, IOException {
+		long start = System.nanoTime();
+		try {
+			command.execute(transaction);
+		} finally {
+			statistics.onExecuted(System.nanoTime() - start);
+			dispatcher.onExecuted();
+		}
+	}
+
+	@Override
+	public Exception getException() {
+		return command.getException();
+	}
+
+	@Override
+	public void setException(Exception exception) {
+		command.setException(exception);
+	}
+
+	@Override
+	public Timestamp getEnqueueTime() {
+		return command.getEnqueueTime();
+	}
+
+	@Override
+	public void setEnqueueTime(Timestamp enqueueTime) {
+		command.setEnqueueTime(enqueueTime);
+	}
+
+	@Override
+	public String toString() {
+		return command.toString();
+	}
+}
@@ -0,0 +1,51 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Set;
+
+import games.stendhal.server.core.engine.db.StendhalSearchIndexDAO;
+import games.stendhal.server.core.rp.searchindex.SearchIndexEntry;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.command.AbstractDBCommand;
+import marauroa.server.game.db.DAORegister;
+
+/**
+ * applies changes to the search index
+ */
+public class UpdateSearchIndexChangesCommand extends AbstractDBCommand {
+	private final Set<SearchIndexEntry> toAdd;
+	private final Set<SearchIndexEntry> toDelete;
+
+	/**
+	 * creates a new UpdateSearchIndexChangesCommand
+	 *
+	 * @param toAdd new entries
+	 * @param toDelete obsolete entries
+	 */
+	public UpdateSearchIndexChangesCommand(Set<SearchIndexEntry> toAdd, Set<SearchIndexEntry> toDelete) {
+		this.toAdd = toAdd;
+		this.toDelete = toDelete;
+	}
+
+	@Override
+	public void execute(DBTransaction transaction) throws SQLException, IOException {
+		DAORegister.get().get(StendhalSearchIndexDAO.class).updateSearchIndex(transaction, toAdd, toDelete);
+	}
+
+	@Override
+	public String toString() {
+		return "UpdateSearchIndexChangesCommand [added=" + toAdd.size() + ", deleted=" + toDelete.size() + "]";
+	}
+}
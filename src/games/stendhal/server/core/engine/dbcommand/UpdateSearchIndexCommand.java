@@ -32,12 +32,33 @@ import marauroa.server.game.db.DAORegister;
 public class UpdateSearchIndexCommand extends AbstractDBCommand {
 	private static Logger logger = Logger.getLogger(UpdateSearchIndexCommand.class);
 
+	private final Set<SearchIndexEntry> index;
+
+	/**
+	 * creates a command which generates the index while it is executed
+	 */
+	public UpdateSearchIndexCommand() {
+		this(null);
+	}
+
+	/**
+	 * creates a command which stores an index
+	 *
+	 * @param index generated search index
+	 */
+	public UpdateSearchIndexCommand(Set<SearchIndexEntry> index) {
+		this.index = index;
+	}
+
 	@Override
 	public void execute(DBTransaction transaction) throws SQLException, IOException {
 		long start = System.currentTimeMillis();
 
-		SearchIndexManager manager = new SearchIndexManager();
-		Set<SearchIndexEntry> index = manager.generateIndex();
+		Set<SearchIndexEntry> index = this.index;
+		if (index == null) {
+			SearchIndexManager manager = new SearchIndexManager();
+			index = manager.generateIndex();
+		}
 
 		StendhalSearchIndexDAO dao = DAORegister.get().get(StendhalSearchIndexDAO.class);
 		dao.updateSearchIndex(transaction, index);
@@ -35,6 +35,7 @@ import games.stendhal.server.entity.creature.Pet;
 import games.stendhal.server.entity.creature.Sheep;
 import games.stendhal.server.entity.item.Item;
 import games.stendhal.server.entity.item.SlotActivatedItem;
+import games.stendhal.server.entity.player.CharacterSchema;
 import games.stendhal.server.entity.player.Player;
 import games.stendhal.server.entity.player.UpdateConverter;
 import games.stendhal.server.entity.slot.BankSlot;
@@ -63,8 +64,10 @@ public class PlayerTransformer implements Transformer {
 
 		removeVolatile(object);
 
-		// add attributes and slots
-		UpdateConverter.updatePlayerRPObject(object);
+		// add attributes and slots, if the character was stored by an
+		// older version
+		CharacterSchema.migrateObject(object);
+		UpdateConverter.ensurePositiveHP(object);
 
 		final Player player = new Player(object);
 		player.stop();
@@ -74,24 +77,12 @@ public class PlayerTransformer implements Transformer {
 		loadSpellsIntoSlots(player);
 		player.cancelTradeInternally(null);
 
-		// buddy handling with maps
-		if(player.hasBuddies()) {
-			for(String buddyName : player.getBuddies()) {
-				final Player buddy = SingletonRepository.getRuleProcessor().getPlayer(buddyName);
-				if ((buddy != null) && !buddy.isGhost()) {
-					player.setBuddyOnlineStatus(buddyName, true);
-				} else {
-					player.setBuddyOnlineStatus(buddyName, false);
-				}
-			}
-		}
-
 		convertOldfeaturesList(player);
 
 		player.updateItemAtkDef();
 		StendhalQuestSystem.updatePlayerQuests(player);
 
-		UpdateConverter.updateQuests(player);
+		CharacterSchema.migratePlayer(player);
 		// Should be at least after converting the features list, as this
 		// depends on checking the keyring feature.
 
@@ -0,0 +1,28 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.events;
+
+/**
+ * Work that is not urgent and can be spread over several turns. It is run
+ * by the DeferredWorkQueue in slices, using the time which is left at the
+ * end of a turn.
+ */
+public interface DeferredTask {
+	/**
+	 * Does the next part of the work. A slice should only take a few
+	 * milliseconds and it may use the game state.
+	 *
+	 * @return <code>true</code> if the task is complete, <code>false</code>
+	 *         if there are more slices to run
+	 */
+	boolean runSlice();
+}
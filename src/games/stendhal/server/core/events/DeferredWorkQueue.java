@@ -0,0 +1,293 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.events;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.core.engine.StendhalRPWorld;
+import games.stendhal.server.core.metrics.MetricsRegistry;
+import marauroa.common.Configuration;
+
+/**
+ * Runs work that is not urgent with the time that is left at the end of a
+ * turn, so that it does not make busy turns even longer.
+ * <p>
+ * Tasks are run in slices, taking turns with each other, until
+ * deferred_turn_budget milliseconds (default 200) after the start of the
+ * turn have passed. Tasks added during a turn get their first slice at the
+ * end of that turn. Tasks added by a running slice wait for the next turn, so
+ * that a task cannot keep the queue busy by adding new ones. A task
+ * which is not complete after deferred_report_turns turns (default 100) is
+ * reported in the log once and from then on gets one slice every turn, even
+ * if the turn is out of time, so that it cannot starve.
+ * <p>
+ * Work which does not touch the game state can be added as detached work.
+ * It is run by deferred_worker_threads background threads (default 1).
+ */
+public class DeferredWorkQueue {
+	private static Logger logger = Logger.getLogger(DeferredWorkQueue.class);
+
+	private static final int DEFAULT_TURN_BUDGET = StendhalRPWorld.MILLISECONDS_PER_TURN * 2 / 3;
+	private static final int DEFAULT_REPORT_TURNS = 100;
+	private static final int DEFAULT_WORKER_THREADS = 1;
+
+	private static DeferredWorkQueue instance;
+
+	private final long turnBudgetNanos;
+	private final int reportTurns;
+	private final int workerThreads;
+
+	/** tasks added since the last run, they may come from any thread */
+	private final Queue<Entry> incoming = new ConcurrentLinkedQueue<Entry>();
+	/** tasks in the order they get their next slice */
+	private final Deque<Entry> tasks = new ArrayDeque<Entry>();
+	/** detached work that has not completed yet */
+	private final List<Entry> detached = new ArrayList<Entry>();
+
+	private ExecutorService workers;
+	private int currentTurn;
+
+	/**
+	 * A task with the information needed to report it.
+	 */
+	private static class Entry {
+		private final String name;
+		private final DeferredTask task;
+		private int addedTurn = -1;
+		private volatile boolean done;
+		private boolean reported;
+
+		Entry(String name, DeferredTask task) {
+			this.name = name;
+			this.task = task;
+		}
+	}
+
+	/**
+	 * gets the singleton instance
+	 *
+	 * @return DeferredWorkQueue
+	 */
+	public static synchronized DeferredWorkQueue get() {
+		if (instance == null) {
+			instance = createFromConfiguration();
+		}
+		return instance;
+	}
+
+	private static DeferredWorkQueue createFromConfiguration() {
+		int turnBudget = DEFAULT_TURN_BUDGET;
+		int reportTurns = DEFAULT_REPORT_TURNS;
+		int workerThreads = DEFAULT_WORKER_THREADS;
+		try {
+			Configuration config = Configuration.getConfiguration();
+			turnBudget = config.getInt("deferred_turn_budget", DEFAULT_TURN_BUDGET);
+			reportTurns = config.getInt("deferred_report_turns", DEFAULT_REPORT_TURNS);
+			workerThreads = config.getInt("deferred_worker_threads", DEFAULT_WORKER_THREADS);
+		} catch (IOException e) {
+			logger.error(e, e);
+		} catch (NumberFormatException e) {
+			logger.error("Invalid deferred work configuration, using defaults", e);
+		}
+		return new DeferredWorkQueue(turnBudget, reportTurns, workerThreads);
+	}
+
+	/**
+	 * creates a new DeferredWorkQueue
+	 *
+	 * @param turnBudget milliseconds after the start of a turn until which
+	 *            tasks may run
+	 * @param reportTurns turns after which incomplete tasks are reported
+	 * @param workerThreads number of threads for detached work
+	 */
+	DeferredWorkQueue(int turnBudget, int reportTurns, int workerThreads) {
+		this.turnBudgetNanos = Math.max(0, turnBudget) * 1000000L;
+		this.reportTurns = Math.max(1, reportTurns);
+		this.workerThreads = Math.max(1, workerThreads);
+	}
+
+	/**
+	 * adds a task which is run in slices on the turn thread
+	 *
+	 * @param name name of the task for reporting
+	 * @param task task
+	 */
+	public void add(String name, DeferredTask task) {
+		incoming.add(new Entry(name, task));
+	}
+
+	/**
+	 * adds work which does not need the game state and is run on a
+	 * background thread. Results have to be passed back with
+	 * {@link #add(String, DeferredTask)} or another thread safe way.
+	 *
+	 * @param name name of the work for reporting
+	 * @param work work
+	 */
+	public void addDetached(String name, final Runnable work) {
+		final Entry entry = new Entry(name, null);
+		synchronized (detached) {
+			detached.add(entry);
+		}
+		getWorkers().execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					work.run();
+				} catch (RuntimeException e) {
+					logger.error("Error in detached work " + entry.name, e);
+				} finally {
+					entry.done = true;
+				}
+			}
+		});
+	}
+
+	private synchronized ExecutorService getWorkers() {
+		if (workers == null) {
+			workers = Executors.newFixedThreadPool(workerThreads, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "Deferred work");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.NORM_PRIORITY - 1);
+					return thread;
+				}
+			});
+		}
+		return workers;
+	}
+
+	/**
+	 * runs deferred tasks at the end of a turn
+	 *
+	 * @param turn current turn
+	 * @param turnStart value of System.nanoTime() at the start of the turn
+	 */
+	public void onTurnEnded(int turn, long turnStart) {
+		runPending(turn, turnStart + turnBudgetNanos);
+	}
+
+	/**
+	 * runs slices of the pending tasks until the deadline is reached. Tasks
+	 * added while this runs are left for the next call.
+	 *
+	 * @param turn current turn
+	 * @param deadline value of System.nanoTime() after which no slices are started
+	 */
+	void runPending(int turn, long deadline) {
+		currentTurn = turn;
+		Entry entry = incoming.poll();
+		while (entry != null) {
+			entry.addedTurn = turn;
+			tasks.add(entry);
+			entry = incoming.poll();
+		}
+
+		// overdue tasks get one slice in any case
+		int count = tasks.size();
+		for (int i = 0; i < count; i++) {
+			entry = tasks.poll();
+			if (checkOverdue(entry)) {
+				runSlice(entry);
+			} else {
+				tasks.add(entry);
+			}
+		}
+
+		while (!tasks.isEmpty() && (System.nanoTime() - deadline < 0)) {
+			runSlice(tasks.poll());
+		}
+
+		synchronized (detached) {
+			Iterator<Entry> itr = detached.iterator();
+			while (itr.hasNext()) {
+				entry = itr.next();
+				if (entry.done) {
+					itr.remove();
+				} else {
+					if (entry.addedTurn < 0) {
+						entry.addedTurn = turn;
+					}
+					checkOverdue(entry);
+				}
+			}
+		}
+
+		MetricsRegistry.get().gauge("stendhal_deferred_tasks", "Deferred tasks that are not complete")
+			.set(getPendingCount());
+	}
+
+	/**
+	 * runs a slice of a task and queues it again if it is not complete
+	 *
+	 * @param entry task
+	 */
+	private void runSlice(Entry entry) {
+		try {
+			entry.done = entry.task.runSlice();
+		} catch (RuntimeException e) {
+			logger.error("Error in deferred task " + entry.name + ", dropping it", e);
+			entry.done = true;
+		}
+		if (!entry.done) {
+			tasks.add(entry);
+		}
+	}
+
+	/**
+	 * checks if a task has taken too long and reports it once
+	 *
+	 * @param entry task
+	 * @return <code>true</code> if the task is overdue
+	 */
+	private boolean checkOverdue(Entry entry) {
+		if (currentTurn - entry.addedTurn < reportTurns) {
+			return false;
+		}
+		if (!entry.reported) {
+			entry.reported = true;
+			logger.warn("Deferred task " + entry.name + " is not complete after "
+					+ (currentTurn - entry.addedTurn) + " turns");
+			MetricsRegistry.get().counter("stendhal_deferred_tasks_overdue_total",
+					"Deferred tasks which were not complete in time").inc();
+		}
+		return true;
+	}
+
+	/**
+	 * gets the number of tasks that are not complete
+	 *
+	 * @return number of tasks, including detached work
+	 */
+	public int getPendingCount() {
+		return tasks.size() + incoming.size() + getDetachedCount();
+	}
+
+	private int getDetachedCount() {
+		synchronized (detached) {
+			return detached.size();
+		}
+	}
+}
@@ -5,9 +5,9 @@ package games.stendhal.server.core.events;
 
 import games.stendhal.common.NotificationType;
 import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.engine.dbcommand.StoreMessageCommand;
 import games.stendhal.server.entity.player.Player;
-import marauroa.server.db.command.DBCommandQueue;
 
 /**
  * Sends a private message to a player after a short delay, and if they weren't online, uses postman
@@ -38,7 +38,7 @@ public class GuaranteedDelayedPlayerTextSender extends DelayedPlayerTextSender {
 		if (playerNow != null) {
 			playerNow.sendPrivateText(NotificationType.PRIVMSG, source + " tells you:\n" + message);
 		} else {
-			DBCommandQueue.get().enqueue(new StoreMessageCommand(source, playername, message, "N"));
+			DBCommandDispatcher.get().enqueue(new StoreMessageCommand(source, playername, message, "N"));
 		}
 	}
 }
@@ -250,6 +250,21 @@ public final class TurnNotifier {
 		return (getRemainingTurns(turnListener) * StendhalRPWorld.MILLISECONDS_PER_TURN) / 1000;
 	}
 
+	/**
+	 * Gets the number of listeners waiting to be notified.
+	 *
+	 * @return number of registered listeners
+	 */
+	public int getNumberOfListeners() {
+		int count = 0;
+		synchronized (sync) {
+			for (final Set<TurnListener> set : register.values()) {
+				count += set.size();
+			}
+		}
+		return count;
+	}
+
 	/**
 	 * Returns the list of events. Note this is only for debugging the
 	 * TurnNotifier
@@ -0,0 +1,44 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * a monotonically increasing counter
+ */
+public class Counter {
+	private final LongAdder value = new LongAdder();
+
+	/**
+	 * increments the counter by one
+	 */
+	public void inc() {
+		value.increment();
+	}
+
+	/**
+	 * increments the counter
+	 *
+	 * @param amount amount to add, must not be negative
+	 */
+	public void inc(long amount) {
+		value.add(amount);
+	}
+
+	/**
+	 * @return current value
+	 */
+	public long get() {
+		return value.sum();
+	}
+}
@@ -0,0 +1,35 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.metrics;
+
+/**
+ * a value that can go up and down
+ */
+public class Gauge {
+	private volatile double value;
+
+	/**
+	 * sets the value
+	 *
+	 * @param value new value
+	 */
+	public void set(double value) {
+		this.value = value;
+	}
+
+	/**
+	 * @return current value
+	 */
+	public double get() {
+		return value;
+	}
+}
@@ -0,0 +1,96 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.metrics;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * counts observations in cumulative buckets
+ */
+public class Histogram {
+	private final double[] bounds;
+	private final LongAdder[] buckets;
+	private final LongAdder count = new LongAdder();
+	private final DoubleAdder sum = new DoubleAdder();
+
+	/**
+	 * creates a new Histogram
+	 *
+	 * @param bounds upper bounds of the buckets in ascending order
+	 */
+	public Histogram(double... bounds) {
+		this.bounds = bounds.clone();
+		this.buckets = new LongAdder[bounds.length];
+		for (int i = 0; i < bounds.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * records an observation
+	 *
+	 * @param value observed value
+	 */
+	public void observe(double value) {
+		for (int i = 0; i < bounds.length; i++) {
+			if (value <= bounds[i]) {
+				buckets[i].increment();
+				break;
+			}
+		}
+		count.increment();
+		sum.add(value);
+	}
+
+	/**
+	 * records a duration in seconds
+	 *
+	 * @param nanos duration in nanoseconds
+	 */
+	public void observeNanos(long nanos) {
+		observe(nanos / 1000000000.0);
+	}
+
+	double[] getBounds() {
+		return bounds;
+	}
+
+	/**
+	 * gets the cumulative counts of the buckets
+	 *
+	 * @return number of observations less than or equal to each bound
+	 */
+	long[] getCumulativeCounts() {
+		long[] res = new long[bounds.length];
+		long total = 0;
+		for (int i = 0; i < bounds.length; i++) {
+			total += buckets[i].sum();
+			res[i] = total;
+		}
+		return res;
+	}
+
+	/**
+	 * @return number of observations
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return sum of all observations
+	 */
+	public double getSum() {
+		return sum.sum();
+	}
+}
@@ -0,0 +1,307 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps counters, gauges and histograms and writes them in the Prometheus
+ * text exposition format.
+ * <p>
+ * Metrics may be updated from any thread. Values which have to be read on
+ * the game thread should be sampled there and stored in gauges; collectors
+ * added with {@link #addCollector(Runnable)} run on the thread which writes
+ * the metrics.
+ */
+public class MetricsRegistry {
+	private static Logger logger = Logger.getLogger(MetricsRegistry.class);
+
+	private static final MetricsRegistry instance = new MetricsRegistry();
+
+	private enum Type {
+		COUNTER, GAUGE, HISTOGRAM;
+	}
+
+	private final ConcurrentMap<String, Family> families = new ConcurrentHashMap<String, Family>();
+	private final List<Runnable> collectors = new CopyOnWriteArrayList<Runnable>();
+
+	/**
+	 * creates a new MetricsRegistry, use {@link #get()} outside of tests
+	 */
+	MetricsRegistry() {
+		// singleton
+	}
+
+	/**
+	 * gets the singleton instance
+	 *
+	 * @return MetricsRegistry
+	 */
+	public static MetricsRegistry get() {
+		return instance;
+	}
+
+	/**
+	 * gets or creates a counter
+	 *
+	 * @param name name of metric
+	 * @param help description
+	 * @return Counter
+	 */
+	public Counter counter(String name, String help) {
+		return counter(name, help, null, null);
+	}
+
+	/**
+	 * gets or creates a labeled counter
+	 *
+	 * @param name name of metric
+	 * @param help description
+	 * @param label name of label
+	 * @param value value of label
+	 * @return Counter
+	 */
+	public Counter counter(String name, String help, String label, String value) {
+		Family family = family(name, help, Type.COUNTER, label);
+		Object metric = family.metrics.get(key(value));
+		if (metric == null) {
+			metric = family.add(key(value), new Counter());
+		}
+		return (Counter) metric;
+	}
+
+	/**
+	 * gets or creates a gauge
+	 *
+	 * @param name name of metric
+	 * @param help description
+	 * @return Gauge
+	 */
+	public Gauge gauge(String name, String help) {
+		return gauge(name, help, null, null);
+	}
+
+	/**
+	 * gets or creates a labeled gauge
+	 *
+	 * @param name name of metric
+	 * @param help description
+	 * @param label name of label
+	 * @param value value of label
+	 * @return Gauge
+	 */
+	public Gauge gauge(String name, String help, String label, String value) {
+		Family family = family(name, help, Type.GAUGE, label);
+		Object metric = family.metrics.get(key(value));
+		if (metric == null) {
+			metric = family.add(key(value), new Gauge());
+		}
+		return (Gauge) metric;
+	}
+
+	/**
+	 * replaces all values of a labeled gauge, dropping labels which are not
+	 * part of the new values
+	 *
+	 * @param name name of metric
+	 * @param help description
+	 * @param label name of label
+	 * @param values label value to gauge value
+	 */
+	public void setGauges(String name, String help, String label, Map<String, ? extends Number> values) {
+		Family family = family(name, help, Type.GAUGE, label);
+		ConcurrentMap<String, Object> metrics = new ConcurrentHashMap<String, Object>();
+		for (Map.Entry<String, ? extends Number> entry : values.entrySet()) {
+			Gauge gauge = new Gauge();
+			gauge.set(entry.getValue().doubleValue());
+			metrics.put(entry.getKey(), gauge);
+		}
+		family.metrics = metrics;
+	}
+
+	/**
+	 * gets or creates a histogram
+	 *
+	 * @param name name of metric
+	 * @param help description
+	 * @param bounds upper bounds of the buckets in ascending order
+	 * @return Histogram
+	 */
+	public Histogram histogram(String name, String help, double... bounds) {
+		return histogram(name, help, null, null, bounds);
+	}
+
+	/**
+	 * gets or creates a labeled histogram
+	 *
+	 * @param name name of metric
+	 * @param help description
+	 * @param label name of label
+	 * @param value value of label
+	 * @param bounds upper bounds of the buckets in ascending order
+	 * @return Histogram
+	 */
+	public Histogram histogram(String name, String help, String label, String value, double... bounds) {
+		Family family = family(name, help, Type.HISTOGRAM, label);
+		Object metric = family.metrics.get(key(value));
+		if (metric == null) {
+			metric = family.add(key(value), new Histogram(bounds));
+		}
+		return (Histogram) metric;
+	}
+
+	/**
+	 * adds a collector, which updates metrics right before they are written
+	 *
+	 * @param collector collector
+	 */
+	public void addCollector(Runnable collector) {
+		collectors.add(collector);
+	}
+
+	/**
+	 * writes all metrics in the Prometheus text format
+	 *
+	 * @param out Writer
+	 * @throws IOException in case of an input/output error
+	 */
+	public void write(Writer out) throws IOException {
+		for (Runnable collector : collectors) {
+			try {
+				collector.run();
+			} catch (RuntimeException e) {
+				logger.error("Error in metrics collector " + collector, e);
+			}
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (Family family : new TreeMap<String, Family>(families).values()) {
+			family.write(sb);
+		}
+		out.write(sb.toString());
+	}
+
+	private Family family(String name, String help, Type type, String label) {
+		Family family = families.get(name);
+		if (family == null) {
+			Family created = new Family(name, help, type, label);
+			family = families.putIfAbsent(name, created);
+			if (family == null) {
+				family = created;
+			}
+		}
+		if (family.type != type) {
+			throw new IllegalArgumentException("Metric " + name + " is a " + family.type);
+		}
+		return family;
+	}
+
+	private static String key(String labelValue) {
+		if (labelValue == null) {
+			return "";
+		}
+		return labelValue;
+	}
+
+	/**
+	 * all metrics with the same name
+	 */
+	private static class Family {
+		private final String name;
+		private final String help;
+		private final Type type;
+		private final String label;
+		private volatile ConcurrentMap<String, Object> metrics = new ConcurrentHashMap<String, Object>();
+
+		Family(String name, String help, Type type, String label) {
+			this.name = name;
+			this.help = help;
+			this.type = type;
+			this.label = label;
+		}
+
+		Object add(String key, Object metric) {
+			Object old = metrics.putIfAbsent(key, metric);
+			if (old != null) {
+				return old;
+			}
+			return metric;
+		}
+
+		void write(StringBuilder sb) {
+			sb.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+			sb.append("# TYPE ").append(name).append(' ').append(type.name().toLowerCase(Locale.ENGLISH)).append('\n');
+			for (Map.Entry<String, Object> entry : new TreeMap<String, Object>(metrics).entrySet()) {
+				String labels = "";
+				if (label != null) {
+					labels = label + "=\"" + escape(entry.getKey()) + "\"";
+				}
+				Object metric = entry.getValue();
+				if (metric instanceof Counter) {
+					sample(sb, name, labels, ((Counter) metric).get());
+				} else if (metric instanceof Gauge) {
+					sample(sb, name, labels, ((Gauge) metric).get());
+				} else {
+					writeHistogram(sb, labels, (Histogram) metric);
+				}
+			}
+		}
+
+		private void writeHistogram(StringBuilder sb, String labels, Histogram histogram) {
+			String prefix = labels;
+			if (!prefix.isEmpty()) {
+				prefix = prefix + ",";
+			}
+			double[] bounds = histogram.getBounds();
+			long[] counts = histogram.getCumulativeCounts();
+			long count = histogram.getCount();
+			for (int i = 0; i < bounds.length; i++) {
+				sample(sb, name + "_bucket", prefix + "le=\"" + format(bounds[i]) + "\"", counts[i]);
+			}
+			if (counts.length > 0) {
+				count = Math.max(count, counts[counts.length - 1]);
+			}
+			sample(sb, name + "_bucket", prefix + "le=\"+Inf\"", count);
+			sample(sb, name + "_sum", labels, histogram.getSum());
+			sample(sb, name + "_count", labels, count);
+		}
+
+		private static void sample(StringBuilder sb, String name, String labels, double value) {
+			sb.append(name);
+			if (!labels.isEmpty()) {
+				sb.append('{').append(labels).append('}');
+			}
+			sb.append(' ').append(format(value)).append('\n');
+		}
+
+		private static String format(double value) {
+			if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+				return Long.toString((long) value);
+			}
+			return Double.toString(value);
+		}
+
+		private static String escape(String value) {
+			return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+		}
+	}
+}
@@ -0,0 +1,52 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.metrics;
+
+import org.apache.log4j.Logger;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * a small embedded web server for the metrics endpoint
+ */
+class MetricsServer {
+	private static Logger logger = Logger.getLogger(MetricsServer.class);
+
+	/**
+	 * starts the web server
+	 *
+	 * @param host address to listen on
+	 * @param port port to listen on
+	 * @throws Exception in case the server cannot be started
+	 */
+	static void start(String host, int port) throws Exception {
+		QueuedThreadPool threadPool = new QueuedThreadPool(16, 1);
+		threadPool.setName("metrics");
+		threadPool.setDaemon(true);
+		Server server = new Server(threadPool);
+
+		ServerConnector connector = new ServerConnector(server);
+		connector.setHost(host);
+		connector.setPort(port);
+		server.addConnector(connector);
+
+		ServletContextHandler context = new ServletContextHandler();
+		context.addServlet(new ServletHolder(new MetricsServlet()), "/metrics");
+		server.setHandler(context);
+
+		server.start();
+		logger.info("Serving metrics on http://" + host + ":" + port + "/metrics");
+	}
+}
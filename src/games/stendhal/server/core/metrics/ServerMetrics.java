@@ -0,0 +1,204 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.metrics;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
+import games.stendhal.server.core.engine.dbcommand.DBCommandPriority;
+import games.stendhal.server.core.events.TurnNotifier;
+import marauroa.common.Configuration;
+import marauroa.common.game.IRPZone;
+import marauroa.server.db.command.DBCommandQueue;
+
+/**
+ * Metrics of the game server.
+ * <p>
+ * The metrics endpoint is disabled by default. It is enabled by setting
+ * metrics_port in server.ini; metrics_host defaults to 127.0.0.1, so that
+ * the endpoint is only reachable from the local machine.
+ */
+public class ServerMetrics {
+	private static Logger logger = Logger.getLogger(ServerMetrics.class);
+
+	/** number of turns between two samples of the zone contents */
+	private static final int SAMPLE_INTERVAL = 10;
+
+	private static final MetricsRegistry registry = MetricsRegistry.get();
+
+	private static final Histogram turnDuration = registry.histogram("stendhal_turn_duration_seconds",
+			"Time spent in the game logic of a turn",
+			0.005, 0.01, 0.025, 0.05, 0.1, 0.2, 0.3, 0.5, 1, 2.5);
+
+	private static final Histogram pathfindingDuration = registry.histogram("stendhal_pathfinding_duration_seconds",
+			"Time spent searching a path",
+			0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5);
+
+	private static final Counter pathsFound = registry.counter("stendhal_pathfinding_calls_total",
+			"Number of path searches", "result", "found");
+
+	private static final Counter pathsNotFound = registry.counter("stendhal_pathfinding_calls_total",
+			"Number of path searches", "result", "not_found");
+
+	private static final Map<String, long[]> lastGarbageCollection = new HashMap<String, long[]>();
+
+	/** spilled and dropped database commands at the last collection */
+	private static long lastSpilled;
+	private static long lastDropped;
+
+	private static boolean initialized;
+
+	/**
+	 * registers the collectors and starts the metrics endpoint, if it is
+	 * configured
+	 */
+	public static synchronized void init() {
+		if (initialized) {
+			return;
+		}
+		initialized = true;
+
+		registry.addCollector(new Runnable() {
+			@Override
+			public void run() {
+				collectQueues();
+				collectGarbageCollection();
+			}
+		});
+
+		try {
+			Configuration config = Configuration.getConfiguration();
+			if (config.has("metrics_port")) {
+				String host = config.get("metrics_host", "127.0.0.1");
+				int port = Integer.parseInt(config.get("metrics_port").trim());
+				MetricsServer.start(host, port);
+			}
+		} catch (IOException e) {
+			logger.error(e, e);
+		} catch (Exception e) {
+			logger.error("Failed to start metrics endpoint", e);
+		} catch (LinkageError e) {
+			logger.error("Failed to start metrics endpoint, is jetty on the classpath?", e);
+		}
+	}
+
+	/**
+	 * records the end of a turn. Called on the game thread.
+	 *
+	 * @param turn number of the turn
+	 * @param nanos time spent in the turn in nanoseconds
+	 */
+	public static void onTurnCompleted(int turn, long nanos) {
+		turnDuration.observeNanos(nanos);
+		if (turn % SAMPLE_INTERVAL == 0) {
+			sampleWorld();
+		}
+	}
+
+	/**
+	 * records a path search
+	 *
+	 * @param nanos time spent in nanoseconds
+	 * @param found was a path found?
+	 */
+	public static void onPathSearched(long nanos, boolean found) {
+		pathfindingDuration.observeNanos(nanos);
+		if (found) {
+			pathsFound.inc();
+		} else {
+			pathsNotFound.inc();
+		}
+	}
+
+	/**
+	 * samples values which may only be read on the game thread
+	 */
+	private static void sampleWorld() {
+		Map<String, Integer> objects = new HashMap<String, Integer>();
+		Map<String, Integer> creatures = new HashMap<String, Integer>();
+		Map<String, Integer> items = new HashMap<String, Integer>();
+		Map<String, Integer> blood = new HashMap<String, Integer>();
+		Map<String, Integer> players = new HashMap<String, Integer>();
+		for (IRPZone zoneI : SingletonRepository.getRPWorld()) {
+			StendhalRPZone zone = (StendhalRPZone) zoneI;
+			String name = zone.getName();
+			objects.put(name, Integer.valueOf((int) zone.size()));
+			creatures.put(name, Integer.valueOf(zone.getCreatureCount()));
+			items.put(name, Integer.valueOf(zone.getItemsOnGround().size()));
+			blood.put(name, Integer.valueOf(zone.getBloodCount()));
+			players.put(name, Integer.valueOf(zone.getPlayers().size()));
+			int[] modifications = zone.takeModifyRequestCounts();
+			registry.counter("stendhal_zone_modify_requests_total", "Number of per turn change notifications of entities",
+					"zone", name).inc(modifications[0]);
+			registry.counter("stendhal_zone_modify_requests_changed_total", "Number of per turn change notifications of entities that had changed",
+					"zone", name).inc(modifications[1]);
+		}
+		registry.setGauges("stendhal_zone_objects", "Number of objects in a zone", "zone", objects);
+		registry.setGauges("stendhal_zone_creatures", "Number of creatures in a zone", "zone", creatures);
+		registry.setGauges("stendhal_zone_items", "Number of items lying on the ground in a zone", "zone", items);
+		registry.setGauges("stendhal_zone_blood", "Number of blood spots in a zone", "zone", blood);
+		registry.setGauges("stendhal_zone_players", "Number of players in a zone", "zone", players);
+		registry.gauge("stendhal_players_online", "Number of online players")
+			.set(SingletonRepository.getRuleProcessor().getOnlinePlayers().size());
+	}
+
+	private static synchronized void collectQueues() {
+		registry.gauge("stendhal_turn_notifier_listeners", "Number of listeners waiting for a turn")
+			.set(TurnNotifier.get().getNumberOfListeners());
+
+		DBCommandDispatcher dispatcher = DBCommandDispatcher.get();
+		for (DBCommandPriority priority : DBCommandPriority.values()) {
+			registry.gauge("stendhal_db_commands_waiting", "Number of database commands waiting in the dispatcher",
+					"priority", priority.name().toLowerCase(Locale.ENGLISH)).set(dispatcher.getPendingCount(priority));
+		}
+		registry.gauge("stendhal_db_queue_size", "Number of database commands in the marauroa queue")
+			.set(DBCommandQueue.get().size());
+		long spilled = dispatcher.getSpilledCount();
+		long dropped = dispatcher.getDroppedCount();
+		registry.counter("stendhal_db_commands_spilled_total", "Number of log commands spilled to a file")
+			.inc(spilled - lastSpilled);
+		registry.counter("stendhal_db_commands_dropped_total", "Number of log commands dropped")
+			.inc(dropped - lastDropped);
+		lastSpilled = spilled;
+		lastDropped = dropped;
+	}
+
+	private static synchronized void collectGarbageCollection() {
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			long count = bean.getCollectionCount();
+			long time = bean.getCollectionTime();
+			if (count < 0 || time < 0) {
+				continue;
+			}
+			long[] last = lastGarbageCollection.get(bean.getName());
+			if (last == null) {
+				last = new long[2];
+				lastGarbageCollection.put(bean.getName(), last);
+			}
+			registry.counter("stendhal_gc_collections_total", "Number of garbage collections",
+					"collector", bean.getName()).inc(count - last[0]);
+			registry.counter("stendhal_gc_pause_milliseconds_total", "Time spent in garbage collection",
+					"collector", bean.getName()).inc(time - last[1]);
+			last[0] = count;
+			last[1] = time;
+		}
+	}
+}
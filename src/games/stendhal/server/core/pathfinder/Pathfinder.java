@@ -32,6 +32,8 @@ import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Stack;
 
+import games.stendhal.server.core.metrics.ServerMetrics;
+
 /**
  * Implements the A* algorithm. Pathing can be done on any class that implements
  * the <code>Navigable</code> interface. See org.generation5.ai.Navigable.
@@ -168,16 +170,19 @@ public abstract class Pathfinder {
 	}
 
 	public final List<Node> getPath() {
+		final long start = System.nanoTime();
 		init();
 		final List<Node> list = new LinkedList<Node>();
 
 		if (unreachableGoal()) {
+			ServerMetrics.onPathSearched(System.nanoTime() - start, false);
 			return list;
 		}
 
 		while (pathStatus == Pathfinder.IN_PROGRESS) {
 			doStep();
 		}
+		ServerMetrics.onPathSearched(System.nanoTime() - start, pathStatus == Pathfinder.PATH_FOUND);
 
 		if (pathStatus == Pathfinder.PATH_FOUND) {
 			TreeNode node = bestNode;
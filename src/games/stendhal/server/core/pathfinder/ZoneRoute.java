@@ -0,0 +1,178 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import games.stendhal.server.core.engine.StendhalRPZone;
+
+/**
+ * A route through one or more zones, as found by {@link ZoneRouteGraph}.
+ * The route is split into legs, one per zone visited. Each leg ends at the
+ * portal or zone border that leads to the next zone, or at the destination.
+ */
+public class ZoneRoute {
+	private final List<Leg> legs;
+	private final int distance;
+
+	/**
+	 * Create a new ZoneRoute.
+	 *
+	 * @param legs legs of the route
+	 * @param distance total walking distance
+	 */
+	ZoneRoute(final List<Leg> legs, final int distance) {
+		this.legs = Collections.unmodifiableList(legs);
+		this.distance = distance;
+	}
+
+	/**
+	 * Get the legs of the route.
+	 *
+	 * @return legs in travel order
+	 */
+	public List<Leg> getLegs() {
+		return legs;
+	}
+
+	/**
+	 * Get the walking distance of the route.
+	 *
+	 * @return number of steps
+	 */
+	public int getDistance() {
+		return distance;
+	}
+
+	/**
+	 * Get the zones visited by the route.
+	 *
+	 * @return zones in travel order
+	 */
+	public List<StendhalRPZone> getZones() {
+		final List<StendhalRPZone> zones = new ArrayList<StendhalRPZone>(legs.size());
+		for (final Leg leg : legs) {
+			zones.add(leg.getZone());
+		}
+		return zones;
+	}
+
+	/**
+	 * Search the local paths of the legs, so that the route can be followed
+	 * with a {@link MultiZonesFixedPath}.
+	 *
+	 * @return paths of the legs, or <code>null</code> if the path of a leg
+	 * 	could not be found
+	 */
+	public List<RPZonePath> toZonePaths() {
+		final List<RPZonePath> paths = new ArrayList<RPZonePath>(legs.size());
+		for (final Leg leg : legs) {
+			final List<Node> path;
+			if ((leg.startX == leg.x) && (leg.startY == leg.y)) {
+				path = new ArrayList<Node>();
+				path.add(new Node(leg.x, leg.y));
+			} else {
+				path = Path.searchPath(leg.zone, leg.startX, leg.startY, leg.x, leg.y, leg.distance + 1);
+				if (path.isEmpty()) {
+					return null;
+				}
+			}
+			paths.add(new RPZonePath(leg.zone.getName(), path));
+		}
+		return paths;
+	}
+
+	@Override
+	public String toString() {
+		return "ZoneRoute" + legs + " distance " + distance;
+	}
+
+	/**
+	 * The part of a route inside one zone.
+	 */
+	public static final class Leg {
+		private final StendhalRPZone zone;
+		private final int startX;
+		private final int startY;
+		private final int x;
+		private final int y;
+		private final int distance;
+
+		/**
+		 * Create a new Leg.
+		 *
+		 * @param zone zone
+		 * @param startX x coordinate where the leg starts
+		 * @param startY y coordinate where the leg starts
+		 * @param x x coordinate where the leg ends
+		 * @param y y coordinate where the leg ends
+		 * @param distance walking distance
+		 */
+		Leg(final StendhalRPZone zone, final int startX, final int startY,
+				final int x, final int y, final int distance) {
+			this.zone = zone;
+			this.startX = startX;
+			this.startY = startY;
+			this.x = x;
+			this.y = y;
+			this.distance = distance;
+		}
+
+		public StendhalRPZone getZone() {
+			return zone;
+		}
+
+		public int getStartX() {
+			return startX;
+		}
+
+		public int getStartY() {
+			return startY;
+		}
+
+		/**
+		 * Get the x coordinate of the portal, border position or destination
+		 * at the end of the leg.
+		 *
+		 * @return x coordinate
+		 */
+		public int getX() {
+			return x;
+		}
+
+		/**
+		 * Get the y coordinate of the portal, border position or destination
+		 * at the end of the leg.
+		 *
+		 * @return y coordinate
+		 */
+		public int getY() {
+			return y;
+		}
+
+		/**
+		 * Get the walking distance inside the zone.
+		 *
+		 * @return number of steps
+		 */
+		public int getDistance() {
+			return distance;
+		}
+
+		@Override
+		public String toString() {
+			return zone.getName() + " (" + startX + "," + startY + ")->(" + x + "," + y + ")";
+		}
+	}
+}
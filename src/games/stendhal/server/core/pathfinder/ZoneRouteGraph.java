@@ -0,0 +1,662 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.events.DeferredTask;
+import games.stendhal.server.core.events.DeferredWorkQueue;
+import games.stendhal.server.entity.mapstuff.portal.Portal;
+import marauroa.common.game.IRPZone;
+
+/**
+ * Finds routes between zones.
+ * <p>
+ * The nodes of the graph are the portals of the zones and the places where
+ * walkable ground continues in a neighbour zone. The walking distances
+ * between the nodes of a zone are computed in advance, one node per slice of
+ * the deferred work queue, so that a route query only needs a search over
+ * the nodes plus one search in the start and in the destination zone. A
+ * query computes the distances of zones that are not ready yet itself.
+ * <p>
+ * The distances of a zone are computed again when its portals change. Then
+ * the cached routes through that zone and the cached failed searches are
+ * dropped. Routes elsewhere are kept, even if the changed portals would
+ * allow a shorter way.
+ * <p>
+ * Routes are computed for an entity of size 1x1 and ignore the access rules
+ * of portals, such as locked doors.
+ */
+public class ZoneRouteGraph {
+	private static Logger logger = Logger.getLogger(ZoneRouteGraph.class);
+
+	/** maximum number of cached routes */
+	private static final int CACHE_SIZE = 256;
+	/** cost of using a portal or crossing a zone border */
+	private static final int TRANSIT_COST = 1;
+	/** maximum number of nodes a search visits before giving up */
+	private static final int MAX_SEARCHED_NODES = 20000;
+	/** cache entry for searches without a result */
+	private static final ZoneRoute NO_ROUTE = new ZoneRoute(Collections.<ZoneRoute.Leg>emptyList(), -1);
+
+	private static ZoneRouteGraph instance;
+
+	/** zone name to nodes of the zone */
+	private final Map<String, ZoneNodes> zones = new HashMap<String, ZoneNodes>();
+	/** names of the zones whose distances are to be computed in advance */
+	private final Deque<String> unprepared = new ArrayDeque<String>();
+	/** <code>true</code> while a deferred task works on unprepared */
+	private boolean preparing;
+
+	/** recently found routes */
+	private final Map<String, ZoneRoute> cache = new LinkedHashMap<String, ZoneRoute>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, ZoneRoute> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * gets the ZoneRouteGraph
+	 *
+	 * @return ZoneRouteGraph
+	 */
+	public static synchronized ZoneRouteGraph get() {
+		if (instance == null) {
+			instance = new ZoneRouteGraph();
+		}
+		return instance;
+	}
+
+	/**
+	 * Computes the distances of all zones in the time left at the end of
+	 * turns, so that route queries do not have to do it.
+	 */
+	public synchronized void prepare() {
+		for (final IRPZone zone : SingletonRepository.getRPWorld()) {
+			schedule(((StendhalRPZone) zone).getName());
+		}
+	}
+
+	/**
+	 * Computes the nodes of a zone again after portals were added or
+	 * removed, and forgets the routes that may have changed.
+	 *
+	 * @param zone zone
+	 */
+	public synchronized void onPortalsChanged(final StendhalRPZone zone) {
+		zones.remove(zone.getName());
+		final Iterator<ZoneRoute> itr = cache.values().iterator();
+		while (itr.hasNext()) {
+			final ZoneRoute route = itr.next();
+			if ((route == NO_ROUTE) || route.getZones().contains(zone)) {
+				itr.remove();
+			}
+		}
+		schedule(zone.getName());
+	}
+
+	/**
+	 * Forgets the found routes after the destination of a portal changed.
+	 */
+	public synchronized void onDestinationChanged() {
+		cache.clear();
+	}
+
+	/**
+	 * Forgets everything, for example after zones were added or removed.
+	 * The zones that had been computed are computed again in advance.
+	 */
+	public synchronized void clear() {
+		for (final String zoneName : zones.keySet()) {
+			schedule(zoneName);
+		}
+		zones.clear();
+		cache.clear();
+	}
+
+	/**
+	 * Finds the shortest route between two positions.
+	 *
+	 * @param from start zone
+	 * @param x x coordinate of the start
+	 * @param y y coordinate of the start
+	 * @param to destination zone
+	 * @param destX x coordinate of the destination
+	 * @param destY y coordinate of the destination
+	 * @return route, or <code>null</code> if there is none
+	 */
+	public synchronized ZoneRoute findRoute(final StendhalRPZone from, final int x, final int y,
+			final StendhalRPZone to, final int destX, final int destY) {
+		final String key = from.getName() + ":" + x + ":" + y + ":" + to.getName() + ":" + destX + ":" + destY;
+		ZoneRoute route = cache.get(key);
+		if (route == null) {
+			route = search(from, x, y, to, destX, destY);
+			if (route == null) {
+				route = NO_ROUTE;
+			}
+			cache.put(key, route);
+		}
+		if (route == NO_ROUTE) {
+			return null;
+		}
+		return route;
+	}
+
+	/**
+	 * Queues a zone for computing its distances in advance.
+	 *
+	 * @param zoneName name of the zone
+	 */
+	private void schedule(final String zoneName) {
+		if (unprepared.contains(zoneName)) {
+			return;
+		}
+		unprepared.add(zoneName);
+		if (!preparing) {
+			preparing = true;
+			DeferredWorkQueue.get().add("zone routes", new DeferredTask() {
+				@Override
+				public boolean runSlice() {
+					return prepareNext();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Computes the distances from the next node of the unprepared zones.
+	 *
+	 * @return <code>true</code> if all zones are prepared
+	 */
+	synchronized boolean prepareNext() {
+		while (!unprepared.isEmpty()) {
+			final StendhalRPZone zone = SingletonRepository.getRPWorld().getZone(unprepared.peek());
+			if (zone != null) {
+				final ZoneNodes nodes = getPartialNodes(zone);
+				if (!nodes.isComplete()) {
+					nodes.computeNext();
+					if (nodes.isComplete()) {
+						unprepared.poll();
+					}
+					break;
+				}
+			}
+			unprepared.poll();
+		}
+		preparing = !unprepared.isEmpty();
+		return !preparing;
+	}
+
+	/**
+	 * Searches a route with Dijkstra's algorithm over the nodes.
+	 */
+	private ZoneRoute search(final StendhalRPZone from, final int x, final int y,
+			final StendhalRPZone to, final int destX, final int destY) {
+		final ZoneNodes start = getNodes(from);
+		final int[] fromStart = walk(from, x, y, start.cells);
+		final ZoneNodes goal = getNodes(to);
+		final int[] toGoal = walk(to, destX, destY, goal.cells);
+
+		int best = Integer.MAX_VALUE;
+		Step bestStep = null;
+		if (from == to) {
+			final int direct = distanceAt(fromStart, to, destX, destY);
+			if (direct >= 0) {
+				best = direct;
+			}
+		}
+
+		final Map<RouteNode, Step> steps = new HashMap<RouteNode, Step>();
+		final PriorityQueue<Step> open = new PriorityQueue<Step>();
+		for (final RouteNode node : start.nodes) {
+			final int distance = distanceAt(fromStart, from, node.x, node.y);
+			if (distance >= 0) {
+				relax(steps, open, new Step(node, null, distance, false));
+			}
+		}
+
+		int searched = 0;
+		while (!open.isEmpty()) {
+			final Step step = open.poll();
+			if (step.distance >= best) {
+				break;
+			}
+			if (++searched > MAX_SEARCHED_NODES) {
+				logger.warn("Giving up the route search from " + from.getName() + " to " + to.getName());
+				break;
+			}
+			if (steps.get(step.node) != step) {
+				// a shorter way was found later
+				continue;
+			}
+			final RouteNode node = step.node;
+			if (node.zone == to) {
+				final int rest = distanceAt(toGoal, to, node.x, node.y);
+				if ((rest >= 0) && (step.distance + rest < best)) {
+					best = step.distance + rest;
+					bestStep = step;
+				}
+			}
+
+			final RouteNode target = getTransitTarget(node);
+			if (target != null) {
+				relax(steps, open, new Step(target, step, step.distance + TRANSIT_COST, true));
+			}
+
+			final ZoneNodes zoneNodes = getNodes(node.zone);
+			final int[] distances = zoneNodes.distances[node.index];
+			for (final RouteNode other : zoneNodes.nodes) {
+				final int distance = distances[other.index];
+				if ((other != node) && (distance >= 0)) {
+					relax(steps, open, new Step(other, step, step.distance + distance, false));
+				}
+			}
+		}
+
+		if (best == Integer.MAX_VALUE) {
+			return null;
+		}
+		return createRoute(from, x, y, to, destX, destY, best, bestStep);
+	}
+
+	private static void relax(final Map<RouteNode, Step> steps, final PriorityQueue<Step> open, final Step step) {
+		final Step known = steps.get(step.node);
+		if ((known == null) || (step.distance < known.distance)) {
+			steps.put(step.node, step);
+			open.add(step);
+		}
+	}
+
+	/**
+	 * Splits the found way into legs at the transits to other zones.
+	 */
+	private static ZoneRoute createRoute(final StendhalRPZone from, final int x, final int y,
+			final StendhalRPZone to, final int destX, final int destY, final int distance, final Step last) {
+		final List<Step> transits = new ArrayList<Step>();
+		for (Step step = last; step != null; step = step.previous) {
+			if (step.transit) {
+				transits.add(step);
+			}
+		}
+		Collections.reverse(transits);
+
+		final List<ZoneRoute.Leg> legs = new ArrayList<ZoneRoute.Leg>();
+		StendhalRPZone zone = from;
+		int startX = x;
+		int startY = y;
+		int startDistance = 0;
+		for (final Step transit : transits) {
+			final Step exit = transit.previous;
+			legs.add(new ZoneRoute.Leg(zone, startX, startY, exit.node.x, exit.node.y,
+					exit.distance - startDistance));
+			zone = transit.node.zone;
+			startX = transit.node.x;
+			startY = transit.node.y;
+			startDistance = transit.distance;
+		}
+		legs.add(new ZoneRoute.Leg(to, startX, startY, destX, destY, distance - startDistance));
+		return new ZoneRoute(legs, distance);
+	}
+
+	/**
+	 * Gets the node a transit from a node leads to.
+	 *
+	 * @param node portal or border node
+	 * @return node in the other zone, or <code>null</code> if the node does
+	 * 	not lead anywhere
+	 */
+	private RouteNode getTransitTarget(final RouteNode node) {
+		final String zoneName;
+		if (node.portal != null) {
+			zoneName = node.portal.getDestinationZone();
+		} else {
+			zoneName = node.targetZone;
+		}
+		if (zoneName == null) {
+			return null;
+		}
+		final StendhalRPZone zone = SingletonRepository.getRPWorld().getZone(zoneName);
+		if (zone == null) {
+			return null;
+		}
+		final ZoneNodes nodes = getNodes(zone);
+		if (node.portal != null) {
+			final Portal destination = zone.getPortal(node.portal.getDestinationReference());
+			if (destination == null) {
+				return null;
+			}
+			return nodes.find(destination);
+		}
+		return nodes.findBorder(node.targetX, node.targetY);
+	}
+
+	/**
+	 * Gets the nodes of a zone, computing the missing distances if needed.
+	 *
+	 * @param zone zone
+	 * @return nodes
+	 */
+	private ZoneNodes getNodes(final StendhalRPZone zone) {
+		final ZoneNodes nodes = getPartialNodes(zone);
+		while (!nodes.isComplete()) {
+			nodes.computeNext();
+		}
+		return nodes;
+	}
+
+	/**
+	 * Gets the nodes of a zone, creating them if needed. The distances
+	 * between the nodes may not be computed yet.
+	 *
+	 * @param zone zone
+	 * @return nodes
+	 */
+	private ZoneNodes getPartialNodes(final StendhalRPZone zone) {
+		ZoneNodes nodes = zones.get(zone.getName());
+		if ((nodes == null) || (nodes.zone != zone)) {
+			nodes = new ZoneNodes(zone);
+			zones.put(zone.getName(), nodes);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Gets the walking distance to a position from the result of
+	 * {@link #walk}.
+	 *
+	 * @return distance, or -1 if the position can not be reached
+	 */
+	private static int distanceAt(final int[] distances, final StendhalRPZone zone, final int x, final int y) {
+		if ((x < 0) || (y < 0) || (x >= zone.getWidth()) || (y >= zone.getHeight())) {
+			return -1;
+		}
+		return distances[x + y * zone.getWidth()];
+	}
+
+	/**
+	 * Computes the walking distances from a position to every position of a
+	 * zone. Node positions are walkable even if they are marked as colliding,
+	 * as portals often are.
+	 *
+	 * @param zone zone
+	 * @param x x coordinate of the start
+	 * @param y y coordinate of the start
+	 * @param nodeCells positions of the nodes
+	 * @return distances indexed by x + y * width, -1 for positions that can
+	 * 	not be reached
+	 */
+	private static int[] walk(final StendhalRPZone zone, final int x, final int y, final BitSet nodeCells) {
+		final int width = zone.getWidth();
+		final int height = zone.getHeight();
+		final int[] distances = new int[width * height];
+		Arrays.fill(distances, -1);
+		if ((x < 0) || (y < 0) || (x >= width) || (y >= height)) {
+			return distances;
+		}
+
+		final int[] queue = new int[width * height];
+		int head = 0;
+		int tail = 0;
+		distances[x + y * width] = 0;
+		queue[tail++] = x + y * width;
+		while (head < tail) {
+			final int cell = queue[head++];
+			final int cx = cell % width;
+			final int cy = cell / width;
+			final int next = distances[cell] + 1;
+			for (int dir = 0; dir < 4; dir++) {
+				final int nx = cx + ((dir == 0) ? 1 : ((dir == 1) ? -1 : 0));
+				final int ny = cy + ((dir == 2) ? 1 : ((dir == 3) ? -1 : 0));
+				if ((nx < 0) || (ny < 0) || (nx >= width) || (ny >= height)) {
+					continue;
+				}
+				final int index = nx + ny * width;
+				if ((distances[index] < 0) && (!zone.collides(nx, ny) || nodeCells.get(index))) {
+					distances[index] = next;
+					queue[tail++] = index;
+				}
+			}
+		}
+		return distances;
+	}
+
+	/**
+	 * The nodes of a zone and the walking distances between them.
+	 */
+	private static final class ZoneNodes {
+		private final StendhalRPZone zone;
+		private final List<RouteNode> nodes = new ArrayList<RouteNode>();
+		/** positions of the nodes, indexed by x + y * width */
+		private final BitSet cells = new BitSet();
+		/** walking distances between the nodes, -1 if not connected */
+		private final int[][] distances;
+		/** number of nodes whose distances have been computed */
+		private int computed;
+
+		/**
+		 * Create a new ZoneNodes. The distances are computed by
+		 * {@link #computeNext}.
+		 *
+		 * @param zone zone
+		 */
+		ZoneNodes(final StendhalRPZone zone) {
+			this.zone = zone;
+			for (final Portal portal : zone.getPortals()) {
+				nodes.add(new RouteNode(zone, portal.getX(), portal.getY(), portal, null, 0, 0));
+			}
+			if (!zone.isInterior()) {
+				addBorderNodes();
+			}
+
+			for (int i = 0; i < nodes.size(); i++) {
+				final RouteNode node = nodes.get(i);
+				node.index = i;
+				if ((node.x >= 0) && (node.y >= 0) && (node.x < zone.getWidth()) && (node.y < zone.getHeight())) {
+					cells.set(node.x + node.y * zone.getWidth());
+				}
+			}
+
+			distances = new int[nodes.size()][nodes.size()];
+		}
+
+		/**
+		 * Checks if the distances between all nodes are computed.
+		 *
+		 * @return <code>true</code> if the distances are complete
+		 */
+		boolean isComplete() {
+			return computed == nodes.size();
+		}
+
+		/**
+		 * Computes the distances from the next node to the others.
+		 */
+		void computeNext() {
+			final RouteNode node = nodes.get(computed);
+			final int[] walked = walk(zone, node.x, node.y, cells);
+			for (final RouteNode other : nodes) {
+				distances[node.index][other.index] = distanceAt(walked, zone, other.x, other.y);
+			}
+			computed++;
+			if (isComplete() && logger.isDebugEnabled()) {
+				logger.debug("Computed " + nodes.size() + " route nodes of " + zone.getName());
+			}
+		}
+
+		/**
+		 * Adds nodes for the walkable parts of the borders to the
+		 * neighbour zones.
+		 */
+		private void addBorderNodes() {
+			for (final IRPZone izone : SingletonRepository.getRPWorld()) {
+				final StendhalRPZone other = (StendhalRPZone) izone;
+				if ((other == zone) || other.isInterior() || (other.getLevel() != zone.getLevel())) {
+					continue;
+				}
+				if (other.getX() == zone.getX() + zone.getWidth()) {
+					addCrossings(other, true, zone.getWidth() - 1, 0);
+				} else if (other.getX() + other.getWidth() == zone.getX()) {
+					addCrossings(other, true, 0, other.getWidth() - 1);
+				} else if (other.getY() == zone.getY() + zone.getHeight()) {
+					addCrossings(other, false, zone.getHeight() - 1, 0);
+				} else if (other.getY() + other.getHeight() == zone.getY()) {
+					addCrossings(other, false, 0, other.getHeight() - 1);
+				}
+			}
+		}
+
+		/**
+		 * Adds a node in the middle of each run of positions that are
+		 * walkable on both sides of the border. The neighbour zone finds the
+		 * same runs, so that the nodes of both sides match.
+		 *
+		 * @param other neighbour zone
+		 * @param vertical <code>true</code> if the border is a column,
+		 * 	<code>false</code> if it is a row
+		 * @param line column or row of the border in this zone
+		 * @param otherLine column or row of the border in the neighbour zone
+		 */
+		private void addCrossings(final StendhalRPZone other, final boolean vertical,
+				final int line, final int otherLine) {
+			final int offset = vertical ? zone.getY() : zone.getX();
+			final int otherOffset = vertical ? other.getY() : other.getX();
+			final int first = Math.max(offset, otherOffset);
+			final int end = Math.min(offset + (vertical ? zone.getHeight() : zone.getWidth()),
+					otherOffset + (vertical ? other.getHeight() : other.getWidth()));
+
+			int runStart = -1;
+			for (int i = first; i <= end; i++) {
+				final boolean open = (i < end) && isWalkable(zone, vertical, line, i - offset)
+						&& isWalkable(other, vertical, otherLine, i - otherOffset);
+				if (open && (runStart < 0)) {
+					runStart = i;
+				} else if (!open && (runStart >= 0)) {
+					final int middle = runStart + (i - 1 - runStart) / 2;
+					if (vertical) {
+						nodes.add(new RouteNode(zone, line, middle - offset, null, other.getName(),
+								otherLine, middle - otherOffset));
+					} else {
+						nodes.add(new RouteNode(zone, middle - offset, line, null, other.getName(),
+								middle - otherOffset, otherLine));
+					}
+					runStart = -1;
+				}
+			}
+		}
+
+		private static boolean isWalkable(final StendhalRPZone zone, final boolean vertical, final int line, final int position) {
+			if (vertical) {
+				return !zone.collides(line, position);
+			}
+			return !zone.collides(position, line);
+		}
+
+		/**
+		 * Finds the node of a portal.
+		 *
+		 * @param portal portal
+		 * @return node, or <code>null</code>
+		 */
+		RouteNode find(final Portal portal) {
+			for (final RouteNode node : nodes) {
+				if (node.portal == portal) {
+					return node;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Finds a border node at a position.
+		 *
+		 * @param x x coordinate
+		 * @param y y coordinate
+		 * @return node, or <code>null</code>
+		 */
+		RouteNode findBorder(final int x, final int y) {
+			for (final RouteNode node : nodes) {
+				if ((node.portal == null) && (node.x == x) && (node.y == y)) {
+					return node;
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * A portal or a border position.
+	 */
+	private static final class RouteNode {
+		private final StendhalRPZone zone;
+		private final int x;
+		private final int y;
+		/** portal, or <code>null</code> for border nodes */
+		private final Portal portal;
+		/** neighbour zone of border nodes */
+		private final String targetZone;
+		/** position in the neighbour zone of border nodes */
+		private final int targetX;
+		private final int targetY;
+		/** index of the node in its zone */
+		private int index;
+
+		RouteNode(final StendhalRPZone zone, final int x, final int y, final Portal portal,
+				final String targetZone, final int targetX, final int targetY) {
+			this.zone = zone;
+			this.x = x;
+			this.y = y;
+			this.portal = portal;
+			this.targetZone = targetZone;
+			this.targetX = targetX;
+			this.targetY = targetY;
+		}
+	}
+
+	/**
+	 * A node reached during the search, with the way it was reached.
+	 */
+	private static final class Step implements Comparable<Step> {
+		private final RouteNode node;
+		private final Step previous;
+		private final int distance;
+		/** <code>true</code> if the node was reached from another zone */
+		private final boolean transit;
+
+		Step(final RouteNode node, final Step previous, final int distance, final boolean transit) {
+			this.node = node;
+			this.previous = previous;
+			this.distance = distance;
+			this.transit = transit;
+		}
+
+		@Override
+		public int compareTo(final Step other) {
+			return Integer.compare(distance, other.distance);
+		}
+	}
+}
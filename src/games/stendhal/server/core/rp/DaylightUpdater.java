@@ -100,6 +100,6 @@ public class DaylightUpdater implements TurnListener {
 			attr.put("blend_method", "bleach");
 		}
 		// Notify resident players about the changed color
-		attr.getZone().notifyOnlinePlayers();
+		attr.getZone().notifyOnlinePlayersAboutAttributes();
 	}
 }
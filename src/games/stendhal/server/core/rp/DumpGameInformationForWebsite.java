@@ -11,11 +11,11 @@
  ***************************************************************************/
 package games.stendhal.server.core.rp;
 
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.engine.dbcommand.DumpSpeakerNPCsCommand;
 import games.stendhal.server.core.engine.dbcommand.DumpZonesCommand;
-import games.stendhal.server.core.engine.dbcommand.UpdateSearchIndexCommand;
 import games.stendhal.server.core.events.TurnListener;
-import marauroa.server.db.command.DBCommandQueue;
+import games.stendhal.server.core.rp.searchindex.SearchIndexUpdater;
 
 /**
  * Dumps information of all SpeakerNPCs to the database
@@ -26,8 +26,9 @@ public class DumpGameInformationForWebsite implements TurnListener {
 
 	@Override
 	public void onTurnReached(int currentTurn) {
-		DBCommandQueue.get().enqueue(new DumpSpeakerNPCsCommand());
-		DBCommandQueue.get().enqueue(new DumpZonesCommand());
-		DBCommandQueue.get().enqueue(new UpdateSearchIndexCommand());
+		DBCommandDispatcher.get().enqueue(new DumpSpeakerNPCsCommand());
+		DBCommandDispatcher.get().enqueue(new DumpZonesCommand());
+
+		SearchIndexUpdater.get().startRebuild();
 	}
 }
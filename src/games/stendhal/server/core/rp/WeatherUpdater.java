@@ -236,7 +236,7 @@ public class WeatherUpdater implements TurnListener {
 				attr.remove(WEATHER);
 			}
 			// Notify resident players about the changed weather
-			attr.getZone().notifyOnlinePlayers();
+			attr.getZone().notifyOnlinePlayersAboutAttributes();
 		}
 	}
 
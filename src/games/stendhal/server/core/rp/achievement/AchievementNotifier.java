@@ -31,14 +31,16 @@ import games.stendhal.common.grammar.Grammar;
 import games.stendhal.server.core.engine.GameEvent;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.db.AchievementDAO;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.engine.dbcommand.WriteReachedAchievementCommand;
+import games.stendhal.server.core.events.DeferredTask;
+import games.stendhal.server.core.events.DeferredWorkQueue;
 import games.stendhal.server.core.rp.achievement.factory.AbstractAchievementFactory;
 import games.stendhal.server.entity.player.Player;
 import games.stendhal.server.entity.player.ReadAchievementsOnLogin;
 import games.stendhal.server.entity.player.UpdatePendingAchievementsOnLogin;
 import games.stendhal.server.events.ReachedAchievementEvent;
 import games.stendhal.server.events.SoundEvent;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.game.db.DAORegister;
 
 /**
@@ -50,6 +52,9 @@ public final class AchievementNotifier {
 
 	private static final Logger logger = Logger.getLogger(AchievementNotifier.class);
 
+	/** number of achievements checked per turn on login */
+	private static final int LOGIN_CHECK_SLICE_SIZE = 50;
+
 	private static AchievementNotifier instance;
 
 	final private Map<Category, List<Achievement>> achievements;
@@ -250,12 +255,13 @@ public final class AchievementNotifier {
 	}
 
 	/**
-	 * Checks on login of a player which achievements the player has reached and gives a summarizing message
+	 * Checks on login of a player which achievements the player has reached and gives a summarizing message.
+	 * The achievements are checked in spare time over a few turns, as there are a lot of them.
 	 *
 	 * @param player
 	 */
-	public void onLogin(Player player) {
-		List<Achievement> toCheck = new ArrayList<Achievement>();
+	public void onLogin(final Player player) {
+		final List<Achievement> toCheck = new ArrayList<Achievement>();
 		//Avoid checking of zone achievements on login to
 		//prevent double check when player is initially placed into a zone
 		final Map<Category,List<Achievement>> map = new HashMap<Category, List<Achievement>>(achievements);
@@ -265,15 +271,33 @@ public final class AchievementNotifier {
 		for (List<Achievement> list : values) {
 			toCheck.addAll(list);
 		}
-		final List<Achievement> reached = checkAchievements(player, toCheck);
-		// only send notice if actually a new added achievement was reached by doing nothing
-		if(!reached.isEmpty()) {
-			StringBuilder sb = new StringBuilder();
-			sb.append("You have reached ");
-			sb.append(Integer.valueOf(reached.size()));
-			sb.append(" new "+Grammar.plnoun(reached.size(), "achievement")+". Please check #https://stendhalgame.org for details.");
-			player.sendPrivateText(sb.toString());
-		}
+		DeferredWorkQueue.get().add("achievements of " + player.getName(), new DeferredTask() {
+			private int index;
+			private int reached;
+
+			@Override
+			public boolean runSlice() {
+				// the player may have logged out in the meantime
+				if (SingletonRepository.getRuleProcessor().getPlayer(player.getName()) != player) {
+					return true;
+				}
+				int end = Math.min(toCheck.size(), index + LOGIN_CHECK_SLICE_SIZE);
+				reached += checkAchievements(player, toCheck.subList(index, end)).size();
+				index = end;
+				if (index < toCheck.size()) {
+					return false;
+				}
+				// only send notice if actually a new added achievement was reached by doing nothing
+				if (reached > 0) {
+					StringBuilder sb = new StringBuilder();
+					sb.append("You have reached ");
+					sb.append(Integer.valueOf(reached));
+					sb.append(" new "+Grammar.plnoun(reached, "achievement")+". Please check #https://stendhalgame.org for details.");
+					player.sendPrivateText(sb.toString());
+				}
+				return true;
+			}
+		});
 	}
 
 	/**
@@ -342,7 +366,7 @@ public final class AchievementNotifier {
 		String title = achievement.getTitle();
 		Category category = achievement.getCategory();
 		String playerName = player.getName();
-		DBCommandQueue.get().enqueue(new WriteReachedAchievementCommand(identifiersToIds.get(identifier), title, category, playerName));
+		DBCommandDispatcher.get().enqueue(new WriteReachedAchievementCommand(identifiersToIds.get(identifier), title, category, playerName));
 		player.addReachedAchievement(achievement.getIdentifier());
 		new GameEvent(playerName, "reach-achievement", category.toString(), title, identifier).raise();
 	}
@@ -11,6 +11,8 @@
  ***************************************************************************/
 package games.stendhal.server.core.rp.searchindex;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.StringTokenizer;
@@ -27,11 +29,20 @@ import games.stendhal.server.entity.npc.SpeakerNPC;
 
 /**
  * manages the search index
+ * <p>
+ * The index is generated in two steps: The names and descriptions are
+ * collected from the game in small slices on the turn thread, and then split
+ * into words, which does not need the game state and can be done on
+ * any thread.
  *
  * @author hendrik
  */
 public class SearchIndexManager {
 	private final Set<SearchIndexEntry> index = Sets.newHashSet();
+	/** descriptions which still have to be split into words */
+	private final List<Description> descriptions = new ArrayList<Description>();
+	/** the next group of game definitions to collect */
+	private int group;
 
 	// keep in sync with search.php
 	private final ImmutableSet<String> STOP_WORDS =
@@ -43,43 +54,117 @@ public class SearchIndexManager {
 	 * @return searchIndex
 	 */
 	public Set<SearchIndexEntry> generateIndex() {
-		achievements();
-		creatures();
-		items();
-		npcs();
+		while (!collectSlice()) {
+			// collect all groups
+		}
+		return buildIndex();
+	}
+
+	/**
+	 * collects the names and descriptions of the next group of game
+	 * definitions. This has to be called on the turn thread.
+	 *
+	 * @return <code>true</code> if all groups have been collected
+	 */
+	public boolean collectSlice() {
+		switch (group) {
+		case 0:
+			achievements();
+			break;
+		case 1:
+			creatures();
+			break;
+		case 2:
+			items();
+			break;
+		default:
+			npcs();
+			break;
+		}
+		group++;
+		return group > 3;
+	}
+
+	/**
+	 * splits the collected descriptions into words. This does not use the
+	 * game state.
+	 *
+	 * @return searchIndex
+	 */
+	public Set<SearchIndexEntry> buildIndex() {
+		for (Description description : descriptions) {
+			addWords(description);
+		}
+		descriptions.clear();
 		return index;
 	}
 
 	private void achievements() {
 		for (Achievement achievement : AchievementNotifier.get().getAchievements()) {
-			if (!achievement.isActive()) {
-				continue;
-			}
-			addName(achievement.getTitle(), SearchIndexEntryType.ACHIEVEMENT);
-			addDescription(achievement.getTitle(), achievement.getDescription(), SearchIndexEntryType.ACHIEVEMENT, 1000);
+			addAchievement(achievement);
 		}
 	}
 
 	private void npcs() {
 		for (SpeakerNPC npc : SingletonRepository.getNPCList()) {
-			addName(npc.getName(), SearchIndexEntryType.NPC);
-			addDescription(npc.getName(), npc.getDescription(), SearchIndexEntryType.NPC, 1000);
-			addDescription(npc.getName(), npc.getJob(), SearchIndexEntryType.NPC, 1000);
+			addNPC(npc);
 		}
 	}
 
 	private void items() {
 		for (DefaultItem item : SingletonRepository.getEntityManager().getDefaultItems()) {
-			addName(item.getItemName(), SearchIndexEntryType.ITEM);
-			addDescription(item.getItemName(), item.getDescription(), SearchIndexEntryType.ITEM, 1000);
+			addItem(item);
 		}
 	}
 
 	private void creatures() {
 		for (DefaultCreature creature : SingletonRepository.getEntityManager().getDefaultCreatures()) {
-			addName(creature.getCreatureName(), SearchIndexEntryType.CREATURE);
-			addDescription(creature.getCreatureName(), creature.getDescription(), SearchIndexEntryType.CREATURE, 1000);
+			addCreature(creature);
+		}
+	}
+
+	/**
+	 * adds the search index entries of an achievement
+	 *
+	 * @param achievement achievement
+	 */
+	public void addAchievement(Achievement achievement) {
+		if (!achievement.isActive()) {
+			return;
 		}
+		addName(achievement.getTitle(), SearchIndexEntryType.ACHIEVEMENT);
+		addDescription(achievement.getTitle(), achievement.getDescription(), SearchIndexEntryType.ACHIEVEMENT, 1000);
+	}
+
+	/**
+	 * adds the search index entries of a npc
+	 *
+	 * @param npc SpeakerNPC
+	 */
+	public void addNPC(SpeakerNPC npc) {
+		addName(npc.getName(), SearchIndexEntryType.NPC);
+		addDescription(npc.getName(), npc.getDescription(), SearchIndexEntryType.NPC, 1000);
+		addDescription(npc.getName(), npc.getJob(), SearchIndexEntryType.NPC, 1000);
+	}
+
+	/**
+	 * adds the search index entries of an item
+	 *
+	 * @param item DefaultItem
+	 */
+	public void addItem(DefaultItem item) {
+		addName(item.getItemName(), SearchIndexEntryType.ITEM);
+		addDescription(item.getItemName(), item.getDescription(), SearchIndexEntryType.ITEM, 1000);
+	}
+
+	/**
+	 * adds the search index entries of a creature
+	 *
+	 * @param creature DefaultCreature
+	 */
+	public void addCreature(DefaultCreature creature) {
+		addName(creature.getCreatureName(), SearchIndexEntryType.CREATURE);
+		addDescription(creature.getCreatureName(), creature.getDescription(), SearchIndexEntryType.CREATURE, 1000);
 	}
 
 	/**
@@ -111,11 +196,22 @@ public class SearchIndexManager {
 		if (description == null) {
 			return;
 		}
+		descriptions.add(new Description(name, description, type, baseScore));
+	}
+
+	/**
+	 * adds the search index entries for the words of a description
+	 *
+	 * @param description description
+	 */
+	private void addWords(Description description) {
+		String name = description.name;
+		SearchIndexEntryType type = description.type;
 		String lowerCaseName = name.toLowerCase(Locale.ENGLISH);
 
 		// add each word individually. it is okay to add the same word multiple
 		// times because index is a hashset
-		StringTokenizer st = new StringTokenizer(description.toLowerCase(Locale.ENGLISH), " #;:,.-!\"");
+		StringTokenizer st = new StringTokenizer(description.text.toLowerCase(Locale.ENGLISH), " #;:,.-!\"");
 		while (st.hasMoreTokens()) {
 			String token = st.nextToken();
 
@@ -127,7 +223,24 @@ public class SearchIndexManager {
 				continue;
 			}
 
-			index.add(new SearchIndexEntry(token, type.getEntityType(), name, baseScore + type.getMinorScore()));
+			index.add(new SearchIndexEntry(token, type.getEntityType(), name, description.baseScore + type.getMinorScore()));
+		}
+	}
+
+	/**
+	 * a description that still has to be split into words
+	 */
+	private static class Description {
+		private final String name;
+		private final String text;
+		private final SearchIndexEntryType type;
+		private final int baseScore;
+
+		Description(String name, String text, SearchIndexEntryType type, int baseScore) {
+			this.name = name;
+			this.text = text;
+			this.type = type;
+			this.baseScore = baseScore;
 		}
 	}
 }
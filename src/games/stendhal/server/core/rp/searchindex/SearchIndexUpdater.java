@@ -0,0 +1,328 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.searchindex;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.common.MathHelper;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
+import games.stendhal.server.core.engine.dbcommand.UpdateSearchIndexChangesCommand;
+import games.stendhal.server.core.engine.dbcommand.UpdateSearchIndexCommand;
+import games.stendhal.server.core.events.DeferredTask;
+import games.stendhal.server.core.events.DeferredWorkQueue;
+import games.stendhal.server.core.events.TurnListener;
+import games.stendhal.server.core.events.TurnNotifier;
+import games.stendhal.server.core.rule.defaultruleset.DefaultCreature;
+import games.stendhal.server.core.rule.defaultruleset.DefaultItem;
+import games.stendhal.server.entity.npc.SpeakerNPC;
+import marauroa.common.Configuration;
+
+/**
+ * keeps the search index in the database up to date.
+ * <p>
+ * The index is written completely once after the server start. After that
+ * NPCs, items and creatures report when they are added or removed, and only
+ * the changed entries are written once a minute. The complete index is
+ * generated again every searchindex_check_interval hours (default 24) as a
+ * consistency check. Changes made while it is generated are applied on top
+ * of it.
+ */
+public class SearchIndexUpdater implements TurnListener {
+	private static Logger logger = Logger.getLogger(SearchIndexUpdater.class);
+
+	private static final int DEFAULT_CHECK_INTERVAL = 24;
+
+	/** seconds between writing the changes */
+	private static final int FLUSH_INTERVAL = MathHelper.SECONDS_IN_ONE_MINUTE;
+
+	private static SearchIndexUpdater instance;
+
+	private final long checkInterval;
+
+	/** current entries by entity */
+	private final Map<String, Set<SearchIndexEntry>> entries = new HashMap<String, Set<SearchIndexEntry>>();
+	/** entries that are not written to the database yet */
+	private final Set<SearchIndexEntry> added = new HashSet<SearchIndexEntry>();
+	/** entries that are not deleted from the database yet */
+	private final Set<SearchIndexEntry> removed = new HashSet<SearchIndexEntry>();
+	/** entities that changed since the complete index generation started, <code>null</code> if it is not running */
+	private Set<String> changedDuringRebuild;
+	/** has the complete index been written? */
+	private boolean synced;
+	private boolean scheduled;
+	private long nextCheck;
+
+	/**
+	 * gets the singleton instance
+	 *
+	 * @return SearchIndexUpdater
+	 */
+	public static synchronized SearchIndexUpdater get() {
+		if (instance == null) {
+			int checkInterval = DEFAULT_CHECK_INTERVAL;
+			try {
+				checkInterval = Configuration.getConfiguration().getInt("searchindex_check_interval", DEFAULT_CHECK_INTERVAL);
+			} catch (IOException e) {
+				logger.error(e, e);
+			} catch (NumberFormatException e) {
+				logger.error("Invalid searchindex_check_interval, using default", e);
+			}
+			instance = new SearchIndexUpdater(checkInterval);
+		}
+		return instance;
+	}
+
+	/**
+	 * creates a new SearchIndexUpdater
+	 *
+	 * @param checkInterval hours between the complete index generations
+	 */
+	SearchIndexUpdater(int checkInterval) {
+		this.checkInterval = Math.max(1, checkInterval) * MathHelper.MILLISECONDS_IN_ONE_HOUR;
+	}
+
+	/**
+	 * a npc was added to the world
+	 *
+	 * @param npc SpeakerNPC
+	 */
+	public synchronized void onNPCAdded(SpeakerNPC npc) {
+		if (isTracking()) {
+			SearchIndexManager manager = new SearchIndexManager();
+			manager.addNPC(npc);
+			update(key(SearchIndexEntryType.NPC, npc.getName()), manager.buildIndex());
+		}
+	}
+
+	/**
+	 * a npc was removed from the world
+	 *
+	 * @param npc SpeakerNPC
+	 */
+	public synchronized void onNPCRemoved(SpeakerNPC npc) {
+		if (isTracking()) {
+			update(key(SearchIndexEntryType.NPC, npc.getName()), Collections.<SearchIndexEntry>emptySet());
+		}
+	}
+
+	/**
+	 * an item class was added
+	 *
+	 * @param item DefaultItem
+	 */
+	public synchronized void onItemAdded(DefaultItem item) {
+		if (isTracking()) {
+			SearchIndexManager manager = new SearchIndexManager();
+			manager.addItem(item);
+			update(key(SearchIndexEntryType.ITEM, item.getItemName()), manager.buildIndex());
+		}
+	}
+
+	/**
+	 * a creature class was added
+	 *
+	 * @param creature DefaultCreature
+	 */
+	public synchronized void onCreatureAdded(DefaultCreature creature) {
+		if (isTracking()) {
+			SearchIndexManager manager = new SearchIndexManager();
+			manager.addCreature(creature);
+			update(key(SearchIndexEntryType.CREATURE, creature.getCreatureName()), manager.buildIndex());
+		}
+	}
+
+	/**
+	 * Changes before the first complete index generation do not need to be
+	 * tracked, they are part of it.
+	 *
+	 * @return <code>true</code> if changes are tracked
+	 */
+	private boolean isTracking() {
+		return synced || (changedDuringRebuild != null);
+	}
+
+	private static String key(SearchIndexEntryType type, String name) {
+		return type.getEntityType() + name;
+	}
+
+	private static String key(SearchIndexEntry entry) {
+		return entry.getEntityType() + entry.getEntityName();
+	}
+
+	/**
+	 * replaces the entries of an entity and records the changes
+	 *
+	 * @param key key of the entity
+	 * @param newEntries new entries, empty if the entity was removed
+	 */
+	private void update(String key, Set<SearchIndexEntry> newEntries) {
+		if (changedDuringRebuild != null) {
+			changedDuringRebuild.add(key);
+		}
+		Set<SearchIndexEntry> old;
+		if (newEntries.isEmpty()) {
+			old = entries.remove(key);
+		} else {
+			old = entries.put(key, newEntries);
+		}
+		if (!synced) {
+			return;
+		}
+
+		if (old != null) {
+			for (SearchIndexEntry entry : old) {
+				if (!newEntries.contains(entry) && !added.remove(entry)) {
+					removed.add(entry);
+				}
+			}
+		}
+		for (SearchIndexEntry entry : newEntries) {
+			if (((old == null) || !old.contains(entry)) && !removed.remove(entry)) {
+				added.add(entry);
+			}
+		}
+	}
+
+	/**
+	 * starts generating the complete index. The texts are collected in spare
+	 * time on the turn thread and split into words in the background.
+	 */
+	public synchronized void startRebuild() {
+		if (!scheduled) {
+			scheduled = true;
+			TurnNotifier.get().notifyInSeconds(FLUSH_INTERVAL, this);
+		}
+		if (changedDuringRebuild != null) {
+			return;
+		}
+		changedDuringRebuild = new HashSet<String>();
+
+		final SearchIndexManager manager = new SearchIndexManager();
+		DeferredWorkQueue.get().add("search index", new DeferredTask() {
+			@Override
+			public boolean runSlice() {
+				if (!manager.collectSlice()) {
+					return false;
+				}
+				DeferredWorkQueue.get().addDetached("search index", new Runnable() {
+					@Override
+					public void run() {
+						finishRebuild(manager.buildIndex());
+					}
+				});
+				return true;
+			}
+		});
+	}
+
+	/**
+	 * replaces the entries with a complete index and writes it
+	 *
+	 * @param index complete index
+	 */
+	synchronized void finishRebuild(Set<SearchIndexEntry> index) {
+		Map<String, Set<SearchIndexEntry>> fresh = new HashMap<String, Set<SearchIndexEntry>>();
+		for (SearchIndexEntry entry : index) {
+			String key = key(entry);
+			Set<SearchIndexEntry> set = fresh.get(key);
+			if (set == null) {
+				set = new HashSet<SearchIndexEntry>();
+				fresh.put(key, set);
+			}
+			set.add(entry);
+		}
+
+		// the index may have been collected before these changes
+		for (String key : changedDuringRebuild) {
+			Set<SearchIndexEntry> current = entries.get(key);
+			if (current == null) {
+				fresh.remove(key);
+			} else {
+				fresh.put(key, current);
+			}
+		}
+		changedDuringRebuild = null;
+
+		entries.clear();
+		entries.putAll(fresh);
+		added.clear();
+		removed.clear();
+		synced = true;
+		nextCheck = System.currentTimeMillis() + checkInterval;
+
+		DBCommandDispatcher.get().enqueue(new UpdateSearchIndexCommand(getEntries()));
+	}
+
+	/**
+	 * writes the changes which have not been written yet
+	 */
+	public synchronized void flush() {
+		if (added.isEmpty() && removed.isEmpty()) {
+			return;
+		}
+		DBCommandDispatcher.get().enqueue(new UpdateSearchIndexChangesCommand(
+				new HashSet<SearchIndexEntry>(added), new HashSet<SearchIndexEntry>(removed)));
+		added.clear();
+		removed.clear();
+	}
+
+	@Override
+	public void onTurnReached(int currentTurn) {
+		flush();
+		boolean check;
+		synchronized (this) {
+			check = synced && (System.currentTimeMillis() >= nextCheck);
+		}
+		if (check) {
+			startRebuild();
+		}
+		TurnNotifier.get().notifyInSeconds(FLUSH_INTERVAL, this);
+	}
+
+	/**
+	 * gets all current entries
+	 *
+	 * @return set of entries
+	 */
+	synchronized Set<SearchIndexEntry> getEntries() {
+		Set<SearchIndexEntry> res = new HashSet<SearchIndexEntry>();
+		for (Set<SearchIndexEntry> set : entries.values()) {
+			res.addAll(set);
+		}
+		return res;
+	}
+
+	/**
+	 * gets the entries that have been added since the last write
+	 *
+	 * @return set of entries
+	 */
+	synchronized Set<SearchIndexEntry> getAdded() {
+		return new HashSet<SearchIndexEntry>(added);
+	}
+
+	/**
+	 * gets the entries that have been removed since the last write
+	 *
+	 * @return set of entries
+	 */
+	synchronized Set<SearchIndexEntry> getRemoved() {
+		return new HashSet<SearchIndexEntry>(removed);
+	}
+}
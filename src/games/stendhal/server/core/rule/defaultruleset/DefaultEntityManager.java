@@ -25,6 +25,7 @@ import games.stendhal.common.parser.WordList;
 import games.stendhal.server.core.config.CreatureGroupsXMLLoader;
 import games.stendhal.server.core.config.ItemGroupsXMLLoader;
 import games.stendhal.server.core.config.SpellGroupsXMLLoader;
+import games.stendhal.server.core.rp.searchindex.SearchIndexUpdater;
 import games.stendhal.server.core.rule.EntityManager;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.creature.Creature;
@@ -162,6 +163,7 @@ public class DefaultEntityManager implements EntityManager {
 		}
 
 		classToItem.put(clazz, item);
+		SearchIndexUpdater.get().onItemAdded(item);
 
 		return true;
 	}
@@ -180,6 +182,7 @@ public class DefaultEntityManager implements EntityManager {
 		}
 		classToCreature.put(clazz, creature);
 		idToClass.put(id, clazz);
+		SearchIndexUpdater.get().onCreatureAdded(creature);
 
 		return true;
 	}
@@ -104,6 +104,11 @@ public class Blood extends PassiveEntity {
 		return ("You see a pool of blood.");
 	}
 
+	@Override
+	protected void onMoved(final int oldX, final int oldY, final int newX, final int newY) {
+		getZone().onEntityMoved(this, oldX, oldY);
+	}
+
 	//
 	// TurnListener
 	//
@@ -0,0 +1,195 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity;
+
+/**
+ * The formulas of the combat system. They only depend on the values passed
+ * in, including the random numbers, so that they can be shared by the
+ * entities and by tools which simulate fights without creating entities.
+ */
+public final class CombatFormula {
+	/**
+	 * To avoid using karma for damage calculations when the natural ability of
+	 * the fighters would mean they need no luck, we only use karma when the
+	 * levels are significantly different.
+	 */
+	private static final double IGNORE_KARMA_MULTIPLIER = 0.2;
+
+	/**
+	 * Level bonus for defence given to everyone. Prevents newbies killing each
+	 * other too fast.
+	 */
+	private static final double NEWBIE_DEF = 10.0;
+	/**
+	 * Armor value of no armor. Prevents unarmored or lightly armored entities
+	 * from being completely helpless
+	 */
+	private static final double SKIN_DEF = 10.0;
+	/** Adjusts the weight of level. Larger means weight more */
+	private static final double LEVEL_ATK = 0.03;
+	/** Adjusts the weight of level. Larger means weight more */
+	private static final double LEVEL_DEF = 0.03;
+	/** General parameter for damage. Larger means more damage. */
+	private static final double WEIGHT_ATK = 8.0;
+	/** the level where relative damage curves start being linear. */
+	private static final double EVEN_POINT = 1.2;
+	/**
+	 * Steepness of the damage vs level curves. The maximum bonus/penalty with
+	 * weak enemies
+	 */
+	private static final double WEIGHT_EFFECT = 0.5;
+
+	private CombatFormula() {
+		// static methods only
+	}
+
+	/**
+	 * Gets the level used in the damage formulas. Don't start from 0 to
+	 * mitigate weird behaviour at very low levels.
+	 *
+	 * @param level level of the entity
+	 * @return effective level
+	 */
+	private static int getEffectiveLevel(final int level) {
+		return level + 5;
+	}
+
+	/**
+	 * Gets the maximum defence of a defender.
+	 *
+	 * @param def capped def of the defender
+	 * @param armor def value of the defensive items
+	 * @param defenderLevel level of the defender
+	 * @return maximum defence
+	 */
+	public static double getMaxDefence(final int def, final double armor, final int defenderLevel) {
+		// Even strong players are vulnerable without any armor.
+		// Armor def gets much higher with high level players unlike
+		// weapon atk, so it can not be treated similarly. Using geometric
+		// / mean to balance things a bit.
+		return Math.sqrt(def * (SKIN_DEF + armor))
+				* (NEWBIE_DEF + LEVEL_DEF * getEffectiveLevel(defenderLevel));
+	}
+
+	/**
+	 * Gets the effect of the attack rate. Fast weapons are efficient against
+	 * weak enemies, and heavy ones better against strong enemies.
+	 *
+	 * @param attackerLevel level of the attacker
+	 * @param defenderLevel level of the defender
+	 * @param attackRate attack rate of the attacker
+	 * @return factor for the maximum attack
+	 */
+	public static double getSpeedEffect(final int attackerLevel, final int defenderLevel, final int attackRate) {
+		final int effectiveAttackerLevel = getEffectiveLevel(attackerLevel);
+		final int effectiveDefenderLevel = getEffectiveLevel(defenderLevel);
+
+		// Half a parabola; desceding for rate < 5; ascending for > 5
+		double speedEffect = 1.0;
+		if (effectiveDefenderLevel < EVEN_POINT * effectiveAttackerLevel) {
+			final double levelPart = 1.0 - effectiveDefenderLevel
+					/ (EVEN_POINT * effectiveAttackerLevel);
+			// Gets values -1 at rate = 1, 0 at rate = 5,
+			// and approaches 1 when rate approaches infinity.
+			// We can't use a much simpler function as long as we need
+			// to deal with open ended rate values.
+			final double speedPart = 1 - 8 / (attackRate + 3.0);
+
+			speedEffect = 1.0 - WEIGHT_EFFECT * speedPart * levelPart
+					* levelPart;
+		}
+		return speedEffect;
+	}
+
+	/**
+	 * Gets the maximum attack of an attacker.
+	 *
+	 * @param atk capped atk of the attacker
+	 * @param weaponsValue atk value of all attacking weapons or spells
+	 * @param attackerLevel level of the attacker
+	 * @param speedEffect result of {@link #getSpeedEffect(int, int, int)}
+	 * @return maximum attack
+	 */
+	public static double getMaxAttack(final int atk, final double weaponsValue, final int attackerLevel,
+			final double speedEffect) {
+		final double weaponComponent = 1.0 + weaponsValue;
+		return atk * weaponComponent
+				* (1 + LEVEL_ATK * getEffectiveLevel(attackerLevel)) * speedEffect;
+	}
+
+	/**
+	 * Checks if the defender should use karma. The defender doesn't need luck
+	 * to help him defend if he's a much higher level than the attacker.
+	 *
+	 * @param attackerLevel level of the attacker
+	 * @param defenderLevel level of the defender
+	 * @return <code>true</code> if karma should be used
+	 */
+	public static boolean usesKarmaForDefence(final int attackerLevel, final int defenderLevel) {
+		final int levelDifferenceToNotNeedKarmaDefending = (int) (IGNORE_KARMA_MULTIPLIER * defenderLevel);
+		return !(getEffectiveLevel(defenderLevel) - levelDifferenceToNotNeedKarmaDefending
+				> getEffectiveLevel(attackerLevel));
+	}
+
+	/**
+	 * Checks if the attacker should use karma for the damage. The attacker
+	 * doesn't need luck if he's a much higher level than the defender.
+	 *
+	 * @param attackerLevel level of the attacker
+	 * @param defenderLevel level of the defender
+	 * @return <code>true</code> if karma should be used
+	 */
+	public static boolean usesKarmaForAttack(final int attackerLevel, final int defenderLevel) {
+		final int levelDifferenceToNotNeedKarmaAttacking = (int) (IGNORE_KARMA_MULTIPLIER * attackerLevel);
+		return !(getEffectiveLevel(attackerLevel) - levelDifferenceToNotNeedKarmaAttacking
+				> getEffectiveLevel(defenderLevel));
+	}
+
+	/**
+	 * Checks if the attacker should use karma to hit. The attacker doesn't
+	 * need luck if he's much stronger than the defender.
+	 *
+	 * @param attackerLevel level of the attacker
+	 * @param defenderLevel level of the defender
+	 * @return <code>true</code> if karma should be used
+	 */
+	public static boolean usesKarmaToHit(final int attackerLevel, final int defenderLevel) {
+		final int levelDifferenceToNotNeedKarmaAttacking = (int) (IGNORE_KARMA_MULTIPLIER * attackerLevel);
+		return !(attackerLevel - levelDifferenceToNotNeedKarmaAttacking > defenderLevel);
+	}
+
+	/**
+	 * Gets the damage of an attack.
+	 *
+	 * @param susceptibility susceptibility of the defender to the damage type
+	 * @param attack rolled attack value
+	 * @param defence rolled defence value
+	 * @param maxDefence maximum defence of the defender
+	 * @return damage, negative if the attack was blocked
+	 */
+	public static int getDamage(final double susceptibility, final double attack, final double defence,
+			final double maxDefence) {
+		return (int) (susceptibility * (WEIGHT_ATK * attack - defence) / maxDefence);
+	}
+
+	/**
+	 * Gets the risk of an attack to hit.
+	 *
+	 * @param roll 1D20 roll after the karma effect
+	 * @param defenderDEF capped def of the defender
+	 * @param attackerATK capped atk of the attacker
+	 * @return risk, the attack hits if it is greater than 0
+	 */
+	public static int getRiskForCanHit(final int roll, final int defenderDEF, final int attackerATK) {
+		return 20 * attackerATK - roll * defenderDEF;
+	}
+}
@@ -33,6 +33,7 @@ import games.stendhal.server.entity.slot.Slots;
 import marauroa.common.game.Definition;
 import marauroa.common.game.Definition.Type;
 import marauroa.common.game.RPClass;
+import marauroa.common.game.RPEvent;
 import marauroa.common.game.RPObject;
 import marauroa.common.game.RPSlot;
 
@@ -60,6 +61,12 @@ public abstract class Entity extends RPObject implements Killer {
 	private StendhalRPZone zone;
 	private StendhalRPZone lastZone;
 
+	/**
+	 * Set when an attribute or an event of the entity changed since the zone
+	 * was last notified about changes.
+	 */
+	private boolean modified;
+
 	public Entity(final RPObject object) {
 		super(object);
 
@@ -503,10 +510,72 @@ public abstract class Entity extends RPObject implements Killer {
 		 * recognize.
 		 */
 		if (zone != null) {
+			modified = false;
 			zone.modify(this);
 		}
 	}
 
+	/**
+	 * Notifies the StendhalRPWorld about changes, if an attribute or an event
+	 * of the entity has changed since the last notification. This is meant
+	 * for the logic that runs every turn, so that unchanged entities do not
+	 * get included in the perceptions. Changes of slot contents are not
+	 * tracked; code changing those has to use notifyWorldAboutChanges().
+	 */
+	public void notifyWorldAboutChangesIfModified() {
+		if (zone != null) {
+			zone.onModifyRequested(modified);
+			if (modified) {
+				notifyWorldAboutChanges();
+			}
+		}
+	}
+
+	/**
+	 * Checks if an attribute or an event of the entity has changed since the
+	 * zone was last notified about changes.
+	 *
+	 * @return <code>true</code> if the entity has unreported changes
+	 */
+	public boolean isModified() {
+		return modified;
+	}
+
+	@Override
+	public void put(final String attribute, final String value) {
+		if (!modified && ((value == null) || !value.equals(get(attribute)))) {
+			modified = true;
+		}
+		super.put(attribute, value);
+	}
+
+	@Override
+	public String remove(final String attribute) {
+		final String old = super.remove(attribute);
+		if (old != null) {
+			modified = true;
+		}
+		return old;
+	}
+
+	@Override
+	public void put(final String map, final String key, final String value) {
+		modified = true;
+		super.put(map, key, value);
+	}
+
+	@Override
+	public String remove(final String map, final String key) {
+		modified = true;
+		return super.remove(map, key);
+	}
+
+	@Override
+	public void addEvent(final RPEvent event) {
+		modified = true;
+		super.addEvent(event);
+	}
+
 	/**
 	 * Describes the entity (if a players looks at it).
 	 *
@@ -47,6 +47,8 @@ import games.stendhal.server.core.engine.ItemLogger;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPZone;
 import games.stendhal.server.core.engine.db.StendhalKillLogDAO;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
+import games.stendhal.server.core.engine.dbcommand.DBCommandPriority;
 import games.stendhal.server.core.engine.dbcommand.LogKillEventCommand;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TutorialNotifier;
@@ -72,7 +74,6 @@ import marauroa.common.game.RPAction;
 import marauroa.common.game.RPObject;
 import marauroa.common.game.RPSlot;
 import marauroa.common.game.SyntaxException;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.game.Statistics;
 import marauroa.server.game.db.DAORegister;
 
@@ -141,38 +142,6 @@ public abstract class RPEntity extends GuidedEntity {
 	protected CounterMap<Entity> damageReceived;
 	protected int totalDamageReceived;
 
-	/**
-	 * To avoid using karma for damage calculations when the natural ability of
-	 * the fighters would mean they need no luck, we only use karma when the
-	 * levels are significantly different.
-	 */
-
-	private static final double IGNORE_KARMA_MULTIPLIER = 0.2;
-
-	/**
-	 * Level bonus for defence given to everyone. Prevents newbies killing each
-	 * other too fast.
-	 */
-	private static final double NEWBIE_DEF = 10.0;
-	/**
-	 * Armor value of no armor. Prevents unarmored or lightly armored entities
-	 * from being completely helpless
-	 */
-	private static final double SKIN_DEF = 10.0;
-	/** Adjusts the weight of level. Larger means weight more */
-	private static final double LEVEL_ATK = 0.03;
-	/** Adjusts the weight of level. Larger means weight more */
-	private static final double LEVEL_DEF = 0.03;
-	/** General parameter for damage. Larger means more damage. */
-	private static final double WEIGHT_ATK = 8.0;
-	/** the level where relative damage curves start being linear. */
-	private static final double EVEN_POINT = 1.2;
-	/**
-	 * Steepness of the damage vs level curves. The maximum bonus/penalty with
-	 * weak enemies
-	 */
-	private static final double WEIGHT_EFFECT = 0.5;
-
 	/**
 	 * A helper class for building a size limited list of killer names. If there
 	 * are more killers than the limit, then "others" is set as the last killer.
@@ -385,13 +354,23 @@ public abstract class RPEntity extends GuidedEntity {
 		final int given = baseHP - getHP();
 
 		if (given != 0) {
-			put("heal", given);
+			putHeal(given);
 			setHP(baseHP);
 		}
 
 		return given;
 	}
 
+	/**
+	 * Show the healed amount to the clients for one turn.
+	 *
+	 * @param amount healed amount
+	 */
+	private void putHeal(final int amount) {
+		put("heal", amount);
+		SingletonRepository.getRuleProcessor().removeAttributeNextTurn(this, "heal");
+	}
+
 	/**
 	 * Heal this entity.
 	 *
@@ -426,7 +405,7 @@ public abstract class RPEntity extends GuidedEntity {
 				tempHp += given;
 
 				if (tell) {
-					put("heal", given);
+					putHeal(given);
 				}
 
 				setHP(tempHp);
@@ -559,28 +538,17 @@ public abstract class RPEntity extends GuidedEntity {
 	 */
 	int damageDone(RPEntity defender, double attackingWeaponsValue, Nature damageType,
 			boolean isRanged, int maxRange) {
-		// Don't start from 0 to mitigate weird behaviour at very low levels
-		final int effectiveAttackerLevel = getLevel() + 5;
-		final int effectiveDefenderLevel = defender.getLevel() + 5;
-
 		// Defending side
 		final double armor = defender.getItemDef();
 		final int targetDef = defender.getCappedDef();
-		// Even strong players are vulnerable without any armor.
-		// Armor def gets much higher with high level players unlike
-		// weapon atk, so it can not be treated similarly. Using geometric
-		// / mean to balance things a bit.
-		final double maxDefence = Math.sqrt(targetDef * (SKIN_DEF + armor))
-				* (NEWBIE_DEF + LEVEL_DEF * effectiveDefenderLevel);
+		final double maxDefence = CombatFormula.getMaxDefence(targetDef, armor, defender.getLevel());
 
 		double defence = Rand.rand() * maxDefence;
 		/*
 		 * Account for karma (+/-10%) But, the defender doesn't need luck to
 		 * help him defend if he's a much higher level than this attacker
 		 */
-		final int levelDifferenceToNotNeedKarmaDefending = (int) (IGNORE_KARMA_MULTIPLIER * defender.getLevel());
-
-		if (!(effectiveDefenderLevel - levelDifferenceToNotNeedKarmaDefending  > effectiveAttackerLevel)) {
+		if (CombatFormula.usesKarmaForDefence(getLevel(), defender.getLevel())) {
 			defence += defence * defender.useKarma(0.1);
 		}
 
@@ -606,35 +574,16 @@ public abstract class RPEntity extends GuidedEntity {
 					+ ") and uses a weapon of " + getItemAtk());
 		}
 
-		// Make fast weapons efficient against weak enemies, and heavy
-		// better against strong enemies.
-		// Half a parabola; desceding for rate < 5; ascending for > 5
-		double speedEffect = 1.0;
-		if (effectiveDefenderLevel < EVEN_POINT * effectiveAttackerLevel) {
-			final double levelPart = 1.0 - effectiveDefenderLevel
-					/ (EVEN_POINT * effectiveAttackerLevel);
-			// Gets values -1 at rate = 1, 0 at rate = 5,
-			// and approaches 1 when rate approaches infinity.
-			// We can't use a much simpler function as long as we need
-			// to deal with open ended rate values.
-			final double speedPart = 1 - 8 / (getAttackRate() + 3.0);
-
-			speedEffect = 1.0 - WEIGHT_EFFECT * speedPart * levelPart
-					* levelPart;
-		}
-
-		final double weaponComponent = 1.0 + attackingWeaponsValue;
+		final double speedEffect = CombatFormula.getSpeedEffect(getLevel(), defender.getLevel(), getAttackRate());
 		// XXX: Is correct to use sourceAtk here instead of atkStrength?
-		final double maxAttack = sourceAtk * weaponComponent
-				* (1 + LEVEL_ATK * effectiveAttackerLevel) * speedEffect;
+		final double maxAttack = CombatFormula.getMaxAttack(sourceAtk, attackingWeaponsValue, getLevel(), speedEffect);
 		double attack = Rand.rand() * maxAttack;
 
 		/*
 		 * Account for karma (+/-10%) But, don't need luck to help you attack if
 		 * you're a much higher level than what you attack
 		 */
-		final int levelDifferenceToNotNeedKarmaAttacking = (int) (IGNORE_KARMA_MULTIPLIER * getLevel());
-		if (!(effectiveAttackerLevel - levelDifferenceToNotNeedKarmaAttacking > effectiveDefenderLevel)) {
+		if (CombatFormula.usesKarmaForAttack(getLevel(), defender.getLevel())) {
 			attack += attack * useKarma(0.1);
 		}
 
@@ -643,8 +592,7 @@ public abstract class RPEntity extends GuidedEntity {
 		}
 
 		// Apply defense and damage type effect
-		int damage = (int) (defender.getSusceptibility(damageType)
-				* (WEIGHT_ATK * attack - defence) / maxDefence);
+		int damage = CombatFormula.getDamage(defender.getSusceptibility(damageType), attack, defence, maxDefence);
 
 		/* FIXME: Can argument be removed and just use
 		 *        RPEntity.usingRangedAttack() here?
@@ -1177,7 +1125,7 @@ public abstract class RPEntity extends GuidedEntity {
 	 * @param type Type of the damage
 	 * @return damage multiplier
 	 */
-	protected double getSusceptibility(Nature type) {
+	public double getSusceptibility(Nature type) {
 		return 1.0;
 	}
 
@@ -1186,7 +1134,7 @@ public abstract class RPEntity extends GuidedEntity {
 	 *
 	 * @return type of damage
 	 */
-	protected Nature getDamageType() {
+	public Nature getDamageType() {
 		return Nature.CUT;
 	}
 
@@ -1742,7 +1690,7 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 			new GameEvent(killerName, "killed", this.getName(), killLog.entityToType(killer), killLog.entityToType(this)).raise();
 		}
 
-		DBCommandQueue.get().enqueue(new LogKillEventCommand(this, killer));
+		DBCommandDispatcher.get().enqueue(new LogKillEventCommand(this, killer), DBCommandPriority.LOG);
 
 		die(killer, remove);
 	}
@@ -3020,9 +2968,7 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 		 * Use some karma unless attacker is much stronger than defender, in
 		 * which case attacker doesn't need luck to help him hit.
 		 */
-		final int levelDifferenceToNotNeedKarmaAttacking = (int) (IGNORE_KARMA_MULTIPLIER * getLevel());
-		if (!(getLevel() - levelDifferenceToNotNeedKarmaAttacking > defender
-				.getLevel())) {
+		if (CombatFormula.usesKarmaToHit(getLevel(), defender.getLevel())) {
 			final double karma = this.useKarma(0.1);
 			// the karma effect must be cast to an integer to affect the roll
 			// but in most cases this means the karma use was lost. so multiply by 2 to
@@ -3050,7 +2996,7 @@ System.out.printf("  drop: %2d %2d\n", attackerRoll, defenderRoll);
 
 	int calculateRiskForCanHit(final int roll, final int defenderDEF,
 			final int attackerATK) {
-		return 20 * attackerATK - roll * defenderDEF;
+		return CombatFormula.getRiskForCanHit(roll, defenderDEF, attackerATK);
 	}
 
 	/**
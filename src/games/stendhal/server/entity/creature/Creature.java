@@ -882,7 +882,7 @@ public class Creature extends NPC {
 			if (movementSound != null && movementSoundEvent == null) {
 				loopMovementSound();
 			}
-			this.notifyWorldAboutChanges();
+			this.notifyWorldAboutChangesIfModified();
 		} else {
 			/*
 			 * Run enough logic to stop attacking, if the zone gets empty.
@@ -1020,7 +1020,7 @@ public class Creature extends NPC {
 	}
 
 	@Override
-	protected double getSusceptibility(Nature type) {
+	public double getSusceptibility(Nature type) {
 		Double d = susceptibilities.get(type);
 
 		if (d != null) {
@@ -1031,7 +1031,7 @@ public class Creature extends NPC {
 	}
 
 	@Override
-	protected Nature getDamageType() {
+	public Nature getDamageType() {
 		return damageType;
 	}
 
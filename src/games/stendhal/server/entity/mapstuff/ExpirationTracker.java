@@ -115,7 +115,7 @@ public class ExpirationTracker extends Entity {
 		StendhalRPZone zone = this.getZone();
 
 		if (zone != null) {
-			zone.storeToDatabase();
+			zone.requestStoreToDatabase();
 		}
 	}
 
@@ -77,7 +77,7 @@ public class StoredChest extends Chest {
 		StendhalRPZone zone = this.getZone();
 		if (zone != null) {
 			logger.debug("Storing chest in zone " + zone.getName() + " with " + getSlot("content").size() + " items.");
-			zone.storeToDatabase();
+			zone.requestStoreToDatabase();
 		} else {
 			logger.error("Closing StoredChest which is in no zone.");
 		}
@@ -162,7 +162,7 @@ public class StoredChest extends Chest {
 			StendhalRPZone zone = getZone();
 			if (zone != null) {
 				logger.info("Storing chest in zone " + zone.getName() + " with " + getSlot("content").size() + " items while it's open.");
-				zone.storeToDatabase();
+				zone.requestStoreToDatabase();
 			}
 			if (chestCloser()) {
 				SingletonRepository.getTurnNotifier().notifyInSeconds(60, this);
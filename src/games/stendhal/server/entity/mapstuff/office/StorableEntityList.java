@@ -65,7 +65,7 @@ public abstract class StorableEntityList<T extends Entity> implements TurnListen
 			return false;
 		}
 		zone.add(entity);
-		zone.storeToDatabase();
+		zone.requestStoreToDatabase();
 		return true;
 	}
 
@@ -124,7 +124,7 @@ public abstract class StorableEntityList<T extends Entity> implements TurnListen
     	for (final T entity : entities) {
     		if (getName(entity).equals(identifier)) {
     			zone.remove(entity);
-    			zone.storeToDatabase();
+    			zone.requestStoreToDatabase();
     			changed = true;
     		}
     	}
@@ -165,7 +165,7 @@ public abstract class StorableEntityList<T extends Entity> implements TurnListen
     	}
 
     	if (modified) {
-    		zone.storeToDatabase();
+    		zone.requestStoreToDatabase();
     	}
 
 		SingletonRepository.getTurnNotifier().notifyInSeconds(notifyDelta, this);
@@ -302,7 +302,7 @@ public class HousePortal extends AccessCheckingPortal {
 	private void saveToDatabase() {
 		StendhalRPZone zone = this.getZone();
 		if (zone != null) {
-			zone.storeToDatabase();
+			zone.requestStoreToDatabase();
 		}
 	}
 }
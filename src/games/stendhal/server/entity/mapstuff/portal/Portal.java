@@ -23,6 +23,7 @@ import games.stendhal.server.core.events.UseListener;
 import games.stendhal.server.core.pathfinder.FixedPath;
 import games.stendhal.server.core.pathfinder.Node;
 import games.stendhal.server.core.pathfinder.Path;
+import games.stendhal.server.core.pathfinder.ZoneRouteGraph;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.RPEntity;
 import games.stendhal.server.entity.player.Player;
@@ -131,6 +132,9 @@ public class Portal extends Entity implements UseListener {
 		this.destinationReference = reference;
 		this.destinationZone = zone;
 		this.isDestinationSet = true;
+		if (getZone() != null) {
+			ZoneRouteGraph.get().onDestinationChanged();
+		}
 	}
 
 	public Object getDestinationReference() {
@@ -388,6 +392,11 @@ public class Portal extends Entity implements UseListener {
 		return (face != null);
 	}
 
+	@Override
+	protected void onMoved(final int oldX, final int oldY, final int newX, final int newY) {
+		getZone().onEntityMoved(this, oldX, oldY);
+	}
+
 	/**
 	 * Gets offset positioning value when used as a destination. Valid values
 	 * are 0-7.
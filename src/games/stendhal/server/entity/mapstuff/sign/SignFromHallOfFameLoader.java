@@ -15,11 +15,11 @@ package games.stendhal.server.entity.mapstuff.sign;
 import java.util.Iterator;
 import java.util.List;
 
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.engine.dbcommand.ReadCharactersFromHallOfFameCommand;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TurnNotifier;
 import marauroa.server.db.command.DBCommand;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.db.command.ResultHandle;
 
 /**
@@ -50,13 +50,13 @@ public class SignFromHallOfFameLoader implements TurnListener {
 		this.handle = new ResultHandle();
 		this.lineBreaks = lineBreaks;
 		DBCommand command = new ReadCharactersFromHallOfFameCommand(fametype, max, ascending);
-		DBCommandQueue.get().enqueueAndAwaitResult(command, handle);
+		DBCommandDispatcher.get().enqueueAndAwaitResult(command, handle);
 	}
 
 	@Override
 	public void onTurnReached(int currentTurn) {
 		// if there is no result, wait some more
-		ReadCharactersFromHallOfFameCommand command = DBCommandQueue.get().getOneResult(ReadCharactersFromHallOfFameCommand.class, handle);
+		ReadCharactersFromHallOfFameCommand command = DBCommandDispatcher.get().getOneResult(ReadCharactersFromHallOfFameCommand.class, handle);
 		if (command == null) {
 			TurnNotifier.get().notifyInTurns(0, this);
 			return;
@@ -20,6 +20,8 @@ import java.util.TreeSet;
 
 import org.apache.log4j.Logger;
 
+import games.stendhal.server.core.rp.searchindex.SearchIndexUpdater;
+
 /**
  * This Singleton should contain all NPCs in the Stendhal world that are unique.
  */
@@ -92,6 +94,7 @@ public class NPCList implements Iterable<SpeakerNPC> {
 					+ npc.getName());
 		} else {
 			contents.put(name, npc);
+			SearchIndexUpdater.get().onNPCAdded(npc);
 		}
 	}
 
@@ -104,7 +107,11 @@ public class NPCList implements Iterable<SpeakerNPC> {
 	 * @return SpeakerNPC or null in case it was not in the list
 	 */
 	public SpeakerNPC remove(final String name) {
-		return contents.remove(name.toLowerCase());
+		final SpeakerNPC npc = contents.remove(name.toLowerCase());
+		if (npc != null) {
+			SearchIndexUpdater.get().onNPCRemoved(npc);
+		}
+		return npc;
 	}
 
 	/**
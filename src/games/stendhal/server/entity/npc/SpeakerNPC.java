@@ -384,10 +384,6 @@ public class SpeakerNPC extends NPC {
 			return;
 		}
 
-		if (has("text")) {
-			remove("text");
-		}
-
 		// if no player is talking to the NPC, the NPC can move around.
 		if (!isTalking()) {
 			// TODO: Reset this on FSM engine state change
@@ -431,7 +427,7 @@ public class SpeakerNPC extends NPC {
 		}
 
 		maybeMakeSound();
-		notifyWorldAboutChanges();
+		notifyWorldAboutChangesIfModified();
 	}
 
 	protected void endConversation() {
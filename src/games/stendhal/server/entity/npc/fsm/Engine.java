@@ -15,6 +15,7 @@ import games.stendhal.common.parser.ConversationParser;
 import games.stendhal.common.parser.Expression;
 import games.stendhal.common.parser.ExpressionMatcher;
 import games.stendhal.common.parser.Sentence;
+import games.stendhal.common.parser.SimilarityIndex;
 import games.stendhal.server.entity.npc.ChatAction;
 import games.stendhal.server.entity.npc.ChatCondition;
 import games.stendhal.server.entity.npc.ConversationStates;
@@ -39,6 +40,13 @@ public class Engine {
 	// current FSM state
 	private ConversationStates currentState = ConversationStates.IDLE;
 
+	// indexes of the normalized triggers and their main words for similarity
+	// matching, created when needed and dropped when the transitions change
+	private SimilarityIndex similarTriggers;
+	private SimilarityIndex similarTriggerMainWords;
+	// true, if there is a trigger that matches any input
+	private boolean hasEmptyTrigger;
+
 	/**
 	 * Creates a new FSM.
 	 *
@@ -277,6 +285,7 @@ public class Engine {
 			boolean secondary, final ConversationStates nextState, final String reply, final ChatAction action, final String label) {
 		if (triggerExpressions!=null && !triggerExpressions.isEmpty()) {
 			stateTransitionTable.add(new Transition(state, triggerExpressions, condition, secondary, nextState, reply, action, label));
+			similarTriggers = null;
 		}
 	}
 
@@ -302,6 +311,7 @@ public class Engine {
 			boolean secondary, final ConversationStates nextState, final String reply, final ChatAction action) {
 		if (triggerExpressions!=null && !triggerExpressions.isEmpty()) {
 			stateTransitionTable.add(new Transition(state, triggerExpressions, condition, secondary, nextState, reply, action));
+			similarTriggers = null;
 		}
 	}
 
@@ -326,6 +336,9 @@ public class Engine {
 				res = true;
 			}
 		}
+		if (res) {
+			similarTriggers = null;
+		}
 		return res;
 	}
 
@@ -514,6 +527,11 @@ public class Engine {
 
 	private boolean matchTransition(final MatchType type, final Player player,
 			final Sentence sentence) {
+		if ((type == MatchType.SIMILAR_MATCH || type == MatchType.SIMILAR_JUMP)
+				&& !mayMatchSimilar(sentence)) {
+			return false;
+		}
+
 		// We are using sets instead of plain lists to merge identical transitions.
 		final TransitionSet preferredTransitions = new TransitionSet();
 		final TransitionSet secondaryTransitions = new TransitionSet();
@@ -570,6 +588,41 @@ public class Engine {
 		}
 	}
 
+	/**
+	 * Checks with the trigger indexes, if any transition could match the
+	 * sentence by similarity, without comparing it with each trigger.
+	 *
+	 * @param sentence parsed input
+	 * @return <code>false</code> if no trigger is similar to the input
+	 */
+	private boolean mayMatchSimilar(final Sentence sentence) {
+		if (similarTriggers == null) {
+			similarTriggers = new SimilarityIndex();
+			similarTriggerMainWords = new SimilarityIndex();
+			hasEmptyTrigger = false;
+			for (final Transition transition : stateTransitionTable) {
+				for (final Expression trigger : transition.getTriggers()) {
+					if (trigger.getNormalized().length() == 0) {
+						hasEmptyTrigger = true;
+					} else if (trigger.getMatcher() == null) {
+						similarTriggers.add(trigger.getNormalized());
+						similarTriggerMainWords.add(trigger.getMainWord());
+					}
+				}
+			}
+		}
+		if (hasEmptyTrigger) {
+			return true;
+		}
+
+		final Expression expr = sentence.getTriggerExpression();
+		if ((expr == null) || (expr.getNormalized() == null) || (expr.getMainWord() == null)) {
+			return true;
+		}
+		return similarTriggers.containsSimilar(expr.getNormalized(), 0.1)
+				|| similarTriggerMainWords.containsSimilar(expr.getMainWord(), 0.1);
+	}
+
 	/**
 	 * Look for a match between given sentence and transition in the current state.
 	 * TODO mf - refactor match type handling
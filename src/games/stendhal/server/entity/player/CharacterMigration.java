@@ -0,0 +1,72 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.player;
+
+import marauroa.common.game.RPObject;
+
+/**
+ * A step that upgrades stored characters to a schema version.
+ *
+ * @see CharacterSchema
+ */
+public abstract class CharacterMigration {
+	private final int version;
+	private final String description;
+
+	/**
+	 * creates a new CharacterMigration
+	 *
+	 * @param version schema version the character has after this step
+	 * @param description short description for the log
+	 */
+	protected CharacterMigration(final int version, final String description) {
+		this.version = version;
+		this.description = description;
+	}
+
+	/**
+	 * @return schema version the character has after this step
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return short description of the step
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * upgrades the stored object before the Player is created from it
+	 *
+	 * @param object RPObject representing a player
+	 */
+	public void migrateObject(final RPObject object) {
+		// sub classes can implement this method
+	}
+
+	/**
+	 * upgrades the Player after it was created
+	 *
+	 * @param player Player
+	 */
+	public void migratePlayer(final Player player) {
+		// sub classes can implement this method
+	}
+
+	@Override
+	public String toString() {
+		return version + ": " + description;
+	}
+}
@@ -0,0 +1,145 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import marauroa.common.game.RPObject;
+
+/**
+ * Keeps track of the schema version of stored characters.
+ * <p>
+ * Characters store the version of the last migration step that was applied
+ * to them. On login only the steps with a higher version are run, so that
+ * the conversions of old releases are not repeated for every login. New
+ * conversions are added by registering a step with the next version number.
+ */
+public class CharacterSchema {
+	private static Logger logger = Logger.getLogger(CharacterSchema.class);
+
+	/** name of the attribute storing the schema version */
+	public static final String VERSION_ATTRIBUTE = "schema_version";
+
+	/** migration steps ordered by version */
+	private static final List<CharacterMigration> MIGRATIONS = new ArrayList<CharacterMigration>();
+
+	static {
+		register(new CharacterMigration(1, "attributes and slots up to 1.20") {
+			@Override
+			public void migrateObject(final RPObject object) {
+				UpdateConverter.updatePlayerRPObject(object);
+			}
+		});
+		register(new CharacterMigration(2, "item names in quest slots and old quest states") {
+			@Override
+			public void migratePlayer(final Player player) {
+				UpdateConverter.updateQuests(player);
+			}
+		});
+	}
+
+	private CharacterSchema() {
+		// static methods only
+	}
+
+	/**
+	 * registers a migration step
+	 *
+	 * @param migration step, its version must be higher than the version of
+	 * 	all steps registered before
+	 */
+	public static synchronized void register(final CharacterMigration migration) {
+		if (migration.getVersion() <= getCurrentVersion()) {
+			throw new IllegalArgumentException("Migration " + migration
+					+ " is not newer than version " + getCurrentVersion());
+		}
+		MIGRATIONS.add(migration);
+	}
+
+	/**
+	 * @return the schema version of characters after all steps have been run
+	 */
+	public static synchronized int getCurrentVersion() {
+		if (MIGRATIONS.isEmpty()) {
+			return 0;
+		}
+		return MIGRATIONS.get(MIGRATIONS.size() - 1).getVersion();
+	}
+
+	/**
+	 * gets the schema version of a character
+	 *
+	 * @param object RPObject representing a player
+	 * @return version, 0 for characters that have never been migrated
+	 */
+	public static int getVersion(final RPObject object) {
+		if (!object.has(VERSION_ATTRIBUTE)) {
+			return 0;
+		}
+		return object.getInt(VERSION_ATTRIBUTE);
+	}
+
+	/**
+	 * checks if a character needs to be migrated
+	 *
+	 * @param object RPObject representing a player
+	 * @return <code>true</code> if there are steps that have not been run
+	 */
+	public static boolean isOutdated(final RPObject object) {
+		return getVersion(object) < getCurrentVersion();
+	}
+
+	/**
+	 * Runs the object part of all steps the character has not seen yet. This
+	 * has to be called before the Player is created from the object.
+	 *
+	 * @param object RPObject representing a player
+	 */
+	public static void migrateObject(final RPObject object) {
+		final int version = getVersion(object);
+		for (final CharacterMigration migration : getMigrations()) {
+			if (migration.getVersion() > version) {
+				logger.debug("Migrating " + object.get("name") + " to " + migration);
+				migration.migrateObject(object);
+			}
+		}
+	}
+
+	/**
+	 * Runs the player part of all steps the character has not seen yet, and
+	 * marks the character as up to date.
+	 *
+	 * @param player Player
+	 */
+	public static void migratePlayer(final Player player) {
+		final int version = getVersion(player);
+		final List<CharacterMigration> migrations = getMigrations();
+		for (final CharacterMigration migration : migrations) {
+			if (migration.getVersion() > version) {
+				migration.migratePlayer(player);
+			}
+		}
+		if (!migrations.isEmpty()) {
+			final int current = migrations.get(migrations.size() - 1).getVersion();
+			if (current > version) {
+				player.put(VERSION_ATTRIBUTE, current);
+			}
+		}
+	}
+
+	private static synchronized List<CharacterMigration> getMigrations() {
+		return new ArrayList<CharacterMigration>(MIGRATIONS);
+	}
+}
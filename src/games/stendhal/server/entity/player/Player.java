@@ -1270,6 +1270,7 @@ public class Player extends RPEntity implements UseListener {
 				put("online", get("online") + "," + who);
 			} else {
 				put("online", who);
+				SingletonRepository.getRuleProcessor().removeAttributeNextTurn(this, "online");
 			}
 		}
 	}
@@ -1291,6 +1292,7 @@ public class Player extends RPEntity implements UseListener {
 				put("offline", get("offline") + "," + who);
 			} else {
 				put("offline", who);
+				SingletonRepository.getRuleProcessor().removeAttributeNextTurn(this, "offline");
 			}
 		}
 	}
@@ -1848,39 +1850,6 @@ public class Player extends RPEntity implements UseListener {
 	 */
 	@Override
 	public void logic() {
-		/*
-		 * TODO: Refactor Most of these things can be handled as RPEvents
-		 */
-		if (has("risk")) {
-			remove("risk");
-			notifyWorldAboutChanges();
-		}
-
-		if (has("damage")) {
-			remove("damage");
-			notifyWorldAboutChanges();
-		}
-
-		if (has("heal")) {
-			remove("heal");
-			notifyWorldAboutChanges();
-		}
-
-		if (has("dead")) {
-			remove("dead");
-			notifyWorldAboutChanges();
-		}
-
-		if (has("online")) {
-			remove("online");
-			notifyWorldAboutChanges();
-		}
-
-		if (has("offline")) {
-			remove("offline");
-			notifyWorldAboutChanges();
-		}
-
 		applyMovement();
 
 		final int turn = SingletonRepository.getRuleProcessor().getTurn();
@@ -2284,7 +2253,7 @@ public class Player extends RPEntity implements UseListener {
 	}
 
 	@Override
-	protected double getSusceptibility(Nature type) {
+	public double getSusceptibility(Nature type) {
 		double sus = 1.0;
 		/*
 		 * check weapon and shield separately, so that holding 2 resistant
@@ -2324,6 +2293,7 @@ public class Player extends RPEntity implements UseListener {
 				|| !getMap("buddies").containsKey(name);
 
 		put("buddies", name, online);
+		SingletonRepository.getRuleProcessor().getOnlineRoster().onBuddyAdded(this, name);
 
 		return isNew;
 	}
@@ -2336,6 +2306,7 @@ public class Player extends RPEntity implements UseListener {
 	 * @return true if a buddy was removed
 	 */
 	public boolean removeBuddy(String name) {
+		SingletonRepository.getRuleProcessor().getOnlineRoster().onBuddyRemoved(this, name);
 		return remove("buddies", name) != null;
 	}
 
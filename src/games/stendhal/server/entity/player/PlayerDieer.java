@@ -66,6 +66,7 @@ public class PlayerDieer {
 
 	public void onDead(final Killer killer) {
 		player.put("dead", "");
+		SingletonRepository.getRuleProcessor().removeAttributeNextTurn(player, "dead");
 		logger.debug("ondeadstart");
 		abondonPetsAndSheep();
 
@@ -43,6 +43,7 @@ public class PlayerRPClass {
 		player.addRPEvent(Events.HEADLESS_PRIVATE_TEXT, Definition.PRIVATE);
 		player.addRPEvent(Events.PLAYER_LOGGED_ON, Definition.PRIVATE);
 		player.addRPEvent(Events.PLAYER_LOGGED_OUT, Definition.PRIVATE);
+		player.addRPEvent(Events.ONLINE_PLAYERS, Definition.PRIVATE);
 		player.addRPEvent(Events.TRADE_STATE_CHANGE, Definition.PRIVATE);
 		player.addRPEvent(Events.REACHED_ACHIEVEMENT, Definition.PRIVATE);
 
@@ -52,6 +53,7 @@ public class PlayerRPClass {
 		player.addAttribute("outfit_org", Type.INT, Definition.PRIVATE);
 		player.addAttribute("outfit_colors", Type.MAP);
 		player.addAttribute("outfit_expire_age", Type.INT, Definition.HIDDEN);
+		player.addAttribute(CharacterSchema.VERSION_ATTRIBUTE, Type.INT, Definition.HIDDEN);
 
 		player.addAttribute("away", Type.LONG_STRING, Definition.VOLATILE);
 		player.addAttribute("grumpy", Type.LONG_STRING, Definition.VOLATILE);
@@ -15,13 +15,13 @@ package games.stendhal.server.entity.player;
 import java.util.Set;
 
 import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.engine.dbcommand.ReadAchievementsForPlayerCommand;
 import games.stendhal.server.core.events.LoginListener;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TurnListenerDecorator;
 import games.stendhal.server.core.events.TurnNotifier;
 import marauroa.server.db.command.DBCommand;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.db.command.ResultHandle;
 
 public class ReadAchievementsOnLogin implements LoginListener, TurnListener {
@@ -31,13 +31,13 @@ public class ReadAchievementsOnLogin implements LoginListener, TurnListener {
 	@Override
 	public void onLoggedIn(Player player) {
 		DBCommand command = new ReadAchievementsForPlayerCommand(player);
-		DBCommandQueue.get().enqueueAndAwaitResult(command, handle);
+		DBCommandDispatcher.get().enqueueAndAwaitResult(command, handle);
 		TurnNotifier.get().notifyInTurns(1, new TurnListenerDecorator(this));
 	}
 
 	@Override
 	public void onTurnReached(int currentTurn) {
-		ReadAchievementsForPlayerCommand command = DBCommandQueue.get().getOneResult(ReadAchievementsForPlayerCommand.class, handle);
+		ReadAchievementsForPlayerCommand command = DBCommandDispatcher.get().getOneResult(ReadAchievementsForPlayerCommand.class, handle);
 		if (command == null) {
 			TurnNotifier.get().notifyInTurns(0, new TurnListenerDecorator(this));
 			return;
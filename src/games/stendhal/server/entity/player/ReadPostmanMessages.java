@@ -18,13 +18,13 @@ import org.apache.log4j.Logger;
 
 import games.stendhal.common.NotificationType;
 import games.stendhal.server.core.engine.ChatMessage;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.engine.dbcommand.GetPostmanMessagesCommand;
 import games.stendhal.server.core.events.LoginListener;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TurnListenerDecorator;
 import games.stendhal.server.core.events.TurnNotifier;
 import marauroa.server.db.command.DBCommand;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.db.command.ResultHandle;
 
 /**
@@ -40,7 +40,7 @@ public class ReadPostmanMessages implements LoginListener, TurnListener {
 
 	public void readMessages(final Player player) {
 		DBCommand command = new GetPostmanMessagesCommand(player);
-		DBCommandQueue.get().enqueueAndAwaitResult(command, handle);
+		DBCommandDispatcher.get().enqueueAndAwaitResult(command, handle);
 		// wait one turn so that the messages come after any login messages
 		TurnNotifier.get().notifyInTurns(1, new TurnListenerDecorator(this));
 	}
@@ -62,7 +62,7 @@ public class ReadPostmanMessages implements LoginListener, TurnListener {
 	 */
 	@Override
 	public void onTurnReached(int currentTurn) {
-		GetPostmanMessagesCommand command = DBCommandQueue.get().getOneResult(GetPostmanMessagesCommand.class, handle);
+		GetPostmanMessagesCommand command = DBCommandDispatcher.get().getOneResult(GetPostmanMessagesCommand.class, handle);
 
 		if (command == null) {
 			TurnNotifier.get().notifyInTurns(0, new TurnListenerDecorator(this));
@@ -174,6 +174,19 @@ public abstract class UpdateConverter {
 		return item;
 	}
 
+	/**
+	 * Gives players that were stored with no hp left 1 hp. This is not a
+	 * one time migration step, because it is checked on every login.
+	 *
+	 * @param object RPObject representing a player
+	 */
+	public static void ensurePositiveHP(final RPObject object) {
+		if (object.has("hp") && (object.getInt("hp") <= 0)) {
+			logger.warn("Setting hp to 1 for player " + object);
+			object.put("hp", 1);
+		}
+	}
+
 	/**
      * Updates a player RPObject from an old version of Stendhal.
      *
@@ -283,10 +296,7 @@ public abstract class UpdateConverter {
     	transformKillSlot(object);
 
     	// port to 0.81 because of a bug in 0.80 which allowed 0 hp by double killing on logout during dying
-    	if (object.getInt("hp") <= 0) {
-    		logger.warn("Setting hp to 1 for player " + object);
-    		object.put("hp", 1);
-    	}
+    	ensurePositiveHP(object);
 
     	// port to 0.85 added buddy list as map - copy buddies to map
     	if (object.hasSlot("!buddy")) {
@@ -14,6 +14,7 @@ package games.stendhal.server.entity.player;
 import java.util.Map;
 
 import games.stendhal.common.MathHelper;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.engine.dbcommand.DeletePendingAchievementDetailsCommand;
 import games.stendhal.server.core.engine.dbcommand.ReadPendingAchievementDetailsCommand;
 import games.stendhal.server.core.events.LoginListener;
@@ -21,7 +22,6 @@ import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TurnListenerDecorator;
 import games.stendhal.server.core.events.TurnNotifier;
 import marauroa.server.db.command.DBCommand;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.db.command.ResultHandle;
 
 /**
@@ -38,13 +38,13 @@ public class UpdatePendingAchievementsOnLogin implements LoginListener, TurnList
 	@Override
 	public void onLoggedIn(Player player) {
 		DBCommand command = new ReadPendingAchievementDetailsCommand(player);
-		DBCommandQueue.get().enqueueAndAwaitResult(command, handle);
+		DBCommandDispatcher.get().enqueueAndAwaitResult(command, handle);
 		TurnNotifier.get().notifyInTurns(1, new TurnListenerDecorator(this));
 	}
 
 	@Override
 	public void onTurnReached(int currentTurn) {
-		ReadPendingAchievementDetailsCommand command = DBCommandQueue.get().getOneResult(ReadPendingAchievementDetailsCommand.class, handle);
+		ReadPendingAchievementDetailsCommand command = DBCommandDispatcher.get().getOneResult(ReadPendingAchievementDetailsCommand.class, handle);
 
 		if (command == null) {
 			TurnNotifier.get().notifyInTurns(0, new TurnListenerDecorator(this));
@@ -64,7 +64,7 @@ public class UpdatePendingAchievementsOnLogin implements LoginListener, TurnList
 
 		// delete the entries. We don't need feedback
 		DBCommand deletecommand = new DeletePendingAchievementDetailsCommand(player);
-		DBCommandQueue.get().enqueue(deletecommand);
+		DBCommandDispatcher.get().enqueue(deletecommand);
 
 	}
 
@@ -62,6 +62,11 @@ public class Market extends PassiveEntity {
 	 */
 	public static final String EXPIRED_OFFERS_SLOT_NAME = "expired_offers";
 
+	/** index of the offers */
+	private MarketIndex offersIndex;
+	/** index of the expired offers */
+	private MarketIndex expiredOffersIndex;
+
 	/**
 	 * Generate the RPClass for the Market
 	 */
@@ -200,7 +205,8 @@ public class Market extends PassiveEntity {
 		Offer offer = new Offer(item, money, offerer);
 		RPSlot slot = this.getSlot(OFFERS_SLOT_NAME);
 		slot.add(offer);
-		getZone().storeToDatabase();
+		getOffersIndex().add(offer);
+		getZone().requestStoreToDatabase();
 
 		new ItemLogger().addLogItemEventCommand(new LogSimpleItemEventCommand(
 				item, offerer, "slot-to-market", item.get("name"), Integer
@@ -234,6 +240,7 @@ public class Market extends PassiveEntity {
 						offer.getOfferer(), reward);
 				this.getSlot(EARNINGS_SLOT_NAME).add(earning);
 				this.getSlot(OFFERS_SLOT_NAME).remove(offer.getID());
+				getOffersIndex().remove(offer);
 				if (reward) {
 					applyTradingBonus(acceptingPlayer);
 				}
@@ -252,7 +259,7 @@ public class Market extends PassiveEntity {
 										.toString(getQuantity(item)),
 								"accept offer", slotName));
 
-				this.getZone().storeToDatabase();
+				this.getZone().requestStoreToDatabase();
 				return true;
 			}
 		}
@@ -322,7 +329,7 @@ public class Market extends PassiveEntity {
 		for (Earning earning : earningsToRemove) {
 			this.getSlot(EARNINGS_SLOT_NAME).remove(earning.getID());
 		}
-		this.getZone().storeToDatabase();
+		this.getZone().requestStoreToDatabase();
 	}
 
 	/**
@@ -332,14 +339,52 @@ public class Market extends PassiveEntity {
 	 * @return the number of offers
 	 */
 	public int countOffersOfPlayer(Player offerer) {
-		int count = 0;
-		for (RPObject object : this.getSlot(OFFERS_SLOT_NAME)) {
-			Offer offer = (Offer) object;
-			if (offer.getOfferer().equals(offerer.getName())) {
-				count = count + 1;
-			}
-		}
-		return count;
+		return getOffersIndex().countByOfferer(offerer.getName());
+	}
+
+	/**
+	 * @return all current offers in the market in the order they were placed
+	 */
+	public List<Offer> getOffers() {
+		return getOffersIndex().getAll();
+	}
+
+	/**
+	 * gets the offers of a player
+	 *
+	 * @param offerer name of the offering player
+	 * @return list of offers
+	 */
+	public List<Offer> getOffersOf(String offerer) {
+		return getOffersIndex().getByOfferer(offerer);
+	}
+
+	/**
+	 * gets the expired offers of a player
+	 *
+	 * @param offerer name of the offering player
+	 * @return list of expired offers
+	 */
+	public List<Offer> getExpiredOffersOf(String offerer) {
+		return getExpiredOffersIndex().getByOfferer(offerer);
+	}
+
+	/**
+	 * gets the offers for items whose name contains a word, or whose item
+	 * class is that word
+	 *
+	 * @param word word to look for
+	 * @return list of offers in the order they were placed
+	 */
+	public List<Offer> findOffers(String word) {
+		return getOffersIndex().find(word);
+	}
+
+	/**
+	 * @return the names of all offered items in alphabetical order
+	 */
+	public Set<String> getOfferedItemNames() {
+		return getOffersIndex().getItemNames();
 	}
 
 	/**
@@ -358,11 +403,12 @@ public class Market extends PassiveEntity {
 		p.equipOrPutOnGround(item);
 
 		getSlot(OFFERS_SLOT_NAME).remove(o.getID());
+		getOffersIndex().remove(o);
 
-		getExpiredOffers().remove(o);
 		getSlot(EXPIRED_OFFERS_SLOT_NAME).remove(o.getID());
+		getExpiredOffersIndex().remove(o);
 
-		getZone().storeToDatabase();
+		getZone().requestStoreToDatabase();
 
 		// log the item movement
 		String slotName = null;
@@ -385,8 +431,10 @@ public class Market extends PassiveEntity {
 	 */
 	public void expireOffer(Offer o) {
 		this.getSlot(OFFERS_SLOT_NAME).remove(o.getID());
+		getOffersIndex().remove(o);
 		this.getSlot(EXPIRED_OFFERS_SLOT_NAME).add(o);
-		this.getZone().storeToDatabase();
+		getExpiredOffersIndex().add(o);
+		this.getZone().requestStoreToDatabase();
 		String itemname = "null";
 		if (o.hasItem()) {
 			itemname = o.getItem().getName();
@@ -398,11 +446,7 @@ public class Market extends PassiveEntity {
 	 * @return all currently expired offers in the market
 	 */
 	public List<Offer> getExpiredOffers() {
-		List<Offer> expiredOffers = new LinkedList<Offer>();
-		for(RPObject o : getSlot(EXPIRED_OFFERS_SLOT_NAME)) {
-			expiredOffers.add((Offer) o);
-		}
-		return expiredOffers;
+		return getExpiredOffersIndex().getAll();
 	}
 
 	/**
@@ -412,6 +456,7 @@ public class Market extends PassiveEntity {
 	 */
 	public void removeExpiredOffer(Offer offerToRemove) {
 		this.getSlot(EXPIRED_OFFERS_SLOT_NAME).remove(offerToRemove.getID());
+		getExpiredOffersIndex().remove(offerToRemove);
 
 		Item item = offerToRemove.getItem();
 		if (item != null) {
@@ -419,7 +464,7 @@ public class Market extends PassiveEntity {
 					item, "timeout");
 		}
 
-		this.getZone().storeToDatabase();
+		this.getZone().requestStoreToDatabase();
 	}
 
 	/**
@@ -434,14 +479,16 @@ public class Market extends PassiveEntity {
 		if (getSlot(EXPIRED_OFFERS_SLOT_NAME).has(offer.getID())) {
 			// It had expired. Move to active offers slot.
 			this.getSlot(EXPIRED_OFFERS_SLOT_NAME).remove(offer.getID());
+			getExpiredOffersIndex().remove(offer);
 			RPSlot slot = this.getSlot(OFFERS_SLOT_NAME);
 			slot.add(offer);
+			getOffersIndex().add(offer);
 		} else if (!getSlot(OFFERS_SLOT_NAME).has(offer.getID())) {
 			// Such an offer does not exist anymore
 			return null;
 		}
 
-		this.getZone().storeToDatabase();
+		this.getZone().requestStoreToDatabase();
 		return offer;
 	}
 
@@ -453,11 +500,7 @@ public class Market extends PassiveEntity {
 	 * @return list of offers that are older than the specified time
 	 */
 	public List<Offer> getOffersOlderThan(int seconds) {
-		List<Offer> offers = new LinkedList<Offer>();
-		for (RPObject o : getSlot(OFFERS_SLOT_NAME)) {
-			offers.add((Offer) o);
-		}
-		return getOlderThan(offers, seconds);
+		return getOffersIndex().getOlderThan(System.currentTimeMillis() - 1000L * seconds);
 	}
 
 	/**
@@ -468,7 +511,7 @@ public class Market extends PassiveEntity {
 	 * @return list of expired offers that are older than the specified time
 	 */
 	public List<Offer> getExpiredOffersOlderThan(int seconds) {
-		return getOlderThan(getExpiredOffers(), seconds);
+		return getExpiredOffersIndex().getOlderThan(System.currentTimeMillis() - 1000L * seconds);
 	}
 
 	/**
@@ -510,6 +553,45 @@ public class Market extends PassiveEntity {
 		return old;
 	}
 
+	/**
+	 * updates the indexes after the time stamp of an offer was changed
+	 *
+	 * @param offer Offer
+	 */
+	void onTimestampChanged(Offer offer) {
+		RPSlot slot = offer.getContainerSlot();
+		if (slot == null) {
+			return;
+		}
+		if (OFFERS_SLOT_NAME.equals(slot.getName())) {
+			getOffersIndex().updateTimestamp(offer);
+		} else if (EXPIRED_OFFERS_SLOT_NAME.equals(slot.getName())) {
+			getExpiredOffersIndex().updateTimestamp(offer);
+		}
+	}
+
+	/**
+	 * @return index of the offers
+	 */
+	private MarketIndex getOffersIndex() {
+		RPSlot slot = getSlot(OFFERS_SLOT_NAME);
+		if ((offersIndex == null) || (offersIndex.getSlot() != slot)) {
+			offersIndex = new MarketIndex(slot);
+		}
+		return offersIndex;
+	}
+
+	/**
+	 * @return index of the expired offers
+	 */
+	private MarketIndex getExpiredOffersIndex() {
+		RPSlot slot = getSlot(EXPIRED_OFFERS_SLOT_NAME);
+		if ((expiredOffersIndex == null) || (expiredOffersIndex.getSlot() != slot)) {
+			expiredOffersIndex = new MarketIndex(slot);
+		}
+		return expiredOffersIndex;
+	}
+
 	/**
 	 * gets the quantity of an item
 	 *
@@ -0,0 +1,308 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.trade;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import games.stendhal.server.entity.item.Item;
+import marauroa.common.game.RPObject;
+import marauroa.common.game.RPSlot;
+
+/**
+ * Index of the offers in a slot of the market by offerer, item name, item
+ * class and time stamp.
+ * <p>
+ * The market updates the index together with the slot. If the slot is
+ * modified directly, the index is rebuilt on the next query as soon as the
+ * number of offers differs.
+ */
+class MarketIndex {
+	private static final Comparator<Entry> BY_TIMESTAMP = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			int res = Long.compare(e1.timestamp, e2.timestamp);
+			if (res == 0) {
+				res = Long.compare(e1.sequence, e2.sequence);
+			}
+			return res;
+		}
+	};
+
+	private static final Comparator<Entry> BY_SEQUENCE = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			return Long.compare(e1.sequence, e2.sequence);
+		}
+	};
+
+	private final RPSlot slot;
+	private final Map<Offer, Entry> entries = new IdentityHashMap<Offer, Entry>();
+	private final Map<String, Set<Offer>> byOfferer = new HashMap<String, Set<Offer>>();
+	private final TreeMap<String, Set<Offer>> byItemName = new TreeMap<String, Set<Offer>>();
+	private final Map<String, Set<Offer>> byItemClass = new HashMap<String, Set<Offer>>();
+	private final Set<Offer> withoutItem = new LinkedHashSet<Offer>();
+	private final TreeSet<Entry> byTimestamp = new TreeSet<Entry>(BY_TIMESTAMP);
+	private long sequence;
+
+	/**
+	 * creates a new MarketIndex
+	 *
+	 * @param slot slot of offers
+	 */
+	MarketIndex(RPSlot slot) {
+		this.slot = slot;
+		rebuild();
+	}
+
+	/**
+	 * @return the indexed slot
+	 */
+	RPSlot getSlot() {
+		return slot;
+	}
+
+	/**
+	 * adds an offer, that was added to the slot
+	 *
+	 * @param offer Offer
+	 */
+	void add(Offer offer) {
+		if (entries.containsKey(offer)) {
+			return;
+		}
+		Entry entry = new Entry(offer, sequence++);
+		entries.put(offer, entry);
+		addTo(byOfferer, entry.offerer, offer);
+		if (entry.itemName == null) {
+			withoutItem.add(offer);
+		} else {
+			addTo(byItemName, entry.itemName, offer);
+			addTo(byItemClass, entry.itemClass, offer);
+		}
+		byTimestamp.add(entry);
+	}
+
+	/**
+	 * removes an offer, that was removed from the slot
+	 *
+	 * @param offer Offer
+	 */
+	void remove(Offer offer) {
+		Entry entry = entries.remove(offer);
+		if (entry == null) {
+			return;
+		}
+		removeFrom(byOfferer, entry.offerer, offer);
+		if (entry.itemName == null) {
+			withoutItem.remove(offer);
+		} else {
+			removeFrom(byItemName, entry.itemName, offer);
+			removeFrom(byItemClass, entry.itemClass, offer);
+		}
+		byTimestamp.remove(entry);
+	}
+
+	/**
+	 * updates the position of an offer after its time stamp was changed
+	 *
+	 * @param offer Offer
+	 */
+	void updateTimestamp(Offer offer) {
+		Entry entry = entries.get(offer);
+		if (entry == null) {
+			return;
+		}
+		byTimestamp.remove(entry);
+		entry.timestamp = offer.getTimestamp();
+		byTimestamp.add(entry);
+	}
+
+	/**
+	 * gets the offers of a player
+	 *
+	 * @param offerer name of player
+	 * @return offers in the order they were added
+	 */
+	List<Offer> getByOfferer(String offerer) {
+		check();
+		Set<Offer> set = byOfferer.get(offerer);
+		if (set == null) {
+			return new ArrayList<Offer>();
+		}
+		return new ArrayList<Offer>(set);
+	}
+
+	/**
+	 * counts the offers of a player
+	 *
+	 * @param offerer name of player
+	 * @return number of offers
+	 */
+	int countByOfferer(String offerer) {
+		check();
+		Set<Offer> set = byOfferer.get(offerer);
+		if (set == null) {
+			return 0;
+		}
+		return set.size();
+	}
+
+	/**
+	 * gets the offers for items whose name contains a word or whose item
+	 * class is that word. Offers without item are included, too.
+	 *
+	 * @param word word to look for
+	 * @return offers in the order they were added
+	 */
+	List<Offer> find(String word) {
+		check();
+		Set<Offer> found = new LinkedHashSet<Offer>(withoutItem);
+		for (Map.Entry<String, Set<Offer>> entry : byItemName.entrySet()) {
+			if (entry.getKey().indexOf(word) != -1) {
+				found.addAll(entry.getValue());
+			}
+		}
+		Set<Offer> ofClass = byItemClass.get(word);
+		if (ofClass != null) {
+			found.addAll(ofClass);
+		}
+		return inOrder(found);
+	}
+
+	/**
+	 * gets the names of the offered items
+	 *
+	 * @return item names in alphabetical order
+	 */
+	Set<String> getItemNames() {
+		check();
+		return Collections.unmodifiableSet(byItemName.keySet());
+	}
+
+	/**
+	 * gets the offers with a time stamp before the specified time
+	 *
+	 * @param time time in milliseconds
+	 * @return offers, oldest first
+	 */
+	List<Offer> getOlderThan(long time) {
+		check();
+		List<Offer> res = new ArrayList<Offer>();
+		for (Entry entry : byTimestamp) {
+			if (entry.timestamp >= time) {
+				break;
+			}
+			res.add(entry.offer);
+		}
+		return res;
+	}
+
+	/**
+	 * gets all offers
+	 *
+	 * @return offers in the order they were added
+	 */
+	List<Offer> getAll() {
+		check();
+		return inOrder(entries.keySet());
+	}
+
+	/**
+	 * rebuilds the index, if the slot was modified directly
+	 */
+	private void check() {
+		if (entries.size() != slot.size()) {
+			rebuild();
+		}
+	}
+
+	private void rebuild() {
+		entries.clear();
+		byOfferer.clear();
+		byItemName.clear();
+		byItemClass.clear();
+		withoutItem.clear();
+		byTimestamp.clear();
+		for (RPObject object : slot) {
+			add((Offer) object);
+		}
+	}
+
+	private List<Offer> inOrder(Set<Offer> offers) {
+		List<Entry> list = new ArrayList<Entry>(offers.size());
+		for (Offer offer : offers) {
+			list.add(entries.get(offer));
+		}
+		Collections.sort(list, BY_SEQUENCE);
+		List<Offer> res = new ArrayList<Offer>(list.size());
+		for (Entry entry : list) {
+			res.add(entry.offer);
+		}
+		return res;
+	}
+
+	private static void addTo(Map<String, Set<Offer>> map, String key, Offer offer) {
+		Set<Offer> set = map.get(key);
+		if (set == null) {
+			set = new LinkedHashSet<Offer>();
+			map.put(key, set);
+		}
+		set.add(offer);
+	}
+
+	private static void removeFrom(Map<String, Set<Offer>> map, String key, Offer offer) {
+		Set<Offer> set = map.get(key);
+		if (set != null) {
+			set.remove(offer);
+			if (set.isEmpty()) {
+				map.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * the keys an offer was indexed with
+	 */
+	private static class Entry {
+		final Offer offer;
+		final long sequence;
+		final String offerer;
+		final String itemName;
+		final String itemClass;
+		long timestamp;
+
+		Entry(Offer offer, long sequence) {
+			this.offer = offer;
+			this.sequence = sequence;
+			this.offerer = offer.getOfferer();
+			Item item = offer.getItem();
+			if (item != null) {
+				itemName = item.getName();
+				itemClass = item.getItemClass();
+			} else {
+				itemName = null;
+				itemClass = null;
+			}
+			this.timestamp = offer.getTimestamp();
+		}
+	}
+}
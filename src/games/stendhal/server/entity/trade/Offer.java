@@ -179,6 +179,17 @@ public class Offer extends Entity implements Dateable {
 		put(TIMESTAMP, Long.toString(System.currentTimeMillis()));
 	}
 
+	@Override
+	public void put(String attribute, String value) {
+		super.put(attribute, value);
+		if (TIMESTAMP.equals(attribute)) {
+			RPObject container = getContainer();
+			if (container instanceof Market) {
+				((Market) container).onTimestampChanged(this);
+			}
+		}
+	}
+
 	/**
 	 * Check whether accepting this offer should be rewarder in trade score.
 	 *
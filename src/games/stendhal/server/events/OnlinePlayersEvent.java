@@ -0,0 +1,78 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.events;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.common.constants.Events;
+import marauroa.common.game.Definition.DefinitionClass;
+import marauroa.common.game.Definition.Type;
+import marauroa.common.game.RPClass;
+import marauroa.common.game.RPEvent;
+
+/**
+ * Compact update of the list of online players. It either carries a complete
+ * snapshot, which replaces the list on the client, or the players who joined
+ * and left during one turn. Names are separated by commas.
+ */
+public class OnlinePlayersEvent extends RPEvent {
+
+	private static final String SNAPSHOT_ATTRIBUTE = "snapshot";
+	private static final String JOINED_ATTRIBUTE = "joined";
+	private static final String LEFT_ATTRIBUTE = "left";
+	private static final Logger logger = Logger.getLogger(OnlinePlayersEvent.class);
+
+	public static void generateRPClass() {
+		try {
+			RPClass clazz = new RPClass(Events.ONLINE_PLAYERS);
+			clazz.add(DefinitionClass.ATTRIBUTE, SNAPSHOT_ATTRIBUTE, Type.VERY_LONG_STRING);
+			clazz.add(DefinitionClass.ATTRIBUTE, JOINED_ATTRIBUTE, Type.VERY_LONG_STRING);
+			clazz.add(DefinitionClass.ATTRIBUTE, LEFT_ATTRIBUTE, Type.VERY_LONG_STRING);
+		} catch (Exception e) {
+			logger.error("cannot generate RPClass", e);
+		}
+	}
+
+	/**
+	 * Creates a snapshot event.
+	 *
+	 * @param snapshot comma separated names of all visible online players
+	 * @return OnlinePlayersEvent
+	 */
+	public static OnlinePlayersEvent snapshot(String snapshot) {
+		OnlinePlayersEvent event = new OnlinePlayersEvent();
+		event.put(SNAPSHOT_ATTRIBUTE, snapshot);
+		return event;
+	}
+
+	/**
+	 * Creates a delta event.
+	 *
+	 * @param joined comma separated names of players who logged in, may be empty
+	 * @param left comma separated names of players who logged out, may be empty
+	 * @return OnlinePlayersEvent
+	 */
+	public static OnlinePlayersEvent delta(String joined, String left) {
+		OnlinePlayersEvent event = new OnlinePlayersEvent();
+		if (!joined.isEmpty()) {
+			event.put(JOINED_ATTRIBUTE, joined);
+		}
+		if (!left.isEmpty()) {
+			event.put(LEFT_ATTRIBUTE, left);
+		}
+		return event;
+	}
+
+	private OnlinePlayersEvent() {
+		super(Events.ONLINE_PLAYERS);
+	}
+}
@@ -13,6 +13,7 @@
 package games.stendhal.server.maps.deathmatch;
 
 import games.stendhal.server.core.engine.StendhalRPRuleProcessor;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.engine.dbcommand.ReadHallOfFamePointsCommand;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TurnNotifier;
@@ -20,7 +21,6 @@ import games.stendhal.server.core.rp.achievement.AchievementNotifier;
 import games.stendhal.server.entity.npc.SpeakerNPC;
 import games.stendhal.server.entity.player.Player;
 import marauroa.server.db.command.DBCommand;
-import marauroa.server.db.command.DBCommandQueue;
 import marauroa.server.db.command.ResultHandle;
 
 /**
@@ -49,7 +49,7 @@ class NotifyPlayerAboutHallOfFamePoints implements TurnListener {
 		this.handle = new ResultHandle();
 		this.questSlot = questSlot;
 		DBCommand command = new ReadHallOfFamePointsCommand(playerName, fametype);
-		DBCommandQueue.get().enqueueAndAwaitResult(command, handle);
+		DBCommandDispatcher.get().enqueueAndAwaitResult(command, handle);
 	}
 
 
@@ -57,7 +57,7 @@ class NotifyPlayerAboutHallOfFamePoints implements TurnListener {
 	@Override
 	public void onTurnReached(int currentTurn) {
 		// if there is no result, wait some more
-		ReadHallOfFamePointsCommand command = DBCommandQueue.get().getOneResult(ReadHallOfFamePointsCommand.class, handle);
+		ReadHallOfFamePointsCommand command = DBCommandDispatcher.get().getOneResult(ReadHallOfFamePointsCommand.class, handle);
 		if (command == null) {
 			TurnNotifier.get().notifyInTurns(0, this);
 			return;
@@ -34,6 +34,7 @@ import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.Spot;
 import games.stendhal.server.core.engine.StendhalRPZone;
 import games.stendhal.server.core.engine.ZoneAttributes;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.engine.dbcommand.WriteHallOfFamePointsCommand;
 import games.stendhal.server.core.events.MovementListener;
 import games.stendhal.server.entity.ActiveEntity;
@@ -47,7 +48,6 @@ import games.stendhal.server.entity.npc.action.SetQuestAction;
 import games.stendhal.server.entity.player.Player;
 import games.stendhal.server.util.TimeUtil;
 import marauroa.common.game.RPObject;
-import marauroa.server.db.command.DBCommandQueue;
 
 /**
  * A random maze zone.
@@ -553,7 +553,7 @@ public class MazeGenerator {
 		// Give at least one xp for persistent but hopelessly slow players
 		points = Math.max(points, 1);
 
-		DBCommandQueue.get().enqueue(new WriteHallOfFamePointsCommand(player.getName(), "M", points, true));
+		DBCommandDispatcher.get().enqueue(new WriteHallOfFamePointsCommand(player.getName(), "M", points, true));
 		new SetQuestAction("maze", 0, "done").fire(player, null, null);
 		new IncrementQuestAction("maze", 2, 1).fire(player, null, null);
 		player.sendPrivateText("You used " + TimeUtil.timeUntil((int) (timediff / 1000), true)
@@ -21,6 +21,7 @@ import games.stendhal.common.grammar.Grammar;
 import games.stendhal.common.parser.Sentence;
 import games.stendhal.server.core.engine.SingletonRepository;
 import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.engine.dbcommand.WriteHallOfFamePointsCommand;
 import games.stendhal.server.core.rp.StendhalRPAction;
 import games.stendhal.server.entity.mapstuff.game.SokobanBoard;
@@ -41,7 +42,6 @@ import games.stendhal.server.entity.npc.condition.QuestInStateCondition;
 import games.stendhal.server.entity.npc.condition.QuestSmallerThanCondition;
 import games.stendhal.server.entity.player.Player;
 import games.stendhal.server.util.TimeUtil;
-import marauroa.server.db.command.DBCommandQueue;
 
 /**
  * A Sokoban game.
@@ -200,7 +200,7 @@ public class SokobanGame implements LoadableContent, SokobanListener {
 				+ TimeUtil.approxTimeUntil(timeDiff));
 
 		int points = level * 1000000 - totalTime;
-		DBCommandQueue.get().enqueue(new WriteHallOfFamePointsCommand(player.getName(), FAME_TYPE, points, false));
+		DBCommandDispatcher.get().enqueue(new WriteHallOfFamePointsCommand(player.getName(), FAME_TYPE, points, false));
 
 		loadSignFromHallOfFame.fire(null, null, null);
 	}
@@ -18,14 +18,16 @@ import org.apache.log4j.Logger;
 
 import games.stendhal.common.MathHelper;
 import games.stendhal.common.grammar.Grammar;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
 import games.stendhal.server.core.engine.dbcommand.StoreMessageCommand;
+import games.stendhal.server.core.events.DeferredTask;
+import games.stendhal.server.core.events.DeferredWorkQueue;
 import games.stendhal.server.core.events.TurnListener;
 import games.stendhal.server.core.events.TurnNotifier;
 import games.stendhal.server.entity.trade.Earning;
 import games.stendhal.server.entity.trade.Market;
 import games.stendhal.server.entity.trade.Offer;
 import games.stendhal.server.util.TimeUtil;
-import marauroa.server.db.command.DBCommandQueue;
 
 public class OfferExpirer implements TurnListener{
 	private static Logger logger = Logger.getLogger(OfferExpirer.class);
@@ -69,6 +71,11 @@ public class OfferExpirer implements TurnListener{
 	private static final int CHECKING_INTERVAL = MathHelper.SECONDS_IN_ONE_HOUR;
 	// MathHelper.SECONDS_IN_ONE_MINUTE;
 
+	/**
+	 * Maximum number of offers or earnings handled in one turn.
+	 */
+	private static final int SLICE_SIZE = 20;
+
 	private Market market;
 
 	public OfferExpirer(Market market) {
@@ -79,21 +86,77 @@ public class OfferExpirer implements TurnListener{
 
 	@Override
 	public void onTurnReached(int currentTurn) {
-		runChecksAndRestart();
+		DeferredWorkQueue.get().add("offer expiry", new Checks());
 	}
 
 	/**
-	 * Run the expiration checks and restart the timer.
+	 * Runs the expiration checks a few offers at a time and restarts the
+	 * timer when they are done. The offers are looked up again for every
+	 * slice, because players can take or prolong them in between.
 	 */
-	private void runChecksAndRestart() {
-		// Check the expired offers first, to avoid sending warning messages
-		// about offers that are expired too.
-		checkExpired();
-		checkWarnings();
-		checkRemoved();
-		checkRemovedEarnings();
+	private class Checks implements DeferredTask {
+		private int phase;
+		private List<Offer> warnings;
+		private int warningIndex;
+		private long warningTime;
 
-		TurnNotifier.get().notifyInSeconds(CHECKING_INTERVAL, this);
+		@Override
+		public boolean runSlice() {
+			// Check the expired offers first, to avoid sending warning messages
+			// about offers that are expired too.
+			boolean phaseDone;
+			switch (phase) {
+			case 0:
+				phaseDone = checkExpired();
+				break;
+			case 1:
+				phaseDone = checkWarnings();
+				break;
+			case 2:
+				phaseDone = checkRemoved();
+				break;
+			default:
+				phaseDone = checkRemovedEarnings();
+				break;
+			}
+			if (!phaseDone) {
+				return false;
+			}
+			phase++;
+			if (phase < 4) {
+				return false;
+			}
+			TurnNotifier.get().notifyInSeconds(CHECKING_INTERVAL, OfferExpirer.this);
+			return true;
+		}
+
+		/**
+		 * checks the next offers that need a warning before expiring
+		 *
+		 * @return <code>true</code> if all offers have been checked
+		 */
+		private boolean checkWarnings() {
+			if (warnings == null) {
+				warnings = market.getOffersOlderThan(TIME_TO_WARNING);
+				warningTime = System.currentTimeMillis();
+			}
+			int end = Math.min(warnings.size(), warningIndex + SLICE_SIZE);
+			for (; warningIndex < end; warningIndex++) {
+				Offer offer = warnings.get(warningIndex);
+				if (market.contains(offer)) {
+					checkWarning(offer, warningTime);
+				}
+			}
+			if (warningIndex < warnings.size()) {
+				return false;
+			}
+
+			// timeStamp should be set here, rather than after all the checks, as it's used only
+			// for figuring out if the player has been warned before. Thus storing the time value
+			// used here.
+			timeStamp = warningTime;
+			return true;
+		}
 	}
 
 	/**
@@ -107,16 +170,18 @@ public class OfferExpirer implements TurnListener{
 		logger.debug("sending a notice to '" + player + "': " + message.toString());
 
 		// there is an npc action to send the message but this is all we want to do here.
-		DBCommandQueue.get().enqueue(new StoreMessageCommand("Harold", player, message.toString(), "N"));
+		DBCommandDispatcher.get().enqueue(new StoreMessageCommand("Harold", player, message.toString(), "N"));
 	}
 
 	/**
 	 * Check for offers that should be expired.
+	 *
+	 * @return <code>true</code> if there are no more offers to expire
 	 */
-	private void checkExpired() {
+	private boolean checkExpired() {
 		List<Offer> list = market.getOffersOlderThan(TIME_TO_EXPIRING);
 
-		for (Offer offer : list) {
+		for (Offer offer : first(list)) {
 			market.expireOffer(offer);
 			StringBuilder builder = new StringBuilder();
 			builder.append("Your offer of ");
@@ -131,15 +196,18 @@ public class OfferExpirer implements TurnListener{
 			builder.append(" left to get the item back or prolong the offer.");
 			sendMessage(offer.getOfferer(), builder);
 		}
+		return list.size() <= SLICE_SIZE;
 	}
 
 	/**
 	 * Check for offers that should be permanently removed
+	 *
+	 * @return <code>true</code> if there are no more offers to remove
 	 */
-	private void checkRemoved() {
+	private boolean checkRemoved() {
 		List<Offer> list = market.getExpiredOffersOlderThan(TIME_TO_REMOVING);
 
-		for (Offer offer : list) {
+		for (Offer offer : first(list)) {
 			market.removeExpiredOffer(offer);
 			StringBuilder builder = new StringBuilder();
 			builder.append("Your offer of ");
@@ -147,45 +215,42 @@ public class OfferExpirer implements TurnListener{
 			builder.append(" has been removed permanently from the market.");
 			sendMessage(offer.getOfferer(), builder);
 		}
+		return list.size() <= SLICE_SIZE;
 	}
 
 	/**
-	 * checks for offers that need a warning before expiring
+	 * sends the warning before expiring for an offer
+	 *
+	 * @param offer offer that is old enough for the warning
+	 * @param time time of the check
 	 */
-	private void checkWarnings() {
-		List<Offer> list = market.getOffersOlderThan(TIME_TO_WARNING);
-
-		long time = System.currentTimeMillis();
-		for (Offer offer : list) {
-			// Send the warning only once, unless the server has been
-			// restarted since the last check. In that case, message the
-			// player always to be sure that she gets at least one warning.
-			long timeDiff = time - timeStamp;
-			if (timeStamp != 0 && ((time - offer.getTimestamp() - TIME_TO_WARNING * 1000) > timeDiff)) {
-				continue;
-			}
-
-			StringBuilder builder = new StringBuilder();
-			builder.append("Your offer of ");
-			builder.append(Grammar.a_noun(offer.getItemName()));
-			builder.append(" will expire in ");
-			builder.append(TimeUtil.approxTimeUntil((int) ((offer.getTimestamp() - time) / 1000 + TIME_TO_EXPIRING)));
-			builder.append(".");
-			sendMessage(offer.getOfferer(), builder);
+	private void checkWarning(Offer offer, long time) {
+		// Send the warning only once, unless the server has been
+		// restarted since the last check. In that case, message the
+		// player always to be sure that she gets at least one warning.
+		long timeDiff = time - timeStamp;
+		if (timeStamp != 0 && ((time - offer.getTimestamp() - TIME_TO_WARNING * 1000) > timeDiff)) {
+			return;
 		}
 
-		// timeStamp should be set here, rather than after all the checks, as it's used only
-		// for figuring out if the player has been warned before. Thus storing the time value
-		// used here.
-		timeStamp = time;
+		StringBuilder builder = new StringBuilder();
+		builder.append("Your offer of ");
+		builder.append(Grammar.a_noun(offer.getItemName()));
+		builder.append(" will expire in ");
+		builder.append(TimeUtil.approxTimeUntil((int) ((offer.getTimestamp() - time) / 1000 + TIME_TO_EXPIRING)));
+		builder.append(".");
+		sendMessage(offer.getOfferer(), builder);
 	}
 
 	/**
 	 * checks for earnings to remove and removes them if too old
+	 *
+	 * @return <code>true</code> if there are no more earnings to remove
 	 */
-	private void checkRemovedEarnings() {
+	private boolean checkRemovedEarnings() {
 		List<Earning> list = market.getEarningsOlderThan(TIME_TO_REMOVING_EARNINGS);
-		for (Earning earning : list) {
+		List<Earning> slice = first(list);
+		for (Earning earning : slice) {
 			StringBuilder builder = new StringBuilder();
 			builder.append("Your earning of ");
 			builder.append(earning.getValue());
@@ -193,6 +258,20 @@ public class OfferExpirer implements TurnListener{
 			sendMessage(earning.getSeller(), builder);
 		}
 
-		market.removeEarnings(list);
+		market.removeEarnings(slice);
+		return list.size() <= SLICE_SIZE;
+	}
+
+	/**
+	 * gets the entries to handle in one slice
+	 *
+	 * @param list all entries
+	 * @return the first entries of the list
+	 */
+	private static <T> List<T> first(List<T> list) {
+		if (list.size() <= SLICE_SIZE) {
+			return list;
+		}
+		return list.subList(0, SLICE_SIZE);
 	}
 }
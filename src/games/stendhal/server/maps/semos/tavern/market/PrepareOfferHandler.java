@@ -15,6 +15,8 @@ package games.stendhal.server.maps.semos.tavern.market;
 import games.stendhal.common.grammar.Grammar;
 import games.stendhal.common.parser.Expression;
 import games.stendhal.common.parser.Sentence;
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher;
+import games.stendhal.server.core.engine.dbcommand.DBCommandPriority;
 import games.stendhal.server.core.engine.dbcommand.LogTradeEventCommand;
 import games.stendhal.server.entity.item.Item;
 import games.stendhal.server.entity.item.RingOfLife;
@@ -30,7 +32,6 @@ import games.stendhal.server.entity.player.Player;
 import games.stendhal.server.entity.trade.Market;
 import games.stendhal.server.entity.trade.Offer;
 import games.stendhal.server.util.AsynchronousProgramExecutor;
-import marauroa.server.db.command.DBCommandQueue;
 
 
 public class PrepareOfferHandler {
@@ -195,7 +196,7 @@ public class PrepareOfferHandler {
 				if (createOffer(player, item, price, quantity)) {
 					TradingUtility.substractTradingFee(player, price);
 					new AsynchronousProgramExecutor("trade", buildTweetMessage(item, quantity, price)).start();
-					DBCommandQueue.get().enqueue(new LogTradeEventCommand(player, item, quantity, price));
+					DBCommandDispatcher.get().enqueue(new LogTradeEventCommand(player, item, quantity, price), DBCommandPriority.LOG);
 					npc.say("I added your offer to the trading center and took the fee of "+ fee +".");
 					npc.setCurrentState(ConversationStates.ATTENDING);
 				} else {
@@ -12,52 +12,55 @@
  ***************************************************************************/
 package games.stendhal.tools;
 
+import java.io.Writer;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
-import games.stendhal.server.core.config.CreatureGroupsXMLLoader;
-import games.stendhal.server.core.engine.RPClassGenerator;
-import games.stendhal.server.core.engine.SingletonRepository;
-import games.stendhal.server.core.engine.transformer.PlayerTransformer;
-import games.stendhal.server.core.rule.EntityManager;
 import games.stendhal.server.core.rule.defaultruleset.DefaultCreature;
 import games.stendhal.server.entity.creature.Creature;
-import games.stendhal.server.entity.item.Item;
 import games.stendhal.server.entity.player.Player;
-import marauroa.common.Pair;
-import marauroa.common.game.RPObject;
+import games.stendhal.tools.balance.BalanceReport;
+import games.stendhal.tools.balance.BalanceSweep;
+import games.stendhal.tools.balance.Combatant;
+import games.stendhal.tools.balance.CombatSimulator;
+import games.stendhal.tools.balance.EquipmentProfile;
+import games.stendhal.tools.balance.FightResult;
+import games.stendhal.tools.balance.SweepResult;
 
 /*
  * Running:
- * 	java -cp $CLASSPATH java -cp games/stendhal/tools/BalanceRPGame
+ * 	java -cp $CLASSPATH games.stendhal.tools.BalanceRPGame [--seed n] [--csv file] [--html file]
  * 		calculates balanced atk and def values to all creatures up to HIGHEST_LEVEL
  * 		(defined in the code below)
- * 	java -cp $CLASSPATH java -cp games/stendhal/tools/BalanceRPGame creature ...
+ * 	java -cp $CLASSPATH games.stendhal.tools.BalanceRPGame creature ...
  * 		calculates the values only for the specified creatures
  *
+ * 	The creatures are balanced in parallel. The results only depend on the
+ * 	seed, not on the number of threads.
+ *
  * 	CLASSPATH should be (with appropriate changes for OS and versions), assuming
  * 		the compiled .class for this file is under "bin":
  *		.:bin:libs/marauroa.jar:libs/log4j.jar:libs/mysql-connector-java-5.1.5-bin.jar:build/lib/stendhal-stendhal-server-0.71.jar
  */
-/** * NOTE: AWFUL CODE FOLLOWS. YOU ARE NOT SUPPOSED TO READ THIS ;P ** */
-
 public class BalanceRPGame {
 	/**
 	 * A Simple (dumb) optimizer to adjust creature stats.
 	 */
 	private static class Optimizer {
-		Creature creature;
+		private final Combatant player;
+		private Combatant creature;
 
 		/**
 		 * Create an optimizer for a creature.
 		 *
-		 * @param creature
+		 * @param player the player the creature is balanced against
+		 * @param creature the creature to balance
 		 */
-		public Optimizer(final Creature creature) {
+		Optimizer(final Combatant player, final Combatant creature) {
+			this.player = player;
 			this.creature = creature;
 		}
 
@@ -67,14 +70,15 @@ public class BalanceRPGame {
 		 * @param leftHP the mean amount of HP the player had left when the
 		 * fights ended
 		 * @param rounds the amount of turns the fights took on average
+		 * @param durationThreshold allowed relative deviation from the
+		 * 	preferred fight duration
 		 */
-		public void step(final int leftHP, final int rounds) {
+		void step(final int leftHP, final int rounds, final double durationThreshold) {
 			float stepSize = leftHP / (float) player.getBaseHP();
 			stepSize = Math.signum(stepSize) * Math.min(Math.abs(stepSize), 0.5f);
 
 			final int oldAtk = creature.getAtk();
-			int newAtk = Math.max(1, Math.round(creature.getAtk()
-					+ stepSize * creature.getAtk()));
+			int newAtk = Math.max(1, Math.round(oldAtk + stepSize * oldAtk));
 			// Always ensure trying to get out of dead area
 			if ((leftHP < 0) && (newAtk == oldAtk)) {
 				newAtk--;
@@ -84,15 +88,13 @@ public class BalanceRPGame {
 			final int oldDef = creature.getDef();
 			int newDef = oldDef;
 			final double preferred = preferredDuration(level);
-			if (!isWithinDurationRange(preferred, rounds)) {
+			if (!isWithinDurationRange(preferred, rounds, durationThreshold)) {
 				// Don't grow it the monster is already stronger than the player
 				if ((leftHP > 0) || (preferred < rounds)) {
-				newDef = Math.max(1, (int) (creature.getDef()
-						+ preferred - rounds + 0.5));
+					newDef = Math.max(1, (int) (oldDef + preferred - rounds + 0.5));
 				}
 			} else {
-				newDef = 	Math.max(1, (int) (creature.getDef()
-					+ 5 * stepSize * creature.getDef() + 0.5f));
+				newDef = Math.max(1, (int) (oldDef + 5 * stepSize * oldDef + 0.5f));
 			}
 			// Don't change too fast
 			if (newDef > 1.1 * oldDef) {
@@ -101,256 +103,158 @@ public class BalanceRPGame {
 				newDef = Math.max(1, Math.min((int) (0.9 * oldDef), oldDef - 1));
 			}
 
-			creature.setAtk(newAtk);
-			creature.setDef(newDef);
+			creature = creature.withAtkDef(newAtk, newDef);
 		}
 	}
 
-	private static final int ROUNDS = 100;
-	private static final int HIGHEST_LEVEL = 500;
-	private static final double DEFAULT_DURATION_THRESHOLD = 0.2;
-	private static double durationThreshold;
-	private static Player player;
-
-	public static void main(final String[] args) throws Exception {
-		new RPClassGenerator().createRPClasses();
-		final CreatureGroupsXMLLoader loader = new CreatureGroupsXMLLoader("/data/conf/creatures.xml");
-		final List<DefaultCreature> creatures = loader.load();
-
-		Collections.sort(creatures, new Comparator<DefaultCreature>() {
-			@Override
-			public int compare(final DefaultCreature o1, final DefaultCreature o2) {
-				return o1.getLevel() - o2.getLevel();
-			}
-		});
-
-		final int[] atkLevels = new int[HIGHEST_LEVEL + 1];
-		final int[] defLevels = new int[HIGHEST_LEVEL + 1];
-
-		for (int level = 0; level < atkLevels.length; level++) {
-			// help newbies a bit, so don't start at real stats, but a bit lower
-			atkLevels[level] = (int) Math.round(Math.log(level + 4) * 9  - 10);
-			defLevels[level] = (int) Math.round(Math.log(level + 4) * 20
-					+ level - 26);
-		}
-
-		final EntityManager em = SingletonRepository.getEntityManager();
-
-		final Item shield = em.getItem("wooden shield");
-		final Item armor = em.getItem("dress");
-		final Item helmet = em.getItem("leather helmet");
-		final Item legs = em.getItem("leather legs");
-		final Item boots = em.getItem("leather boots");
-
-		player = (Player) new PlayerTransformer().transform(new RPObject());
-		player.equip("lhand", shield);
-		player.equip("rhand", em.getItem("club"));
-		player.equip("armor", armor);
-		player.equip("head", helmet);
-		player.equip("legs", legs);
-		player.equip("feet", boots);
-
-		// Setup the list of creatures to balance
-		Collection<DefaultCreature> creaturesToBalance;
-		if (args.length > 0) {
-			Collection<String> names = Arrays.asList(args);
-			creaturesToBalance = new ArrayList<DefaultCreature>();
-
-			for (DefaultCreature creature : creatures) {
-				if (names.contains(creature.getCreatureName())) {
-					creaturesToBalance.add(creature);
-				}
-			}
-		} else {
-			// default to all of them
-			creaturesToBalance = creatures;
+	/**
+	 * Balances a single creature.
+	 */
+	private static class Balancer implements Callable<String> {
+		private final DefaultCreature creature;
+		private final Combatant player;
+		private final Combatant target;
+		private final long seed;
+		private SweepResult result;
+
+		Balancer(final DefaultCreature creature, final Combatant player, final Combatant target, final long seed) {
+			this.creature = creature;
+			this.player = player;
+			this.target = target;
+			this.seed = seed;
 		}
 
-		for (final DefaultCreature creature : creaturesToBalance) {
+		/**
+		 * runs the optimizer until the creature is balanced
+		 *
+		 * @return log of the steps, ending with the BALANCED line
+		 */
+		@Override
+		public String call() {
+			final StringBuilder log = new StringBuilder();
 			final int level = creature.getLevel();
+			log.append("Player(").append(level).append(") vs ").append(creature.getCreatureName()).append('\n');
 
-			if (creature.getLevel() > HIGHEST_LEVEL) {
-				continue;
-			}
-
-			final Creature target = creature.getCreature();
-			final Optimizer optimizer = new Optimizer(target);
-
-			player.setLevel(level);
-			player.setBaseHP(100 + 10 * level);
-			player.setAtk(atkLevels[level]);
-			player.setDef(defLevels[level]);
-
-			equip(player, level);
-
-			System.out.println("Player(" + level + ") vs "
-					+ creature.getCreatureName());
-
-			durationThreshold = DEFAULT_DURATION_THRESHOLD;
-
-			boolean balanced = false;
+			final Optimizer optimizer = new Optimizer(player, target);
+			double durationThreshold = DEFAULT_DURATION_THRESHOLD;
 			int tries = 0;
-			while (!balanced) {
-				final Pair<Integer, Integer> results = combat(player, target,
-						ROUNDS);
-				final int meanTurns = results.first();
-				final int meanLeftHP = results.second();
-
-				final int proposedXPValue = (int) ((2 * creature.getLevel() + 1) * (meanTurns / 2.0));
-				creature.setLevel(creature.getLevel(), proposedXPValue);
-
-				System.out.println("Target ATK: "
-						+ target.getAtk()
-							+ "/DEF: "
-							+ target.getDef()
-							+ "/HP: "
-							+ target.getBaseHP()
-							+ "\t Turns: "
-							+ meanTurns
-							+ "\tLeft HP:"
-							+ meanLeftHP);
-
-				if (isCorrectResult(level, meanTurns, meanLeftHP / (double) player.getBaseHP())) {
-					balanced = true;
-				} else {
-					optimizer.step(meanLeftHP, meanTurns);
-
-					System.out.println("New ATK: " + target.getAtk()
-							+ "/DEF: " + target.getDef() + "/HP: "
-							+ target.getBaseHP());
+			while (true) {
+				final Combatant current = optimizer.creature;
+				final FightResult fights = CombatSimulator.simulate(player, current, ROUNDS,
+						BalanceSweep.seedFor(seed, creature.getCreatureName(), level, tries));
+				final int meanTurns = (int) fights.getMeanTurns();
+				final int meanLeftHP = (int) fights.getMeanLeftHP();
+
+				log.append("Target ATK: ").append(current.getAtk())
+					.append("/DEF: ").append(current.getDef())
+					.append("/HP: ").append(current.getBaseHP())
+					.append("\t Turns: ").append(meanTurns)
+					.append("\tLeft HP:").append(meanLeftHP).append('\n');
+
+				if (isCorrectResult(level, meanTurns, meanLeftHP / (double) player.getBaseHP(), durationThreshold)) {
+					result = new SweepResult(EquipmentProfile.STANDARD, player, current, fights);
+					break;
 				}
+				optimizer.step(meanLeftHP, meanTurns, durationThreshold);
 
 				// relax convergence criteria for pathological cases
 				tries++;
 				if (tries % 200 == 0) {
 					durationThreshold *= 1.1;
-					System.out.println(target.getName() + ": changed threshold to " + durationThreshold);
+					log.append(creature.getCreatureName()).append(": changed threshold to ")
+						.append(durationThreshold).append('\n');
 				}
 			}
 
-			boolean changed = false;
+			final Combatant balanced = optimizer.creature;
+			final boolean changed = (creature.getAtk() != balanced.getAtk())
+					|| (creature.getDef() != balanced.getDef())
+					|| (creature.getHP() != balanced.getBaseHP());
 
-			if (creature.getAtk() != target.getAtk()) {
-				changed = true;
-			}
-
-			if (creature.getDef() != target.getDef()) {
-				changed = true;
-			}
-
-			if (creature.getHP() != target.getBaseHP()) {
-				changed = true;
-			}
-
-			System.out.print("BALANCED: ");
-			final StringBuilder stringBuilder = new StringBuilder();
-			stringBuilder.append(creature.getCreatureName());
-			stringBuilder.append("(");
-			stringBuilder.append(creature.getLevel());
-			stringBuilder.append(")\t");
+			log.append("BALANCED: ");
+			log.append(creature.getCreatureName());
+			log.append("(");
+			log.append(level);
+			log.append(")\t");
 			if (changed) {
-				stringBuilder.append("*\t");
+				log.append("*\t");
 			} else {
-				stringBuilder.append(" \t");
+				log.append(" \t");
 			}
-			stringBuilder.append("ATK: ");
-			stringBuilder.append(target.getAtk());
-			stringBuilder.append("\t\tDEF: ");
-			stringBuilder.append(target.getDef());
-			stringBuilder.append("\t\tHP: ");
-			stringBuilder.append(target.getBaseHP());
-			System.out.println(stringBuilder.toString());
+			log.append("ATK: ");
+			log.append(balanced.getAtk());
+			log.append("\t\tDEF: ");
+			log.append(balanced.getDef());
+			log.append("\t\tHP: ");
+			log.append(balanced.getBaseHP());
+			log.append('\n');
+			return log.toString();
 		}
 	}
 
-	private static Pair<Integer, Integer> combat(final Player player, final Creature target) {
-		target.setHP(target.getBaseHP());
-		player.setHP(player.getBaseHP());
-
-		boolean combatFinishedWinPlayer = false;
-		int turns = 0;
-		int healAmount = 0;
-		int healRate = 0;
-
-		String healer = target.getAIProfile("heal");
-		if (healer != null) {
-			final String[] healingAttributes = healer.split(",");
-			healAmount = Integer.parseInt(healingAttributes[0]);
-			healRate = Integer.parseInt(healingAttributes[1]);
-		}
-
-		while (!combatFinishedWinPlayer) {
-			turns++;
-			if ((healAmount != 0) && (turns % healRate == 0)) {
-				final int newHP = target.getHP() + healAmount;
-				target.setHP(Math.min(target.getBaseHP(), newHP));
-			}
-
-			if ((turns % 5 == 0) && player.canHit(target)) {
-				int damage = player.damageDone(target, player.getItemAtk(), player.getDamageType());
-				if (damage < 0) {
-					damage = 0;
-				}
-
-				target.setHP(target.getHP() - damage);
+	private static final int ROUNDS = 100;
+	private static final int HIGHEST_LEVEL = 500;
+	private static final double DEFAULT_DURATION_THRESHOLD = 0.2;
+	private static final long DEFAULT_SEED = 1;
 
-				if (target.getHP() <= 0) {
-					combatFinishedWinPlayer = true;
-					break;
-				}
+	public static void main(final String[] args) throws Exception {
+		long seed = DEFAULT_SEED;
+		String csv = null;
+		String html = null;
+		final List<String> names = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--seed")) {
+				seed = Long.parseLong(args[++i]);
+			} else if (args[i].equals("--csv")) {
+				csv = args[++i];
+			} else if (args[i].equals("--html")) {
+				html = args[++i];
+			} else {
+				names.add(args[i]);
 			}
+		}
 
-			if ((turns % target.getAttackRate() == 0) && target.canHit(player)) {
-				int damage = target.damageDone(player, target.getItemAtk(), player.getDamageType());
-				if (damage < 0) {
-					damage = 0;
-				}
-				player.setHP(player.getHP() - damage);
-				target.handleLifesteal(target, target.getWeapons(), damage);
+		final List<DefaultCreature> creatures = BalanceSweep.loadCreatures(names);
 
-				if (player.getHP() <= 0) {
-					combatFinishedWinPlayer = true;
-					break;
-				}
+		// the entities are not thread safe, so resolve the stats before
+		// starting the parallel part
+		final Player player = BalanceSweep.createPlayer();
+		final List<Balancer> balancers = new ArrayList<Balancer>();
+		for (final DefaultCreature creature : creatures) {
+			final int level = creature.getLevel();
+			if (level > HIGHEST_LEVEL) {
+				continue;
 			}
+			EquipmentProfile.STANDARD.apply(player, level);
+			final Creature target = creature.getCreature();
+			balancers.add(new Balancer(creature, Combatant.of(player), Combatant.of(target), seed));
 		}
 
-		return new Pair<Integer, Integer>(turns, player.getHP());
-	}
-
-	private static Pair<Integer, Integer> combat(final Player player, final Creature target,
-			final int rounds) {
-		int meanTurns = 0;
-		int meanLeftHP = 0;
-
-		for (int i = 0; i < rounds; i++) {
-			final Pair<Integer, Integer> results = combat(player, target);
-			meanTurns += results.first();
-			meanLeftHP += results.second();
+		final List<Future<String>> logs = new ArrayList<Future<String>>();
+		for (final Balancer balancer : balancers) {
+			logs.add(ForkJoinPool.commonPool().submit(balancer));
+		}
+		final List<SweepResult> results = new ArrayList<SweepResult>();
+		for (int i = 0; i < balancers.size(); i++) {
+			System.out.print(logs.get(i).get());
+			results.add(balancers.get(i).result);
 		}
 
-		meanTurns = (int) (meanTurns / (rounds * 1.0));
-		meanLeftHP = (int) (meanLeftHP / (rounds * 1.0));
-
-		return new Pair<Integer, Integer>(meanTurns, meanLeftHP);
-	}
-
-	private static void equip(final Player p, final int level) {
-		p.getWeapon().put("atk", 7 + level * 2 / 6);
-		if (level == 0) {
-			p.getShield().put("def", 0);
-		} else {
-			p.getShield().put("def", 12 + level / 8);
+		if (csv != null) {
+			try (Writer out = BalanceSweep.openWriter(csv)) {
+				BalanceReport.writeCsv(out, results);
+			}
+		}
+		if (html != null) {
+			try (Writer out = BalanceSweep.openWriter(html)) {
+				BalanceReport.writeHtml(out, "Balanced creatures (seed " + seed + ")", results);
+			}
 		}
-		p.getArmor().put("def", 1 + level / 4);
-		p.getHelmet().put("def", 1 + level / 7);
-		p.getLegs().put("def", 1 + level / 7);
-		p.getBoots().put("def", 1 + level / 10);
 	}
 
-	private static boolean isCorrectResult(final int level,
-			final int meanTurns, final double relativeLeftHP) {
-		if (!isWithinDurationRange(preferredDuration(level), meanTurns)) {
+	private static boolean isCorrectResult(final int level, final int meanTurns,
+			final double relativeLeftHP, final double durationThreshold) {
+		if (!isWithinDurationRange(preferredDuration(level), meanTurns, durationThreshold)) {
 			return false;
 		}
 
@@ -358,7 +262,7 @@ public class BalanceRPGame {
 	}
 
 	private static boolean isWithinDurationRange(final double preferred,
-			final double real) {
+			final double real, final double durationThreshold) {
 		return (real < (1.0 + durationThreshold) * preferred)
 			&& (real > (1.0 - durationThreshold) * preferred);
 	}
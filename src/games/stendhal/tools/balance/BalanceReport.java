@@ -0,0 +1,130 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.balance;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes the results of a sweep as CSV or as an HTML table.
+ */
+public final class BalanceReport {
+	private static final String[] COLUMNS = { "creature", "creature_level", "atk", "def", "hp",
+		"profile", "player_level", "fights", "win_rate", "mean_turns", "mean_left_hp", "relative_left_hp" };
+
+	private BalanceReport() {
+		// static methods only
+	}
+
+	/**
+	 * writes the results as CSV
+	 *
+	 * @param out Writer
+	 * @param results results of the sweep
+	 * @throws IOException in case of an input/output error
+	 */
+	public static void writeCsv(Writer out, List<SweepResult> results) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < COLUMNS.length; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(COLUMNS[i]);
+		}
+		sb.append('\n');
+		for (SweepResult result : results) {
+			String[] values = getValues(result);
+			for (int i = 0; i < values.length; i++) {
+				if (i > 0) {
+					sb.append(',');
+				}
+				sb.append(escapeCsv(values[i]));
+			}
+			sb.append('\n');
+		}
+		out.write(sb.toString());
+	}
+
+	/**
+	 * writes the results as HTML page. Rows where the player wins less than
+	 * half or all of the fights are highlighted.
+	 *
+	 * @param out Writer
+	 * @param title title of the page
+	 * @param results results of the sweep
+	 * @throws IOException in case of an input/output error
+	 */
+	public static void writeHtml(Writer out, String title, List<SweepResult> results) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>").append(escapeHtml(title))
+			.append("</title>\n<style>table{border-collapse:collapse}td,th{border:1px solid #999;padding:2px 6px}"
+				+ "td{text-align:right}.hard{background:#f99}.easy{background:#9f9}</style></head>\n<body><h1>")
+			.append(escapeHtml(title)).append("</h1>\n<table>\n<tr>");
+		for (String column : COLUMNS) {
+			sb.append("<th>").append(escapeHtml(column)).append("</th>");
+		}
+		sb.append("</tr>\n");
+		for (SweepResult result : results) {
+			double winRate = result.getResult().getWinRate();
+			if (winRate < 0.5) {
+				sb.append("<tr class=\"hard\">");
+			} else if (winRate >= 1.0) {
+				sb.append("<tr class=\"easy\">");
+			} else {
+				sb.append("<tr>");
+			}
+			for (String value : getValues(result)) {
+				sb.append("<td>").append(escapeHtml(value)).append("</td>");
+			}
+			sb.append("</tr>\n");
+		}
+		sb.append("</table>\n</body></html>\n");
+		out.write(sb.toString());
+	}
+
+	private static String[] getValues(SweepResult result) {
+		Combatant creature = result.getCreature();
+		Combatant player = result.getPlayer();
+		FightResult fights = result.getResult();
+		return new String[] {
+			creature.getName(),
+			Integer.toString(creature.getLevel()),
+			Integer.toString(creature.getAtk()),
+			Integer.toString(creature.getDef()),
+			Integer.toString(creature.getBaseHP()),
+			result.getProfile().name().toLowerCase(Locale.ENGLISH),
+			Integer.toString(player.getLevel()),
+			Integer.toString(fights.getFights()),
+			format(fights.getWinRate()),
+			format(fights.getMeanTurns()),
+			format(fights.getMeanLeftHP()),
+			format(fights.getMeanLeftHP() / player.getBaseHP())
+		};
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ENGLISH, "%.3f", value);
+	}
+
+	private static String escapeCsv(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+	private static String escapeHtml(String value) {
+		return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+}
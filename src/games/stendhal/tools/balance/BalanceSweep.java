@@ -0,0 +1,285 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.balance;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import games.stendhal.server.core.config.CreatureGroupsXMLLoader;
+import games.stendhal.server.core.engine.RPClassGenerator;
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.transformer.PlayerTransformer;
+import games.stendhal.server.core.rule.EntityManager;
+import games.stendhal.server.core.rule.defaultruleset.DefaultCreature;
+import games.stendhal.server.entity.player.Player;
+import marauroa.common.game.RPObject;
+
+/**
+ * Simulates fights of every creature against players of levels around the
+ * creature level with each equipment profile. The cases are independent and
+ * run in parallel. Every case has its own seed derived from the base seed and
+ * the case, so the results do not depend on the number of threads or on the
+ * order the cases are run in.
+ * <p>
+ * Usage: <code>BalanceSweep [--fights n] [--seed n] [--levels -5,0,5]
+ * [--csv file] [--html file] [creature ...]</code>
+ */
+public final class BalanceSweep {
+	private static final int DEFAULT_FIGHTS = 100;
+	private static final long DEFAULT_SEED = 1;
+
+	/** cases handled by a single task without further splitting */
+	private static final int SEQUENTIAL_THRESHOLD = 4;
+
+	private BalanceSweep() {
+		// static methods only
+	}
+
+	/**
+	 * one fight setup of the sweep
+	 */
+	private static final class Case {
+		private final EquipmentProfile profile;
+		private final Combatant player;
+		private final Combatant creature;
+
+		Case(EquipmentProfile profile, Combatant player, Combatant creature) {
+			this.profile = profile;
+			this.player = player;
+			this.creature = creature;
+		}
+	}
+
+	/**
+	 * simulates a range of cases, splitting it while it is large
+	 */
+	private static final class SweepTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<Case> cases;
+		private final SweepResult[] results;
+		private final int from;
+		private final int to;
+		private final int fights;
+		private final long seed;
+
+		SweepTask(List<Case> cases, SweepResult[] results, int from, int to, int fights, long seed) {
+			this.cases = cases;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+			this.fights = fights;
+			this.seed = seed;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= SEQUENTIAL_THRESHOLD) {
+				for (int i = from; i < to; i++) {
+					Case c = cases.get(i);
+					long caseSeed = seedFor(seed, c.creature.getName(), c.player.getLevel(), c.profile.ordinal());
+					results[i] = new SweepResult(c.profile, c.player, c.creature,
+							CombatSimulator.simulate(c.player, c.creature, fights, caseSeed));
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new SweepTask(cases, results, from, middle, fights, seed),
+					new SweepTask(cases, results, middle, to, fights, seed));
+		}
+	}
+
+	/**
+	 * derives the seed of a single case
+	 *
+	 * @param seed base seed
+	 * @param name name of the creature
+	 * @param level level of the player
+	 * @param variant other distinguishing value, like the equipment profile
+	 * @return seed
+	 */
+	public static long seedFor(long seed, String name, int level, int variant) {
+		long hash = mix(seed + name.hashCode());
+		hash = mix(hash + level);
+		return mix(hash + variant);
+	}
+
+	/**
+	 * the finalizer of splitmix64
+	 *
+	 * @param value value to mix
+	 * @return mixed value
+	 */
+	private static long mix(long value) {
+		long z = value + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * loads the creatures sorted by level
+	 *
+	 * @param names names of the creatures to load, all creatures if empty
+	 * @return creatures
+	 * @throws Exception in case the creatures cannot be loaded
+	 */
+	public static List<DefaultCreature> loadCreatures(Collection<String> names) throws Exception {
+		new RPClassGenerator().createRPClasses();
+		final CreatureGroupsXMLLoader loader = new CreatureGroupsXMLLoader("/data/conf/creatures.xml");
+		List<DefaultCreature> creatures = new ArrayList<DefaultCreature>();
+		for (DefaultCreature creature : loader.load()) {
+			if (names.isEmpty() || names.contains(creature.getCreatureName())) {
+				creatures.add(creature);
+			}
+		}
+
+		Collections.sort(creatures, new Comparator<DefaultCreature>() {
+			@Override
+			public int compare(final DefaultCreature o1, final DefaultCreature o2) {
+				return o1.getLevel() - o2.getLevel();
+			}
+		});
+		return creatures;
+	}
+
+	/**
+	 * creates a player with the basic equipment, which can be adjusted with
+	 * {@link EquipmentProfile#apply(Player, int)}
+	 *
+	 * @return player
+	 */
+	public static Player createPlayer() {
+		final EntityManager em = SingletonRepository.getEntityManager();
+		Player player = (Player) new PlayerTransformer().transform(new RPObject());
+		player.equip("lhand", em.getItem("wooden shield"));
+		player.equip("rhand", em.getItem("club"));
+		player.equip("armor", em.getItem("dress"));
+		player.equip("head", em.getItem("leather helmet"));
+		player.equip("legs", em.getItem("leather legs"));
+		player.equip("feet", em.getItem("leather boots"));
+		return player;
+	}
+
+	/**
+	 * runs the sweep
+	 *
+	 * @param creatures creatures to simulate
+	 * @param levelOffsets player levels relative to the creature level
+	 * @param profiles equipment profiles of the players
+	 * @param fights fights per case
+	 * @param seed base seed
+	 * @return results in the order creature, player level, profile
+	 */
+	public static List<SweepResult> sweep(List<DefaultCreature> creatures, int[] levelOffsets,
+			EquipmentProfile[] profiles, int fights, long seed) {
+		// resolving the equipment uses the entities, so do that up front on this thread
+		Player player = createPlayer();
+		Map<Integer, Combatant> players = new HashMap<Integer, Combatant>();
+		List<Case> cases = new ArrayList<Case>();
+		for (DefaultCreature creature : creatures) {
+			Combatant target = Combatant.of(creature.getCreature());
+			for (int offset : levelOffsets) {
+				int level = creature.getLevel() + offset;
+				if (level < 0) {
+					continue;
+				}
+				for (EquipmentProfile profile : profiles) {
+					Integer key = Integer.valueOf(level * profiles.length + profile.ordinal());
+					Combatant attacker = players.get(key);
+					if (attacker == null) {
+						profile.apply(player, level);
+						attacker = Combatant.of(player);
+						players.put(key, attacker);
+					}
+					cases.add(new Case(profile, attacker, target));
+				}
+			}
+		}
+
+		SweepResult[] results = new SweepResult[cases.size()];
+		ForkJoinPool.commonPool().invoke(new SweepTask(cases, results, 0, cases.size(), fights, seed));
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * opens a text file for writing
+	 *
+	 * @param filename name of the file
+	 * @return Writer
+	 * @throws IOException in case of an input/output error
+	 */
+	public static Writer openWriter(String filename) throws IOException {
+		return new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8);
+	}
+
+	public static void main(String[] args) throws Exception {
+		int fights = DEFAULT_FIGHTS;
+		long seed = DEFAULT_SEED;
+		int[] levelOffsets = new int[] { -5, 0, 5 };
+		String csv = null;
+		String html = null;
+		List<String> names = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("--fights")) {
+				fights = Integer.parseInt(args[++i]);
+			} else if (arg.equals("--seed")) {
+				seed = Long.parseLong(args[++i]);
+			} else if (arg.equals("--levels")) {
+				String[] parts = args[++i].split(",");
+				levelOffsets = new int[parts.length];
+				for (int j = 0; j < parts.length; j++) {
+					levelOffsets[j] = Integer.parseInt(parts[j].trim());
+				}
+			} else if (arg.equals("--csv")) {
+				csv = args[++i];
+			} else if (arg.equals("--html")) {
+				html = args[++i];
+			} else {
+				names.add(arg);
+			}
+		}
+
+		List<DefaultCreature> creatures = loadCreatures(names);
+		List<SweepResult> results = sweep(creatures, levelOffsets, EquipmentProfile.values(), fights, seed);
+
+		if (csv != null) {
+			try (Writer out = openWriter(csv)) {
+				BalanceReport.writeCsv(out, results);
+			}
+		}
+		if (html != null) {
+			try (Writer out = openWriter(html)) {
+				BalanceReport.writeHtml(out, "Balance sweep (seed " + seed + ", " + fights + " fights)", results);
+			}
+		}
+		if ((csv == null) && (html == null)) {
+			Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+			BalanceReport.writeCsv(out, results);
+			out.flush();
+		}
+	}
+}
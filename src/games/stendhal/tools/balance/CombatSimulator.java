@@ -0,0 +1,145 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.balance;
+
+import java.util.Random;
+
+import games.stendhal.server.entity.CombatFormula;
+
+/**
+ * Simulates melee fights between a player and a creature with the formulas
+ * of the game, but without entities, zones or turns. Both sides attack at
+ * their attack rate. Karma is not used, so the results do not depend on the
+ * luck of the player.
+ * <p>
+ * All randomness comes from the seed, so the same input always gives the
+ * same result, and simulations can run in parallel.
+ */
+public final class CombatSimulator {
+	/** fights that take longer are stopped, neither side can hurt the other */
+	private static final int MAX_TURNS = 100000;
+
+	private CombatSimulator() {
+		// static methods only
+	}
+
+	/**
+	 * The values of one side attacking the other, which do not change during
+	 * a fight.
+	 */
+	private static final class Attack {
+		private final int atk;
+		private final int def;
+		private final double maxAttack;
+		private final double maxDefence;
+		private final double susceptibility;
+
+		Attack(Combatant attacker, Combatant defender) {
+			atk = attacker.getAtk();
+			def = defender.getDef();
+			maxDefence = CombatFormula.getMaxDefence(def, defender.getItemDef(), defender.getLevel());
+			double speedEffect = CombatFormula.getSpeedEffect(attacker.getLevel(), defender.getLevel(),
+					attacker.getAttackRate());
+			maxAttack = CombatFormula.getMaxAttack(atk, attacker.getItemAtk(), attacker.getLevel(), speedEffect);
+			susceptibility = defender.getSusceptibility(attacker.getDamageType());
+		}
+
+		/**
+		 * rolls an attack
+		 *
+		 * @param random random number generator
+		 * @return damage, 0 if the attack missed or was blocked
+		 */
+		int roll(Random random) {
+			int roll = random.nextInt(20) + 1;
+			if (CombatFormula.getRiskForCanHit(roll, def, atk) <= 0) {
+				return 0;
+			}
+			double defence = random.nextDouble() * maxDefence;
+			double attack = random.nextDouble() * maxAttack;
+			return Math.max(0, CombatFormula.getDamage(susceptibility, attack, defence, maxDefence));
+		}
+	}
+
+	/**
+	 * simulates a series of fights
+	 *
+	 * @param player player
+	 * @param creature creature
+	 * @param fights number of fights
+	 * @param seed seed for the random numbers
+	 * @return averaged result
+	 */
+	public static FightResult simulate(Combatant player, Combatant creature, int fights, long seed) {
+		Random random = new Random(seed);
+		Attack playerAttack = new Attack(player, creature);
+		Attack creatureAttack = new Attack(creature, player);
+
+		long totalTurns = 0;
+		long totalLeftHP = 0;
+		int wins = 0;
+		for (int i = 0; i < fights; i++) {
+			int playerHP = player.getBaseHP();
+			int creatureHP = creature.getBaseHP();
+			int turns = 0;
+			while (turns < MAX_TURNS) {
+				turns++;
+				if ((creature.getHealRate() > 0) && (turns % creature.getHealRate() == 0)) {
+					creatureHP = Math.min(creature.getBaseHP(), creatureHP + creature.getHealAmount());
+				}
+
+				if (turns % player.getAttackRate() == 0) {
+					int damage = Math.min(playerAttack.roll(random), creatureHP);
+					creatureHP -= damage;
+					playerHP = steal(player, playerHP, damage);
+					if (creatureHP <= 0) {
+						wins++;
+						break;
+					}
+				}
+
+				if (turns % creature.getAttackRate() == 0) {
+					int damage = creatureAttack.roll(random);
+					creatureHP = steal(creature, creatureHP, Math.min(damage, Math.max(0, playerHP)));
+					playerHP -= damage;
+					if (playerHP <= 0) {
+						break;
+					}
+				}
+			}
+			totalTurns += turns;
+			totalLeftHP += playerHP;
+		}
+
+		if (fights == 0) {
+			return new FightResult(0, 0, 0, 0);
+		}
+		return new FightResult(fights, totalTurns / (double) fights, totalLeftHP / (double) fights, wins);
+	}
+
+	/**
+	 * applies the lifesteal of an attacker
+	 *
+	 * @param attacker attacker
+	 * @param hp current hp of the attacker
+	 * @param damage damage done
+	 * @return new hp of the attacker
+	 */
+	private static int steal(Combatant attacker, int hp, int damage) {
+		if (attacker.getLifesteal() == 0) {
+			return hp;
+		}
+		// 0.5 is used for rounding
+		int lifesteal = (int) (damage * attacker.getLifesteal() + 0.5);
+		return Math.min(attacker.getBaseHP(), hp + lifesteal);
+	}
+}
@@ -0,0 +1,233 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.balance;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import games.stendhal.common.constants.Nature;
+import games.stendhal.server.entity.RPEntity;
+import games.stendhal.server.entity.creature.Creature;
+import games.stendhal.server.entity.item.Item;
+
+/**
+ * The combat relevant values of a player or creature. They are read once
+ * from an entity with its equipment, so that the simulation does not need
+ * to touch the entity again and can run on any thread.
+ */
+public final class Combatant {
+	private final String name;
+	private final int level;
+	private final int atk;
+	private final int def;
+	private final double itemAtk;
+	private final double itemDef;
+	private final int attackRate;
+	private final int baseHP;
+	private final Nature damageType;
+	private final Map<Nature, Double> susceptibilities;
+	private final int healAmount;
+	private final int healRate;
+	private final double lifesteal;
+
+	/**
+	 * creates a new Combatant
+	 *
+	 * @param name name of the entity
+	 * @param level level
+	 * @param atk capped atk
+	 * @param def capped def
+	 * @param itemAtk atk value of the weapons
+	 * @param itemDef def value of the defensive items
+	 * @param attackRate turns between attacks
+	 * @param baseHP maximum hp
+	 * @param damageType type of the damage done
+	 * @param susceptibilities damage multiplier for each damage type
+	 * @param healAmount hp healed every healRate turns
+	 * @param healRate turns between healing, 0 for none
+	 * @param lifesteal fraction of the damage done that is healed
+	 */
+	Combatant(String name, int level, int atk, int def, double itemAtk, double itemDef, int attackRate,
+			int baseHP, Nature damageType, Map<Nature, Double> susceptibilities,
+			int healAmount, int healRate, double lifesteal) {
+		this.name = name;
+		this.level = level;
+		this.atk = atk;
+		this.def = def;
+		this.itemAtk = itemAtk;
+		this.itemDef = itemDef;
+		this.attackRate = Math.max(1, attackRate);
+		this.baseHP = baseHP;
+		this.damageType = damageType;
+		this.susceptibilities = susceptibilities;
+		this.healAmount = healAmount;
+		this.healRate = healRate;
+		this.lifesteal = lifesteal;
+	}
+
+	/**
+	 * reads the combat values of an entity
+	 *
+	 * @param entity player or creature with its equipment
+	 * @return Combatant
+	 */
+	public static Combatant of(RPEntity entity) {
+		Map<Nature, Double> susceptibilities = new EnumMap<Nature, Double>(Nature.class);
+		for (Nature nature : Nature.values()) {
+			susceptibilities.put(nature, Double.valueOf(entity.getSusceptibility(nature)));
+		}
+
+		int healAmount = 0;
+		int healRate = 0;
+		double lifesteal = 0;
+		if (entity instanceof Creature) {
+			Creature creature = (Creature) entity;
+			String healer = creature.getAIProfile("heal");
+			if (healer != null) {
+				String[] healingAttributes = healer.split(",");
+				healAmount = Integer.parseInt(healingAttributes[0]);
+				healRate = Integer.parseInt(healingAttributes[1]);
+			}
+			String value = creature.getAIProfile("lifesteal");
+			if (value != null) {
+				lifesteal = Double.parseDouble(value);
+			}
+		} else {
+			// weighted by the atk values of the weapons, like in RPEntity.handleLifesteal
+			double sumAll = 0;
+			double sumLifesteal = 0;
+			for (Item weapon : entity.getWeapons()) {
+				sumAll += weapon.getAttack();
+				if (weapon.has("lifesteal")) {
+					sumLifesteal += weapon.getAttack() * weapon.getDouble("lifesteal");
+				}
+			}
+			if (sumLifesteal != 0) {
+				lifesteal = sumLifesteal / sumAll;
+			}
+		}
+
+		return new Combatant(entity.getName(), entity.getLevel(), entity.getCappedAtk(), entity.getCappedDef(),
+				entity.getItemAtk(), entity.getItemDef(), entity.getAttackRate(), entity.getBaseHP(),
+				entity.getDamageType(), susceptibilities, healAmount, healRate, lifesteal);
+	}
+
+	/**
+	 * creates a copy with other atk and def values
+	 *
+	 * @param newAtk atk
+	 * @param newDef def
+	 * @return Combatant
+	 */
+	public Combatant withAtkDef(int newAtk, int newDef) {
+		return new Combatant(name, level, newAtk, newDef, itemAtk, itemDef, attackRate, baseHP, damageType,
+				susceptibilities, healAmount, healRate, lifesteal);
+	}
+
+	/**
+	 * @return name of the entity
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return level
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * @return capped atk
+	 */
+	public int getAtk() {
+		return atk;
+	}
+
+	/**
+	 * @return capped def
+	 */
+	public int getDef() {
+		return def;
+	}
+
+	/**
+	 * @return atk value of the weapons
+	 */
+	public double getItemAtk() {
+		return itemAtk;
+	}
+
+	/**
+	 * @return def value of the defensive items
+	 */
+	public double getItemDef() {
+		return itemDef;
+	}
+
+	/**
+	 * @return turns between attacks
+	 */
+	public int getAttackRate() {
+		return attackRate;
+	}
+
+	/**
+	 * @return maximum hp
+	 */
+	public int getBaseHP() {
+		return baseHP;
+	}
+
+	/**
+	 * @return type of the damage done
+	 */
+	public Nature getDamageType() {
+		return damageType;
+	}
+
+	/**
+	 * gets the damage multiplier for a type of damage
+	 *
+	 * @param type damage type
+	 * @return multiplier
+	 */
+	public double getSusceptibility(Nature type) {
+		Double value = susceptibilities.get(type);
+		if (value == null) {
+			return 1.0;
+		}
+		return value.doubleValue();
+	}
+
+	/**
+	 * @return hp healed every heal rate turns
+	 */
+	public int getHealAmount() {
+		return healAmount;
+	}
+
+	/**
+	 * @return turns between healing, 0 for none
+	 */
+	public int getHealRate() {
+		return healRate;
+	}
+
+	/**
+	 * @return fraction of the damage done that is healed
+	 */
+	public double getLifesteal() {
+		return lifesteal;
+	}
+}
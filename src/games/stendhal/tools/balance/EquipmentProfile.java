@@ -0,0 +1,94 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.balance;
+
+import games.stendhal.server.entity.player.Player;
+
+/**
+ * How well a player of a given level is trained and equipped. The standard
+ * profile is the typical player the creatures are balanced against, the
+ * others show how much the balance depends on the equipment.
+ */
+public enum EquipmentProfile {
+	/** a player with below average equipment */
+	WEAK(0.75),
+	/** the typical player */
+	STANDARD(1.0),
+	/** a player with above average equipment */
+	STRONG(1.25);
+
+	private final double itemFactor;
+
+	private EquipmentProfile(double itemFactor) {
+		this.itemFactor = itemFactor;
+	}
+
+	/**
+	 * gets the atk of a player. This helps newbies a bit, so don't start at
+	 * real stats, but a bit lower.
+	 *
+	 * @param level level of the player
+	 * @return atk
+	 */
+	public static int getAtk(int level) {
+		return (int) Math.round(Math.log(level + 4) * 9 - 10);
+	}
+
+	/**
+	 * gets the def of a player
+	 *
+	 * @param level level of the player
+	 * @return def
+	 */
+	public static int getDef(int level) {
+		return (int) Math.round(Math.log(level + 4) * 20 + level - 26);
+	}
+
+	/**
+	 * gets the hp of a player
+	 *
+	 * @param level level of the player
+	 * @return base hp
+	 */
+	public static int getBaseHP(int level) {
+		return 100 + 10 * level;
+	}
+
+	/**
+	 * sets the stats and the item values of a player. The player needs to
+	 * hold a weapon, a shield, armor, helmet, legs and boots.
+	 *
+	 * @param player player
+	 * @param level level to set
+	 */
+	public void apply(Player player, int level) {
+		player.setLevel(level);
+		player.setBaseHP(getBaseHP(level));
+		player.setAtk(getAtk(level));
+		player.setDef(getDef(level));
+
+		player.getWeapon().put("atk", scale(7 + level * 2 / 6));
+		if (level == 0) {
+			player.getShield().put("def", 0);
+		} else {
+			player.getShield().put("def", scale(12 + level / 8));
+		}
+		player.getArmor().put("def", scale(1 + level / 4));
+		player.getHelmet().put("def", scale(1 + level / 7));
+		player.getLegs().put("def", scale(1 + level / 7));
+		player.getBoots().put("def", scale(1 + level / 10));
+	}
+
+	private int scale(int value) {
+		return (int) Math.round(value * itemFactor);
+	}
+}
@@ -0,0 +1,69 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.balance;
+
+/**
+ * The averaged outcome of a series of fights between a player and a
+ * creature.
+ */
+public final class FightResult {
+	private final int fights;
+	private final double meanTurns;
+	private final double meanLeftHP;
+	private final int wins;
+
+	/**
+	 * creates a new FightResult
+	 *
+	 * @param fights number of fights
+	 * @param meanTurns average number of turns a fight took
+	 * @param meanLeftHP average hp the player had left, negative if the player died
+	 * @param wins number of fights the player won
+	 */
+	FightResult(int fights, double meanTurns, double meanLeftHP, int wins) {
+		this.fights = fights;
+		this.meanTurns = meanTurns;
+		this.meanLeftHP = meanLeftHP;
+		this.wins = wins;
+	}
+
+	/**
+	 * @return number of fights
+	 */
+	public int getFights() {
+		return fights;
+	}
+
+	/**
+	 * @return average number of turns a fight took
+	 */
+	public double getMeanTurns() {
+		return meanTurns;
+	}
+
+	/**
+	 * @return average hp the player had left, negative if the player died
+	 */
+	public double getMeanLeftHP() {
+		return meanLeftHP;
+	}
+
+	/**
+	 * @return fraction of the fights the player won
+	 */
+	public double getWinRate() {
+		if (fights == 0) {
+			return 0;
+		}
+		return wins / (double) fights;
+	}
+}
@@ -0,0 +1,65 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.balance;
+
+/**
+ * One combination of the sweep and its result.
+ */
+public final class SweepResult {
+	private final EquipmentProfile profile;
+	private final Combatant player;
+	private final Combatant creature;
+	private final FightResult result;
+
+	/**
+	 * creates a new SweepResult
+	 *
+	 * @param profile equipment profile of the player
+	 * @param player player
+	 * @param creature creature
+	 * @param result result of the fights
+	 */
+	public SweepResult(EquipmentProfile profile, Combatant player, Combatant creature, FightResult result) {
+		this.profile = profile;
+		this.player = player;
+		this.creature = creature;
+		this.result = result;
+	}
+
+	/**
+	 * @return equipment profile of the player
+	 */
+	public EquipmentProfile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * @return player
+	 */
+	public Combatant getPlayer() {
+		return player;
+	}
+
+	/**
+	 * @return creature
+	 */
+	public Combatant getCreature() {
+		return creature;
+	}
+
+	/**
+	 * @return result of the fights
+	 */
+	public FightResult getResult() {
+		return result;
+	}
+}
@@ -12,7 +12,10 @@
  ***************************************************************************/
 package games.stendhal.tools.loganalyser.laganalyser;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * analyses turn overflows
@@ -21,37 +24,50 @@ import java.io.IOException;
  */
 public class LagAnalyser {
 
+	/** size of the time buckets of the summary */
+	private static final long BUCKET_MILLIS = 60 * 1000;
+
 	/**
-	 * analyses the logfile for turn overflows and generates a colored html file
+	 * analyses the logfiles for turn overflows and generates a colored html file
 	 *
-	 * @param inputFileName
+	 * @param inputFiles log files, optionally gzipped, in order
 	 * @param outputFileName
 	 * @throws IOException
 	 */
-	private void generateHTMLReport(String inputFileName, String outputFileName) throws IOException {
-		LagReader reader = new LagReader(inputFileName);
-		LagHTMLWriter writer = new LagHTMLWriter(outputFileName);
+	private void generateHTMLReport(List<File> inputFiles, String outputFileName) throws IOException {
+		List<LagRecord> records = new LagLogScanner().scan(inputFiles);
+		LagIndex index = new LagIndex(BUCKET_MILLIS);
+		for (LagRecord record : records) {
+			index.add(record);
+		}
 
+		LagHTMLWriter writer = new LagHTMLWriter(outputFileName);
 		writer.writeHeader();
-		int[] times = reader.readTurnOverflowRelative();
-		while (times != null) {
-			writer.writeTurnOverflows(times);
-			times = reader.readTurnOverflowRelative();
+		writer.writeIndex(index);
+		writer.writeTurnOverflowsHeader();
+		for (LagRecord record : records) {
+			writer.writeTurnOverflows(record.getTimes());
 		}
 		writer.writeFooter();
-
-		reader.close();
 		writer.close();
 	}
 
 	/**
 	 * main method
 	 *
-	 * @param args inputfile, outputfile
+	 * @param args inputfile [inputfile...] outputfile
 	 * @throws IOException
 	 */
 	public static void main(String[] args) throws IOException {
-		new LagAnalyser().generateHTMLReport(args[0], args[1]);
+		if (args.length < 2) {
+			System.err.println("java " + LagAnalyser.class.getName() + " inputfile [inputfile...] outputfile");
+			System.exit(1);
+		}
+		List<File> inputFiles = new ArrayList<File>();
+		for (int i = 0; i < args.length - 1; i++) {
+			inputFiles.add(new File(args[i]));
+		}
+		new LagAnalyser().generateHTMLReport(inputFiles, args[args.length - 1]);
 	}
 
 }
@@ -14,6 +14,9 @@ package games.stendhal.tools.loganalyser.laganalyser;
 
 import java.io.FileNotFoundException;
 import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
 
 /**
  * writes a colored html based lag report
@@ -34,7 +37,7 @@ public class LagHTMLWriter {
 	}
 
 	/**
-	 * writes the header of the html-file (including the content header).
+	 * writes the header of the html-file.
 	 */
 	public void writeHeader() {
 		ps.println("<html>");
@@ -43,6 +46,42 @@ public class LagHTMLWriter {
 		ps.println("\t<style>.first {background-color: #F00} .second {background-color: #FF0}</style>");
 		ps.println("</head>");
 		ps.println("<body>");
+	}
+
+	/**
+	 * writes a summary table of the turn overflows grouped by time
+	 *
+	 * @param index LagIndex
+	 */
+	public void writeIndex(LagIndex index) {
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		ps.println("<h2>Turn overflows per " + (index.getBucketMillis() / 1000) + " seconds</h2>");
+		ps.println("<table border=\"1\">");
+		ps.println("<tr><th>time</th><th>overflows</th><th>total ms</th><th>max ms</th><th>average time per step</th></tr>");
+		for (LagIndex.Bucket bucket : index.getBuckets()) {
+			ps.print("<tr><td>" + format.format(new Date(bucket.getStart())) + "</td><td>" + bucket.getCount()
+				+ "</td><td>" + bucket.getTotalOverflow() + "</td><td>" + bucket.getMaxOverflow() + "</td>");
+			int[] times = bucket.getAverageTimes();
+			if (times.length > 0) {
+				String[] cssClasses = calculateCssClasses(times);
+				for (int i = 0; i < times.length; i++) {
+					ps.print("<td class=" + cssClasses[i] + ">" + times[i] + "</td>");
+				}
+			}
+			ps.println("</tr>");
+		}
+		ps.println("</table>");
+		if (index.getWithoutTimestamp() > 0) {
+			ps.println("<p>" + index.getWithoutTimestamp() + " turn overflows without timestamp</p>");
+		}
+	}
+
+	/**
+	 * writes the header of the table of individual turn overflows
+	 */
+	public void writeTurnOverflowsHeader() {
+		ps.println("<h2>Turn overflows</h2>");
 		ps.println("<table border=\"1\">");
 	}
 
@@ -0,0 +1,143 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.loganalyser.laganalyser;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.TreeMap;
+
+/**
+ * turn overflows grouped into buckets of time
+ */
+public class LagIndex {
+	private final long bucketMillis;
+	private final TreeMap<Long, Bucket> buckets = new TreeMap<Long, Bucket>();
+	private int withoutTimestamp;
+
+	/**
+	 * creates a new LagIndex
+	 *
+	 * @param bucketMillis size of a bucket in milliseconds
+	 */
+	public LagIndex(long bucketMillis) {
+		this.bucketMillis = bucketMillis;
+	}
+
+	/**
+	 * adds a turn overflow to its bucket
+	 *
+	 * @param record LagRecord
+	 */
+	public void add(LagRecord record) {
+		if (record.getTimestamp() < 0) {
+			withoutTimestamp++;
+			return;
+		}
+		long start = record.getTimestamp() - record.getTimestamp() % bucketMillis;
+		Bucket bucket = buckets.get(Long.valueOf(start));
+		if (bucket == null) {
+			bucket = new Bucket(start);
+			buckets.put(Long.valueOf(start), bucket);
+		}
+		bucket.add(record);
+	}
+
+	/**
+	 * @return buckets in order of time
+	 */
+	public Collection<Bucket> getBuckets() {
+		return Collections.unmodifiableCollection(buckets.values());
+	}
+
+	/**
+	 * @return size of a bucket in milliseconds
+	 */
+	public long getBucketMillis() {
+		return bucketMillis;
+	}
+
+	/**
+	 * @return number of turn overflows without timestamp
+	 */
+	public int getWithoutTimestamp() {
+		return withoutTimestamp;
+	}
+
+	/**
+	 * turn overflows within one bucket of time
+	 */
+	public static class Bucket {
+		private final long start;
+		private int count;
+		private long totalOverflow;
+		private int maxOverflow;
+		private long[] totalTimes = new long[0];
+
+		Bucket(long start) {
+			this.start = start;
+		}
+
+		void add(LagRecord record) {
+			count++;
+			totalOverflow += record.getOverflow();
+			maxOverflow = Math.max(maxOverflow, record.getOverflow());
+			int[] times = record.getTimes();
+			if (times.length > totalTimes.length) {
+				long[] temp = new long[times.length];
+				System.arraycopy(totalTimes, 0, temp, 0, totalTimes.length);
+				totalTimes = temp;
+			}
+			for (int i = 0; i < times.length; i++) {
+				totalTimes[i] += times[i];
+			}
+		}
+
+		/**
+		 * @return start of the bucket in milliseconds
+		 */
+		public long getStart() {
+			return start;
+		}
+
+		/**
+		 * @return number of turn overflows
+		 */
+		public int getCount() {
+			return count;
+		}
+
+		/**
+		 * @return sum of all overflows in milliseconds
+		 */
+		public long getTotalOverflow() {
+			return totalOverflow;
+		}
+
+		/**
+		 * @return longest overflow in milliseconds
+		 */
+		public int getMaxOverflow() {
+			return maxOverflow;
+		}
+
+		/**
+		 * @return average relative time used in each step of the turn
+		 */
+		public int[] getAverageTimes() {
+			int[] res = new int[totalTimes.length];
+			for (int i = 0; i < res.length; i++) {
+				res[i] = (int) (totalTimes[i] / count);
+			}
+			return res;
+		}
+	}
+}
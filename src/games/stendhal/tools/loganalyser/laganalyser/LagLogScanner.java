@@ -0,0 +1,332 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.loganalyser.laganalyser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Scans server logs for turn overflows.
+ * <p>
+ * Plain log files are memory mapped, gzipped ones are decompressed as a
+ * stream. The data is split into chunks at line boundaries, which are scanned
+ * in parallel for the overflow marker. Only matching lines are parsed.
+ * Records are returned in the order of the files and lines.
+ * <p>
+ * Timestamps are read from the start of the line in the format
+ * "yyyy-MM-dd HH:mm:ss" used by the file appender and kept as local time
+ * in milliseconds, treating it as UTC.
+ */
+public class LagLogScanner {
+	private static final byte[] MARKER = "Turn duration overflow by".getBytes(StandardCharsets.US_ASCII);
+
+	/** skip table of the Boyer-Moore-Horspool search for the marker */
+	private static final int[] SKIP = new int[256];
+	static {
+		Arrays.fill(SKIP, MARKER.length);
+		for (int i = 0; i < MARKER.length - 1; i++) {
+			SKIP[MARKER[i] & 0xFF] = MARKER.length - 1 - i;
+		}
+	}
+
+	/** default size of a chunk */
+	private static final int DEFAULT_CHUNK_SIZE = 32 * 1024 * 1024;
+
+	private final int chunkSize;
+	private final int threads;
+
+	/**
+	 * creates a new LagLogScanner using all processors
+	 */
+	public LagLogScanner() {
+		this(DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * creates a new LagLogScanner
+	 *
+	 * @param chunkSize size of the chunks in bytes
+	 * @param threads number of threads
+	 */
+	LagLogScanner(int chunkSize, int threads) {
+		this.chunkSize = chunkSize;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * scans log files for turn overflows
+	 *
+	 * @param files log files, optionally gzipped, in order
+	 * @return turn overflows in order of the files and lines
+	 * @throws IOException in case of an input/output error
+	 */
+	public List<LagRecord> scan(List<File> files) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<List<LagRecord>>> futures = new ArrayList<Future<List<LagRecord>>>();
+			for (File file : files) {
+				if (file.getName().endsWith(".gz")) {
+					submitGzipped(executor, file, futures);
+				} else {
+					submitMapped(executor, file, futures);
+				}
+			}
+
+			List<LagRecord> res = new ArrayList<LagRecord>();
+			for (Future<List<LagRecord>> future : futures) {
+				res.addAll(future.get());
+			}
+			return res;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * splits a plain file into chunks ending at line breaks and maps them
+	 */
+	private void submitMapped(ExecutorService executor, File file, List<Future<List<LagRecord>>> futures) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			long start = 0;
+			while (start < size) {
+				long end = findLineEnd(channel, Math.min(start + chunkSize, size), size);
+				final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+				futures.add(executor.submit(new ChunkScanner(buffer)));
+				start = end;
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * finds the position after the next line break
+	 */
+	private static long findLineEnd(FileChannel channel, long position, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		long pos = position;
+		while (pos < size) {
+			buffer.clear();
+			int read = channel.read(buffer, pos);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return pos + i + 1;
+				}
+			}
+			pos += read;
+		}
+		return size;
+	}
+
+	/**
+	 * decompresses a gzipped file and splits it into chunks ending at line breaks
+	 */
+	private void submitGzipped(ExecutorService executor, File file, List<Future<List<LagRecord>>> futures) throws IOException {
+		InputStream is = new GZIPInputStream(new FileInputStream(file), 64 * 1024);
+		try {
+			byte[] chunk = new byte[chunkSize];
+			int length = 0;
+			while (true) {
+				int read = is.read(chunk, length, chunk.length - length);
+				if (read < 0) {
+					break;
+				}
+				length += read;
+				if (length < chunk.length) {
+					continue;
+				}
+
+				int lineEnd = length;
+				while (lineEnd > 0 && chunk[lineEnd - 1] != '\n') {
+					lineEnd--;
+				}
+				if (lineEnd == 0) {
+					// a single line longer than the chunk
+					chunk = Arrays.copyOf(chunk, chunk.length * 2);
+					continue;
+				}
+				futures.add(executor.submit(new ChunkScanner(ByteBuffer.wrap(chunk, 0, lineEnd))));
+				byte[] next = new byte[Math.max(chunkSize, 2 * (length - lineEnd))];
+				System.arraycopy(chunk, lineEnd, next, 0, length - lineEnd);
+				length = length - lineEnd;
+				chunk = next;
+			}
+			if (length > 0) {
+				futures.add(executor.submit(new ChunkScanner(ByteBuffer.wrap(chunk, 0, length))));
+			}
+		} finally {
+			is.close();
+		}
+	}
+
+	/**
+	 * scans a chunk consisting of complete lines
+	 *
+	 * @param buffer chunk
+	 * @return turn overflows
+	 */
+	static List<LagRecord> scanChunk(ByteBuffer buffer) {
+		List<LagRecord> res = new ArrayList<LagRecord>();
+		int start = buffer.position();
+		int limit = buffer.limit();
+		int last = MARKER.length - 1;
+		int i = start;
+		while (i + last < limit) {
+			int j = last;
+			while (j >= 0 && buffer.get(i + j) == MARKER[j]) {
+				j--;
+			}
+			if (j >= 0) {
+				i += SKIP[buffer.get(i + last) & 0xFF];
+				continue;
+			}
+
+			int lineStart = i;
+			while (lineStart > start && buffer.get(lineStart - 1) != '\n') {
+				lineStart--;
+			}
+			int lineEnd = i + MARKER.length;
+			while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			LagRecord record = parse(buffer, lineStart, i + MARKER.length, lineEnd);
+			if (record != null) {
+				res.add(record);
+			}
+			i = lineEnd;
+		}
+		return res;
+	}
+
+	/**
+	 * parses "overflow ms: t1 t2 t3..." after the marker
+	 */
+	private static LagRecord parse(ByteBuffer buffer, int lineStart, int pos, int lineEnd) {
+		List<Integer> numbers = new ArrayList<Integer>();
+		int colon = -1;
+		int value = -1;
+		for (int i = pos; i < lineEnd; i++) {
+			byte b = buffer.get(i);
+			if (b >= '0' && b <= '9') {
+				if (value < 0) {
+					value = 0;
+				}
+				value = value * 10 + (b - '0');
+			} else {
+				if (value >= 0) {
+					numbers.add(Integer.valueOf(value));
+					value = -1;
+				}
+				if (b == ':' && colon < 0) {
+					colon = numbers.size();
+				}
+			}
+		}
+		if (value >= 0) {
+			numbers.add(Integer.valueOf(value));
+		}
+		if (colon != 1 || numbers.size() < 2) {
+			return null;
+		}
+
+		int[] times = new int[numbers.size() - 1];
+		int previous = 0;
+		for (int i = 0; i < times.length; i++) {
+			int absolute = numbers.get(i + 1).intValue();
+			times[i] = absolute - previous;
+			previous = absolute;
+		}
+		return new LagRecord(parseTimestamp(buffer, lineStart, lineEnd), numbers.get(0).intValue(), times);
+	}
+
+	/**
+	 * parses a "yyyy-MM-dd HH:mm:ss" timestamp at the start of the line
+	 *
+	 * @return milliseconds or -1
+	 */
+	private static long parseTimestamp(ByteBuffer buffer, int lineStart, int lineEnd) {
+		if (lineEnd - lineStart < 19) {
+			return -1;
+		}
+		int year = number(buffer, lineStart, 4);
+		int month = number(buffer, lineStart + 5, 2);
+		int day = number(buffer, lineStart + 8, 2);
+		int hour = number(buffer, lineStart + 11, 2);
+		int minute = number(buffer, lineStart + 14, 2);
+		int second = number(buffer, lineStart + 17, 2);
+		if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23
+				|| minute < 0 || minute > 59 || second < 0 || second > 59) {
+			return -1;
+		}
+		try {
+			return LocalDateTime.of(year, month, day, hour, minute, second).toEpochSecond(ZoneOffset.UTC) * 1000;
+		} catch (RuntimeException e) {
+			return -1;
+		}
+	}
+
+	private static int number(ByteBuffer buffer, int pos, int digits) {
+		int res = 0;
+		for (int i = pos; i < pos + digits; i++) {
+			byte b = buffer.get(i);
+			if (b < '0' || b > '9') {
+				return -1;
+			}
+			res = res * 10 + (b - '0');
+		}
+		return res;
+	}
+
+	/**
+	 * scans one chunk
+	 */
+	private static class ChunkScanner implements Callable<List<LagRecord>> {
+		private final ByteBuffer buffer;
+
+		ChunkScanner(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public List<LagRecord> call() {
+			return scanChunk(buffer);
+		}
+	}
+}
@@ -22,6 +22,7 @@ import java.io.IOException;
  *
  */
 public class LagReader {
+	private static final String MARKER = "Turn duration overflow by";
 	private BufferedReader br;
 
 	/**
@@ -57,7 +58,7 @@ public class LagReader {
 	public int[] readTurnOverflowAbsolute() throws IOException {
 		String line = br.readLine();
 		while (line != null) {
-			if (line.matches(".*Turn duration overflow by.*")) {
+			if (line.contains(MARKER)) {
 				return splitLine(line);
 			}
 			line = br.readLine();
@@ -72,7 +73,7 @@ public class LagReader {
 	 * @return int array
 	 */
 	int[] splitLine(String line) {
-		line = line.substring(line.indexOf("Turn duration overflow by"));
+		line = line.substring(line.indexOf(MARKER));
 		line = line.substring(line.indexOf(":") + 1).trim();
 		String[] tokens = line.split(" ");
 		int[] res = new int[tokens.length];
@@ -0,0 +1,55 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.loganalyser.laganalyser;
+
+/**
+ * a turn overflow read from the log
+ */
+public class LagRecord {
+	private final long timestamp;
+	private final int overflow;
+	private final int[] times;
+
+	/**
+	 * creates a new LagRecord
+	 *
+	 * @param timestamp time of the log line in milliseconds, or -1 if it has no timestamp
+	 * @param overflow overflow of the turn in milliseconds
+	 * @param times relative times used in each step of the turn
+	 */
+	public LagRecord(long timestamp, int overflow, int[] times) {
+		this.timestamp = timestamp;
+		this.overflow = overflow;
+		this.times = times;
+	}
+
+	/**
+	 * @return time of the log line in milliseconds, or -1 if it has no timestamp
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return overflow of the turn in milliseconds
+	 */
+	public int getOverflow() {
+		return overflow;
+	}
+
+	/**
+	 * @return relative times used in each step of the turn
+	 */
+	public int[] getTimes() {
+		return times;
+	}
+}
@@ -0,0 +1,199 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.playerUpdate;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import games.stendhal.server.core.engine.db.CharacterIterator;
+import games.stendhal.server.entity.player.CharacterSchema;
+import games.stendhal.server.entity.player.Player;
+import marauroa.common.game.RPObject;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.TransactionPool;
+import marauroa.server.game.db.DAORegister;
+import marauroa.server.game.db.DatabaseFactory;
+import marauroa.server.game.db.RPObjectDAO;
+
+/**
+ * Upgrades all stored characters to the current schema version, so that
+ * the migration steps do not have to run on their next login.
+ * <p>
+ * The characters are processed in batches ordered by object id. Every batch
+ * is loaded, converted and stored in its own transaction by a pool of
+ * worker threads. Characters which are already up to date are not written.
+ * <p>
+ * Usage: MigrateCharacters [batch size] [threads]
+ */
+public class MigrateCharacters {
+	private static Logger logger = Logger.getLogger(MigrateCharacters.class);
+
+	private static final int DEFAULT_BATCH_SIZE = 200;
+	private static final int DEFAULT_THREADS = 4;
+
+	private final int batchSize;
+	private final int threads;
+
+	private final AtomicInteger migrated = new AtomicInteger();
+	private final AtomicInteger upToDate = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+
+	/**
+	 * creates a new MigrateCharacters
+	 *
+	 * @param batchSize number of characters per transaction
+	 * @param threads number of worker threads
+	 */
+	MigrateCharacters(int batchSize, int threads) {
+		this.batchSize = Math.max(1, batchSize);
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * migrates all characters
+	 *
+	 * @throws SQLException in case the batches cannot be determined
+	 * @throws InterruptedException if the migration was interrupted
+	 */
+	void migrateAll() throws SQLException, InterruptedException {
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		// do not read ahead more batches than the workers can handle
+		final Semaphore inFlight = new Semaphore(2 * threads);
+		try {
+			int after = -1;
+			while (true) {
+				final int last = findLastObjectIdOfBatch(after);
+				if (last <= after) {
+					break;
+				}
+				final int batchAfter = after;
+				inFlight.acquire();
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							migrateBatch(batchAfter);
+						} finally {
+							inFlight.release();
+						}
+					}
+				});
+				after = last;
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+		}
+		logger.info("Migrated " + migrated + " characters to version "
+				+ CharacterSchema.getCurrentVersion() + ", " + upToDate
+				+ " were up to date, " + failed + " failed");
+	}
+
+	/**
+	 * finds the end of the batch following an object id
+	 *
+	 * @param after object id of the last character of the previous batch
+	 * @return object id of the last character in the batch
+	 * @throws SQLException in case of a database error
+	 */
+	private int findLastObjectIdOfBatch(int after) throws SQLException {
+		final DBTransaction transaction = TransactionPool.get().beginWork();
+		try {
+			final Map<String, Object> params = new HashMap<String, Object>();
+			params.put("after", Integer.valueOf(after));
+			params.put("limit", Integer.valueOf(batchSize));
+			final int last = transaction.querySingleCellInt("select max(object_id) from"
+					+ " (select object_id from characters where object_id > [after]"
+					+ " order by object_id limit [limit]) as batch", params);
+			TransactionPool.get().commit(transaction);
+			return last;
+		} catch (SQLException e) {
+			TransactionPool.get().rollback(transaction);
+			throw e;
+		}
+	}
+
+	/**
+	 * migrates one batch of characters in its own transaction
+	 *
+	 * @param after object id of the last character of the previous batch
+	 */
+	void migrateBatch(int after) {
+		final DBTransaction transaction = TransactionPool.get().beginWork();
+		int count = 0;
+		try {
+			final RPObjectDAO dao = DAORegister.get().get(RPObjectDAO.class);
+			for (final RPObject object : new CharacterIterator(transaction, false, after, batchSize)) {
+				if (object == null) {
+					failed.incrementAndGet();
+					continue;
+				}
+				if (!CharacterSchema.isOutdated(object)) {
+					upToDate.incrementAndGet();
+					continue;
+				}
+				/*
+				 * Run only the migration steps, like UpdatePlayerEntities.
+				 * The login transformer would also write item log entries
+				 * and touch the quest and trade state.
+				 */
+				CharacterSchema.migrateObject(object);
+				final Player player = new Player(object);
+				CharacterSchema.migratePlayer(player);
+				dao.storeRPObject(transaction, player);
+				count++;
+			}
+			TransactionPool.get().commit(transaction);
+			migrated.addAndGet(count);
+		} catch (final Exception e) {
+			logger.error("Failed to migrate the characters after object id " + after, e);
+			TransactionPool.get().rollback(transaction);
+			failed.addAndGet(count);
+		}
+	}
+
+	/**
+	 * @return number of characters that were migrated
+	 */
+	int getMigratedCount() {
+		return migrated.get();
+	}
+
+	/**
+	 * @return number of characters that were already up to date
+	 */
+	int getUpToDateCount() {
+		return upToDate.get();
+	}
+
+	public static void main(final String[] args) throws Exception {
+		int batchSize = DEFAULT_BATCH_SIZE;
+		int threads = DEFAULT_THREADS;
+		if (args.length > 0) {
+			batchSize = Integer.parseInt(args[0]);
+		}
+		if (args.length > 1) {
+			threads = Integer.parseInt(args[1]);
+		}
+		new DatabaseFactory().initializeDatabase();
+		new UpdatePlayerEntities().initRPClasses();
+		new MigrateCharacters(batchSize, threads).migrateAll();
+	}
+}
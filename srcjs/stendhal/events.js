@@ -76,6 +76,13 @@ marauroa.rpeventFactory["image_event"] = marauroa.util.fromProto(marauroa.rpeven
 });
 
 
+marauroa.rpeventFactory["online_players"] = marauroa.util.fromProto(marauroa.rpeventFactory["_default"], {
+	execute: function(rpobject) {
+		// TODO: new OnlinePlayersEvent();
+	}
+});
+
+
 marauroa.rpeventFactory["player_logged_on"] = marauroa.util.fromProto(marauroa.rpeventFactory["_default"], {
 	execute: function(rpobject) {
 		// TODO: new PlayerLoggedOnEvent();
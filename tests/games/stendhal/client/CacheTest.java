@@ -0,0 +1,157 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import games.stendhal.common.CRC;
+import marauroa.common.net.message.TransferContent;
+
+public class CacheTest {
+	private File folder;
+
+	@Before
+	public void setUp() throws IOException {
+		folder = Files.createTempDirectory("cachetest").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : folder.listFiles()) {
+			file.delete();
+		}
+		folder.delete();
+	}
+
+	private Cache createCache(long limit) {
+		Cache cache = new Cache(folder.getPath() + "/", limit);
+		cache.init();
+		return cache;
+	}
+
+	private static TransferContent createContent(String name, byte[] data) {
+		return new TransferContent(name, CRC.cmpCRC(data), data);
+	}
+
+	private static byte[] read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			byte[] buffer = new byte[256];
+			int len = in.read(buffer);
+			while (len > -1) {
+				out.write(buffer, 0, len);
+				len = in.read(buffer);
+			}
+		} finally {
+			in.close();
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Tests that stored content is found again by a new cache instance using
+	 * the manifest.
+	 */
+	@Test
+	public void testStoreAndGet() throws IOException {
+		byte[] data = "some layer data".getBytes("UTF-8");
+		Cache cache = createCache(1000);
+		cache.store(createContent("zone.0_floor", data), data);
+		cache.flush();
+
+		cache = createCache(1000);
+		InputStream in = cache.getItem(createContent("zone.0_floor", data));
+		assertNotNull(in);
+		assertArrayEquals(data, read(in));
+
+		byte[] other = "other layer data".getBytes("UTF-8");
+		assertNull(cache.getItem(createContent("zone.0_floor", other)));
+		assertNull(cache.getItem(createContent("zone.1_terrain", data)));
+	}
+
+	/**
+	 * Tests that a file changed on disk is hashed again.
+	 */
+	@Test
+	public void testChangedFile() throws IOException {
+		byte[] data = "some layer data".getBytes("UTF-8");
+		Cache cache = createCache(1000);
+		cache.store(createContent("zone.0_floor", data), data);
+
+		byte[] other = "changed".getBytes("UTF-8");
+		Files.write(new File(folder, "zone.0_floor").toPath(), other);
+		assertNull(cache.getItem(createContent("zone.0_floor", data)));
+		assertArrayEquals(other, read(cache.getItem(createContent("zone.0_floor", other))));
+	}
+
+	/**
+	 * Tests that the least recently used files are removed when the cache
+	 * grows too large.
+	 */
+	@Test
+	public void testEviction() throws IOException, InterruptedException {
+		byte[] data = new byte[100];
+		Cache cache = createCache(250);
+		cache.store(createContent("a", data), data);
+		cache.store(createContent("b", data), data);
+		// make sure that using a gets a later time stamp than storing b
+		Thread.sleep(10);
+		assertArrayEquals(data, read(cache.getItem(createContent("a", data))));
+		cache.store(createContent("c", data), data);
+		cache.flush();
+
+		assertTrue(new File(folder, "a").exists());
+		assertFalse(new File(folder, "b").exists());
+		assertTrue(new File(folder, "c").exists());
+		assertEquals(3, folder.list().length);
+	}
+
+	/**
+	 * Tests that the manifest is only written on flush, and that it keeps the
+	 * last use of the files.
+	 */
+	@Test
+	public void testFlushKeepsLastUse() throws IOException, InterruptedException {
+		byte[] data = new byte[100];
+		Cache cache = createCache(250);
+		cache.store(createContent("a", data), data);
+		cache.store(createContent("b", data), data);
+		assertFalse(new File(folder, "cache.manifest").exists());
+		cache.flush();
+		assertTrue(new File(folder, "cache.manifest").exists());
+
+		Thread.sleep(10);
+		cache = createCache(250);
+		read(cache.getItem(createContent("a", data)));
+		cache.flush();
+
+		cache = createCache(250);
+		cache.store(createContent("c", data), data);
+		assertTrue(new File(folder, "a").exists());
+		assertFalse(new File(folder, "b").exists());
+	}
+}
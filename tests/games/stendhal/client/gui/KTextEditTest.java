@@ -11,13 +11,23 @@
  ***************************************************************************/
 package games.stendhal.client.gui;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Pattern;
 
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
 import org.junit.Test;
 
+import games.stendhal.client.gui.chatlog.ChatLine;
+import games.stendhal.common.NotificationType;
+
 /** Tests for KTextEdit. */
 public class KTextEditTest {
 	/**
@@ -39,4 +49,48 @@ public class KTextEditTest {
 		assertFalse(p.matcher("https://stendhalgame.org.com/trojan.html").matches());
 		assertFalse("Line break within URL", p.matcher("https://stendhalgame.org/player-guide\n/ask-for-help.html").matches());
 	}
+
+	/**
+	 * Test that old lines are dropped from the view, and can be shown again.
+	 */
+	@Test
+	public void testLineLimit() throws Exception {
+		final KTextEdit ed = new KTextEdit(5, false);
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				List<ChatLine> lines = new ArrayList<ChatLine>();
+				for (int i = 0; i < 4; i++) {
+					lines.add(new ChatLine(0, "", "line " + i, NotificationType.NORMAL));
+				}
+				ed.appendLines(lines);
+				lines.clear();
+				for (int i = 4; i < 8; i++) {
+					lines.add(new ChatLine(0, "bob", "line " + i + " #link", NotificationType.NORMAL));
+				}
+				ed.appendLines(lines);
+			}
+		});
+		String text = getText(ed);
+		assertFalse(text.contains("line 2"));
+		assertTrue(text.contains("line 3"));
+		assertTrue(text.endsWith("<bob> line 7 link"));
+		assertEquals(5, text.split("\r\n").length - 1);
+
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				ed.showOlderLines();
+			}
+		});
+		text = getText(ed);
+		assertTrue(text.startsWith("\r\n"));
+		assertTrue(text.contains("line 0"));
+		assertEquals(8, text.split("\r\n").length - 1);
+	}
+
+	private String getText(KTextEdit ed) throws BadLocationException {
+		Document doc = ed.textPane.getDocument();
+		return doc.getText(0, doc.getLength());
+	}
 }
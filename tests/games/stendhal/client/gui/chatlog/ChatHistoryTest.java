@@ -0,0 +1,124 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.client.gui.chatlog;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Test;
+
+import games.stendhal.common.NotificationType;
+
+/**
+ * Tests for ChatHistory.
+ */
+public class ChatHistoryTest {
+	/**
+	 * Tests for encoding and decoding lines.
+	 */
+	@Test
+	public void testEncode() {
+		final ChatLine line = new ChatLine(1234L, "he\tader", "a\\b\nc\r\nd", NotificationType.PRIVMSG);
+		final String encoded = ChatHistory.encode(line);
+		assertEquals(1, encoded.split("\n", -1).length - 1);
+		final ChatLine decoded = ChatHistory.decode(encoded.substring(0, encoded.length() - 1));
+		assertEquals(1234L, decoded.getTime());
+		assertEquals("he\tader", decoded.getHeader());
+		assertEquals("a\\b\nc\r\nd", decoded.getText());
+		assertEquals(NotificationType.PRIVMSG, decoded.getType());
+	}
+
+	/**
+	 * Tests for dropping lines without a scrollback file.
+	 */
+	@Test
+	public void testWithoutFile() {
+		final ChatHistory history = new ChatHistory(3, null);
+		for (int i = 0; i < 5; i++) {
+			history.add(createLine(i));
+		}
+		assertEquals(5, history.size());
+		assertEquals(2, history.getFirstAvailable());
+		checkLines(history.get(2, 5), 2);
+	}
+
+	/**
+	 * Tests for reading lines back from the scrollback file.
+	 */
+	@Test
+	public void testScrollback() throws IOException {
+		final File directory = Files.createTempDirectory("chathistory").toFile();
+		try {
+			final ChatHistory history = new ChatHistory(3, directory);
+			for (int i = 0; i < 10; i++) {
+				history.add(createLine(i));
+			}
+			assertEquals(0, history.getFirstAvailable());
+			checkLines(history.get(0, 10), 0);
+			checkLines(history.get(2, 5), 2);
+			checkLines(history.get(6, 8), 6);
+
+			// Enough lines to fill the write buffer several times
+			for (int i = 10; i < 5000; i++) {
+				history.add(createLine(i));
+			}
+			assertEquals(5000, history.get(0, 5000).size());
+			checkLines(history.get(0, 5000), 0);
+			checkLines(history.get(1234, 4321), 1234);
+		} finally {
+			delete(directory);
+		}
+	}
+
+	/**
+	 * Tests that histories in the same directory do not share a file.
+	 */
+	@Test
+	public void testSeparateFiles() throws IOException {
+		final File directory = Files.createTempDirectory("chathistory").toFile();
+		try {
+			final ChatHistory first = new ChatHistory(2, directory);
+			final ChatHistory second = new ChatHistory(2, directory);
+			for (int i = 0; i < 3000; i++) {
+				first.add(createLine(i));
+				second.add(createLine(10000 + i));
+			}
+			assertEquals(3000, first.get(0, 3000).size());
+			checkLines(first.get(0, 3000), 0);
+			checkLines(second.get(0, 3000), 10000);
+			assertEquals(2, directory.list().length);
+		} finally {
+			delete(directory);
+		}
+	}
+
+	private void delete(final File directory) {
+		for (final File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private ChatLine createLine(final int i) {
+		return new ChatLine(i, "", "line " + i, NotificationType.NORMAL);
+	}
+
+	private void checkLines(final List<ChatLine> lines, final int first) {
+		for (int i = 0; i < lines.size(); i++) {
+			assertEquals("line " + (first + i), lines.get(i).getText());
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.client.sound.manager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import games.stendhal.client.sound.system.processors.Recorder;
+import games.stendhal.client.sound.system.processors.ToneGenerator;
+
+/**
+ * Tests for PCMCache.
+ */
+public class PCMCacheTest {
+	/**
+	 * Record a tone.
+	 *
+	 * @param frames number of sample frames
+	 * @return recorder with 2 channels
+	 */
+	private static Recorder record(int frames) {
+		ToneGenerator generator = new ToneGenerator(2, 44100, frames);
+		generator.addTone(new ToneGenerator.Tone(1.f, 1000.f));
+		Recorder recorder = new Recorder();
+		recorder.connectTo(generator, false);
+		recorder.request();
+		recorder.disconnect();
+		recorder.trim();
+		return recorder;
+	}
+
+	/**
+	 * Tests that the least recently used sounds are discarded.
+	 */
+	@Test
+	public void testEviction() {
+		// 100 frames of stereo floats take 800 bytes
+		PCMCache cache = new PCMCache(8 * 800);
+		Recorder[] recorders = new Recorder[9];
+		for (int i = 0; i < 8; i++) {
+			recorders[i] = record(100);
+			assertTrue(cache.put("sound" + i, recorders[i]));
+		}
+		assertEquals(8 * 800, cache.getSize());
+
+		// use sound0, so that sound1 is the oldest one
+		assertSame(recorders[0], cache.get("sound0"));
+		recorders[8] = record(100);
+		assertTrue(cache.put("sound8", recorders[8]));
+
+		assertEquals(8 * 800, cache.getSize());
+		assertSame(recorders[0], cache.get("sound0"));
+		assertNull(cache.get("sound1"));
+		assertSame(recorders[8], cache.get("sound8"));
+	}
+
+	/**
+	 * Tests that large sounds are not cached.
+	 */
+	@Test
+	public void testLargeSound() {
+		PCMCache cache = new PCMCache(8 * 800);
+		assertFalse(cache.put("music", record(101)));
+		assertNull(cache.get("music"));
+		assertEquals(0, cache.getSize());
+	}
+
+	/**
+	 * Tests that several players can play the same recording.
+	 */
+	@Test
+	public void testSharedRecording() {
+		Recorder recorder = record(100);
+		Recorder.Player first = recorder.createPlayer(64);
+		Recorder.Player second = recorder.createPlayer(64);
+		assertTrue(first.request());
+		assertTrue(first.request());
+		assertTrue(second.request());
+		assertTrue(first.reachedEndOfStream());
+		assertFalse(second.reachedEndOfStream());
+		assertFalse(first.request());
+		assertEquals(100, recorder.getNumSamples());
+	}
+}
@@ -0,0 +1,115 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.client.sprite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SpriteCacheTest {
+	private static Sprite createSprite(String ref) {
+		return new ImageSprite(new BufferedImage(32, 32, BufferedImage.TYPE_INT_ARGB), ref);
+	}
+
+	/**
+	 * Tests that the least recently used sprites get discarded.
+	 */
+	@Test
+	public void testEviction() {
+		Sprite a = createSprite("a");
+		int spriteSize = SpriteCache.estimateSize(a);
+		SpriteCache cache = new SpriteCache(2 * spriteSize);
+		cache.add("a", a);
+		cache.add("b", createSprite("b"));
+		// touch a, so that b is the oldest
+		assertSame(a, cache.get("a"));
+		cache.add("c", createSprite("c"));
+
+		assertNotNull(cache.get("a"));
+		assertNull(cache.get("b"));
+		assertNotNull(cache.get("c"));
+		assertEquals(2 * spriteSize, cache.getSize());
+	}
+
+	/**
+	 * Tests that checking for a sprite neither counts as a look up nor
+	 * keeps the sprite from being discarded.
+	 */
+	@Test
+	public void testContains() {
+		Sprite a = createSprite("a");
+		int spriteSize = SpriteCache.estimateSize(a);
+		SpriteCache cache = new SpriteCache(2 * spriteSize);
+		cache.add("a", a);
+		cache.add("b", createSprite("b"));
+		assertTrue(cache.contains("a"));
+		assertFalse(cache.contains("x"));
+		assertTrue(cache.getStatistics().contains("hits: 0, misses: 0"));
+
+		cache.add("c", createSprite("c"));
+		assertFalse(cache.contains("a"));
+		assertTrue(cache.contains("b"));
+	}
+
+	/**
+	 * Tests that pinned sprites are kept.
+	 */
+	@Test
+	public void testPinning() {
+		Sprite a = createSprite("a");
+		int spriteSize = SpriteCache.estimateSize(a);
+		SpriteCache cache = new SpriteCache(spriteSize);
+		final List<Object> evicted = new ArrayList<Object>();
+		cache.addEvictionListener(new SpriteCache.EvictionListener() {
+			@Override
+			public void evicted(Object key) {
+				evicted.add(key);
+			}
+		});
+		cache.add("a", a);
+		cache.setPinned(Arrays.asList("a"));
+		cache.add("b", createSprite("b"));
+
+		assertSame(a, cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals(Arrays.asList("b"), evicted);
+
+		// after unpinning, a is the oldest sprite
+		cache.setPinned(Arrays.<Object>asList());
+		cache.add("c", createSprite("c"));
+		assertNull(cache.get("a"));
+		assertNotNull(cache.get("c"));
+		assertEquals(spriteSize, cache.getSize());
+	}
+
+	/**
+	 * Tests that replacing a sprite does not count it twice.
+	 */
+	@Test
+	public void testReplace() {
+		Sprite a = createSprite("a");
+		SpriteCache cache = new SpriteCache(10 * SpriteCache.estimateSize(a));
+		cache.add("a", a);
+		cache.add("a", createSprite("a"));
+		assertEquals(SpriteCache.estimateSize(a), cache.getSize());
+	}
+}
@@ -0,0 +1,163 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.client.sprite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class SpriteStoreTest {
+	/**
+	 * A store that creates sprites instead of reading image files, and counts
+	 * how often it does so.
+	 */
+	private static class TestStore extends SpriteStore {
+		final AtomicInteger loads = new AtomicInteger();
+		final List<Thread> loaders = new CopyOnWriteArrayList<Thread>();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		volatile boolean fail;
+		volatile long time;
+
+		@Override
+		protected Sprite loadSprite(String ref) {
+			if (ref.startsWith("quick/")) {
+				loaders.add(Thread.currentThread());
+				return new ImageSprite(new BufferedImage(32, 32, BufferedImage.TYPE_INT_ARGB), ref);
+			}
+			if (!ref.startsWith("test/")) {
+				return super.loadSprite(ref);
+			}
+			loads.incrementAndGet();
+			started.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (fail) {
+				return null;
+			}
+			return new ImageSprite(new BufferedImage(32, 32, BufferedImage.TYPE_INT_ARGB), ref);
+		}
+
+		@Override
+		long currentTime() {
+			return time;
+		}
+	}
+
+	/**
+	 * Tests that concurrent requests for a sprite that is being loaded wait
+	 * for that load instead of loading it again.
+	 *
+	 * @throws InterruptedException if interrupted
+	 */
+	@Test
+	public void testConcurrentRequestsLoadOnce() throws InterruptedException {
+		final TestStore store = new TestStore();
+		final String ref = "test/concurrent-" + System.nanoTime() + ".png";
+		store.prefetch(ref);
+		assertTrue(store.started.await(10, TimeUnit.SECONDS));
+
+		final List<Sprite> results = new ArrayList<Sprite>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 3; i++) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					Sprite sprite = store.getSprite(ref);
+					synchronized (results) {
+						results.add(sprite);
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		store.release.countDown();
+		for (Thread thread : threads) {
+			thread.join(10000);
+		}
+
+		assertEquals(1, store.loads.get());
+		assertEquals(3, results.size());
+		assertEquals(ref, results.get(0).getReference());
+		assertSame(results.get(0), results.get(1));
+		assertSame(results.get(0), results.get(2));
+		assertSame(results.get(0), store.getSprite(ref));
+		assertEquals(1, store.loads.get());
+	}
+
+	/**
+	 * Tests that a sprite waiting in the prefetch queue is loaded by the
+	 * thread that needs it, instead of waiting for the background loaders.
+	 */
+	@Test
+	public void testQueuedPrefetchLoadsInCaller() {
+		TestStore store = new TestStore();
+		try {
+			// Keep all the background loaders busy
+			for (int i = 0; i < 4; i++) {
+				store.prefetch("test/blocking-" + i + "-" + System.nanoTime() + ".png");
+			}
+			String ref = "quick/queued-" + System.nanoTime() + ".png";
+			store.prefetch(ref);
+			Sprite sprite = store.getSprite(ref);
+			assertEquals(ref, sprite.getReference());
+			assertEquals(1, store.loaders.size());
+			assertSame(Thread.currentThread(), store.loaders.get(0));
+		} finally {
+			store.release.countDown();
+		}
+	}
+
+	/**
+	 * Tests that a sprite that failed to load is not looked up again on every
+	 * request, but is tried again after a while.
+	 */
+	@Test
+	public void testFailedLoadIsRetriedLater() {
+		TestStore store = new TestStore();
+		String ref = "test/failing-" + System.nanoTime() + ".png";
+		store.release.countDown();
+		store.fail = true;
+		Sprite sprite = store.getSprite(ref);
+		assertFalse((sprite != null) && ref.equals(sprite.getReference()));
+		assertEquals(1, store.loads.get());
+
+		store.fail = false;
+		sprite = store.getSprite(ref);
+		assertFalse((sprite != null) && ref.equals(sprite.getReference()));
+		store.prefetch(ref);
+		assertEquals(1, store.loads.get());
+
+		store.time += 60000;
+		sprite = store.getSprite(ref);
+		assertEquals(ref, sprite.getReference());
+		assertEquals(2, store.loads.get());
+
+		assertSame(sprite, store.getSprite(ref));
+		assertEquals(2, store.loads.get());
+	}
+}
@@ -18,6 +18,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.awt.geom.Rectangle2D;
 import java.util.BitSet;
+import java.util.Random;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -353,4 +354,66 @@ public class CollisionMapTest {
 				.getWidth(), (int) bob.getHeight()));
 	}
 
+	/**
+	 * Tests for collides with maps wider than one word, and changes after
+	 * the entity size maps have been created.
+	 */
+	@Test
+	public void testCollidesWideMap() {
+		final int width = 150;
+		final int height = 20;
+		final CollisionMap map = new CollisionMap(width, height);
+		final boolean[][] expected = new boolean[width][height];
+		final Random random = new Random(42);
+		for (int i = 0; i < 300; i++) {
+			final int x = random.nextInt(width);
+			final int y = random.nextInt(height);
+			map.set(x, y);
+			expected[x][y] = true;
+		}
+		checkCollides(map, expected);
+
+		map.unset(63, 5);
+		expected[63][5] = false;
+		map.set(64, 5);
+		expected[64][5] = true;
+		checkCollides(map, expected);
+
+		map.clear();
+		checkCollides(map, new boolean[width][height]);
+	}
+
+	private void checkCollides(final CollisionMap map, final boolean[][] expected) {
+		final int width = map.getWidth();
+		final int height = map.getHeight();
+		for (int w = 1; w <= 3; w++) {
+			for (int h = 1; h <= 3; h++) {
+				for (int x = -1; x <= width; x++) {
+					for (int y = -1; y <= height; y++) {
+						boolean collides = (x < 0) || (y < 0) || (x + w > width) || (y + h > height);
+						for (int i = x; !collides && i < x + w; i++) {
+							for (int j = y; j < y + h; j++) {
+								collides |= expected[i][j];
+							}
+						}
+						assertThat(x + ";" + y + " " + w + "x" + h, map.collides(x, y, w, h), is(collides));
+					}
+				}
+			}
+		}
+		// sizes without a precomputed map
+		assertThat(map.collides(0, 0, 100, 1), is(anySet(expected, 0, 0, 100, 1)));
+		assertThat(map.collides(20, 2, 100, 17), is(anySet(expected, 20, 2, 100, 17)));
+	}
+
+	private boolean anySet(final boolean[][] expected, final int x, final int y, final int w, final int h) {
+		for (int i = x; i < x + w; i++) {
+			for (int j = y; j < y + h; j++) {
+				if (expected[i][j]) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
 }
@@ -0,0 +1,110 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.common.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test the SimilarityIndex class.
+ */
+public class SimilarityIndexTest {
+
+	/**
+	 * Tests for findSimilar.
+	 */
+	@Test
+	public void testFindSimilar() {
+		final SimilarityIndex index = new SimilarityIndex();
+		index.add("hello");
+		index.add("Hello");
+		index.add("heart");
+		index.add("help");
+		index.add("bus");
+		assertEquals(5, index.size());
+
+		final List<String> found = index.findSimilar("hallo", 0.1);
+		Collections.sort(found);
+		assertEquals("[Hello, hello]", found.toString());
+		assertTrue(index.containsSimilar("haart", 0.1));
+		assertFalse(index.containsSimilar("haert", 0.1));
+		assertEquals("[]", index.findSimilar("taxi", 0.1).toString());
+		assertEquals("[]", index.findSimilar(null, 0.1).toString());
+		assertEquals("[]", index.findSimilar("", 0.1).toString());
+	}
+
+	/**
+	 * Compares the index with isSimilar() on random words.
+	 */
+	@Test
+	public void testRandomWords() {
+		final Random random = new Random(42);
+		final List<String> words = new ArrayList<String>();
+		final SimilarityIndex index = new SimilarityIndex();
+		for (int i = 0; i < 300; i++) {
+			final String word = randomWord(random);
+			words.add(word);
+			index.add(word);
+		}
+
+		for (int i = 0; i < 300; i++) {
+			final String query = randomWord(random);
+			final List<String> expected = new ArrayList<String>();
+			for (final String word : words) {
+				final int limit = SimilarExprMatcher.getDistanceLimit(Math.min(query.length(), word.length()), 0.1);
+				final boolean similar = SimilarExprMatcher.isSimilar(query, word, 0.1);
+				assertEquals(query + " " + word, referenceDistance(query, word) <= limit, similar);
+				if (similar && !expected.contains(word)) {
+					expected.add(word);
+				}
+			}
+			final List<String> found = index.findSimilar(query, 0.1);
+			Collections.sort(expected);
+			Collections.sort(found);
+			assertEquals(query, expected, found);
+		}
+	}
+
+	private static int referenceDistance(final String str1, final String str2) {
+		final int[][] d = new int[str1.length() + 1][str2.length() + 1];
+		for (int i = 0; i <= str1.length(); i++) {
+			d[i][0] = i;
+		}
+		for (int j = 0; j <= str2.length(); j++) {
+			d[0][j] = j;
+		}
+		for (int i = 1; i <= str1.length(); i++) {
+			for (int j = 1; j <= str2.length(); j++) {
+				final int cost = (str1.charAt(i - 1) == str2.charAt(j - 1)) ? 0 : 1;
+				d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+			}
+		}
+		return d[str1.length()][str2.length()];
+	}
+
+	private static String randomWord(final Random random) {
+		final StringBuilder sb = new StringBuilder();
+		final int length = 1 + random.nextInt(14);
+		for (int i = 0; i < length; i++) {
+			sb.append((char) ('a' + random.nextInt(3)));
+		}
+		return sb.toString();
+	}
+}
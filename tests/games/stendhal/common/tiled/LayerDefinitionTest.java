@@ -81,6 +81,24 @@ public class LayerDefinitionTest {
 		assertNull(layer.getTilesetFor(layer.getTileAt(57, 34)));
 	}
 
+	/**
+	 * Tests reading tiles without building the data array.
+	 */
+	@Test
+	public void testTileAtWithoutBuild() {
+		final LayerDefinition layer = new LayerDefinition(8, 4);
+		layer.set(3, 2, 0x12345678);
+		layer.set(7, 3, 5);
+		assertEquals(0x12345678, layer.getTileAt(3, 2));
+		assertEquals(5, layer.getTileAt(7, 3));
+		assertEquals(0, layer.getTileAt(0, 0));
+
+		// built data stays in sync
+		assertEquals(5, layer.expose()[7 + 3 * 8]);
+		layer.set(7, 3, 6);
+		assertEquals(6, layer.getTileAt(7, 3));
+	}
+
 	/**
 	 * Tests for serialization.
 	 *
@@ -0,0 +1,111 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.actions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendhalRPRuleProcessor;
+import marauroa.common.Log4J;
+import marauroa.common.game.RPAction;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for ActionAdmission
+ */
+public class ActionAdmissionTest {
+	private static int executed;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Log4J.init();
+		MockStendhalRPRuleProcessor.get();
+		CommandCenter.register("admissiontest", new ActionListener() {
+			@Override
+			public void onAction(final Player player, final RPAction action) {
+				executed++;
+			}
+		});
+	}
+
+	private static RPAction createAction() {
+		final RPAction action = new RPAction();
+		action.put("type", "admissiontest");
+		return action;
+	}
+
+	/**
+	 * Tests that actions beyond the bucket are deferred, then dropped, and
+	 * executed in a later turn.
+	 */
+	@Test
+	public void testDeferAndDrop() {
+		final ActionAdmission admission = new ActionAdmission(4, 2, 1, null);
+		final Player player = PlayerTestHelper.createPlayer("bob");
+		executed = 0;
+
+		for (int i = 0; i < 4; i++) {
+			assertTrue(admission.admit(player, "admissiontest", createAction()));
+		}
+		assertFalse(admission.admit(player, "admissiontest", createAction()));
+		assertEquals(1, admission.getDeferredCount(player));
+		assertFalse(admission.admit(player, "admissiontest", createAction()));
+		assertEquals(1, admission.getDeferredCount(player));
+
+		ActionStatistics stats = admission.getStatistics().get(0);
+		assertEquals(4, stats.getCost());
+		assertEquals(1, stats.getDeferred());
+		assertEquals(1, stats.getDropped());
+
+		admission.onTurnStarted(1);
+		assertEquals(1, executed);
+		assertEquals(0, admission.getDeferredCount(player));
+
+		// one token is left, later actions must not overtake deferred ones
+		assertTrue(admission.admit(player, "admissiontest", createAction()));
+		assertFalse(admission.admit(player, "admissiontest", createAction()));
+	}
+
+	/**
+	 * Tests that free actions are never deferred.
+	 */
+	@Test
+	public void testFreeActions() {
+		final ActionAdmission admission = new ActionAdmission(1, 1, 5, null);
+		final Player player = PlayerTestHelper.createPlayer("bob");
+
+		assertEquals(0, admission.getCost("chat"));
+		assertTrue(admission.admit(player, "admissiontest", createAction()));
+		assertFalse(admission.admit(player, "admissiontest", createAction()));
+		assertTrue(admission.admit(player, "chat", createAction()));
+		assertEquals(1, admission.getDeferredCount(player));
+
+		admission.onLoggedOut(player);
+		assertEquals(0, admission.getDeferredCount(player));
+		assertTrue(admission.getPlayerStatistics().isEmpty());
+	}
+
+	/**
+	 * Tests that costs are limited to the size of the bucket.
+	 */
+	@Test
+	public void testCostLimit() {
+		final ActionAdmission admission = new ActionAdmission(2, 1, 5, null);
+		assertEquals(2, admission.getCost("moveto"));
+		assertEquals(1, admission.getCost("admissiontest"));
+	}
+}
@@ -0,0 +1,54 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import games.stendhal.common.CRC;
+import games.stendhal.common.tiled.LayerDefinition;
+
+/**
+ * Tests for LayerContentCache
+ */
+public class LayerContentCacheTest {
+
+	private static LayerDefinition createLayer(String name, int tile) {
+		LayerDefinition layer = new LayerDefinition(16, 16);
+		layer.setName(name);
+		layer.set(3, 4, tile);
+		return layer;
+	}
+
+	/**
+	 * Tests that identical layers share the data.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testSharing() throws IOException {
+		LayerContentCache cache = LayerContentCache.get();
+		LayerContentCache.Encoded first = cache.encode(createLayer("cachetest", 7));
+		LayerContentCache.Encoded second = cache.encode(createLayer("cachetest", 7));
+		assertSame(first.data, second.data);
+		assertEquals(CRC.cmpCRC(first.data), first.timestamp);
+
+		// other tiles or another name are separate layers
+		assertNotSame(first.data, cache.encode(createLayer("cachetest", 8)).data);
+		assertNotSame(first.data, cache.encode(createLayer("cachetest2", 7)).data);
+	}
+}
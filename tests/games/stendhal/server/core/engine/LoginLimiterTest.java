@@ -0,0 +1,51 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for LoginLimiter.
+ */
+public class LoginLimiterTest {
+
+	/**
+	 * Tests that only the configured number of logins pass per turn, and
+	 * that further logins are rejected without waiting.
+	 */
+	@Test
+	public void testBudgetPerTurn() {
+		LoginLimiter limiter = new LoginLimiter(2);
+		assertTrue(limiter.admit());
+		assertTrue(limiter.admit());
+		assertFalse(limiter.admit());
+		assertEquals(1, limiter.getRejectedCount());
+
+		limiter.onTurnStarted();
+		assertTrue(limiter.admit());
+	}
+
+	/**
+	 * Tests that a limit of 0 disables the limiter.
+	 */
+	@Test
+	public void testUnlimited() {
+		LoginLimiter limiter = new LoginLimiter(0);
+		for (int i = 0; i < 100; i++) {
+			assertTrue(limiter.admit());
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.common.constants.Events;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.game.RPEvent;
+import utilities.PlayerTestHelper;
+
+public class OnlinePlayerRosterTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		MockStendlRPWorld.get();
+	}
+
+	@AfterClass
+	public static void teardownAfterClass() throws Exception {
+		MockStendlRPWorld.reset();
+	}
+
+	private static RPEvent lastRosterEvent(Player player) {
+		RPEvent res = null;
+		List<RPEvent> events = player.events();
+		for (RPEvent event : events) {
+			if (event.getName().equals(Events.ONLINE_PLAYERS)) {
+				res = event;
+			}
+		}
+		return res;
+	}
+
+	private static int countRosterEvents(Player player) {
+		int count = 0;
+		for (RPEvent event : player.events()) {
+			if (event.getName().equals(Events.ONLINE_PLAYERS)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Tests that a new player gets one snapshot and the others one delta per turn.
+	 */
+	@Test
+	public void testSnapshotAndDelta() {
+		final OnlinePlayerRoster roster = new OnlinePlayerRoster();
+		final Player jack = PlayerTestHelper.createPlayer("jack");
+		final Player bob = PlayerTestHelper.createPlayer("bob");
+		final Player ghost = PlayerTestHelper.createPlayer("ghost");
+		ghost.setGhost(true);
+
+		roster.onLoggedIn(jack);
+		roster.sendPendingUpdates();
+		assertThat(lastRosterEvent(jack).get("snapshot"), is("jack"));
+		jack.clearEvents();
+
+		roster.onLoggedIn(bob);
+		roster.onLoggedIn(ghost);
+		roster.sendPendingUpdates();
+
+		assertThat(countRosterEvents(jack), is(1));
+		assertThat(lastRosterEvent(jack).get("joined"), is("bob"));
+		assertFalse(lastRosterEvent(jack).has("left"));
+		assertThat(countRosterEvents(bob), is(1));
+		assertTrue(lastRosterEvent(bob).has("snapshot"));
+		assertFalse(lastRosterEvent(bob).get("snapshot").contains("ghost"));
+		assertTrue(lastRosterEvent(ghost).get("snapshot").contains("ghost"));
+		assertTrue(lastRosterEvent(ghost).get("snapshot").contains("jack"));
+
+		jack.clearEvents();
+		bob.clearEvents();
+		ghost.clearEvents();
+
+		// nothing changed, nothing is sent
+		roster.sendPendingUpdates();
+		assertThat(countRosterEvents(jack), is(0));
+
+		roster.onLoggedOut(bob);
+		roster.sendPendingUpdates();
+		assertThat(lastRosterEvent(jack).get("left"), is("bob"));
+		assertThat(lastRosterEvent(ghost).get("left"), is("bob"));
+		assertThat(countRosterEvents(bob), is(0));
+	}
+
+	/**
+	 * Tests that the buddy index follows logins, logouts and buddy list changes.
+	 */
+	@Test
+	public void testBuddyIndex() {
+		final OnlinePlayerRoster roster = new OnlinePlayerRoster();
+		final Player jack = PlayerTestHelper.createPlayer("jack");
+		final Player bob = PlayerTestHelper.createPlayer("bob");
+		jack.addBuddy("alice", false);
+
+		assertTrue(roster.getPlayersWithBuddy("alice").isEmpty());
+		roster.onLoggedIn(jack);
+		roster.onLoggedIn(bob);
+		assertTrue(roster.getPlayersWithBuddy("alice").contains(jack));
+		assertFalse(roster.getPlayersWithBuddy("alice").contains(bob));
+
+		bob.addBuddy("alice", false);
+		roster.onBuddyAdded(bob, "alice");
+		assertTrue(roster.getPlayersWithBuddy("alice").contains(bob));
+
+		final Player alice = PlayerTestHelper.createPlayer("alice");
+		roster.notifyOnlineStatus(true, alice);
+		assertThat(jack.get("online"), is("alice"));
+		assertThat(bob.get("online"), is("alice"));
+
+		roster.onBuddyRemoved(bob, "alice");
+		roster.onLoggedOut(jack);
+		assertTrue(roster.getPlayersWithBuddy("alice").isEmpty());
+	}
+}
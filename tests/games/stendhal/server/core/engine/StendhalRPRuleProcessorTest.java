@@ -0,0 +1,71 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendhalRPRuleProcessor;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for StendhalRPRuleProcessor.
+ */
+public class StendhalRPRuleProcessorTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		MockStendlRPWorld.get();
+	}
+
+	@AfterClass
+	public static void teardownAfterClass() throws Exception {
+		MockStendlRPWorld.reset();
+	}
+
+	@After
+	public void tearDown() {
+		MockStendhalRPRuleProcessor.get().getLoginLimiter().onTurnStarted();
+	}
+
+	/**
+	 * Tests that a login over the limit of the turn is refused without
+	 * placing the player.
+	 */
+	@Test
+	public void testLoginOverLimit() {
+		StendhalRPRuleProcessor processor = MockStendhalRPRuleProcessor.get();
+		LoginLimiter limiter = processor.getLoginLimiter();
+		// use up the logins of this turn
+		int admitted = 0;
+		while (limiter.admit()) {
+			admitted++;
+			assumeTrue("logins are not limited", admitted < 1000);
+		}
+		long rejected = limiter.getRejectedCount();
+
+		Player player = PlayerTestHelper.createPlayer("bob");
+		assertFalse(processor.onInit(player));
+		assertNull(player.getZone());
+		assertNull(processor.getPlayer("bob"));
+		assertEquals(rejected + 1, limiter.getRejectedCount());
+	}
+}
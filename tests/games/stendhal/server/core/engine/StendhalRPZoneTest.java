@@ -1,6 +1,13 @@
 package games.stendhal.server.core.engine;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -8,7 +15,15 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import games.stendhal.common.Debug;
+import games.stendhal.server.entity.Blood;
+import games.stendhal.server.entity.RPEntity;
+import games.stendhal.server.entity.creature.Creature;
+import games.stendhal.server.entity.mapstuff.portal.Portal;
+import games.stendhal.server.entity.player.Player;
 import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.net.message.TransferContent;
+import utilities.PlayerTestHelper;
 
 public class StendhalRPZoneTest {
 
@@ -59,4 +74,104 @@ public class StendhalRPZoneTest {
 		assertEquals(StendhalRPZone.describe("hell"),"in Hell");
 	}
 
+	/**
+	 * Tests for getContents.
+	 */
+	@Test
+	public void testGetContents() {
+		final StendhalRPZone zone = new StendhalRPZone("0_semos_city", 10, 10);
+		final List<TransferContent> contents = zone.getContents();
+		assertEquals("0_semos_city.data_map", contents.get(0).name);
+		assertSame(contents, zone.getContents());
+
+		zone.getAttributes().put("color", "0xff0000");
+		final List<TransferContent> changed = zone.getContents();
+		assertNotSame(contents, changed);
+		assertNotSame(contents.get(0), changed.get(0));
+		assertEquals("0_semos_city.data_map", changed.get(0).name);
+		assertEquals(1, changed.size());
+	}
+
+	/**
+	 * Tests that the contents can not be modified by the callers.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void testGetContentsIsUnmodifiable() {
+		final StendhalRPZone zone = new StendhalRPZone("0_semos_city", 10, 10);
+		zone.getContents().clear();
+	}
+
+	/**
+	 * Tests which clients get zone updates that contain only the attributes.
+	 */
+	@Test
+	public void testUnderstandsAttributeUpdates() {
+		final Player player = PlayerTestHelper.createPlayer("bob");
+		player.setClientVersion("1.28.5");
+		assertTrue(StendhalRPZone.understandsAttributeUpdates(player));
+		player.setClientVersion(Debug.VERSION);
+		assertTrue(StendhalRPZone.understandsAttributeUpdates(player));
+		player.setClientVersion("1.28.4");
+		assertFalse(StendhalRPZone.understandsAttributeUpdates(player));
+		player.setClientVersion("0.98");
+		assertFalse(StendhalRPZone.understandsAttributeUpdates(player));
+	}
+
+	/**
+	 * Tests for the position lookups of blood and portals.
+	 */
+	@Test
+	public void testTileLookups() {
+		final StendhalRPZone zone = new StendhalRPZone("0_semos_city", 10, 10);
+		final Blood blood1 = new Blood();
+		blood1.setPosition(3, 4);
+		zone.add(blood1);
+		final Blood blood2 = new Blood();
+		blood2.setPosition(3, 4);
+		zone.add(blood2);
+		final Portal portal = new Portal();
+		portal.setPosition(4, 3);
+		zone.add(portal);
+
+		assertSame(blood1, zone.getBlood(3, 4));
+		assertNull(zone.getBlood(4, 3));
+		assertSame(portal, zone.getPortal(4, 3));
+		assertNull(zone.getPortal(3, 4));
+		assertEquals(2, zone.getBloodCount());
+
+		zone.remove(blood1);
+		assertSame(blood2, zone.getBlood(3, 4));
+		zone.remove(blood2);
+		assertNull(zone.getBlood(3, 4));
+		zone.remove(portal);
+		assertNull(zone.getPortal(4, 3));
+	}
+
+	/**
+	 * Tests for the entity type counters.
+	 */
+	@Test
+	public void testTypeCounters() {
+		final StendhalRPZone zone = new StendhalRPZone("0_semos_city", 10, 10);
+		assertFalse(zone.containsPlayer());
+		assertFalse(zone.containsCreature());
+
+		final Player player = PlayerTestHelper.createPlayer("bob");
+		zone.add(player);
+		final Creature creature = new Creature();
+		zone.add(creature);
+		assertTrue(zone.containsPlayer());
+		assertTrue(zone.containsCreature());
+		assertFalse(zone.containsAnimal());
+		assertEquals(1, zone.getCreatureCount());
+		assertEquals(2, zone.getEntityCount(RPEntity.class));
+		assertTrue(zone.getPlayers().contains(player));
+
+		zone.remove(player);
+		zone.remove(creature);
+		assertFalse(zone.containsPlayer());
+		assertFalse(zone.containsCreature());
+		assertEquals(0, zone.getEntityCount(RPEntity.class));
+		assertTrue(zone.getPlayers().isEmpty());
+	}
 }
@@ -0,0 +1,89 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.entity.Blood;
+import games.stendhal.server.maps.MockStendlRPWorld;
+
+public class TileIndexTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		MockStendlRPWorld.get();
+	}
+
+	private static Blood createBlood(int x, int y) {
+		Blood blood = new Blood();
+		blood.setPosition(x, y);
+		return blood;
+	}
+
+	/**
+	 * Tests positions whose packed key is the smallest int.
+	 */
+	@Test
+	public void testMinimumKey() {
+		TileIndex<Blood> index = new TileIndex<Blood>();
+		Blood blood = createBlood(-32768, 0);
+		assertNull(index.get(-32768, 0));
+		index.add(blood);
+		assertSame(blood, index.get(-32768, 0));
+		assertEquals(1, index.size());
+
+		index.remove(blood, new ArrayList<Blood>());
+		assertNull(index.get(-32768, 0));
+		assertEquals(0, index.size());
+	}
+
+	/**
+	 * Tests adding, moving and removing enough entities to grow the table.
+	 */
+	@Test
+	public void testGrowAndRemove() {
+		TileIndex<Blood> index = new TileIndex<Blood>();
+		List<Blood> all = new ArrayList<Blood>();
+		for (int i = 0; i < 100; i++) {
+			Blood blood = createBlood(i % 10, i / 10);
+			all.add(blood);
+			index.add(blood);
+		}
+		assertEquals(100, index.size());
+		for (Blood blood : all) {
+			assertSame(blood, index.get(blood.getX(), blood.getY()));
+		}
+
+		Blood moved = all.get(0);
+		moved.setPosition(-5, -5);
+		index.move(moved, 0, 0, all);
+		assertSame(moved, index.get(-5, -5));
+		assertNull(index.get(0, 0));
+
+		for (int i = 1; i < 100; i += 2) {
+			index.remove(all.get(i), all);
+		}
+		assertEquals(50, index.size());
+		for (int i = 2; i < 100; i += 2) {
+			Blood blood = all.get(i);
+			assertSame(blood, index.get(blood.getX(), blood.getY()));
+		}
+	}
+}
@@ -0,0 +1,48 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import games.stendhal.server.entity.Entity;
+
+public class TransientAttributesTest {
+
+	/**
+	 * Tests that a sweep removes exactly the registered attributes.
+	 */
+	@Test
+	public void testSweep() {
+		final Entity entity = new Entity() { };
+		entity.put("title", "foo");
+		entity.put("class", "bar");
+
+		final TransientAttributes attributes = new TransientAttributes();
+		attributes.register(entity, "title");
+		attributes.register(entity, "title");
+		assertEquals(2, attributes.size());
+
+		attributes.sweep();
+		assertFalse(entity.has("title"));
+		assertTrue(entity.has("class"));
+		assertEquals(0, attributes.size());
+
+		// attributes set again after the sweep stay until they are registered
+		entity.put("title", "foo");
+		attributes.sweep();
+		assertTrue(entity.has("title"));
+	}
+}
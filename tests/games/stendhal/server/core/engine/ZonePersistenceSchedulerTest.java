@@ -0,0 +1,81 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import games.stendhal.server.core.events.TurnNotifier;
+
+public class ZonePersistenceSchedulerTest {
+	private ZonePersistenceScheduler scheduler;
+
+	private static class CountingZone extends StendhalRPZone {
+		int stored;
+
+		CountingZone(String name) {
+			super(name);
+		}
+
+		@Override
+		public void storeToDatabase() {
+			stored++;
+		}
+	}
+
+	@After
+	public void tearDown() {
+		if (scheduler != null) {
+			TurnNotifier.get().dontNotify(scheduler);
+		}
+	}
+
+	/**
+	 * Tests that several requests result in a single store per zone
+	 */
+	@Test
+	public void testCoalescing() {
+		scheduler = new ZonePersistenceScheduler(5);
+		CountingZone zone1 = new CountingZone("zone1");
+		CountingZone zone2 = new CountingZone("zone2");
+
+		scheduler.markDirty(zone1);
+		scheduler.markDirty(zone1);
+		scheduler.markDirty(zone2);
+		assertTrue(scheduler.isDirty(zone1));
+		assertThat(zone1.stored, is(0));
+		assertThat(TurnNotifier.get().getRemainingSeconds(scheduler), is(5));
+
+		scheduler.onTurnReached(0);
+		assertThat(zone1.stored, is(1));
+		assertThat(zone2.stored, is(1));
+		assertFalse(scheduler.isDirty(zone1));
+
+		scheduler.flush();
+		assertThat(zone1.stored, is(1));
+	}
+
+	/**
+	 * Tests that a delay of 0 stores in the next turn
+	 */
+	@Test
+	public void testNoDelay() {
+		scheduler = new ZonePersistenceScheduler(0);
+		scheduler.markDirty(new CountingZone("zone"));
+		assertThat(TurnNotifier.get().getRemainingTurns(scheduler), is(1));
+	}
+}
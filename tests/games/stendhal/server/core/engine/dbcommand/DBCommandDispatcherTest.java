@@ -0,0 +1,185 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.engine.dbcommand;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.dbcommand.DBCommandDispatcher.OverflowPolicy;
+import marauroa.server.db.DBTransaction;
+import marauroa.server.db.command.AbstractDBCommand;
+import marauroa.server.db.command.DBCommand;
+import marauroa.server.db.command.ResultHandle;
+
+public class DBCommandDispatcherTest {
+
+	private static class NamedCommand extends AbstractDBCommand {
+		private final String name;
+
+		NamedCommand(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public void execute(DBTransaction transaction) {
+			// do nothing
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	/**
+	 * Tests that log commands are taken after the others
+	 */
+	@Test
+	public void testPriorityOrder() {
+		DBCommandDispatcher dispatcher = new DBCommandDispatcher(10, 1, OverflowPolicy.DROP, null);
+		DBCommand log = new NamedCommand("log");
+		DBCommand normal = new NamedCommand("normal");
+		DBCommand critical = new NamedCommand("critical");
+		dispatcher.enqueue(log, DBCommandPriority.LOG);
+		dispatcher.enqueueAndAwaitResult(critical, new ResultHandle());
+		dispatcher.enqueue(normal);
+
+		assertThat(dispatcher.getPendingCount(DBCommandPriority.LOG), is(1));
+		assertThat(dispatcher.poll().command, sameInstance(critical));
+		assertThat(dispatcher.poll().command, sameInstance(normal));
+		assertThat(dispatcher.poll().command, sameInstance(log));
+		assertThat(dispatcher.poll(), nullValue());
+	}
+
+	/**
+	 * Tests that a critical read does not overtake an earlier write
+	 */
+	@Test
+	public void testReadsStayBehindWrites() {
+		DBCommandDispatcher dispatcher = new DBCommandDispatcher(10, 1, OverflowPolicy.DROP, null);
+		DBCommand write = new NamedCommand("store message");
+		DBCommand read = new NamedCommand("read messages");
+		DBCommand laterWrite = new NamedCommand("later write");
+		dispatcher.enqueue(write);
+		dispatcher.enqueueAndAwaitResult(read, new ResultHandle());
+		dispatcher.enqueue(laterWrite);
+
+		assertThat(dispatcher.poll().command, sameInstance(write));
+		assertThat(dispatcher.poll().command, sameInstance(read));
+		assertThat(dispatcher.poll().command, sameInstance(laterWrite));
+	}
+
+	/**
+	 * Tests that only log commands are dropped if the queue is full
+	 */
+	@Test
+	public void testOverflowDrop() {
+		DBCommandDispatcher dispatcher = new DBCommandDispatcher(1, 1, OverflowPolicy.DROP, null);
+		dispatcher.enqueue(new NamedCommand("first"), DBCommandPriority.LOG);
+		dispatcher.enqueue(new NamedCommand("second"), DBCommandPriority.LOG);
+		dispatcher.enqueue(new NamedCommand("third"));
+
+		assertThat(dispatcher.getDroppedCount(), is(1L));
+		assertThat(dispatcher.getPendingCount(DBCommandPriority.LOG), is(1));
+		assertThat(dispatcher.getPendingCount(DBCommandPriority.NORMAL), is(1));
+
+		List<DBCommandStatistics> statistics = dispatcher.getStatistics();
+		assertThat(statistics.size(), is(1));
+		assertThat(statistics.get(0).getEnqueued(), is(3L));
+		assertThat(statistics.get(0).getDropped(), is(1L));
+	}
+
+	/**
+	 * Tests that log commands are written to the spill file if the queue is
+	 * full, and enqueued again on the next start
+	 *
+	 * @throws Exception in case of an unexpected exception
+	 */
+	@Test
+	public void testOverflowSpill() throws Exception {
+		File file = File.createTempFile("dbcommand", ".log");
+		file.deleteOnExit();
+		new File(file.getPath() + ".replay").deleteOnExit();
+		DBCommandDispatcher dispatcher = new DBCommandDispatcher(1, 1, OverflowPolicy.SPILL, file.getPath());
+		dispatcher.enqueue(new SpillableLogGameEventCommand("kept", "login"), DBCommandPriority.LOG);
+		dispatcher.enqueue(new SpillableLogGameEventCommand("spilled", "trade", "a\tb", null), DBCommandPriority.LOG);
+		dispatcher.enqueue(new LogKillEventCommand("rat", "C", "hero", "P", "2016-01-02"), DBCommandPriority.LOG);
+		dispatcher.enqueue(new NamedCommand("not spillable"), DBCommandPriority.LOG);
+		assertThat(file.length(), is(0L));
+		dispatcher.writeSpills();
+
+		assertThat(dispatcher.getSpilledCount(), is(2L));
+		assertThat(dispatcher.getDroppedCount(), is(1L));
+		String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+		assertTrue(content.contains("spilled"));
+		assertFalse(content.contains("kept"));
+
+		DBCommandDispatcher restarted = new DBCommandDispatcher(10, 1, OverflowPolicy.SPILL, file.getPath());
+		restarted.replaySpills();
+		assertFalse(file.exists());
+		assertThat(restarted.getPendingCount(DBCommandPriority.LOG), is(2));
+
+		DBCommand command = restarted.poll().command;
+		assertThat(command, instanceOf(SpillableLogGameEventCommand.class));
+		String[] fields = ((SpillableLogGameEventCommand) command).getSpillFields();
+		assertArrayEquals(new String[] {"spilled", "trade", "a\tb", null}, Arrays.copyOfRange(fields, 1, fields.length));
+		assertTrue(Long.parseLong(fields[0]) <= System.currentTimeMillis());
+		command = restarted.poll().command;
+		assertThat(command, instanceOf(LogKillEventCommand.class));
+		assertArrayEquals(new String[] {"rat", "C", "hero", "P", "2016-01-02"},
+				((LogKillEventCommand) command).getSpillFields());
+	}
+
+	/**
+	 * Tests reading and writing lines of the spill file
+	 */
+	@Test
+	public void testSpillFormat() {
+		LogTradeEventCommand trade = new LogTradeEventCommand("hero", "club", 42, 1, 100, "Stats are (ATK: 10)\nline", 1234L);
+		String line = DBCommandSpillFormat.encode(trade);
+		assertFalse(line.contains("\n"));
+		assertTrue(line.startsWith("trade\thero\tclub\t42"));
+		assertTrue(line.endsWith("\t1234"));
+
+		SpillableDBCommand decoded = DBCommandSpillFormat.decode(line);
+		assertThat(decoded, instanceOf(LogTradeEventCommand.class));
+		assertArrayEquals(trade.getSpillFields(), decoded.getSpillFields());
+
+		// the time of the event survives the replay
+		SpillableLogGameEventCommand event = new SpillableLogGameEventCommand(5678L, "hero", "login");
+		decoded = DBCommandSpillFormat.decode(DBCommandSpillFormat.encode(event));
+		assertThat(decoded, instanceOf(SpillableLogGameEventCommand.class));
+		assertArrayEquals(new String[] {"5678", "hero", "login"}, decoded.getSpillFields());
+	}
+
+	/**
+	 * Tests that unknown lines in the spill file are rejected
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testSpillFormatUnknownType() {
+		DBCommandSpillFormat.decode("unknown\tvalue");
+	}
+}
@@ -27,6 +27,7 @@ import games.stendhal.server.entity.ActiveEntity;
 import games.stendhal.server.entity.Entity;
 import games.stendhal.server.entity.RPEntity;
 import games.stendhal.server.entity.item.Item;
+import games.stendhal.server.entity.player.CharacterSchema;
 import games.stendhal.server.entity.player.Player;
 import games.stendhal.server.maps.MockStendlRPWorld;
 import marauroa.common.game.RPClass;
@@ -127,5 +128,21 @@ public class PlayerTransformerTest {
 		assertFalse(((Item) transItem).isBound());
 	}
 
+	/**
+	 * Tests that an up to date player stored without hp gets 1 hp.
+	 */
+	@Test
+	public void testTransformZeroHP() {
+		RPObject obje = new RPObject();
+		obje.put("name", "bob");
+		obje.setID(new RPObject.ID(1,"testzone"));
+		CharacterSchema.migrateObject(obje);
+		obje.put(CharacterSchema.VERSION_ATTRIBUTE, CharacterSchema.getCurrentVersion());
+		obje.put("hp", 0);
+
+		RPObject transObj = new PlayerTransformer().transform(obje);
+		assertThat(transObj.getInt("hp"), is(1));
+	}
+
 
 }
@@ -0,0 +1,153 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import marauroa.common.Log4J;
+
+/**
+ * Tests for DeferredWorkQueue
+ */
+public class DeferredWorkQueueTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Log4J.init();
+	}
+
+	/**
+	 * a task which needs a number of slices
+	 */
+	private static class CountingTask implements DeferredTask {
+		private final int slices;
+		private int run;
+
+		CountingTask(int slices) {
+			this.slices = slices;
+		}
+
+		@Override
+		public boolean runSlice() {
+			run++;
+			return run >= slices;
+		}
+	}
+
+	/**
+	 * Tests that tasks are run until they are complete while there is time.
+	 */
+	@Test
+	public void testRunsUntilComplete() {
+		DeferredWorkQueue queue = new DeferredWorkQueue(200, 100, 1);
+		CountingTask first = new CountingTask(3);
+		CountingTask second = new CountingTask(1);
+		queue.add("first", first);
+		queue.add("second", second);
+		assertEquals(2, queue.getPendingCount());
+
+		queue.runPending(1, System.nanoTime() + TimeUnit.MINUTES.toNanos(1));
+		assertEquals(3, first.run);
+		assertEquals(1, second.run);
+		assertEquals(0, queue.getPendingCount());
+	}
+
+	/**
+	 * Tests that tasks added during a turn run at the end of that turn, and
+	 * tasks added by a running slice in the next one.
+	 */
+	@Test
+	public void testAddedTasksStart() {
+		final DeferredWorkQueue queue = new DeferredWorkQueue(200, 100, 1);
+		final CountingTask added = new CountingTask(1);
+		queue.add("adding", new DeferredTask() {
+			@Override
+			public boolean runSlice() {
+				queue.add("added", added);
+				return true;
+			}
+		});
+
+		queue.runPending(1, System.nanoTime() + TimeUnit.MINUTES.toNanos(1));
+		assertEquals(0, added.run);
+		assertEquals(1, queue.getPendingCount());
+
+		queue.runPending(2, System.nanoTime() + TimeUnit.MINUTES.toNanos(1));
+		assertEquals(1, added.run);
+		assertEquals(0, queue.getPendingCount());
+	}
+
+	/**
+	 * Tests that nothing runs without time, until the task is overdue.
+	 */
+	@Test
+	public void testOutOfTime() {
+		DeferredWorkQueue queue = new DeferredWorkQueue(200, 10, 1);
+		CountingTask task = new CountingTask(2);
+		queue.add("task", task);
+
+		queue.runPending(1, System.nanoTime() - 1);
+		assertEquals(0, task.run);
+		queue.runPending(5, System.nanoTime() - 1);
+		assertEquals(0, task.run);
+
+		// overdue tasks get one slice per turn
+		queue.runPending(11, System.nanoTime() - 1);
+		assertEquals(1, task.run);
+		queue.runPending(12, System.nanoTime() - 1);
+		assertEquals(2, task.run);
+		assertEquals(0, queue.getPendingCount());
+	}
+
+	/**
+	 * Tests that a failing task is dropped.
+	 */
+	@Test
+	public void testFailingTask() {
+		DeferredWorkQueue queue = new DeferredWorkQueue(200, 100, 1);
+		queue.add("failing", new DeferredTask() {
+			@Override
+			public boolean runSlice() {
+				throw new IllegalStateException("test");
+			}
+		});
+		queue.runPending(1, System.nanoTime() + TimeUnit.MINUTES.toNanos(1));
+		assertEquals(0, queue.getPendingCount());
+	}
+
+	/**
+	 * Tests that detached work runs on another thread.
+	 */
+	@Test
+	public void testDetached() throws InterruptedException {
+		DeferredWorkQueue queue = new DeferredWorkQueue(200, 100, 1);
+		final CountDownLatch latch = new CountDownLatch(1);
+		final Thread current = Thread.currentThread();
+		final boolean[] otherThread = new boolean[1];
+		queue.addDetached("detached", new Runnable() {
+			@Override
+			public void run() {
+				otherThread[0] = Thread.currentThread() != current;
+				latch.countDown();
+			}
+		});
+		assertTrue(latch.await(10, TimeUnit.SECONDS));
+		assertTrue(otherThread[0]);
+	}
+}
@@ -0,0 +1,91 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.metrics;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+
+	private static String write(MetricsRegistry registry) throws Exception {
+		StringWriter out = new StringWriter();
+		registry.write(out);
+		return out.toString();
+	}
+
+	/**
+	 * Tests for counters and gauges
+	 *
+	 * @throws Exception in case of an unexpected exception
+	 */
+	@Test
+	public void testCounterAndGauge() throws Exception {
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.counter("test_total", "a counter").inc(3);
+		registry.counter("test_total", "a counter").inc();
+		registry.gauge("test_labeled", "a gauge", "zone", "int_\"x\"").set(1.5);
+
+		String text = write(registry);
+		assertThat(text, containsString("# TYPE test_total counter\n"));
+		assertThat(text, containsString("test_total 4\n"));
+		assertThat(text, containsString("# HELP test_labeled a gauge\n"));
+		assertThat(text, containsString("test_labeled{zone=\"int_\\\"x\\\"\"} 1.5\n"));
+	}
+
+	/**
+	 * Tests that replacing labeled gauges drops old labels
+	 *
+	 * @throws Exception in case of an unexpected exception
+	 */
+	@Test
+	public void testSetGauges() throws Exception {
+		MetricsRegistry registry = new MetricsRegistry();
+		Map<String, Integer> values = new HashMap<String, Integer>();
+		values.put("a", Integer.valueOf(1));
+		registry.setGauges("test_zone", "zone gauge", "zone", values);
+		values.clear();
+		values.put("b", Integer.valueOf(2));
+		registry.setGauges("test_zone", "zone gauge", "zone", values);
+
+		String text = write(registry);
+		assertThat(text, not(containsString("zone=\"a\"")));
+		assertThat(text, containsString("test_zone{zone=\"b\"} 2\n"));
+	}
+
+	/**
+	 * Tests that histogram buckets are cumulative
+	 *
+	 * @throws Exception in case of an unexpected exception
+	 */
+	@Test
+	public void testHistogram() throws Exception {
+		MetricsRegistry registry = new MetricsRegistry();
+		Histogram histogram = registry.histogram("test_seconds", "a histogram", 0.1, 1);
+		histogram.observe(0.05);
+		histogram.observe(0.5);
+		histogram.observe(5);
+
+		String text = write(registry);
+		assertThat(text, containsString("# TYPE test_seconds histogram\n"));
+		assertThat(text, containsString("test_seconds_bucket{le=\"0.1\"} 1\n"));
+		assertThat(text, containsString("test_seconds_bucket{le=\"1\"} 2\n"));
+		assertThat(text, containsString("test_seconds_bucket{le=\"+Inf\"} 3\n"));
+		assertThat(text, containsString("test_seconds_count 3\n"));
+	}
+}
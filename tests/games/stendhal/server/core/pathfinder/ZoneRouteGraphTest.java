@@ -0,0 +1,171 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.pathfinder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.mapstuff.portal.Portal;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import utilities.RPClass.EntityTestHelper;
+import utilities.RPClass.PortalTestHelper;
+
+/**
+ * Tests for ZoneRouteGraph.
+ */
+public class ZoneRouteGraphTest {
+	private StendhalRPZone west;
+	private StendhalRPZone east;
+	private StendhalRPZone house;
+	private Portal door;
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		MockStendlRPWorld.get();
+		EntityTestHelper.generateRPClasses();
+		PortalTestHelper.generateRPClasses();
+	}
+
+	@Before
+	public void setUp() {
+		west = new StendhalRPZone("0_route_west", 10, 10);
+		west.setPosition(0, 0, 0);
+		east = new StendhalRPZone("0_route_east", 10, 10);
+		east.setPosition(0, 10, 0);
+		house = new StendhalRPZone("int_route_house", 5, 5);
+		MockStendlRPWorld.get().addRPZone(west);
+		MockStendlRPWorld.get().addRPZone(east);
+		MockStendlRPWorld.get().addRPZone(house);
+
+		door = new Portal();
+		door.setPosition(1, 1);
+		door.setIdentifier("door");
+		door.setDestination(house.getName(), "exit");
+		west.add(door);
+
+		final Portal exit = new Portal();
+		exit.setPosition(2, 2);
+		exit.setIdentifier("exit");
+		exit.setDestination(west.getName(), "door");
+		house.add(exit);
+	}
+
+	@After
+	public void tearDown() {
+		MockStendlRPWorld.get().removeZone(west);
+		MockStendlRPWorld.get().removeZone(east);
+		MockStendlRPWorld.get().removeZone(house);
+	}
+
+	/**
+	 * Tests for a route inside one zone.
+	 */
+	@Test
+	public void testSameZone() {
+		final ZoneRoute route = ZoneRouteGraph.get().findRoute(west, 2, 5, west, 6, 8);
+		assertNotNull(route);
+		assertEquals(7, route.getDistance());
+		assertEquals(Arrays.asList(west), route.getZones());
+	}
+
+	/**
+	 * Tests for crossing a zone border.
+	 */
+	@Test
+	public void testBorder() {
+		final ZoneRoute route = ZoneRouteGraph.get().findRoute(west, 2, 4, east, 7, 4);
+		assertNotNull(route);
+		assertEquals(Arrays.asList(west, east), route.getZones());
+		final List<ZoneRoute.Leg> legs = route.getLegs();
+		assertEquals(9, legs.get(0).getX());
+		assertEquals(4, legs.get(0).getY());
+		assertEquals(0, legs.get(1).getStartX());
+		assertEquals(4, legs.get(1).getStartY());
+		assertEquals(7 + 1 + 7, route.getDistance());
+	}
+
+	/**
+	 * Tests for routes through portals and border crossings.
+	 */
+	@Test
+	public void testPortal() {
+		final ZoneRoute route = ZoneRouteGraph.get().findRoute(house, 0, 0, east, 5, 4);
+		assertNotNull(route);
+		assertEquals(Arrays.asList(house, west, east), route.getZones());
+		final ZoneRoute.Leg inside = route.getLegs().get(0);
+		assertEquals(2, inside.getX());
+		assertEquals(2, inside.getY());
+		assertEquals(4, inside.getDistance());
+		final ZoneRoute.Leg outside = route.getLegs().get(1);
+		assertEquals(1, outside.getStartX());
+		assertEquals(1, outside.getStartY());
+
+		assertSame(route, ZoneRouteGraph.get().findRoute(house, 0, 0, east, 5, 4));
+		assertEquals(3, route.toZonePaths().size());
+	}
+
+	/**
+	 * Tests that removing a portal updates the routes.
+	 */
+	@Test
+	public void testPortalRemoved() {
+		assertNotNull(ZoneRouteGraph.get().findRoute(house, 0, 0, west, 5, 5));
+		west.remove(door);
+		assertNull(ZoneRouteGraph.get().findRoute(house, 0, 0, west, 5, 5));
+	}
+
+	/**
+	 * Tests that a portal change keeps the cached routes of other zones.
+	 */
+	@Test
+	public void testPortalChangeKeepsOtherRoutes() {
+		final ZoneRoute inHouse = ZoneRouteGraph.get().findRoute(house, 0, 0, house, 4, 4);
+		final ZoneRoute toWest = ZoneRouteGraph.get().findRoute(house, 0, 0, west, 5, 5);
+		assertNotNull(inHouse);
+		assertNotNull(toWest);
+		final Portal gate = new Portal();
+		gate.setPosition(8, 8);
+		gate.setIdentifier("gate");
+		west.add(gate);
+		assertSame(inHouse, ZoneRouteGraph.get().findRoute(house, 0, 0, house, 4, 4));
+		assertNotSame(toWest, ZoneRouteGraph.get().findRoute(house, 0, 0, west, 5, 5));
+	}
+
+	/**
+	 * Tests that preparing computes the distances one node at a time.
+	 */
+	@Test
+	public void testPrepareInSlices() {
+		final ZoneRouteGraph graph = ZoneRouteGraph.get();
+		graph.prepare();
+		int slices = 1;
+		while (!graph.prepareNext()) {
+			slices++;
+		}
+		// the door and the border of west, the border of east, the exit
+		assertTrue(slices >= 4);
+		assertNotNull(graph.findRoute(house, 0, 0, east, 5, 4));
+	}
+}
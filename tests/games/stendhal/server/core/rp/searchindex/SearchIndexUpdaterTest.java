@@ -0,0 +1,78 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.core.rp.searchindex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import games.stendhal.server.entity.npc.SpeakerNPC;
+import games.stendhal.server.maps.MockStendhalRPRuleProcessor;
+import marauroa.common.Log4J;
+
+/**
+ * Tests for SearchIndexUpdater
+ */
+public class SearchIndexUpdaterTest {
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		Log4J.init();
+		MockStendhalRPRuleProcessor.get();
+	}
+
+	private static SearchIndexEntry nameEntry(String name) {
+		return new SearchIndexEntry(name, 'N', name, 3000 + 60);
+	}
+
+	/**
+	 * Tests that changes are tracked after the complete index was written.
+	 */
+	@Test
+	public void testChanges() {
+		SearchIndexUpdater updater = new SearchIndexUpdater(24);
+
+		// not tracked before the complete index is generated
+		updater.onNPCAdded(new SpeakerNPC("Early"));
+		assertTrue(updater.getEntries().isEmpty());
+
+		updater.startRebuild();
+		// added while the index is generated, but not part of it
+		updater.onNPCAdded(new SpeakerNPC("Bob"));
+		updater.finishRebuild(Sets.newHashSet(nameEntry("Alice")));
+		assertEquals(Sets.newHashSet(nameEntry("Alice"), nameEntry("Bob")), updater.getEntries());
+		assertTrue(updater.getAdded().isEmpty());
+		assertTrue(updater.getRemoved().isEmpty());
+
+		SpeakerNPC carl = new SpeakerNPC("Carl");
+		updater.onNPCAdded(carl);
+		assertEquals(Sets.newHashSet(nameEntry("Carl")), updater.getAdded());
+		// removing it again before it is written cancels out
+		updater.onNPCRemoved(carl);
+		assertTrue(updater.getAdded().isEmpty());
+		assertTrue(updater.getRemoved().isEmpty());
+
+		updater.onNPCRemoved(new SpeakerNPC("Alice"));
+		Set<SearchIndexEntry> removed = updater.getRemoved();
+		assertEquals(Sets.newHashSet(nameEntry("Alice")), removed);
+
+		updater.flush();
+		assertTrue(updater.getRemoved().isEmpty());
+		assertEquals(Sets.newHashSet(nameEntry("Bob")), updater.getEntries());
+	}
+}
@@ -22,6 +22,7 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import games.stendhal.server.core.engine.StendhalRPZone;
 import games.stendhal.server.entity.player.Player;
 import games.stendhal.server.maps.MockStendlRPWorld;
 import utilities.PlayerTestHelper;
@@ -230,4 +231,36 @@ public class EntityTest {
 
 
 	}
+
+	/**
+	 * Tests for notifyWorldAboutChangesIfModified.
+	 */
+	@Test
+	public void testNotifyWorldAboutChangesIfModified() {
+		final StendhalRPZone zone = new StendhalRPZone("modifytest");
+		final Entity en = new Entity() { };
+		zone.add(en);
+		en.notifyWorldAboutChanges();
+		assertFalse(en.isModified());
+
+		// same value is not a change
+		en.put("x", en.getX());
+		assertFalse(en.isModified());
+		en.notifyWorldAboutChangesIfModified();
+
+		en.put("title", "foo");
+		assertTrue(en.isModified());
+		en.notifyWorldAboutChangesIfModified();
+		assertFalse(en.isModified());
+
+		en.remove("title");
+		assertTrue(en.isModified());
+		en.notifyWorldAboutChangesIfModified();
+
+		int[] counts = zone.takeModifyRequestCounts();
+		assertEquals(3, counts[0]);
+		assertEquals(2, counts[1]);
+		counts = zone.takeModifyRequestCounts();
+		assertEquals(0, counts[0]);
+	}
 }
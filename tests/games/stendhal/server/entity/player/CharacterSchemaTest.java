@@ -0,0 +1,78 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import marauroa.common.Log4J;
+import marauroa.common.game.RPObject;
+import marauroa.server.game.db.DatabaseFactory;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for CharacterSchema.
+ */
+public class CharacterSchemaTest {
+
+	@BeforeClass
+	public static void setupClass() {
+		Log4J.init();
+		new DatabaseFactory().initializeDatabase();
+	}
+
+	/**
+	 * Tests that migrated players are marked with the current version.
+	 */
+	@Test
+	public void testMigratePlayer() {
+		final Player player = PlayerTestHelper.createPlayer("player");
+		// simulate a character stored by an old version
+		player.remove(CharacterSchema.VERSION_ATTRIBUTE);
+		assertEquals(0, CharacterSchema.getVersion(player));
+		assertTrue(CharacterSchema.isOutdated(player));
+
+		CharacterSchema.migrateObject(player);
+		CharacterSchema.migratePlayer(player);
+		assertEquals(CharacterSchema.getCurrentVersion(), CharacterSchema.getVersion(player));
+		assertFalse(CharacterSchema.isOutdated(player));
+	}
+
+	/**
+	 * Tests that steps are not repeated for up to date characters.
+	 */
+	@Test
+	public void testSkipCurrentSteps() {
+		final Player player = PlayerTestHelper.createPlayer("player");
+		player.put(CharacterSchema.VERSION_ATTRIBUTE, CharacterSchema.getCurrentVersion());
+		RPObject kills = player.getSlot("!kills").getFirst();
+		kills.put("cave_rat", "solo");
+
+		CharacterSchema.migrateObject(player);
+		// the kill slot conversion of the first step did not run
+		assertEquals("solo", player.getSlot("!kills").getFirst().get("cave_rat"));
+	}
+
+	/**
+	 * Tests that steps must be registered in order.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testRegisterOldVersion() {
+		CharacterSchema.register(new CharacterMigration(1, "test") {
+			// nothing to do
+		});
+	}
+}
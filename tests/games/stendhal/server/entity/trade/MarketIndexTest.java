@@ -0,0 +1,135 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.server.entity.trade;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import games.stendhal.server.actions.CStatusAction;
+import games.stendhal.server.core.engine.SingletonRepository;
+import games.stendhal.server.core.engine.StendhalRPZone;
+import games.stendhal.server.entity.item.Item;
+import games.stendhal.server.entity.player.Player;
+import games.stendhal.server.maps.MockStendhalRPRuleProcessor;
+import games.stendhal.server.maps.MockStendlRPWorld;
+import marauroa.common.Log4J;
+import marauroa.server.game.db.DatabaseFactory;
+import utilities.PlayerTestHelper;
+
+/**
+ * Tests for the offer indexes of the market.
+ */
+public class MarketIndexTest {
+	private Market market;
+	private Player bob;
+	private Player alice;
+
+	@BeforeClass
+	public static void beforeClass() {
+		Log4J.init();
+		new DatabaseFactory().initializeDatabase();
+		MockStendlRPWorld.get();
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		MockStendlRPWorld.reset();
+		MockStendhalRPRuleProcessor.get().clearPlayers();
+	}
+
+	@Before
+	public void before() {
+		CStatusAction.nameList.clear();
+		StendhalRPZone zone = new StendhalRPZone("shop");
+		market = Market.createShop();
+		zone.add(market);
+		bob = PlayerTestHelper.createPlayer("bob");
+		alice = PlayerTestHelper.createPlayer("alice");
+	}
+
+	private Offer offer(Player player, String itemName) {
+		Item item = SingletonRepository.getEntityManager().getItem(itemName);
+		player.equipToInventoryOnly(item);
+		return market.createOffer(player, item, 10, 1);
+	}
+
+	/**
+	 * Tests for the offerer and item name indexes.
+	 */
+	@Test
+	public void testLookups() {
+		Offer axe = offer(bob, "axe");
+		Offer dagger = offer(alice, "dagger");
+		Offer bigAxe = offer(bob, "battle axe");
+
+		assertEquals(asList(axe, bigAxe), market.getOffersOf("bob"));
+		assertEquals(asList(dagger), market.getOffersOf("alice"));
+		assertEquals(2, market.countOffersOfPlayer(bob));
+		assertEquals(0, market.countOffersOfPlayer(PlayerTestHelper.createPlayer("carol")));
+
+		assertEquals(asList(axe, bigAxe), market.findOffers("axe"));
+		assertEquals(asList(axe, dagger, bigAxe), market.findOffers("a"));
+		assertEquals(asList(dagger), market.findOffers("sword"));
+		assertEquals(asList("axe", "battle axe", "dagger"), new ArrayList<String>(market.getOfferedItemNames()));
+
+		market.removeOffer(axe, bob);
+		assertEquals(asList(bigAxe), market.getOffersOf("bob"));
+		assertEquals(asList("battle axe", "dagger"), new ArrayList<String>(market.getOfferedItemNames()));
+
+		market.expireOffer(dagger);
+		assertEquals(Collections.emptyList(), market.getOffersOf("alice"));
+		assertEquals(asList(dagger), market.getExpiredOffersOf("alice"));
+		assertEquals(asList(bigAxe), market.getOffers());
+	}
+
+	/**
+	 * Tests that the time index follows changed time stamps.
+	 */
+	@Test
+	public void testOlderThan() {
+		Offer axe = offer(bob, "axe");
+		Offer dagger = offer(alice, "dagger");
+		assertTrue(market.getOffersOlderThan(10).isEmpty());
+
+		dagger.put("timestamp", "0");
+		assertEquals(asList(dagger), market.getOffersOlderThan(10));
+
+		market.prolongOffer(dagger);
+		axe.put("timestamp", "0");
+		assertEquals(asList(axe), market.getOffersOlderThan(10));
+
+		market.expireOffer(axe);
+		assertTrue(market.getOffersOlderThan(10).isEmpty());
+		assertEquals(asList(axe), market.getExpiredOffersOlderThan(10));
+	}
+
+	/**
+	 * Tests that the index is rebuilt after the slot was modified directly.
+	 */
+	@Test
+	public void testDirectSlotModification() {
+		offer(bob, "axe");
+		assertEquals(1, market.countOffersOfPlayer(bob));
+		market.getSlot(Market.OFFERS_SLOT_NAME).clear();
+		assertEquals(0, market.countOffersOfPlayer(bob));
+		assertTrue(market.getOfferedItemNames().isEmpty());
+	}
+}
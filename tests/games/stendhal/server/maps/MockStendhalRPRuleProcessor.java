@@ -12,6 +12,7 @@
  ***************************************************************************/
 package games.stendhal.server.maps;
 
+import games.stendhal.server.core.engine.OnlinePlayerRoster;
 import games.stendhal.server.core.engine.PlayerList;
 import games.stendhal.server.core.engine.StendhalRPRuleProcessor;
 import games.stendhal.server.entity.player.Player;
@@ -48,6 +49,7 @@ public class MockStendhalRPRuleProcessor extends StendhalRPRuleProcessor {
 	 */
 	public void addPlayer(final Player player) {
 		this.onlinePlayers.add(player);
+		this.onlineRoster.onLoggedIn(player);
 	}
 
 	/**
@@ -55,5 +57,6 @@ public class MockStendhalRPRuleProcessor extends StendhalRPRuleProcessor {
 	 */
 	public void clearPlayers() {
 		onlinePlayers = new PlayerList();
+		onlineRoster = new OnlinePlayerRoster();
 	}
 }
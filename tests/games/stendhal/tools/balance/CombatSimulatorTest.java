@@ -0,0 +1,103 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.balance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import games.stendhal.common.constants.Nature;
+
+/**
+ * Tests for CombatSimulator.
+ */
+public class CombatSimulatorTest {
+	/**
+	 * Create a combatant without healing or lifesteal.
+	 *
+	 * @param name name
+	 * @param level level
+	 * @param atk atk
+	 * @param def def
+	 * @param hp base hp
+	 * @return combatant
+	 */
+	private static Combatant create(String name, int level, int atk, int def, int hp) {
+		return create(name, level, atk, def, hp, 5);
+	}
+
+	/**
+	 * Create a combatant without healing or lifesteal.
+	 *
+	 * @param name name
+	 * @param level level
+	 * @param atk atk
+	 * @param def def
+	 * @param hp base hp
+	 * @param attackRate turns between attacks
+	 * @return combatant
+	 */
+	private static Combatant create(String name, int level, int atk, int def, int hp, int attackRate) {
+		Map<Nature, Double> susceptibilities = new EnumMap<Nature, Double>(Nature.class);
+		for (Nature nature : Nature.values()) {
+			susceptibilities.put(nature, Double.valueOf(1.0));
+		}
+		return new Combatant(name, level, atk, def, 10, 10, attackRate, hp, Nature.CUT, susceptibilities, 0, 0, 0);
+	}
+
+	/**
+	 * Tests that the same seed gives the same result.
+	 */
+	@Test
+	public void testDeterministic() {
+		Combatant player = create("player", 10, 20, 30, 200);
+		Combatant creature = create("rat", 10, 20, 30, 200);
+		FightResult first = CombatSimulator.simulate(player, creature, 50, 42);
+		FightResult second = CombatSimulator.simulate(player, creature, 50, 42);
+		assertEquals(first.getWinRate(), second.getWinRate(), 0);
+		assertEquals(first.getMeanTurns(), second.getMeanTurns(), 0);
+		assertEquals(first.getMeanLeftHP(), second.getMeanLeftHP(), 0);
+
+		assertNotEquals(BalanceSweep.seedFor(42, "rat", 10, 0), BalanceSweep.seedFor(42, "rat", 10, 1));
+	}
+
+	/**
+	 * Tests that a much stronger player wins.
+	 */
+	@Test
+	public void testStrongPlayerWins() {
+		Combatant player = create("player", 50, 100, 100, 1000);
+		Combatant creature = create("rat", 1, 5, 5, 20);
+		FightResult result = CombatSimulator.simulate(player, creature, 20, 1);
+		assertEquals(20, result.getFights());
+		assertEquals(1.0, result.getWinRate(), 0);
+		assertTrue(result.getMeanLeftHP() > 900);
+	}
+
+	/**
+	 * Tests that the player attacks at its own attack rate.
+	 */
+	@Test
+	public void testPlayerAttackRate() {
+		Combatant creature = create("rat", 1, 5, 5, 500, 1000);
+		FightResult fast = CombatSimulator.simulate(create("player", 50, 100, 100, 1000, 2), creature, 20, 1);
+		FightResult slow = CombatSimulator.simulate(create("player", 50, 100, 100, 1000, 8), creature, 20, 1);
+		assertEquals(1.0, fast.getWinRate(), 0);
+		assertEquals(1.0, slow.getWinRate(), 0);
+		assertTrue(slow.getMeanTurns() > 3 * fast.getMeanTurns());
+	}
+}
@@ -0,0 +1,94 @@
+/***************************************************************************
+ *                   (C) Copyright 2003-2016 - Stendhal                    *
+ ***************************************************************************
+ ***************************************************************************
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *                                                                         *
+ ***************************************************************************/
+package games.stendhal.tools.loganalyser.laganalyser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+public class LagLogScannerTest {
+
+	private static final String LOG = "2016-05-01 10:00:01 INFO  [main] StendhalRPZone.java(  100) - something else\n"
+			+ "2016-05-01 10:00:02 WARN  [main] RPServerManager.java(  300) - Turn duration overflow by 45 ms: 10 30 35 345\n"
+			+ "2016-05-01 10:00:59 WARN  [main] RPServerManager.java(  300) - Turn duration overflow by 5 ms: 1 2 3 305\n"
+			+ "WARN  [main] RPServerManager.java(  300) - Turn duration overflow by 7 ms: 1 2\n"
+			+ "2016-05-01 10:01:00 WARN  [main] RPServerManager.java(  300) - Turn duration overflow by 100 ms: 50 60 70 400";
+
+	private static File createLog(String suffix, boolean gzip) throws IOException {
+		File file = File.createTempFile("lag", suffix);
+		file.deleteOnExit();
+		OutputStream os = new FileOutputStream(file);
+		if (gzip) {
+			os = new GZIPOutputStream(os);
+		}
+		os.write(LOG.getBytes(StandardCharsets.UTF_8));
+		os.close();
+		return file;
+	}
+
+	private static void checkRecords(List<LagRecord> records) {
+		assertThat(records.size(), is(4));
+		assertThat(records.get(0).getOverflow(), is(45));
+		assertArrayEquals(new int[] {10, 20, 5, 310}, records.get(0).getTimes());
+		assertThat(records.get(2).getTimestamp(), is(-1L));
+		assertArrayEquals(new int[] {1, 1}, records.get(2).getTimes());
+		assertThat(records.get(3).getOverflow(), is(100));
+	}
+
+	/**
+	 * Tests scanning plain and gzipped files with tiny chunks
+	 *
+	 * @throws IOException in case of an input/output error
+	 */
+	@Test
+	public void testScan() throws IOException {
+		File plain = createLog(".log", false);
+		File gzipped = createLog(".log.gz", true);
+
+		checkRecords(new LagLogScanner(40, 3).scan(Arrays.asList(plain)));
+		checkRecords(new LagLogScanner(40, 3).scan(Arrays.asList(gzipped)));
+		checkRecords(new LagLogScanner(1024, 1).scan(Arrays.asList(gzipped)));
+		assertThat(new LagLogScanner(64, 2).scan(Arrays.asList(plain, gzipped)).size(), is(8));
+	}
+
+	/**
+	 * Tests grouping into time buckets
+	 *
+	 * @throws IOException in case of an input/output error
+	 */
+	@Test
+	public void testIndex() throws IOException {
+		LagIndex index = new LagIndex(60 * 1000);
+		for (LagRecord record : new LagLogScanner().scan(Arrays.asList(createLog(".log", false)))) {
+			index.add(record);
+		}
+
+		assertThat(index.getWithoutTimestamp(), is(1));
+		assertThat(index.getBuckets().size(), is(2));
+		LagIndex.Bucket bucket = index.getBuckets().iterator().next();
+		assertThat(bucket.getCount(), is(2));
+		assertThat(bucket.getTotalOverflow(), is(50L));
+		assertThat(bucket.getMaxOverflow(), is(45));
+		assertArrayEquals(new int[] {5, 10, 3, 306}, bucket.getAverageTimes());
+	}
+}